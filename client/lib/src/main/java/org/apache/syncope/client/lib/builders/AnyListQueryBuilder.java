@@ -55,6 +55,12 @@ public class AnyListQueryBuilder extends AnyQueryBuilder {
         return this;
     }
 
+    public AnyListQueryBuilder countLimit(final Integer countLimit) {
+        instance.setCountLimit(countLimit);
+
+        return this;
+    }
+
     @Override
     public AnyListQuery build() {
         AnyQuery lq = super.build();
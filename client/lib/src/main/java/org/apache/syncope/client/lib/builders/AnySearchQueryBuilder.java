@@ -50,12 +50,29 @@ public class AnySearchQueryBuilder extends AnyListQueryBuilder {
         return AnySearchQueryBuilder.class.cast(super.details(details));
     }
 
+    @Override
+    public AnySearchQueryBuilder countLimit(final Integer countLimit) {
+        return AnySearchQueryBuilder.class.cast(super.countLimit(countLimit));
+    }
+
     public AnySearchQueryBuilder fiql(final String fiql) {
         instance.setFiql(fiql);
 
         return this;
     }
 
+    public AnySearchQueryBuilder after(final String after) {
+        instance.setAfter(after);
+
+        return this;
+    }
+
+    public AnySearchQueryBuilder attribute(final String attribute) {
+        instance.getAttributes().add(attribute);
+
+        return this;
+    }
+
     @Override
     public AnySearchQuery build() {
         AnyListQuery slq = super.build();
@@ -64,6 +81,7 @@ public class AnySearchQueryBuilder extends AnyListQueryBuilder {
         instance.setSize(slq.getSize());
         instance.setOrderBy(slq.getOrderBy());
         instance.setDetails(slq.isDetails());
+        instance.setCountLimit(slq.getCountLimit());
 
         return instance;
     }
@@ -29,6 +29,8 @@ public class DerSchemaTO extends AbstractSchemaTO {
 
     private String expression;
 
+    private boolean materialized;
+
     public String getExpression() {
         return expression;
     }
@@ -36,4 +38,12 @@ public class DerSchemaTO extends AbstractSchemaTO {
     public void setExpression(final String expression) {
         this.expression = expression;
     }
+
+    public boolean isMaterialized() {
+        return materialized;
+    }
+
+    public void setMaterialized(final boolean materialized) {
+        this.materialized = materialized;
+    }
 }
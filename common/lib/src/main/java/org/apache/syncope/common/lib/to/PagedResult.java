@@ -47,6 +47,10 @@ public class PagedResult<T extends AbstractBaseBean> extends AbstractBaseBean {
 
     private int totalCount;
 
+    private boolean totalCountEstimated;
+
+    private String nextAfter;
+
     public URI getPrev() {
         return prev;
     }
@@ -95,4 +99,20 @@ public class PagedResult<T extends AbstractBaseBean> extends AbstractBaseBean {
         this.totalCount = totalCount;
     }
 
+    public boolean isTotalCountEstimated() {
+        return totalCountEstimated;
+    }
+
+    public void setTotalCountEstimated(final boolean totalCountEstimated) {
+        this.totalCountEstimated = totalCountEstimated;
+    }
+
+    public String getNextAfter() {
+        return nextAfter;
+    }
+
+    public void setNextAfter(final String nextAfter) {
+        this.nextAfter = nextAfter;
+    }
+
 }
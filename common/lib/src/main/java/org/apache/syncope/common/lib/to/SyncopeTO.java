@@ -59,6 +59,10 @@ public class SyncopeTO extends AbstractBaseBean {
 
     private String passwordGenerator;
 
+    private long searchQueryCacheHits;
+
+    private long searchQueryCacheMisses;
+
     private final List<String> reportlets = new ArrayList<>();
 
     private final List<String> accountRules = new ArrayList<>();
@@ -85,6 +89,8 @@ public class SyncopeTO extends AbstractBaseBean {
 
     private final List<String> mailTemplates = new ArrayList<>();
 
+    private final List<String> pendingPlainSchemaDeletions = new ArrayList<>();
+
     public String getVersion() {
         return version;
     }
@@ -144,6 +150,28 @@ public class SyncopeTO extends AbstractBaseBean {
         this.passwordGenerator = passwordGenerator;
     }
 
+    /**
+     * @return number of searches whose query was built from a cached template, since startup
+     */
+    public long getSearchQueryCacheHits() {
+        return searchQueryCacheHits;
+    }
+
+    public void setSearchQueryCacheHits(final long searchQueryCacheHits) {
+        this.searchQueryCacheHits = searchQueryCacheHits;
+    }
+
+    /**
+     * @return number of searches whose query was built from scratch, since startup
+     */
+    public long getSearchQueryCacheMisses() {
+        return searchQueryCacheMisses;
+    }
+
+    public void setSearchQueryCacheMisses(final long searchQueryCacheMisses) {
+        this.searchQueryCacheMisses = searchQueryCacheMisses;
+    }
+
     @XmlElementWrapper(name = "reportlets")
     @XmlElement(name = "reportlet")
     @JsonProperty("reportlets")
@@ -235,6 +263,16 @@ public class SyncopeTO extends AbstractBaseBean {
         return mailTemplates;
     }
 
+    /**
+     * @return plain schemas being deleted in background, each followed by the status of deletion
+     */
+    @XmlElementWrapper(name = "pendingPlainSchemaDeletions")
+    @XmlElement(name = "pendingPlainSchemaDeletion")
+    @JsonProperty("pendingPlainSchemaDeletions")
+    public List<String> getPendingPlainSchemaDeletions() {
+        return pendingPlainSchemaDeletions;
+    }
+
     public void setVersion(final String version) {
         this.version = version;
     }
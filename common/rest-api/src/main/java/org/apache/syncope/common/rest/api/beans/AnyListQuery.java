@@ -21,7 +21,9 @@ package org.apache.syncope.common.rest.api.beans;
 import java.util.List;
 import javax.ws.rs.DefaultValue;
 import javax.ws.rs.MatrixParam;
+import javax.ws.rs.QueryParam;
 import org.apache.syncope.common.lib.SyncopeConstants;
+import org.apache.syncope.common.rest.api.service.JAXRSService;
 
 public class AnyListQuery extends AnyQuery {
 
@@ -29,6 +31,8 @@ public class AnyListQuery extends AnyQuery {
 
     private List<String> realms;
 
+    private Integer countLimit;
+
     public List<String> getRealms() {
         return realms;
     }
@@ -38,4 +42,19 @@ public class AnyListQuery extends AnyQuery {
     public void setRealms(final List<String> realms) {
         this.realms = realms;
     }
+
+    public Integer getCountLimit() {
+        return countLimit;
+    }
+
+    /**
+     * When positive, counting of total matches stops after the given number: this speeds up paging through very large
+     * result sets, at the price of a total count which might be reported as estimated.
+     *
+     * @param countLimit maximum number of matches to count
+     */
+    @QueryParam(JAXRSService.PARAM_COUNT_LIMIT)
+    public void setCountLimit(final Integer countLimit) {
+        this.countLimit = countLimit;
+    }
 }
@@ -18,6 +18,8 @@
  */
 package org.apache.syncope.common.rest.api.beans;
 
+import java.util.ArrayList;
+import java.util.List;
 import javax.ws.rs.QueryParam;
 import org.apache.syncope.common.rest.api.service.JAXRSService;
 
@@ -27,6 +29,10 @@ public class AnySearchQuery extends AnyListQuery {
 
     private String fiql;
 
+    private String after;
+
+    private final List<String> attributes = new ArrayList<>();
+
     public String getFiql() {
         return fiql;
     }
@@ -36,4 +42,38 @@ public class AnySearchQuery extends AnyListQuery {
         this.fiql = fiql;
     }
 
+    public String getAfter() {
+        return after;
+    }
+
+    /**
+     * When set, switches to keyset (seek) pagination: the value is either empty, for the first page, or the
+     * {@code nextAfter} token returned with the previous page; {@code page} is ignored in this case.
+     *
+     * @param after empty or token returned with the previous page
+     */
+    @QueryParam(JAXRSService.PARAM_AFTER)
+    public void setAfter(final String after) {
+        this.after = after;
+    }
+
+    public List<String> getAttributes() {
+        return attributes;
+    }
+
+    /**
+     * When not empty, only the given plain attributes are returned for each match, read straight from the search
+     * views: no other attribute, membership, relationship or resource is reported, and binary attributes are not
+     * supported; {@code details} and {@code after} are ignored in this case.
+     *
+     * @param attributes plain schema names to be returned
+     */
+    @QueryParam(JAXRSService.PARAM_ATTRIBUTES)
+    public void setAttributes(final List<String> attributes) {
+        this.attributes.clear();
+        if (attributes != null) {
+            this.attributes.addAll(attributes);
+        }
+    }
+
 }
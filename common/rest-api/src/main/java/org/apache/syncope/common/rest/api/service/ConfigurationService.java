@@ -38,7 +38,8 @@ import org.apache.syncope.common.lib.to.ConfTO;
 public interface ConfigurationService extends JAXRSService {
 
     /**
-     * Exports internal storage content as downloadable XML file.
+     * Exports internal storage content as downloadable XML file; content is gzip-compressed when the request's
+     * Accept-Encoding header includes gzip.
      *
      * @return internal storage content as downloadable XML file
      */
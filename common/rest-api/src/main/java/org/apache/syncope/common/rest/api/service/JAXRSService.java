@@ -28,6 +28,12 @@ public interface JAXRSService {
 
     String PARAM_ORDERBY = "orderby";
 
+    String PARAM_AFTER = "after";
+
+    String PARAM_COUNT_LIMIT = "countLimit";
+
+    String PARAM_ATTRIBUTES = "attributes";
+
     String PARAM_RESOURCE = "resource";
 
     String PARAM_ANYTYPE_KIND = "anyTypeKind";
@@ -20,6 +20,7 @@ package org.apache.syncope.common.rest.api.service;
 
 import java.util.List;
 import javax.validation.constraints.NotNull;
+import javax.ws.rs.BeanParam;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
@@ -32,11 +33,13 @@ import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import org.apache.syncope.common.lib.to.PagedResult;
 import org.apache.syncope.common.lib.to.ReportExecTO;
 import org.apache.syncope.common.lib.to.ReportTO;
 import org.apache.syncope.common.lib.types.JobAction;
 import org.apache.syncope.common.lib.types.JobStatusType;
 import org.apache.syncope.common.lib.types.ReportExecExportFormat;
+import org.apache.syncope.common.rest.api.beans.ExecQuery;
 
 /**
  * REST operations for reports.
@@ -66,6 +69,18 @@ public interface ReportService extends JAXRSService {
     @Produces({ MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON })
     ReportExecTO readExecution(@NotNull @PathParam("executionKey") Long executionKey);
 
+    /**
+     * Returns a paged list of executions of the report matching the given key, most recent first.
+     *
+     * @param key key of report whose executions are to be listed
+     * @param query paging conditions
+     * @return paged list of executions of the report matching the given key
+     */
+    @GET
+    @Path("{key}/executions")
+    @Produces({ MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON })
+    PagedResult<ReportExecTO> listExecutions(@NotNull @PathParam("key") Long key, @BeanParam ExecQuery query);
+
     /**
      * Returns a list of all existing reports.
      *
@@ -90,6 +90,10 @@ public interface SchemaService extends JAXRSService {
 
     /**
      * Deletes the schema matching the given type and key.
+     * Plain schemas owning many attributes are no longer available for any type class once this call returns, but
+     * their attributes, and then the schema itself, are removed in background: such schemas are reported, with the
+     * progress or failure of their removal, by {@link SyncopeService#info()} until gone; a failed removal is resumed
+     * by deleting the schema again or at next startup.
      *
      * @param type type for schema to be deleted
      * @param key name of schema to be deleted
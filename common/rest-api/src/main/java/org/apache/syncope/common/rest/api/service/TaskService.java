@@ -43,6 +43,7 @@ import org.apache.syncope.common.lib.to.TaskExecTO;
 import org.apache.syncope.common.lib.types.JobAction;
 import org.apache.syncope.common.lib.types.JobStatusType;
 import org.apache.syncope.common.lib.types.TaskType;
+import org.apache.syncope.common.rest.api.beans.ExecQuery;
 import org.apache.syncope.common.rest.api.beans.TaskQuery;
 
 /**
@@ -74,6 +75,18 @@ public interface TaskService extends JAXRSService {
     @Produces({ MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON })
     TaskExecTO readExecution(@NotNull @PathParam("executionKey") Long executionKey);
 
+    /**
+     * Returns a paged list of executions of the task matching the given key, most recent first.
+     *
+     * @param key key of task whose executions are to be listed
+     * @param query paging conditions
+     * @return paged list of executions of the task matching the given key
+     */
+    @GET
+    @Path("{key}/executions")
+    @Produces({ MediaType.APPLICATION_XML, MediaType.APPLICATION_JSON })
+    PagedResult<TaskExecTO> listExecutions(@NotNull @PathParam("key") Long key, @BeanParam ExecQuery query);
+
     /**
      * Returns a paged list of existing tasks matching type and the given query.
      *
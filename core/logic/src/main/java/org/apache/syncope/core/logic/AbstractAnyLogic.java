@@ -22,14 +22,17 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.collections4.Factory;
 import org.apache.commons.collections4.Predicate;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
 import org.apache.syncope.common.lib.SyncopeClientException;
 import org.apache.syncope.common.lib.patch.AnyPatch;
 import org.apache.syncope.common.lib.to.AnyTO;
+import org.apache.syncope.common.lib.to.AttrTO;
 import org.apache.syncope.common.lib.to.GroupTO;
 import org.apache.syncope.common.lib.to.UserTO;
 import org.apache.syncope.common.lib.types.AnyTypeKind;
@@ -41,7 +44,9 @@ import org.apache.syncope.core.misc.spring.ApplicationContextProvider;
 import org.apache.syncope.core.persistence.api.dao.AnyTypeDAO;
 import org.apache.syncope.core.persistence.api.dao.RealmDAO;
 import org.apache.syncope.core.persistence.api.dao.search.OrderByClause;
+import org.apache.syncope.core.persistence.api.dao.search.ProjectedAny;
 import org.apache.syncope.core.persistence.api.dao.search.SearchCond;
+import org.apache.syncope.core.persistence.api.dao.search.SearchPage;
 import org.apache.syncope.core.persistence.api.entity.AnyType;
 import org.apache.syncope.core.persistence.api.entity.Realm;
 import org.apache.syncope.core.provisioning.api.LogicActions;
@@ -234,6 +239,30 @@ public abstract class AbstractAnyLogic<TO extends AnyTO, P extends AnyPatch>
         }
     }
 
+    /**
+     * Builds lightweight transfer objects out of the given projections, only reporting key and projected plain
+     * attributes.
+     *
+     * @param projections page of projections
+     * @param factory transfer object factory
+     * @return page of transfer objects
+     */
+    protected SearchPage<TO> getProjectionPage(final SearchPage<ProjectedAny> projections, final Factory<TO> factory) {
+        SearchPage<TO> result = new SearchPage<>();
+        for (ProjectedAny projection : projections.getItems()) {
+            TO anyTO = factory.create();
+            anyTO.setKey(projection.getKey());
+            for (Map.Entry<String, List<String>> entry : projection.getPlainAttrs().entrySet()) {
+                anyTO.getPlainAttrs().add(new AttrTO.Builder().schema(entry.getKey()).values(entry.getValue()).build());
+            }
+            result.getItems().add(anyTO);
+        }
+        result.setTotalCount(projections.getTotalCount());
+        result.setTotalCountEstimated(projections.isTotalCountEstimated());
+
+        return result;
+    }
+
     public abstract TO read(Long key);
 
     public abstract int count(List<String> realms);
@@ -249,11 +278,37 @@ public abstract class AbstractAnyLogic<TO extends AnyTO, P extends AnyPatch>
             List<String> realms,
             boolean details);
 
+    public abstract SearchPage<TO> list(
+            int page, int size, List<OrderByClause> orderBy,
+            List<String> realms,
+            boolean details,
+            int countLimit);
+
     public abstract List<TO> search(
             SearchCond searchCondition,
             int page, int size, List<OrderByClause> orderBy,
             List<String> realms,
             boolean details);
 
+    public abstract SearchPage<TO> search(
+            SearchCond searchCondition,
+            int page, int size, List<OrderByClause> orderBy,
+            List<String> realms,
+            boolean details,
+            int countLimit);
+
+    public abstract SearchPage<TO> search(
+            SearchCond searchCondition,
+            String after, int size, List<OrderByClause> orderBy,
+            List<String> realms,
+            boolean details);
+
+    public abstract SearchPage<TO> project(
+            SearchCond searchCondition,
+            int page, int size, List<OrderByClause> orderBy,
+            List<String> realms,
+            int countLimit,
+            List<String> attributes);
+
     public abstract int searchCount(SearchCond searchCondition, List<String> realms);
 }
@@ -27,6 +27,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.collections4.Factory;
 import org.apache.commons.collections4.Transformer;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -44,6 +45,7 @@ import org.apache.syncope.common.lib.types.PatchOperation;
 import org.apache.syncope.core.persistence.api.dao.AnyObjectDAO;
 import org.apache.syncope.core.persistence.api.dao.search.OrderByClause;
 import org.apache.syncope.core.persistence.api.dao.search.SearchCond;
+import org.apache.syncope.core.persistence.api.dao.search.SearchPage;
 import org.apache.syncope.core.provisioning.api.AnyObjectProvisioningManager;
 import org.apache.syncope.core.provisioning.api.data.AnyObjectDataBinder;
 import org.apache.syncope.core.misc.security.AuthContextUtils;
@@ -98,6 +100,31 @@ public class AnyObjectLogic extends AbstractAnyLogic<AnyObjectTO, AnyObjectPatch
         return list(null, page, size, orderBy, realms, details);
     }
 
+    @PreAuthorize("hasRole('" + Entitlement.ANY_OBJECT_LIST + "')")
+    @Transactional(readOnly = true)
+    @Override
+    public SearchPage<AnyObjectTO> list(
+            final int page, final int size, final List<OrderByClause> orderBy,
+            final List<String> realms, final boolean details, final int countLimit) {
+
+        SearchPage<AnyObject> matchingAnyObjects = anyObjectDAO.findAllAndCount(
+                getEffectiveRealms(SyncopeConstants.FULL_ADMIN_REALMS, realms),
+                page, size, orderBy, countLimit);
+
+        SearchPage<AnyObjectTO> result = new SearchPage<>();
+        CollectionUtils.collect(matchingAnyObjects.getItems(), new Transformer<AnyObject, AnyObjectTO>() {
+
+            @Override
+            public AnyObjectTO transform(final AnyObject input) {
+                return binder.getAnyObjectTO(input, details);
+            }
+        }, result.getItems());
+        result.setTotalCount(matchingAnyObjects.getTotalCount());
+        result.setTotalCountEstimated(matchingAnyObjects.isTotalCountEstimated());
+
+        return result;
+    }
+
     @PreAuthorize("hasRole('" + Entitlement.ANY_OBJECT_LIST + "')")
     @Transactional(readOnly = true)
     public List<AnyObjectTO> list(final String type,
@@ -145,6 +172,73 @@ public class AnyObjectLogic extends AbstractAnyLogic<AnyObjectTO, AnyObjectPatch
         }, new ArrayList<AnyObjectTO>());
     }
 
+    @PreAuthorize("hasRole('" + Entitlement.ANY_OBJECT_SEARCH + "')")
+    @Transactional(readOnly = true)
+    @Override
+    public SearchPage<AnyObjectTO> search(final SearchCond searchCondition, final int page, final int size,
+            final List<OrderByClause> orderBy, final List<String> realms, final boolean details,
+            final int countLimit) {
+
+        SearchPage<AnyObject> matchingAnyObjects = searchDAO.searchAndCount(
+                getEffectiveRealms(AuthContextUtils.getAuthorizations().get(Entitlement.ANY_OBJECT_SEARCH), realms),
+                searchCondition, page, size, orderBy, AnyTypeKind.ANY_OBJECT, countLimit);
+
+        SearchPage<AnyObjectTO> result = new SearchPage<>();
+        CollectionUtils.collect(matchingAnyObjects.getItems(), new Transformer<AnyObject, AnyObjectTO>() {
+
+            @Override
+            public AnyObjectTO transform(final AnyObject input) {
+                return binder.getAnyObjectTO(input, details);
+            }
+        }, result.getItems());
+        result.setTotalCount(matchingAnyObjects.getTotalCount());
+        result.setTotalCountEstimated(matchingAnyObjects.isTotalCountEstimated());
+
+        return result;
+    }
+
+    @PreAuthorize("hasRole('" + Entitlement.ANY_OBJECT_SEARCH + "')")
+    @Transactional(readOnly = true)
+    @Override
+    public SearchPage<AnyObjectTO> project(final SearchCond searchCondition, final int page, final int size,
+            final List<OrderByClause> orderBy, final List<String> realms, final int countLimit,
+            final List<String> attributes) {
+
+        return getProjectionPage(searchDAO.project(
+                getEffectiveRealms(AuthContextUtils.getAuthorizations().get(Entitlement.ANY_OBJECT_SEARCH), realms),
+                searchCondition, page, size, orderBy, AnyTypeKind.ANY_OBJECT, countLimit, attributes),
+                new Factory<AnyObjectTO>() {
+
+            @Override
+            public AnyObjectTO create() {
+                return new AnyObjectTO();
+            }
+        });
+    }
+
+    @PreAuthorize("hasRole('" + Entitlement.ANY_OBJECT_SEARCH + "')")
+    @Transactional(readOnly = true)
+    @Override
+    public SearchPage<AnyObjectTO> search(final SearchCond searchCondition, final String after, final int size,
+            final List<OrderByClause> orderBy, final List<String> realms, final boolean details) {
+
+        SearchPage<AnyObject> matchingAnyObjects = searchDAO.search(
+                getEffectiveRealms(AuthContextUtils.getAuthorizations().get(Entitlement.ANY_OBJECT_SEARCH), realms),
+                searchCondition, after, size, orderBy, AnyTypeKind.ANY_OBJECT);
+
+        SearchPage<AnyObjectTO> result = new SearchPage<>();
+        CollectionUtils.collect(matchingAnyObjects.getItems(), new Transformer<AnyObject, AnyObjectTO>() {
+
+            @Override
+            public AnyObjectTO transform(final AnyObject input) {
+                return binder.getAnyObjectTO(input, details);
+            }
+        }, result.getItems());
+        result.setNext(matchingAnyObjects.getNext());
+
+        return result;
+    }
+
     @PreAuthorize("hasRole('" + Entitlement.ANY_OBJECT_CREATE + "')")
     @Override
     public AnyObjectTO create(final AnyObjectTO anyObjectTO) {
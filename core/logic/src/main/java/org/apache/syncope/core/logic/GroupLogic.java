@@ -27,6 +27,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.collections4.Factory;
 import org.apache.commons.collections4.Predicate;
 import org.apache.commons.collections4.Transformer;
 import org.apache.commons.lang3.ArrayUtils;
@@ -47,6 +48,7 @@ import org.apache.syncope.core.persistence.api.dao.GroupDAO;
 import org.apache.syncope.core.persistence.api.dao.UserDAO;
 import org.apache.syncope.core.persistence.api.dao.search.OrderByClause;
 import org.apache.syncope.core.persistence.api.dao.search.SearchCond;
+import org.apache.syncope.core.persistence.api.dao.search.SearchPage;
 import org.apache.syncope.core.persistence.api.entity.group.Group;
 import org.apache.syncope.core.provisioning.api.GroupProvisioningManager;
 import org.apache.syncope.core.provisioning.api.data.GroupDataBinder;
@@ -142,6 +144,31 @@ public class GroupLogic extends AbstractAnyLogic<GroupTO, GroupPatch> {
                 }, new ArrayList<GroupTO>());
     }
 
+    @PreAuthorize("isAuthenticated()")
+    @Transactional(readOnly = true)
+    @Override
+    public SearchPage<GroupTO> list(
+            final int page, final int size, final List<OrderByClause> orderBy,
+            final List<String> realms, final boolean details, final int countLimit) {
+
+        SearchPage<Group> matchingGroups = groupDAO.findAllAndCount(
+                getEffectiveRealms(SyncopeConstants.FULL_ADMIN_REALMS, realms),
+                page, size, orderBy, countLimit);
+
+        SearchPage<GroupTO> result = new SearchPage<>();
+        CollectionUtils.collect(matchingGroups.getItems(), new Transformer<Group, GroupTO>() {
+
+            @Override
+            public GroupTO transform(final Group input) {
+                return binder.getGroupTO(input, details);
+            }
+        }, result.getItems());
+        result.setTotalCount(matchingGroups.getTotalCount());
+        result.setTotalCountEstimated(matchingGroups.isTotalCountEstimated());
+
+        return result;
+    }
+
     @PreAuthorize("hasRole('" + Entitlement.GROUP_SEARCH + "')")
     @Transactional(readOnly = true)
     @Override
@@ -169,6 +196,73 @@ public class GroupLogic extends AbstractAnyLogic<GroupTO, GroupPatch> {
         }, new ArrayList<GroupTO>());
     }
 
+    @PreAuthorize("hasRole('" + Entitlement.GROUP_SEARCH + "')")
+    @Transactional(readOnly = true)
+    @Override
+    public SearchPage<GroupTO> search(final SearchCond searchCondition, final int page, final int size,
+            final List<OrderByClause> orderBy, final List<String> realms, final boolean details,
+            final int countLimit) {
+
+        SearchPage<Group> matchingGroups = searchDAO.searchAndCount(
+                getEffectiveRealms(AuthContextUtils.getAuthorizations().get(Entitlement.GROUP_SEARCH), realms),
+                searchCondition, page, size, orderBy, AnyTypeKind.GROUP, countLimit);
+
+        SearchPage<GroupTO> result = new SearchPage<>();
+        CollectionUtils.collect(matchingGroups.getItems(), new Transformer<Group, GroupTO>() {
+
+            @Override
+            public GroupTO transform(final Group input) {
+                return binder.getGroupTO(input, details);
+            }
+        }, result.getItems());
+        result.setTotalCount(matchingGroups.getTotalCount());
+        result.setTotalCountEstimated(matchingGroups.isTotalCountEstimated());
+
+        return result;
+    }
+
+    @PreAuthorize("hasRole('" + Entitlement.GROUP_SEARCH + "')")
+    @Transactional(readOnly = true)
+    @Override
+    public SearchPage<GroupTO> project(final SearchCond searchCondition, final int page, final int size,
+            final List<OrderByClause> orderBy, final List<String> realms, final int countLimit,
+            final List<String> attributes) {
+
+        return getProjectionPage(searchDAO.project(
+                getEffectiveRealms(AuthContextUtils.getAuthorizations().get(Entitlement.GROUP_SEARCH), realms),
+                searchCondition, page, size, orderBy, AnyTypeKind.GROUP, countLimit, attributes),
+                new Factory<GroupTO>() {
+
+            @Override
+            public GroupTO create() {
+                return new GroupTO();
+            }
+        });
+    }
+
+    @PreAuthorize("hasRole('" + Entitlement.GROUP_SEARCH + "')")
+    @Transactional(readOnly = true)
+    @Override
+    public SearchPage<GroupTO> search(final SearchCond searchCondition, final String after, final int size,
+            final List<OrderByClause> orderBy, final List<String> realms, final boolean details) {
+
+        SearchPage<Group> matchingGroups = searchDAO.search(
+                getEffectiveRealms(AuthContextUtils.getAuthorizations().get(Entitlement.GROUP_SEARCH), realms),
+                searchCondition, after, size, orderBy, AnyTypeKind.GROUP);
+
+        SearchPage<GroupTO> result = new SearchPage<>();
+        CollectionUtils.collect(matchingGroups.getItems(), new Transformer<Group, GroupTO>() {
+
+            @Override
+            public GroupTO transform(final Group input) {
+                return binder.getGroupTO(input, details);
+            }
+        }, result.getItems());
+        result.setNext(matchingGroups.getNext());
+
+        return result;
+    }
+
     @PreAuthorize("hasRole('" + Entitlement.GROUP_CREATE + "')")
     @Override
     public GroupTO create(final GroupTO groupTO) {
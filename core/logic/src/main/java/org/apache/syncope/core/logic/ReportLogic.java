@@ -47,6 +47,7 @@ import org.apache.syncope.common.lib.types.ReportExecStatus;
 import org.apache.syncope.core.persistence.api.dao.NotFoundException;
 import org.apache.syncope.core.persistence.api.dao.ReportDAO;
 import org.apache.syncope.core.persistence.api.dao.ReportExecDAO;
+import org.apache.syncope.core.persistence.api.dao.search.SearchPage;
 import org.apache.syncope.core.persistence.api.entity.EntityFactory;
 import org.apache.syncope.core.persistence.api.entity.Report;
 import org.apache.syncope.core.persistence.api.entity.ReportExec;
@@ -157,6 +158,49 @@ public class ReportLogic extends AbstractJobLogic<ReportTO> {
         return binder.getReportExecTO(reportExec);
     }
 
+    private Report findReport(final Long reportKey) {
+        Report report = reportDAO.find(reportKey);
+        if (report == null) {
+            throw new NotFoundException("Report " + reportKey);
+        }
+        return report;
+    }
+
+    private Transformer<ReportExec, ReportExecTO> execTransformer() {
+        return new Transformer<ReportExec, ReportExecTO>() {
+
+            @Override
+            public ReportExecTO transform(final ReportExec input) {
+                return binder.getReportExecTO(input);
+            }
+        };
+    }
+
+    @PreAuthorize("hasRole('" + Entitlement.REPORT_READ + "')")
+    @Transactional(readOnly = true)
+    public int countExecutions(final Long reportKey) {
+        return reportExecDAO.count(findReport(reportKey));
+    }
+
+    @PreAuthorize("hasRole('" + Entitlement.REPORT_READ + "')")
+    @Transactional(readOnly = true)
+    public List<ReportExecTO> listExecutions(final Long reportKey, final int page, final int size) {
+        return CollectionUtils.collect(
+                reportExecDAO.findAll(findReport(reportKey), page, size), execTransformer(),
+                new ArrayList<ReportExecTO>());
+    }
+
+    @PreAuthorize("hasRole('" + Entitlement.REPORT_READ + "')")
+    @Transactional(readOnly = true)
+    public SearchPage<ReportExecTO> listExecutions(final Long reportKey, final String after, final int size) {
+        SearchPage<ReportExec> execs = reportExecDAO.findAll(findReport(reportKey), after, size);
+
+        SearchPage<ReportExecTO> result = new SearchPage<>();
+        CollectionUtils.collect(execs.getItems(), execTransformer(), result.getItems());
+        result.setNext(execs.getNext());
+        return result;
+    }
+
     @PreAuthorize("hasRole('" + Entitlement.REPORT_READ + "')")
     public void exportExecutionResult(final OutputStream os, final ReportExec reportExec,
             final ReportExecExportFormat format) {
@@ -22,6 +22,7 @@ import java.io.IOException;
 import java.lang.reflect.Method;
 import java.net.URI;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
 import javax.annotation.Resource;
 import org.apache.syncope.common.lib.to.SyncopeTO;
@@ -29,7 +30,9 @@ import org.apache.syncope.core.misc.security.PasswordGenerator;
 import org.apache.syncope.core.misc.spring.ResourceWithFallbackLoader;
 import org.apache.syncope.core.persistence.api.ImplementationLookup;
 import org.apache.syncope.core.persistence.api.ImplementationLookup.Type;
+import org.apache.syncope.core.persistence.api.dao.AnySearchDAO;
 import org.apache.syncope.core.persistence.api.dao.ConfDAO;
+import org.apache.syncope.core.persistence.api.dao.PlainSchemaDAO;
 import org.apache.syncope.core.provisioning.api.AnyObjectProvisioningManager;
 import org.apache.syncope.core.provisioning.api.ConnIdBundleManager;
 import org.apache.syncope.core.provisioning.api.GroupProvisioningManager;
@@ -51,6 +54,12 @@ public class SyncopeLogic extends AbstractLogic<SyncopeTO> {
     @Autowired
     private ConfDAO confDAO;
 
+    @Autowired
+    private PlainSchemaDAO plainSchemaDAO;
+
+    @Autowired
+    private AnySearchDAO searchDAO;
+
     @Resource(name = "version")
     private String version;
 
@@ -165,6 +174,13 @@ public class SyncopeLogic extends AbstractLogic<SyncopeTO> {
         htmlTemplates.retainAll(textTemplates);
         syncopeTO.getMailTemplates().addAll(htmlTemplates);
 
+        for (Map.Entry<String, String> entry : plainSchemaDAO.findPendingDeletions().entrySet()) {
+            syncopeTO.getPendingPlainSchemaDeletions().add(entry.getKey() + " (" + entry.getValue() + ")");
+        }
+
+        syncopeTO.setSearchQueryCacheHits(searchDAO.getQueryCacheHits());
+        syncopeTO.setSearchQueryCacheMisses(searchDAO.getQueryCacheMisses());
+
         return syncopeTO;
     }
 
@@ -42,6 +42,7 @@ import org.apache.syncope.core.persistence.api.dao.NotFoundException;
 import org.apache.syncope.core.persistence.api.dao.TaskDAO;
 import org.apache.syncope.core.persistence.api.dao.TaskExecDAO;
 import org.apache.syncope.core.persistence.api.dao.search.OrderByClause;
+import org.apache.syncope.core.persistence.api.dao.search.SearchPage;
 import org.apache.syncope.core.persistence.api.entity.task.NotificationTask;
 import org.apache.syncope.core.persistence.api.entity.task.PropagationTask;
 import org.apache.syncope.core.persistence.api.entity.task.SchedTask;
@@ -192,6 +193,45 @@ public class TaskLogic extends AbstractJobLogic<AbstractTaskTO> {
         return binder.getTaskExecTO(taskExec);
     }
 
+    private Task findTask(final Long taskKey) {
+        Task task = taskDAO.find(taskKey);
+        if (task == null) {
+            throw new NotFoundException("Task " + taskKey);
+        }
+        return task;
+    }
+
+    private Transformer<TaskExec, TaskExecTO> execTransformer() {
+        return new Transformer<TaskExec, TaskExecTO>() {
+
+            @Override
+            public TaskExecTO transform(final TaskExec input) {
+                return binder.getTaskExecTO(input);
+            }
+        };
+    }
+
+    @PreAuthorize("hasRole('" + Entitlement.TASK_READ + "')")
+    public int countExecutions(final Long taskKey) {
+        return taskExecDAO.count(findTask(taskKey));
+    }
+
+    @PreAuthorize("hasRole('" + Entitlement.TASK_READ + "')")
+    public List<TaskExecTO> listExecutions(final Long taskKey, final int page, final int size) {
+        return CollectionUtils.collect(
+                taskExecDAO.findAll(findTask(taskKey), page, size), execTransformer(), new ArrayList<TaskExecTO>());
+    }
+
+    @PreAuthorize("hasRole('" + Entitlement.TASK_READ + "')")
+    public SearchPage<TaskExecTO> listExecutions(final Long taskKey, final String after, final int size) {
+        SearchPage<TaskExec> execs = taskExecDAO.findAll(findTask(taskKey), after, size);
+
+        SearchPage<TaskExecTO> result = new SearchPage<>();
+        CollectionUtils.collect(execs.getItems(), execTransformer(), result.getItems());
+        result.setNext(execs.getNext());
+        return result;
+    }
+
     @PreAuthorize("hasRole('" + Entitlement.TASK_EXECUTE + "')")
     public TaskExecTO execute(final Long taskKey, final boolean dryRun) {
         Task task = taskDAO.find(taskKey);
@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.syncope.core.logic;
+
+import org.apache.syncope.core.misc.security.AuthContextUtils;
+import org.apache.syncope.core.persistence.api.DomainsHolder;
+import org.apache.syncope.core.persistence.api.TaskRetention;
+import org.quartz.DisallowConcurrentExecution;
+import org.quartz.Job;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Periodically removes tasks and task executions, according to the configured retention policies.
+ *
+ * @see TaskRetention
+ */
+@Component
+@DisallowConcurrentExecution
+public class TaskRetentionJob implements Job {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TaskRetentionJob.class);
+
+    @Autowired
+    private DomainsHolder domainsHolder;
+
+    @Autowired
+    private TaskRetention taskRetention;
+
+    @Override
+    public void execute(final JobExecutionContext context) throws JobExecutionException {
+        LOG.debug("Waking up...");
+
+        for (String domain : domainsHolder.getDomains().keySet()) {
+            try {
+                AuthContextUtils.execWithAuthContext(domain, new AuthContextUtils.Executable<Void>() {
+
+                    @Override
+                    public Void exec() {
+                        taskRetention.purge();
+                        return null;
+                    }
+                });
+            } catch (RuntimeException e) {
+                LOG.error("While removing tasks and executions from domain {}", domain, e);
+            }
+        }
+
+        LOG.debug("Sleeping again...");
+    }
+
+}
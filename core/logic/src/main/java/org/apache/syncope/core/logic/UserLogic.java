@@ -27,6 +27,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.collections4.Factory;
 import org.apache.commons.collections4.Transformer;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -49,6 +50,7 @@ import org.apache.syncope.core.persistence.api.dao.GroupDAO;
 import org.apache.syncope.core.persistence.api.dao.UserDAO;
 import org.apache.syncope.core.persistence.api.dao.search.OrderByClause;
 import org.apache.syncope.core.persistence.api.dao.search.SearchCond;
+import org.apache.syncope.core.persistence.api.dao.search.SearchPage;
 import org.apache.syncope.core.persistence.api.entity.group.Group;
 import org.apache.syncope.core.persistence.api.entity.user.User;
 import org.apache.syncope.core.provisioning.api.UserProvisioningManager;
@@ -126,6 +128,31 @@ public class UserLogic extends AbstractAnyLogic<UserTO, UserPatch> {
                 }, new ArrayList<UserTO>());
     }
 
+    @PreAuthorize("hasRole('" + Entitlement.USER_LIST + "')")
+    @Transactional(readOnly = true)
+    @Override
+    public SearchPage<UserTO> list(
+            final int page, final int size, final List<OrderByClause> orderBy,
+            final List<String> realms, final boolean details, final int countLimit) {
+
+        SearchPage<User> matchingUsers = userDAO.findAllAndCount(
+                getEffectiveRealms(AuthContextUtils.getAuthorizations().get(Entitlement.USER_LIST), realms),
+                page, size, orderBy, countLimit);
+
+        SearchPage<UserTO> result = new SearchPage<>();
+        CollectionUtils.collect(matchingUsers.getItems(), new Transformer<User, UserTO>() {
+
+            @Override
+            public UserTO transform(final User input) {
+                return binder.getUserTO(input, details);
+            }
+        }, result.getItems());
+        result.setTotalCount(matchingUsers.getTotalCount());
+        result.setTotalCountEstimated(matchingUsers.isTotalCountEstimated());
+
+        return result;
+    }
+
     @PreAuthorize("isAuthenticated()")
     @Transactional(readOnly = true)
     public Pair<String, UserTO> readSelf() {
@@ -168,6 +195,73 @@ public class UserLogic extends AbstractAnyLogic<UserTO, UserPatch> {
         }, new ArrayList<UserTO>());
     }
 
+    @PreAuthorize("hasRole('" + Entitlement.USER_SEARCH + "')")
+    @Transactional(readOnly = true)
+    @Override
+    public SearchPage<UserTO> search(final SearchCond searchCondition, final int page, final int size,
+            final List<OrderByClause> orderBy, final List<String> realms, final boolean details,
+            final int countLimit) {
+
+        SearchPage<User> matchingUsers = searchDAO.searchAndCount(
+                getEffectiveRealms(AuthContextUtils.getAuthorizations().get(Entitlement.USER_SEARCH), realms),
+                searchCondition, page, size, orderBy, AnyTypeKind.USER, countLimit);
+
+        SearchPage<UserTO> result = new SearchPage<>();
+        CollectionUtils.collect(matchingUsers.getItems(), new Transformer<User, UserTO>() {
+
+            @Override
+            public UserTO transform(final User input) {
+                return binder.getUserTO(input, details);
+            }
+        }, result.getItems());
+        result.setTotalCount(matchingUsers.getTotalCount());
+        result.setTotalCountEstimated(matchingUsers.isTotalCountEstimated());
+
+        return result;
+    }
+
+    @PreAuthorize("hasRole('" + Entitlement.USER_SEARCH + "')")
+    @Transactional(readOnly = true)
+    @Override
+    public SearchPage<UserTO> project(final SearchCond searchCondition, final int page, final int size,
+            final List<OrderByClause> orderBy, final List<String> realms, final int countLimit,
+            final List<String> attributes) {
+
+        return getProjectionPage(searchDAO.project(
+                getEffectiveRealms(AuthContextUtils.getAuthorizations().get(Entitlement.USER_SEARCH), realms),
+                searchCondition, page, size, orderBy, AnyTypeKind.USER, countLimit, attributes),
+                new Factory<UserTO>() {
+
+            @Override
+            public UserTO create() {
+                return new UserTO();
+            }
+        });
+    }
+
+    @PreAuthorize("hasRole('" + Entitlement.USER_SEARCH + "')")
+    @Transactional(readOnly = true)
+    @Override
+    public SearchPage<UserTO> search(final SearchCond searchCondition, final String after, final int size,
+            final List<OrderByClause> orderBy, final List<String> realms, final boolean details) {
+
+        SearchPage<User> matchingUsers = searchDAO.search(
+                getEffectiveRealms(AuthContextUtils.getAuthorizations().get(Entitlement.USER_SEARCH), realms),
+                searchCondition, after, size, orderBy, AnyTypeKind.USER);
+
+        SearchPage<UserTO> result = new SearchPage<>();
+        CollectionUtils.collect(matchingUsers.getItems(), new Transformer<User, UserTO>() {
+
+            @Override
+            public UserTO transform(final User input) {
+                return binder.getUserTO(input, details);
+            }
+        }, result.getItems());
+        result.setNext(matchingUsers.getNext());
+
+        return result;
+    }
+
     @PreAuthorize("isAnonymous() or hasRole('" + Entitlement.ANONYMOUS + "')")
     public UserTO selfCreate(final UserTO userTO, final boolean storePassword) {
         return doCreate(userTO, storePassword, true);
@@ -41,12 +41,14 @@ import org.apache.syncope.core.persistence.api.entity.task.SyncTask;
 import org.apache.syncope.core.persistence.api.entity.task.Task;
 import org.apache.syncope.core.provisioning.api.job.JobInstanceLoader;
 import org.apache.syncope.core.provisioning.api.job.JobNamer;
+import org.apache.syncope.core.logic.TaskRetentionJob;
 import org.apache.syncope.core.logic.notification.NotificationJob;
 import org.apache.syncope.core.logic.report.ReportJob;
 import org.apache.syncope.core.misc.security.AuthContextUtils;
 import org.apache.syncope.core.misc.spring.ApplicationContextProvider;
 import org.apache.syncope.core.persistence.api.SyncopeLoader;
 import org.apache.syncope.core.persistence.api.DomainsHolder;
+import org.apache.syncope.core.persistence.api.TaskRetention;
 import org.apache.syncope.core.provisioning.java.job.TaskJob;
 import org.apache.syncope.core.provisioning.java.sync.PushJobDelegate;
 import org.apache.syncope.core.provisioning.java.sync.SyncJobDelegate;
@@ -88,6 +90,9 @@ public class JobInstanceLoaderImpl implements JobInstanceLoader, SyncopeLoader {
     @Autowired
     private ConfDAO confDAO;
 
+    @Autowired
+    private TaskRetention taskRetention;
+
     private void registerJob(
             final String jobName, final Job jobInstance, final String cronExpression, final Map<String, Object> jobMap)
             throws SchedulerException, ParseException {
@@ -200,6 +205,12 @@ public class JobInstanceLoaderImpl implements JobInstanceLoader, SyncopeLoader {
         registerJob("taskNotificationJob", job, cronExpression, Collections.<String, Object>emptyMap());
     }
 
+    private void registerTaskRetentionJob(final String cronExpression) throws SchedulerException, ParseException {
+        TaskRetentionJob job = createSpringBean(TaskRetentionJob.class);
+
+        registerJob("taskRetentionJob", job, cronExpression, Collections.<String, Object>emptyMap());
+    }
+
     private void unregisterJob(final String jobName) {
         try {
             scheduler.getScheduler().unscheduleJob(new TriggerKey(jobName, Scheduler.DEFAULT_GROUP));
@@ -295,5 +306,19 @@ public class JobInstanceLoaderImpl implements JobInstanceLoader, SyncopeLoader {
                 LOG.error("While loading NotificationJob instance", e);
             }
         }
+
+        // 4. TaskRetentionJob
+        if (StringUtils.isBlank(taskRetention.getCronExpression())) {
+            LOG.debug("Empty value provided for TaskRetentionJob's cron, not registering anything on Quartz");
+        } else {
+            LOG.debug("TaskRetentionJob's cron expression: {} - registering Quartz job and trigger",
+                    taskRetention.getCronExpression());
+
+            try {
+                registerTaskRetentionJob(taskRetention.getCronExpression());
+            } catch (Exception e) {
+                LOG.error("While loading TaskRetentionJob instance", e);
+            }
+        }
     }
 }
@@ -34,6 +34,7 @@ import org.apache.syncope.common.lib.to.GroupTO;
 import org.apache.syncope.common.lib.types.AnyTypeKind;
 import org.apache.syncope.core.persistence.api.dao.GroupDAO;
 import org.apache.syncope.core.persistence.api.dao.search.OrderByClause;
+import org.apache.syncope.core.persistence.api.dao.search.SearchPage;
 import org.apache.syncope.core.persistence.api.entity.group.Group;
 import org.apache.syncope.core.misc.search.SearchCondConverter;
 import org.apache.syncope.core.persistence.api.dao.AnySearchDAO;
@@ -60,27 +61,20 @@ public class GroupReportlet extends AbstractReportlet {
 
     private GroupReportletConf conf;
 
-    private List<Group> getPagedGroups(final int page) {
-        List<Group> result;
+    private SearchPage<Group> getPagedGroups(final String after) {
+        SearchPage<Group> result;
 
         if (StringUtils.isBlank(conf.getMatchingCond())) {
-            result = groupDAO.findAll(SyncopeConstants.FULL_ADMIN_REALMS, page, PAGE_SIZE);
+            result = groupDAO.findAll(SyncopeConstants.FULL_ADMIN_REALMS, after, PAGE_SIZE);
         } else {
             result = searchDAO.search(SyncopeConstants.FULL_ADMIN_REALMS,
                     SearchCondConverter.convert(conf.getMatchingCond()),
-                    page, PAGE_SIZE, Collections.<OrderByClause>emptyList(), AnyTypeKind.GROUP);
+                    after, PAGE_SIZE, Collections.<OrderByClause>emptyList(), AnyTypeKind.GROUP);
         }
 
         return result;
     }
 
-    private int count() {
-        return StringUtils.isBlank(conf.getMatchingCond())
-                ? groupDAO.count(SyncopeConstants.FULL_ADMIN_REALMS)
-                : searchDAO.count(SyncopeConstants.FULL_ADMIN_REALMS,
-                        SearchCondConverter.convert(conf.getMatchingCond()), AnyTypeKind.GROUP);
-    }
-
     private void doExtractResources(final ContentHandler handler, final AnyTO anyTO)
             throws SAXException {
 
@@ -308,8 +302,11 @@ public class GroupReportlet extends AbstractReportlet {
         }
 
         doExtractConf(handler);
-        for (int i = 1; i <= (count() / PAGE_SIZE) + 1; i++) {
-            doExtract(handler, getPagedGroups(i));
-        }
+        String after = null;
+        do {
+            SearchPage<Group> page = getPagedGroups(after);
+            doExtract(handler, page.getItems());
+            after = page.getNext();
+        } while (after != null);
     }
 }
@@ -36,6 +36,7 @@ import org.apache.syncope.common.lib.to.UserTO;
 import org.apache.syncope.common.lib.types.AnyTypeKind;
 import org.apache.syncope.core.persistence.api.dao.UserDAO;
 import org.apache.syncope.core.persistence.api.dao.search.OrderByClause;
+import org.apache.syncope.core.persistence.api.dao.search.SearchPage;
 import org.apache.syncope.core.persistence.api.entity.user.User;
 import org.apache.syncope.core.misc.search.SearchCondConverter;
 import org.apache.syncope.core.misc.DataFormat;
@@ -72,27 +73,20 @@ public class UserReportlet extends AbstractReportlet {
 
     private UserReportletConf conf;
 
-    private List<User> getPagedUsers(final int page) {
-        List<User> result;
+    private SearchPage<User> getPagedUsers(final String after) {
+        SearchPage<User> result;
 
         if (StringUtils.isBlank(conf.getMatchingCond())) {
-            result = userDAO.findAll(SyncopeConstants.FULL_ADMIN_REALMS, page, PAGE_SIZE);
+            result = userDAO.findAll(SyncopeConstants.FULL_ADMIN_REALMS, after, PAGE_SIZE);
         } else {
             result = searchDAO.search(SyncopeConstants.FULL_ADMIN_REALMS,
                     SearchCondConverter.convert(conf.getMatchingCond()),
-                    page, PAGE_SIZE, Collections.<OrderByClause>emptyList(), AnyTypeKind.USER);
+                    after, PAGE_SIZE, Collections.<OrderByClause>emptyList(), AnyTypeKind.USER);
         }
 
         return result;
     }
 
-    private int count() {
-        return StringUtils.isBlank(conf.getMatchingCond())
-                ? userDAO.count(SyncopeConstants.FULL_ADMIN_REALMS)
-                : searchDAO.count(SyncopeConstants.FULL_ADMIN_REALMS,
-                        SearchCondConverter.convert(conf.getMatchingCond()), AnyTypeKind.USER);
-    }
-
     private void doExtractResources(final ContentHandler handler, final AnyTO anyTO)
             throws SAXException {
 
@@ -378,8 +372,11 @@ public class UserReportlet extends AbstractReportlet {
         }
 
         doExtractConf(handler);
-        for (int i = 1; i <= (count() / PAGE_SIZE) + 1; i++) {
-            doExtract(handler, getPagedUsers(i));
-        }
+        String after = null;
+        do {
+            SearchPage<User> page = getPagedUsers(after);
+            doExtract(handler, page.getItems());
+            after = page.getNext();
+        } while (after != null);
     }
 }
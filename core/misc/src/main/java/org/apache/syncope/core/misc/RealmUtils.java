@@ -24,6 +24,11 @@ import java.util.Set;
 
 public final class RealmUtils {
 
+    /**
+     * Escape character for the patterns returned by {@link #getDescendantsPattern(String)}.
+     */
+    public static final char LIKE_ESCAPE = '!';
+
     public static String getGroupOwnerRealm(final String realmPath, final Long groupKey) {
         return realmPath + "@" + groupKey;
     }
@@ -55,6 +60,27 @@ public final class RealmUtils {
         return normalized;
     }
 
+    /**
+     * Builds the LIKE pattern matching the full paths of all descendants of the given realm: wildcards within the
+     * given path are escaped via {@link #LIKE_ESCAPE}, to be declared by the LIKE clause.
+     *
+     * @param realmPath realm full path
+     * @return LIKE pattern matching the full paths of all descendants
+     */
+    public static String getDescendantsPattern(final String realmPath) {
+        StringBuilder pattern = new StringBuilder();
+        for (char c : realmPath.toCharArray()) {
+            if (c == '%' || c == '_' || c == LIKE_ESCAPE) {
+                pattern.append(LIKE_ESCAPE);
+            }
+            pattern.append(c);
+        }
+        if (pattern.length() == 0 || pattern.charAt(pattern.length() - 1) != '/') {
+            pattern.append('/');
+        }
+        return pattern.append('%').toString();
+    }
+
     private RealmUtils() {
         // empty constructor for static utility class 
     }
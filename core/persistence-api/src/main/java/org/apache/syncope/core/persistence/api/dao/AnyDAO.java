@@ -18,9 +18,12 @@
  */
 package org.apache.syncope.core.persistence.api.dao;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import org.apache.syncope.core.persistence.api.dao.search.OrderByClause;
+import org.apache.syncope.core.persistence.api.dao.search.SearchPage;
 import org.apache.syncope.core.persistence.api.entity.Any;
 import org.apache.syncope.core.persistence.api.entity.resource.ExternalResource;
 import org.apache.syncope.core.persistence.api.entity.PlainAttrValue;
@@ -31,10 +34,37 @@ public interface AnyDAO<A extends Any<?, ?, ?>> extends DAO<A, Long> {
 
     A find(Long key);
 
+    /**
+     * Loads the entities with given keys, by means of a few batched queries rather than one query per key.
+     *
+     * @param keys entity keys, possibly containing duplicates
+     * @return entities found, without duplicates and in the same order as the given keys
+     */
+    List<A> findByKeys(List<Long> keys);
+
     A findByWorkflowId(String workflowId);
 
+    /**
+     * Find any objects by plain attribute value: only the value matching the schema type is compared.
+     *
+     * @param schemaName plain schema name
+     * @param attrValue plain attribute value
+     * @return list of any objects
+     */
     List<A> findByAttrValue(String schemaName, PlainAttrValue attrValue);
 
+    /**
+     * Batch variant of {@link #findByAttrValue(java.lang.String, PlainAttrValue)}, only returning keys: the given
+     * values are parsed according to schema type, then looked up by means of a few queries rather than one query per
+     * value.
+     * Values which cannot be parsed, or all values when the schema is not found, are compared as strings.
+     *
+     * @param schemaName plain schema name
+     * @param values plain attribute values, as strings
+     * @return keys of the any objects found, by value; values not matching any object are not reported
+     */
+    Map<String, List<Long>> findByAttrValues(String schemaName, Collection<String> values);
+
     A findByAttrUniqueValue(String schemaName, PlainAttrValue attrUniqueValue);
 
     /**
@@ -55,6 +85,30 @@ public interface AnyDAO<A extends Any<?, ?, ?>> extends DAO<A, Long> {
 
     List<A> findAll(Set<String> adminRealms, int page, int itemsPerPage, List<OrderByClause> orderBy);
 
+    /**
+     * Same as {@link #findAll(java.util.Set, int, int, java.util.List)}, also returning the total count.
+     *
+     * @param adminRealms realms for which the caller owns the proper entitlement(s)
+     * @param page position of the first result, start from 1
+     * @param itemsPerPage number of results per page
+     * @param orderBy list of ordering clauses
+     * @param countLimit when positive, counting stops after this many items
+     * @return the page of any objects, with total count
+     * @see AnySearchDAO#searchAndCount
+     */
+    SearchPage<A> findAllAndCount(Set<String> adminRealms, int page, int itemsPerPage, List<OrderByClause> orderBy,
+            int countLimit);
+
+    /**
+     * Keyset (seek) variant of {@link #findAll(java.util.Set, int, int)}, suitable for walking large tables.
+     *
+     * @param adminRealms realms for which the caller owns the proper entitlement(s)
+     * @param after token returned by the previous call as {@link SearchPage#getNext()}, or null for the first page
+     * @param itemsPerPage number of results per page
+     * @return the page of any objects, with the token for the next page
+     */
+    SearchPage<A> findAll(Set<String> adminRealms, String after, int itemsPerPage);
+
     int count(Set<String> adminRealms);
 
     A save(A any);
@@ -18,11 +18,15 @@
  */
 package org.apache.syncope.core.persistence.api.dao;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 import org.apache.syncope.common.lib.types.AnyTypeKind;
 import org.apache.syncope.core.persistence.api.dao.search.OrderByClause;
+import org.apache.syncope.core.persistence.api.dao.search.ProjectedAny;
 import org.apache.syncope.core.persistence.api.dao.search.SearchCond;
+import org.apache.syncope.core.persistence.api.dao.search.SearchHandler;
+import org.apache.syncope.core.persistence.api.dao.search.SearchPage;
 import org.apache.syncope.core.persistence.api.entity.Any;
 
 public interface AnySearchDAO extends DAO<Any<?, ?, ?>, Long> {
@@ -70,6 +74,82 @@ public interface AnySearchDAO extends DAO<Any<?, ?, ?>, Long> {
             Set<String> adminRealms, SearchCond searchCondition, int page, int itemsPerPage,
             List<OrderByClause> orderBy, AnyTypeKind kind);
 
+    /**
+     * Paged search also returning the total number of matches: this is computed by the same statement when the
+     * underlying database supports window functions; otherwise, the count is skipped whenever it can be inferred from
+     * the page itself, and performed only as a last resort.
+     *
+     * @param adminRealms realms for which the caller owns the proper entitlement(s)
+     * @param searchCondition the search condition
+     * @param page position of the first result, start from 1
+     * @param itemsPerPage number of results per page
+     * @param orderBy list of ordering clauses
+     * @param kind any object
+     * @param countLimit when positive, counting stops after this many matches and the total count returned is then
+     * flagged as estimated
+     * @param <T> any
+     * @return the page of any objects matching the given search condition, with total count
+     */
+    <T extends Any<?, ?, ?>> SearchPage<T> searchAndCount(
+            Set<String> adminRealms, SearchCond searchCondition, int page, int itemsPerPage,
+            List<OrderByClause> orderBy, AnyTypeKind kind, int countLimit);
+
+    /**
+     * Keyset (seek) variant of paged search: instead of skipping all rows of the previous pages, resumes right after
+     * the last row returned by the previous call, as identified by the given token; hence every page costs the same,
+     * no matter how deep. Results are always sorted by the given ordering clauses, with NULL values last, then by key.
+     *
+     * @param adminRealms realms for which the caller owns the proper entitlement(s)
+     * @param searchCondition the search condition
+     * @param after token returned by the previous call as {@link SearchPage#getNext()}, or null for the first page
+     * @param itemsPerPage number of results per page
+     * @param orderBy list of ordering clauses
+     * @param kind any object
+     * @param <T> any
+     * @return the page of any objects matching the given search condition, with the token for the next page
+     * @throws org.apache.syncope.common.lib.SyncopeClientException if the given token is not valid, or was not
+     * returned for the same ordering clauses
+     */
+    <T extends Any<?, ?, ?>> SearchPage<T> search(
+            Set<String> adminRealms, SearchCond searchCondition, String after, int itemsPerPage,
+            List<OrderByClause> orderBy, AnyTypeKind kind);
+
+    /**
+     * Projection variant of paged search with count: rather than loading entities, only the values of the given plain
+     * schemas are read from search views, for all matches in the requested page at once.
+     *
+     * @param adminRealms realms for which the caller owns the proper entitlement(s)
+     * @param searchCondition the search condition
+     * @param page position of the first result, start from 1
+     * @param itemsPerPage number of results per page
+     * @param orderBy list of ordering clauses
+     * @param kind any object
+     * @param countLimit when positive, counting stops after this many matches and the total count returned is then
+     * flagged as estimated
+     * @param plainSchemas names of the plain schemas whose values are to be returned; binary schemas are ignored
+     * @return the page of projections of any objects matching the given search condition, with total count
+     */
+    SearchPage<ProjectedAny> project(
+            Set<String> adminRealms, SearchCond searchCondition, int page, int itemsPerPage,
+            List<OrderByClause> orderBy, AnyTypeKind kind, int countLimit, Collection<String> plainSchemas);
+
+    /**
+     * Streaming variant of search, meant for consumers needing every match: keys are read through a forward-only
+     * cursor, then entities are loaded in chunks and passed to the given handler. Before moving to the next chunk, the
+     * persistence context is flushed and cleared, so that memory usage does not grow with the number of matches: any
+     * entity previously loaded by the caller is detached as well.
+     *
+     * @param adminRealms realms for which the caller owns the proper entitlement(s)
+     * @param searchCondition the search condition
+     * @param orderBy list of ordering clauses
+     * @param kind any object
+     * @param handler receiver of search results
+     * @param <T> any
+     */
+    <T extends Any<?, ?, ?>> void stream(
+            Set<String> adminRealms, SearchCond searchCondition, List<OrderByClause> orderBy, AnyTypeKind kind,
+            SearchHandler<T> handler);
+
     /**
      * Verify if any matches the given search condition.
      *
@@ -80,4 +160,14 @@ public interface AnySearchDAO extends DAO<Any<?, ?, ?>, Long> {
      * @return true if any matches searchCondition
      */
     <T extends Any<?, ?, ?>> boolean matches(T any, SearchCond searchCondition, AnyTypeKind kind);
+
+    /**
+     * @return number of searches whose query was built from a cached template, since startup
+     */
+    long getQueryCacheHits();
+
+    /**
+     * @return number of searches whose query was built from scratch, since startup
+     */
+    long getQueryCacheMisses();
 }
@@ -18,9 +18,18 @@
  */
 package org.apache.syncope.core.persistence.api.dao;
 
+import java.util.Map;
 import org.apache.syncope.core.persistence.api.entity.PlainAttr;
 import org.apache.syncope.core.persistence.api.entity.PlainSchema;
 
 public interface PlainSchemaDAO extends SchemaDAO<PlainSchema, PlainAttr<?>> {
 
+    /**
+     * Schemas owning many attributes are deleted in background: until then, they are not reported by
+     * {@link #findAll()}.
+     *
+     * @return schemas being deleted in background, each mapped to the status of deletion - completion percentage,
+     * failure or pending
+     */
+    Map<String, String> findPendingDeletions();
 }
@@ -19,6 +19,7 @@
 package org.apache.syncope.core.persistence.api.dao;
 
 import java.util.List;
+import org.apache.syncope.core.persistence.api.dao.search.SearchPage;
 import org.apache.syncope.core.persistence.api.entity.Report;
 import org.apache.syncope.core.persistence.api.entity.ReportExec;
 
@@ -32,6 +33,27 @@ public interface ReportExecDAO extends DAO<ReportExec, Long> {
 
     List<ReportExec> findAll();
 
+    /**
+     * @param report report
+     * @param page page number, starting from 1
+     * @param itemsPerPage number of executions per page, not limited if not positive
+     * @return executions of the given report, most recent first
+     */
+    List<ReportExec> findAll(Report report, int page, int itemsPerPage);
+
+    /**
+     * Keyset (seek) variant of {@link #findAll(Report, int, int)}: executions are fetched after the last one of the
+     * previous page, which costs the same regardless of page depth.
+     *
+     * @param report report
+     * @param after {@code null} for the first page, or the token returned with the previous page
+     * @param itemsPerPage number of executions per page
+     * @return page of executions of the given report, most recent first, with the token for the next page
+     */
+    SearchPage<ReportExec> findAll(Report report, String after, int itemsPerPage);
+
+    int count(Report report);
+
     ReportExec save(ReportExec execution);
 
     void delete(Long key);
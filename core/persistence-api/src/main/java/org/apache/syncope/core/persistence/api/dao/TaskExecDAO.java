@@ -20,6 +20,7 @@ package org.apache.syncope.core.persistence.api.dao;
 
 import java.util.List;
 import org.apache.syncope.common.lib.types.TaskType;
+import org.apache.syncope.core.persistence.api.dao.search.SearchPage;
 import org.apache.syncope.core.persistence.api.entity.task.Task;
 import org.apache.syncope.core.persistence.api.entity.task.TaskExec;
 
@@ -33,6 +34,34 @@ public interface TaskExecDAO extends DAO<TaskExec, Long> {
 
     List<TaskExec> findAll(TaskType type);
 
+    /**
+     * @param task task
+     * @param page page number, starting from 1
+     * @param itemsPerPage number of executions per page, not limited if not positive
+     * @return executions of the given task, most recent first
+     */
+    List<TaskExec> findAll(Task task, int page, int itemsPerPage);
+
+    /**
+     * Keyset (seek) variant of {@link #findAll(Task, int, int)}: executions are fetched after the last one of the
+     * previous page, which costs the same regardless of page depth.
+     *
+     * @param task task
+     * @param after {@code null} for the first page, or the token returned with the previous page
+     * @param itemsPerPage number of executions per page
+     * @return page of executions of the given task, most recent first, with the token for the next page
+     */
+    SearchPage<TaskExec> findAll(Task task, String after, int itemsPerPage);
+
+    int count(Task task);
+
+    /**
+     * @param task task
+     * @param status execution status, or {@code null} to count executions without status
+     * @return number of executions of the given task with the given status
+     */
+    int count(Task task, String status);
+
     TaskExec save(TaskExec execution);
 
     void saveAndAdd(Long taskId, TaskExec execution);
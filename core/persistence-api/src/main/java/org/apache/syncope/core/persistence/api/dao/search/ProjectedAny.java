@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.syncope.core.persistence.api.dao.search;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+/**
+ * Search result made of key and selected plain attribute values only, as read from search views without loading any
+ * entity.
+ */
+public class ProjectedAny {
+
+    private final Long key;
+
+    private final Map<String, List<String>> plainAttrs = new LinkedHashMap<>();
+
+    public ProjectedAny(final Long key) {
+        this.key = key;
+    }
+
+    public Long getKey() {
+        return key;
+    }
+
+    /**
+     * @return formatted values, by plain schema name; schemas for which no value is available are not reported
+     */
+    public Map<String, List<String>> getPlainAttrs() {
+        return plainAttrs;
+    }
+
+    public void add(final String schemaName, final String value) {
+        List<String> values = plainAttrs.get(schemaName);
+        if (values == null) {
+            values = new ArrayList<>();
+            plainAttrs.put(schemaName, values);
+        }
+        values.add(value);
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        return EqualsBuilder.reflectionEquals(this, obj);
+    }
+
+    @Override
+    public int hashCode() {
+        return HashCodeBuilder.reflectionHashCode(this);
+    }
+
+    @Override
+    public String toString() {
+        return ReflectionToStringBuilder.toString(this, ToStringStyle.MULTI_LINE_STYLE);
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.syncope.core.persistence.api.dao.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+/**
+ * One page of search results, together with the opaque token to be passed for fetching the following page (keyset
+ * search) or with the total number of matches (paged search with count).
+ *
+ * @param <T> result type
+ */
+public class SearchPage<T> {
+
+    private final List<T> items = new ArrayList<>();
+
+    private String next;
+
+    private int totalCount = -1;
+
+    private boolean totalCountEstimated;
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * @return token to be passed as {@code after} for fetching the next page, or {@code null} if this is the last one
+     */
+    public String getNext() {
+        return next;
+    }
+
+    public void setNext(final String next) {
+        this.next = next;
+    }
+
+    /**
+     * @return total number of matches, or -1 if not computed
+     */
+    public int getTotalCount() {
+        return totalCount;
+    }
+
+    public void setTotalCount(final int totalCount) {
+        this.totalCount = totalCount;
+    }
+
+    /**
+     * @return whether counting was stopped at the requested limit, hence total count is a lower bound
+     */
+    public boolean isTotalCountEstimated() {
+        return totalCountEstimated;
+    }
+
+    public void setTotalCountEstimated(final boolean totalCountEstimated) {
+        this.totalCountEstimated = totalCountEstimated;
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        return EqualsBuilder.reflectionEquals(this, obj);
+    }
+
+    @Override
+    public int hashCode() {
+        return HashCodeBuilder.reflectionHashCode(this);
+    }
+
+    @Override
+    public String toString() {
+        return ReflectionToStringBuilder.toString(this, ToStringStyle.MULTI_LINE_STYLE);
+    }
+}
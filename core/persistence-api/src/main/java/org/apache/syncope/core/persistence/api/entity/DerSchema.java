@@ -23,4 +23,12 @@ public interface DerSchema extends Schema {
     String getExpression();
 
     void setExpression(String expression);
+
+    /**
+     * @return whether computed values are stored along with plain attribute values in the search index (when
+     * enabled), hence searchable
+     */
+    boolean isMaterialized();
+
+    void setMaterialized(boolean materialized);
 }
@@ -0,0 +1,414 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.syncope.core.persistence.jpa.cluster;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.openjpa.conf.OpenJPAConfiguration;
+import org.apache.openjpa.event.AbstractRemoteCommitProvider;
+import org.apache.openjpa.event.RemoteCommitEvent;
+import org.apache.openjpa.lib.conf.Configuration;
+import org.apache.openjpa.meta.ClassMetaData;
+import org.apache.openjpa.meta.MetaDataRepository;
+import org.apache.openjpa.util.IntId;
+import org.apache.openjpa.util.LongId;
+import org.apache.openjpa.util.OpenJPAId;
+import org.apache.openjpa.util.StringId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Base for OpenJPA remote commit providers broadcasting commit and eviction events among Syncope nodes, so that the
+ * L2 data and query caches of each node are kept consistent with changes committed by any other node.
+ * Each event is sent along with the sending node identifier - so that nodes ignore their own events - and the sending
+ * time, used to compute the invalidation lag on receiving nodes: lag values are meaningful only as long as node clocks
+ * are synchronized.
+ * Events are encoded as plain data - no Java serialization is involved - with object ids written as entity class
+ * name plus key: only classes known as persistent are accepted on receiving nodes. Events whose encoding would exceed
+ * the maximum payload size, or holding object ids of unsupported types, are sent as class-level evictions instead.
+ * Transports losing events towards some node are expected to send it an eviction of all persistent classes, built by
+ * {@link #evictAll()}, as soon as it is reachable again.
+ * Subclasses provide the actual transport, by implementing {@link #send(byte[])} and invoking
+ * {@link #receive(byte[])} for each payload received.
+ */
+public abstract class AbstractClusterCommitProvider extends AbstractRemoteCommitProvider {
+
+    protected static final Logger LOG = LoggerFactory.getLogger(AbstractClusterCommitProvider.class);
+
+    private static final byte LONG_ID = 'L';
+
+    private static final byte INT_ID = 'I';
+
+    private static final byte STRING_ID = 'S';
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final AtomicLong sent = new AtomicLong();
+
+    private final AtomicLong received = new AtomicLong();
+
+    private final AtomicLong failures = new AtomicLong();
+
+    private final AtomicLong totalLag = new AtomicLong();
+
+    private final AtomicLong maxLag = new AtomicLong();
+
+    private final AtomicLong lastLag = new AtomicLong();
+
+    /**
+     * Persistent classes by name, as resolved for received object ids.
+     */
+    private final Map<String, Class<?>> types = new ConcurrentHashMap<>();
+
+    /**
+     * Name of the persistence unit this provider serves: events are only exchanged among providers with same channel.
+     */
+    private String channel;
+
+    private OpenJPAConfiguration conf;
+
+    private int maxPayloadSize = 8 * 1024 * 1024;
+
+    @Override
+    public void setConfiguration(final Configuration conf) {
+        super.setConfiguration(conf);
+        this.conf = (OpenJPAConfiguration) conf;
+        channel = conf.getId();
+    }
+
+    public String getChannel() {
+        return channel;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public int getMaxPayloadSize() {
+        return maxPayloadSize;
+    }
+
+    /**
+     * @param maxPayloadSize maximum size, in bytes, of payloads sent or accepted
+     */
+    public void setMaxPayloadSize(final int maxPayloadSize) {
+        this.maxPayloadSize = maxPayloadSize;
+    }
+
+    /**
+     * Sends the given payload to all other nodes.
+     *
+     * @param payload payload to send
+     * @throws IOException if payload could not be sent to some node
+     */
+    protected abstract void send(byte[] payload) throws IOException;
+
+    /**
+     * To be invoked by transports for each payload that could not be delivered to some node.
+     */
+    protected void failed() {
+        failures.incrementAndGet();
+    }
+
+    private static boolean isSupported(final Collection<?> oids) {
+        for (Object oid : oids) {
+            if (!(oid instanceof LongId || oid instanceof IntId || oid instanceof StringId)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void writeNames(final DataOutputStream out, final Collection<?> names) throws IOException {
+        out.writeInt(names.size());
+        for (Object name : names) {
+            out.writeUTF(name.toString());
+        }
+    }
+
+    private static void writeIds(final DataOutputStream out, final Collection<?> oids) throws IOException {
+        out.writeInt(oids.size());
+        for (Object oid : oids) {
+            OpenJPAId id = (OpenJPAId) oid;
+            out.writeUTF(id.getType().getName());
+            out.writeBoolean(id.hasSubclasses());
+            if (id instanceof LongId) {
+                out.writeByte(LONG_ID);
+                out.writeLong(((LongId) id).getId());
+            } else if (id instanceof IntId) {
+                out.writeByte(INT_ID);
+                out.writeInt(((IntId) id).getId());
+            } else {
+                out.writeByte(STRING_ID);
+                out.writeUTF(((StringId) id).getId());
+            }
+        }
+    }
+
+    private static Set<String> typeNames(final Collection<?> oids) {
+        Set<String> names = new LinkedHashSet<>();
+        for (Object oid : oids) {
+            names.add(((OpenJPAId) oid).getType().getName());
+        }
+        return names;
+    }
+
+    private byte[] encode(
+            final int payloadType,
+            final Collection<?> persistedTypes,
+            final Collection<?> persisted,
+            final Collection<?> updated,
+            final Collection<?> deleted) throws IOException {
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(nodeId);
+            out.writeLong(System.currentTimeMillis());
+            out.writeByte(payloadType);
+            writeNames(out, persistedTypes);
+            if (payloadType == RemoteCommitEvent.PAYLOAD_EXTENTS) {
+                writeNames(out, updated);
+                writeNames(out, deleted);
+            } else {
+                writeIds(out, persisted);
+                writeIds(out, updated);
+                writeIds(out, deleted);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private byte[] encode(final RemoteCommitEvent event) throws IOException {
+        if (event.getPayloadType() == RemoteCommitEvent.PAYLOAD_EXTENTS) {
+            return encode(RemoteCommitEvent.PAYLOAD_EXTENTS, event.getPersistedTypeNames(), null,
+                    event.getUpdatedTypeNames(), event.getDeletedTypeNames());
+        }
+
+        Collection<?> persisted = event.getPayloadType() == RemoteCommitEvent.PAYLOAD_OIDS_WITH_ADDS
+                ? event.getPersistedObjectIds()
+                : new ArrayList<>();
+        Collection<?> updated = event.getUpdatedObjectIds();
+        Collection<?> deleted = event.getDeletedObjectIds();
+
+        byte[] payload = null;
+        if (isSupported(persisted) && isSupported(updated) && isSupported(deleted)) {
+            payload = encode(event.getPayloadType(), event.getPersistedTypeNames(), persisted, updated, deleted);
+        }
+        if (payload == null || payload.length > maxPayloadSize) {
+            // evict whole classes on other nodes rather than sending each object id
+            Set<String> updatedTypes = typeNames(updated);
+            updatedTypes.addAll(typeNames(persisted));
+            payload = encode(RemoteCommitEvent.PAYLOAD_EXTENTS, event.getPersistedTypeNames(), null,
+                    updatedTypes, typeNames(deleted));
+        }
+        return payload;
+    }
+
+    /**
+     * Encodes an event evicting all persistent classes, for nodes which might have missed some events.
+     *
+     * @return payload to send
+     * @throws IOException if the payload could not be encoded
+     */
+    protected byte[] evictAll() throws IOException {
+        MetaDataRepository repository = conf.getMetaDataRepositoryInstance();
+
+        Set<String> names = new LinkedHashSet<>();
+        Collection<String> persistent = repository.getPersistentTypeNames(
+                false, AbstractClusterCommitProvider.class.getClassLoader());
+        if (persistent != null) {
+            names.addAll(persistent);
+        }
+        for (ClassMetaData metaData : repository.getMetaDatas()) {
+            names.add(metaData.getDescribedType().getName());
+        }
+
+        return encode(RemoteCommitEvent.PAYLOAD_EXTENTS, Collections.emptyList(), null,
+                names, Collections.emptyList());
+    }
+
+    @Override
+    public void broadcast(final RemoteCommitEvent event) {
+        try {
+            byte[] payload = encode(event);
+            if (payload.length > maxPayloadSize) {
+                throw new IOException("Payload of " + payload.length + " bytes exceeds " + maxPayloadSize);
+            }
+
+            send(payload);
+            sent.incrementAndGet();
+        } catch (IOException e) {
+            failed();
+            LOG.error("While broadcasting commit event on {}", channel, e);
+        }
+    }
+
+    private Class<?> resolve(final String name) throws IOException {
+        Class<?> type = types.get(name);
+        if (type == null) {
+            ClassLoader loader = AbstractClusterCommitProvider.class.getClassLoader();
+            try {
+                // classes are only loaded, not initialized, before checking that they are persistent
+                type = Class.forName(name, false, loader);
+            } catch (ClassNotFoundException e) {
+                throw new IOException("Unknown class " + name, e);
+            }
+            if (conf.getMetaDataRepositoryInstance().getMetaData(type, loader, false) == null) {
+                throw new IOException("Not a persistent class: " + name);
+            }
+            types.put(name, type);
+        }
+        return type;
+    }
+
+    private static List<String> readNames(final DataInputStream in) throws IOException {
+        int size = in.readInt();
+        List<String> names = new ArrayList<>(Math.min(size, 1024));
+        for (int i = 0; i < size; i++) {
+            names.add(in.readUTF());
+        }
+        return names;
+    }
+
+    private List<Object> readIds(final DataInputStream in) throws IOException {
+        int size = in.readInt();
+        List<Object> oids = new ArrayList<>(Math.min(size, 1024));
+        for (int i = 0; i < size; i++) {
+            Class<?> type = resolve(in.readUTF());
+            boolean subs = in.readBoolean();
+            byte kind = in.readByte();
+            switch (kind) {
+                case LONG_ID:
+                    oids.add(new LongId(type, in.readLong(), subs));
+                    break;
+
+                case INT_ID:
+                    oids.add(new IntId(type, in.readInt(), subs));
+                    break;
+
+                case STRING_ID:
+                    oids.add(new StringId(type, in.readUTF(), subs));
+                    break;
+
+                default:
+                    throw new IOException("Unsupported object id type " + kind);
+            }
+        }
+        return oids;
+    }
+
+    /**
+     * Handles the given payload, as received from some node.
+     *
+     * @param payload payload received
+     */
+    protected void receive(final byte[] payload) {
+        RemoteCommitEvent event;
+        String sender;
+        long sentAt;
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            sender = in.readUTF();
+            sentAt = in.readLong();
+            int payloadType = in.readByte();
+            List<String> persistedTypes = readNames(in);
+            if (payloadType == RemoteCommitEvent.PAYLOAD_EXTENTS) {
+                event = new RemoteCommitEvent(payloadType, null, persistedTypes, readNames(in), readNames(in));
+            } else {
+                List<Object> persisted = readIds(in);
+                event = new RemoteCommitEvent(payloadType, persisted, persistedTypes, readIds(in), readIds(in));
+            }
+        } catch (IOException e) {
+            failed();
+            LOG.error("Could not read commit event received on {}", channel, e);
+            return;
+        }
+
+        if (nodeId.equals(sender)) {
+            return;
+        }
+
+        long lag = Math.max(0, System.currentTimeMillis() - sentAt);
+        received.incrementAndGet();
+        totalLag.addAndGet(lag);
+        lastLag.set(lag);
+        long max = maxLag.get();
+        while (lag > max && !maxLag.compareAndSet(max, lag)) {
+            max = maxLag.get();
+        }
+        LOG.debug("Commit event received on {} from {} with lag {} ms", channel, sender, lag);
+
+        fireEvent(event);
+    }
+
+    /**
+     * @return number of events handed over to the transport
+     */
+    public long getSent() {
+        return sent.get();
+    }
+
+    /**
+     * @return number of events received from other nodes
+     */
+    public long getReceived() {
+        return received.get();
+    }
+
+    /**
+     * @return number of events that could not be sent to some node, or read
+     */
+    public long getFailures() {
+        return failures.get();
+    }
+
+    /**
+     * @return average invalidation lag, in milliseconds, of events received from other nodes
+     */
+    public long getAverageLag() {
+        long count = received.get();
+        return count == 0 ? 0 : totalLag.get() / count;
+    }
+
+    /**
+     * @return maximum invalidation lag, in milliseconds, of events received from other nodes
+     */
+    public long getMaxLag() {
+        return maxLag.get();
+    }
+
+    /**
+     * @return invalidation lag, in milliseconds, of the last event received from other nodes
+     */
+    public long getLastLag() {
+        return lastLag.get();
+    }
+}
@@ -0,0 +1,588 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.syncope.core.persistence.jpa.cluster;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * Broadcasts commit events among Syncope nodes over plain TCP connections, to be configured in place of OpenJPA's
+ * {@code sjvm} provider, e.g. {@code org.apache.syncope.core.persistence.jpa.cluster.TCPClusterCommitProvider(
+ * Port=5636, BindAddress=node1, Addresses=node2:5636;node3:5636, Secret=changeme)}.
+ * All providers in the same JVM with the same port share one listener, which dispatches received events by channel,
+ * i.e. by persistence unit: several domains can then use the same configuration. Several nodes can run on the same
+ * host, provided that each listens on its own port.
+ * Connections are only accepted from the hosts listed as addresses; each event is also signed with the secret, which
+ * is mandatory when addresses are set, and events not carrying a valid signature are discarded.
+ * Events are queued and sent by a background thread for each node, so that committing transactions are never held
+ * by slow or unreachable nodes: events not fitting the queue, or that could not be written within the write timeout,
+ * are dropped and counted as failures. Whenever events towards a node were dropped, or might have been lost with a
+ * broken connection, an eviction of all persistent classes is sent to that node before any further event, retrying
+ * until it is reachable again, so that its caches never stay stale.
+ */
+public class TCPClusterCommitProvider extends AbstractClusterCommitProvider {
+
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+
+    /**
+     * Interval, in milliseconds, between attempts to reach a node which missed some events.
+     */
+    private static final long RETRY_INTERVAL = 1000;
+
+    private static final Map<Integer, Listener> LISTENERS = new HashMap<>();
+
+    /**
+     * Accepts connections on a given port, and dispatches payloads read from each to the providers registered for
+     * the related channel.
+     */
+    private static class Listener implements Runnable {
+
+        private final ServerSocket serverSocket;
+
+        private final Set<TCPClusterCommitProvider> providers = new CopyOnWriteArraySet<>();
+
+        Listener(final String bindAddress, final int port) throws IOException {
+            serverSocket = StringUtils.isBlank(bindAddress)
+                    ? new ServerSocket(port)
+                    : new ServerSocket(port, 50, InetAddress.getByName(bindAddress));
+
+            Thread thread = new Thread(this, "TCPClusterCommitProvider-" + port);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        private boolean accepts(final InetAddress address) {
+            for (TCPClusterCommitProvider provider : providers) {
+                if (provider.accepts(address)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private int maxPayloadSize() {
+            int max = 0;
+            for (TCPClusterCommitProvider provider : providers) {
+                max = Math.max(max, provider.getMaxPayloadSize());
+            }
+            return max;
+        }
+
+        @Override
+        public void run() {
+            while (!serverSocket.isClosed()) {
+                try {
+                    final Socket socket = serverSocket.accept();
+                    if (!accepts(socket.getInetAddress())) {
+                        LOG.warn("Refusing connection from {}, not among configured addresses",
+                                socket.getRemoteSocketAddress());
+                        socket.close();
+                        continue;
+                    }
+
+                    Thread reader = new Thread(new Runnable() {
+
+                        @Override
+                        public void run() {
+                            read(socket);
+                        }
+                    }, "TCPClusterCommitProvider-" + socket.getRemoteSocketAddress());
+                    reader.setDaemon(true);
+                    reader.start();
+                } catch (IOException e) {
+                    if (!serverSocket.isClosed()) {
+                        LOG.error("While accepting connections on {}", serverSocket.getLocalPort(), e);
+                    }
+                }
+            }
+        }
+
+        private void read(final Socket socket) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()))) {
+                while (!serverSocket.isClosed()) {
+                    String channel = in.readUTF();
+                    int length = in.readInt();
+                    if (length < 0 || length > maxPayloadSize()) {
+                        throw new IOException("Invalid payload length " + length);
+                    }
+                    byte[] payload = new byte[length];
+                    in.readFully(payload);
+                    int macLength = in.readUnsignedByte();
+                    byte[] mac = new byte[macLength];
+                    in.readFully(mac);
+
+                    for (TCPClusterCommitProvider provider : providers) {
+                        if (channel.equals(provider.getChannel()) && provider.accepts(socket.getInetAddress())) {
+                            if (provider.verify(channel, payload, mac)) {
+                                provider.receive(payload);
+                            } else {
+                                provider.failed();
+                                LOG.warn("Discarding event on {} from {}: invalid signature",
+                                        channel, socket.getRemoteSocketAddress());
+                            }
+                        }
+                    }
+                }
+            } catch (EOFException e) {
+                LOG.debug("Connection from {} closed", socket.getRemoteSocketAddress());
+            } catch (IOException e) {
+                LOG.warn("While reading from {}", socket.getRemoteSocketAddress(), e);
+            } finally {
+                try {
+                    socket.close();
+                } catch (IOException e) {
+                    LOG.debug("While closing connection from {}", socket.getRemoteSocketAddress(), e);
+                }
+            }
+        }
+
+        private void close() throws IOException {
+            serverSocket.close();
+        }
+    }
+
+    /**
+     * Connection to another node, re-established as needed, with the queue of frames still to be written to it.
+     */
+    private class Peer implements Runnable {
+
+        private final InetSocketAddress address;
+
+        private final BlockingQueue<byte[]> queue;
+
+        private volatile SocketChannel channel;
+
+        private DataOutputStream out;
+
+        /**
+         * Time when the write in progress started, or 0 if none.
+         */
+        private volatile long writingSince;
+
+        private volatile boolean timedOut;
+
+        private volatile boolean closed;
+
+        /**
+         * Whether the other node might have missed some events, hence needs to evict all persistent classes.
+         */
+        private volatile boolean gap;
+
+        private long connections;
+
+        Peer(final InetSocketAddress address) {
+            this.address = address;
+            this.queue = new LinkedBlockingQueue<>(queueSize);
+        }
+
+        private void connect() throws IOException {
+            // channels, unlike plain sockets, reliably fail blocked writes when closed by another thread
+            SocketChannel connecting = SocketChannel.open();
+            try {
+                connecting.socket().connect(address, connectTimeout);
+                connecting.socket().setTcpNoDelay(true);
+            } catch (IOException e) {
+                connecting.close();
+                throw e;
+            }
+            channel = connecting;
+            out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+
+            // events written to the previous connection might not have been read before it broke
+            if (connections++ > 0) {
+                gap = true;
+            }
+        }
+
+        private void write(final byte[] frame) throws IOException {
+            timedOut = false;
+            writingSince = System.currentTimeMillis();
+            try {
+                out.write(frame);
+                out.flush();
+            } finally {
+                writingSince = 0;
+            }
+        }
+
+        private void deliver(final byte[] frame) throws IOException {
+            if (channel == null) {
+                connect();
+            }
+            if (gap) {
+                // cleared before writing, so that events dropped meanwhile are covered by a further eviction
+                gap = false;
+                write(toFrame(evictAll()));
+                LOG.info("Sent eviction of all persistent classes to {}, which missed some events", address);
+            }
+            if (frame != null) {
+                write(frame);
+            }
+        }
+
+        private void send(final byte[] frame) throws IOException {
+            try {
+                deliver(frame);
+            } catch (IOException e) {
+                if (timedOut) {
+                    throw e;
+                }
+
+                // connection might have been dropped by the other node after the last event: try once more
+                disconnect();
+                deliver(frame);
+            }
+        }
+
+        /**
+         * Records that some events could not be delivered: any queued event is superseded by the eviction of all
+         * persistent classes to be sent next.
+         */
+        private void dropped() {
+            gap = true;
+            queue.clear();
+            failed();
+        }
+
+        /**
+         * Closes the connection if the write in progress exceeded the write timeout, thus failing it.
+         */
+        private void checkWrite() {
+            long since = writingSince;
+            if (since > 0 && System.currentTimeMillis() - since > writeTimeout && channel != null) {
+                LOG.warn("Write to {} not completed within {} ms, closing connection", address, writeTimeout);
+                timedOut = true;
+                disconnect();
+            }
+        }
+
+        @Override
+        public void run() {
+            while (!closed) {
+                byte[] frame;
+                try {
+                    frame = gap ? queue.poll(RETRY_INTERVAL, TimeUnit.MILLISECONDS) : queue.take();
+                } catch (InterruptedException e) {
+                    break;
+                }
+                if (frame == null && !gap) {
+                    continue;
+                }
+
+                try {
+                    send(frame);
+                } catch (IOException e) {
+                    disconnect();
+                    if (frame == null) {
+                        gap = true;
+                        LOG.debug("{} still not reachable", address, e);
+                    } else {
+                        dropped();
+                        LOG.warn("Could not send commit event to {}, dropping it", address, e);
+                    }
+                }
+            }
+            disconnect();
+        }
+
+        private void disconnect() {
+            SocketChannel current = channel;
+            if (current != null) {
+                try {
+                    current.close();
+                } catch (IOException e) {
+                    LOG.debug("While closing connection to {}", address, e);
+                }
+                channel = null;
+            }
+        }
+    }
+
+    private String bindAddress;
+
+    private int port = 5636;
+
+    private String addresses;
+
+    private String secret;
+
+    private int connectTimeout = 1000;
+
+    private int writeTimeout = 5000;
+
+    private int queueSize = 10000;
+
+    private final List<Peer> peers = new ArrayList<>();
+
+    private final List<Thread> senders = new ArrayList<>();
+
+    private final Set<InetAddress> allowed = new HashSet<>();
+
+    private ScheduledExecutorService watchdog;
+
+    private Listener listener;
+
+    public String getBindAddress() {
+        return bindAddress;
+    }
+
+    /**
+     * @param bindAddress local address to listen on; all local addresses if not set
+     */
+    public void setBindAddress(final String bindAddress) {
+        this.bindAddress = bindAddress;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * @param port port to listen on, for events sent by other nodes
+     */
+    public void setPort(final int port) {
+        this.port = port;
+    }
+
+    public String getAddresses() {
+        return addresses;
+    }
+
+    /**
+     * @param addresses semicolon-separated list of {@code host[:port]} of other nodes; port defaults to own port;
+     * connections are only accepted from these hosts
+     */
+    public void setAddresses(final String addresses) {
+        this.addresses = addresses;
+    }
+
+    /**
+     * @param secret secret shared among nodes, for signing events; mandatory when addresses are set
+     */
+    public void setSecret(final String secret) {
+        this.secret = secret;
+    }
+
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    /**
+     * @param connectTimeout timeout, in milliseconds, for connecting to other nodes
+     */
+    public void setConnectTimeout(final int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    public int getWriteTimeout() {
+        return writeTimeout;
+    }
+
+    /**
+     * @param writeTimeout timeout, in milliseconds, for writing each event to other nodes
+     */
+    public void setWriteTimeout(final int writeTimeout) {
+        this.writeTimeout = writeTimeout;
+    }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    /**
+     * @param queueSize maximum number of events waiting to be sent to each other node
+     */
+    public void setQueueSize(final int queueSize) {
+        this.queueSize = queueSize;
+    }
+
+    private boolean accepts(final InetAddress address) {
+        return allowed.contains(address);
+    }
+
+    private byte[] sign(final String channel, final byte[] payload) {
+        if (StringUtils.isEmpty(secret)) {
+            return new byte[0];
+        }
+
+        try {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), MAC_ALGORITHM));
+            mac.update(channel.getBytes(StandardCharsets.UTF_8));
+            return mac.doFinal(payload);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not sign with " + MAC_ALGORITHM, e);
+        }
+    }
+
+    private boolean verify(final String channel, final byte[] payload, final byte[] mac) {
+        return StringUtils.isNotEmpty(secret) && MessageDigest.isEqual(sign(channel, payload), mac);
+    }
+
+    private byte[] toFrame(final byte[] payload) throws IOException {
+        byte[] mac = sign(getChannel(), payload);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(payload.length + mac.length + 64);
+        try (DataOutputStream frame = new DataOutputStream(bytes)) {
+            frame.writeUTF(getChannel());
+            frame.writeInt(payload.length);
+            frame.write(payload);
+            frame.writeByte(mac.length);
+            frame.write(mac);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public void endConfiguration() {
+        super.endConfiguration();
+
+        if (StringUtils.isNotBlank(addresses) && StringUtils.isEmpty(secret)) {
+            throw new IllegalStateException("A Secret is required for exchanging events with " + addresses);
+        }
+
+        for (String address : StringUtils.split(StringUtils.defaultString(addresses), ';')) {
+            String host = StringUtils.substringBefore(address.trim(), ":");
+            String peerPort = StringUtils.substringAfter(address.trim(), ":");
+            peers.add(new Peer(new InetSocketAddress(
+                    host, StringUtils.isBlank(peerPort) ? port : Integer.parseInt(peerPort))));
+            try {
+                allowed.addAll(Arrays.asList(InetAddress.getAllByName(host)));
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not resolve " + host, e);
+            }
+        }
+
+        for (Peer peer : peers) {
+            Thread sender = new Thread(peer, "TCPClusterCommitProvider-" + getChannel() + "-" + peer.address);
+            sender.setDaemon(true);
+            sender.start();
+            senders.add(sender);
+        }
+        watchdog = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                Thread thread = new Thread(runnable, "TCPClusterCommitProvider-" + getChannel() + "-watchdog");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        long period = Math.max(100, writeTimeout / 4);
+        watchdog.scheduleWithFixedDelay(new Runnable() {
+
+            @Override
+            public void run() {
+                for (Peer peer : peers) {
+                    peer.checkWrite();
+                }
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+
+        synchronized (LISTENERS) {
+            listener = LISTENERS.get(port);
+            if (listener == null) {
+                try {
+                    listener = new Listener(bindAddress, port);
+                } catch (IOException e) {
+                    throw new IllegalStateException("Could not listen on port " + port, e);
+                }
+                LISTENERS.put(port, listener);
+            }
+            listener.providers.add(this);
+        }
+
+        LOG.info("Broadcasting commit events on {} from port {} to {}", getChannel(), port, addresses);
+    }
+
+    @Override
+    protected void send(final byte[] payload) throws IOException {
+        byte[] frame = toFrame(payload);
+
+        for (Peer peer : peers) {
+            if (!peer.queue.offer(frame)) {
+                peer.dropped();
+                LOG.warn("Queue of commit events to {} is full, dropping queued events", peer.address);
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (watchdog != null) {
+            watchdog.shutdownNow();
+            watchdog = null;
+        }
+        for (Peer peer : peers) {
+            peer.closed = true;
+            peer.disconnect();
+        }
+        for (Thread sender : senders) {
+            sender.interrupt();
+        }
+        senders.clear();
+        peers.clear();
+
+        synchronized (LISTENERS) {
+            if (listener != null) {
+                listener.providers.remove(this);
+                if (listener.providers.isEmpty()) {
+                    try {
+                        listener.close();
+                    } catch (IOException e) {
+                        LOG.debug("While closing listener on port {}", port, e);
+                    }
+                    LISTENERS.remove(port);
+                }
+                listener = null;
+            }
+        }
+    }
+}
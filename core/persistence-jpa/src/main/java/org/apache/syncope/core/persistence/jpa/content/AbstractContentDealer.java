@@ -18,6 +18,11 @@
  */
 package org.apache.syncope.core.persistence.jpa.content;
 
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashSet;
+import java.util.Set;
 import org.apache.syncope.core.persistence.api.DomainsHolder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -32,4 +37,38 @@ public abstract class AbstractContentDealer {
     @Autowired
     protected DomainsHolder domainsHolder;
 
+    /**
+     * @param meta database metadata
+     * @param catalog catalog
+     * @param dbSchema database schema
+     * @param tableName table name
+     * @return names of the tables referred to via foreign keys by the given table
+     * @throws SQLException if metadata cannot be read
+     */
+    protected static Set<String> getParentTables(
+            final DatabaseMetaData meta, final String catalog, final String dbSchema, final String tableName)
+            throws SQLException {
+
+        // this is to avoid repetition
+        Set<String> pkTableNames = new HashSet<>();
+
+        ResultSet rs = null;
+        try {
+            rs = meta.getImportedKeys(catalog, dbSchema, tableName);
+            while (rs.next()) {
+                pkTableNames.add(rs.getString("PKTABLE_NAME"));
+            }
+        } finally {
+            if (rs != null) {
+                try {
+                    rs.close();
+                } catch (SQLException e) {
+                    LOG.error("While closing tables result set", e);
+                }
+            }
+        }
+
+        return pkTableNames;
+    }
+
 }
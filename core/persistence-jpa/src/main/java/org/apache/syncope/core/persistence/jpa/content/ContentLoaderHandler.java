@@ -18,12 +18,26 @@
  */
 package org.apache.syncope.core.persistence.jpa.content;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Types;
 import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.sql.DataSource;
 import org.apache.commons.codec.DecoderException;
 import org.apache.commons.codec.binary.Hex;
@@ -31,6 +45,7 @@ import org.apache.syncope.core.misc.DataFormat;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.ResultSetExtractor;
 import org.xml.sax.Attributes;
@@ -39,37 +54,202 @@ import org.xml.sax.helpers.DefaultHandler;
 
 /**
  * SAX handler for generating SQL INSERT statements out of given XML file.
+ * <br/>
+ * Rows for the same table and columns are sent as a single JDBC batch, in a transaction of its own, even when
+ * interleaved with rows for other tables: a pending batch is only sent earlier than when full when a row for a table
+ * referring to it via foreign keys comes, so that referred rows are always inserted first; when the foreign keys of a
+ * table are not known, all pending batches are sent before its rows. When a batch fails, its rows are inserted one by
+ * one, so that only the failing rows are lost.
+ * When an executor is given, batches are loaded in parallel: each batch waits for the previous batches of its own
+ * table and of the tables it refers to via foreign keys, so that rows are loaded in the same order as the sequential
+ * handler would while independent tables proceed concurrently.
  */
 class ContentLoaderHandler extends DefaultHandler {
 
     private static final Logger LOG = LoggerFactory.getLogger(ContentLoaderHandler.class);
 
+    /**
+     * Number of rows between progress reports.
+     */
+    private static final long PROGRESS_INTERVAL = 10000;
+
+    private class Batch implements Runnable {
+
+        private final String tableName;
+
+        private final String query;
+
+        private final List<Object[]> rows = new ArrayList<>();
+
+        private final List<Future<?>> dependencies = new ArrayList<>();
+
+        Batch(final String tableName, final String query) {
+            this.tableName = tableName;
+            this.query = query;
+        }
+
+        private void awaitDependencies() {
+            for (Future<?> dependency : dependencies) {
+                try {
+                    dependency.get();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                } catch (ExecutionException e) {
+                    LOG.error("While loading rows before {}", tableName, e.getCause());
+                }
+            }
+        }
+
+        private void executeBatch() throws SQLException {
+            try (Connection conn = dataSource.getConnection()) {
+                boolean autoCommit = conn.getAutoCommit();
+                conn.setAutoCommit(false);
+                try (PreparedStatement stmt = conn.prepareStatement(query)) {
+                    for (Object[] row : rows) {
+                        new ArgumentPreparedStatementSetter(row).setValues(stmt);
+                        stmt.addBatch();
+                    }
+                    stmt.executeBatch();
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                } finally {
+                    conn.setAutoCommit(autoCommit);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            awaitDependencies();
+
+            boolean batched = false;
+            if (rows.size() > 1) {
+                try {
+                    executeBatch();
+                    batched = true;
+                    batches.incrementAndGet();
+                } catch (SQLException e) {
+                    LOG.debug("While trying to perform batch {}, reverting to single rows", query, e);
+                }
+            }
+
+            int done = rows.size();
+            if (!batched) {
+                JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+                for (Object[] row : rows) {
+                    try {
+                        jdbcTemplate.update(query, row);
+                    } catch (DataAccessException e) {
+                        LOG.error("While trying to perform {}", query, e);
+                        failed.incrementAndGet();
+                        done--;
+                    }
+                }
+            }
+
+            long before = loaded.getAndAdd(done);
+            if ((before + done) / PROGRESS_INTERVAL > before / PROGRESS_INTERVAL) {
+                LOG.info("{} rows loaded so far", before + done);
+            }
+        }
+    }
+
     private final DataSource dataSource;
 
     private final String rootElement;
 
+    private final int batchSize;
+
+    private final ExecutorService executor;
+
+    private final Map<String, Set<String>> parentTables;
+
+    private final Map<String, Map<String, Integer>> tableColTypes = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+    /**
+     * Last batch submitted, by table.
+     */
+    private final Map<String, Future<?>> lastBatches = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+    private final AtomicLong loaded = new AtomicLong();
+
+    private final AtomicLong failed = new AtomicLong();
+
+    private final AtomicLong batches = new AtomicLong();
+
+    /**
+     * Batches not submitted yet, by query, in order of their first row.
+     */
+    private final Map<String, Batch> pending = new LinkedHashMap<>();
+
     public ContentLoaderHandler(final DataSource dataSource, final String rootElement) {
+        this(dataSource, rootElement, 1, null, Collections.<String, Set<String>>emptyMap());
+    }
+
+    /**
+     * @param dataSource where to load rows
+     * @param rootElement XML root element
+     * @param batchSize maximum number of rows for each JDBC batch
+     * @param executor executor for loading batches in parallel, or null for loading sequentially
+     * @param parentTables for each table, the tables it refers to via foreign keys (case insensitive map)
+     */
+    public ContentLoaderHandler(
+            final DataSource dataSource,
+            final String rootElement,
+            final int batchSize,
+            final ExecutorService executor,
+            final Map<String, Set<String>> parentTables) {
+
         this.dataSource = dataSource;
         this.rootElement = rootElement;
+        this.batchSize = Math.max(1, batchSize);
+        this.executor = executor;
+        this.parentTables = parentTables;
     }
 
-    private Object[] getParameters(final String tableName, final Attributes attrs) {
-        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
-
-        Map<String, Integer> colTypes = jdbcTemplate.query("SELECT * FROM " + tableName + " WHERE 0=1",
-                new ResultSetExtractor<Map<String, Integer>>() {
-
-                    @Override
-                    public Map<String, Integer> extractData(final ResultSet rs) throws SQLException {
-                        Map<String, Integer> colTypes = new HashMap<>();
-                        for (int i = 1; i <= rs.getMetaData().getColumnCount(); i++) {
-                            colTypes.put(
-                                    rs.getMetaData().getColumnName(i).toUpperCase(),
-                                    rs.getMetaData().getColumnType(i));
+    public long getLoaded() {
+        return loaded.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    /**
+     * @return number of JDBC batches successfully executed, not including rows inserted one by one
+     */
+    public long getBatches() {
+        return batches.get();
+    }
+
+    private Map<String, Integer> getColTypes(final String tableName) {
+        Map<String, Integer> colTypes = tableColTypes.get(tableName);
+        if (colTypes == null) {
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+            colTypes = jdbcTemplate.query("SELECT * FROM " + tableName + " WHERE 0=1",
+                    new ResultSetExtractor<Map<String, Integer>>() {
+
+                        @Override
+                        public Map<String, Integer> extractData(final ResultSet rs) throws SQLException {
+                            Map<String, Integer> colTypes = new HashMap<>();
+                            for (int i = 1; i <= rs.getMetaData().getColumnCount(); i++) {
+                                colTypes.put(
+                                        rs.getMetaData().getColumnName(i).toUpperCase(),
+                                        rs.getMetaData().getColumnType(i));
+                            }
+                            return colTypes;
                         }
-                        return colTypes;
-                    }
-                });
+                    });
+            tableColTypes.put(tableName, colTypes);
+        }
+        return colTypes;
+    }
+
+    private Object[] getParameters(final String tableName, final Attributes attrs) {
+        Map<String, Integer> colTypes = getColTypes(tableName);
 
         Object[] parameters = new Object[attrs.getLength()];
         for (int i = 0; i < attrs.getLength(); i++) {
@@ -166,6 +346,39 @@ class ContentLoaderHandler extends DefaultHandler {
         return parameters;
     }
 
+    private void submit(final Batch batch) {
+        if (executor == null) {
+            batch.run();
+        } else {
+            Future<?> previous = lastBatches.get(batch.tableName);
+            if (previous != null) {
+                batch.dependencies.add(previous);
+            }
+            Set<String> parents = parentTables.get(batch.tableName);
+            if (parents != null) {
+                for (String parent : parents) {
+                    Future<?> parentBatch = lastBatches.get(parent);
+                    if (parentBatch != null) {
+                        batch.dependencies.add(parentBatch);
+                    }
+                }
+            }
+
+            FutureTask<Void> task = new FutureTask<>(batch, null);
+            lastBatches.put(batch.tableName, task);
+            executor.execute(task);
+        }
+    }
+
+    private static boolean refers(final Set<String> parents, final String tableName) {
+        for (String parent : parents) {
+            if (parent.equalsIgnoreCase(tableName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     @Override
     public void startElement(final String uri, final String localName, final String qName, final Attributes atts)
             throws SAXException {
@@ -189,11 +402,45 @@ class ContentLoaderHandler extends DefaultHandler {
         }
         query.append(") VALUES (").append(values).append(')');
 
-        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
-        try {
-            jdbcTemplate.update(query.toString(), getParameters(qName, atts));
-        } catch (DataAccessException e) {
-            LOG.error("While trying to perform {}", query, e);
+        // rows of the tables referred by this one must be inserted before
+        Set<String> parents = parentTables.get(qName);
+        for (Iterator<Batch> itor = pending.values().iterator(); itor.hasNext();) {
+            Batch other = itor.next();
+            if (!other.query.equals(query.toString()) && (parents == null || refers(parents, other.tableName))) {
+                submit(other);
+                itor.remove();
+            }
+        }
+
+        Batch batch = pending.get(query.toString());
+        if (batch == null) {
+            batch = new Batch(qName, query.toString());
+            pending.put(batch.query, batch);
+        }
+        batch.rows.add(getParameters(qName, atts));
+        if (batch.rows.size() >= batchSize) {
+            submit(batch);
+            pending.remove(batch.query);
+        }
+    }
+
+    @Override
+    public void endDocument() throws SAXException {
+        for (Batch batch : pending.values()) {
+            submit(batch);
+        }
+        pending.clear();
+
+        // batches for each table complete in submission order, so waiting for the last ones is enough
+        for (Future<?> lastBatch : lastBatches.values()) {
+            try {
+                lastBatch.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SAXException(e);
+            } catch (ExecutionException e) {
+                LOG.error("While loading {}", lastBatch, e.getCause());
+            }
         }
     }
 }
@@ -18,6 +18,10 @@
  */
 package org.apache.syncope.core.persistence.jpa.content;
 
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -35,18 +39,23 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import javax.sql.DataSource;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
 import javax.xml.transform.TransformerConfigurationException;
-import javax.xml.transform.sax.SAXTransformerFactory;
-import javax.xml.transform.sax.TransformerHandler;
-import javax.xml.transform.stream.StreamResult;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.syncope.common.lib.SyncopeConstants;
@@ -73,14 +82,15 @@ import org.apache.syncope.core.persistence.jpa.entity.user.JPAUVirAttr;
 import org.apache.syncope.core.persistence.jpa.entity.user.JPAUser;
 import org.springframework.jdbc.datasource.DataSourceUtils;
 import org.springframework.security.crypto.codec.Hex;
-import org.springframework.stereotype.Component;
 import org.xml.sax.SAXException;
-import org.xml.sax.helpers.AttributesImpl;
 
 /**
  * Export internal storage content as XML.
+ * <br/>
+ * Tables are read via cursors, a fixed number of rows at a time, and rows are written out as soon as read, so that
+ * memory usage does not depend on the amount of data; with parallelism greater than 1, tables are exported
+ * concurrently into temporary files, then appended to the output in foreign key order.
  */
-@Component
 public class XMLContentExporter extends AbstractContentDealer implements ContentExporter {
 
     protected static final Set<String> TABLE_PREFIXES_TO_BE_EXCLUDED =
@@ -99,6 +109,36 @@ public class XMLContentExporter extends AbstractContentDealer implements Content
     protected static final Map<String, Set<String>> COLUMNS_TO_BE_NULLIFIED =
             Collections.singletonMap("SYNCOPEGROUP", Collections.singleton("USEROWNER_ID"));
 
+    private static final XMLOutputFactory XML_OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+    /**
+     * Woodstox property for checking that a single root element is written: rows are written as sibling elements.
+     */
+    private static final String VALIDATE_STRUCTURE = "com.ctc.wstx.outputValidateStructure";
+
+    static {
+        if (XML_OUTPUT_FACTORY.isPropertySupported(VALIDATE_STRUCTURE)) {
+            XML_OUTPUT_FACTORY.setProperty(VALIDATE_STRUCTURE, false);
+        }
+    }
+
+    private static final byte[] HEADER = ("<?xml version=\"1.0\" encoding=\"" + SyncopeConstants.DEFAULT_ENCODING
+            + "\"?>\n<" + ROOT_ELEMENT + ">\n").getBytes(SyncopeConstants.DEFAULT_CHARSET);
+
+    private static final byte[] FOOTER = ("</" + ROOT_ELEMENT + ">\n").getBytes(SyncopeConstants.DEFAULT_CHARSET);
+
+    private int fetchSize = 1000;
+
+    private int parallelism = 1;
+
+    public void setFetchSize(final int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    public void setParallelism(final int parallelism) {
+        this.parallelism = parallelism;
+    }
+
     private List<String> sortByForeignKeys(final String dbSchema, final Connection conn, final Set<String> tableNames)
             throws SQLException {
 
@@ -107,8 +147,6 @@ public class XMLContentExporter extends AbstractContentDealer implements Content
         final DatabaseMetaData meta = conn.getMetaData();
 
         final Map<String, MultiParentNode<String>> exploited = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
-        final Set<String> pkTableNames = new HashSet<>();
-
         for (String tableName : tableNames) {
             MultiParentNode<String> node = exploited.get(tableName);
             if (node == null) {
@@ -117,27 +155,7 @@ public class XMLContentExporter extends AbstractContentDealer implements Content
                 exploited.put(tableName, node);
             }
 
-            pkTableNames.clear();
-
-            ResultSet rs = null;
-            try {
-                rs = meta.getImportedKeys(conn.getCatalog(), dbSchema, tableName);
-
-                // this is to avoid repetition
-                while (rs.next()) {
-                    pkTableNames.add(rs.getString("PKTABLE_NAME"));
-                }
-            } finally {
-                if (rs != null) {
-                    try {
-                        rs.close();
-                    } catch (SQLException e) {
-                        LOG.error("While closing tables result set", e);
-                    }
-                }
-            }
-
-            for (String pkTableName : pkTableNames) {
+            for (String pkTableName : getParentTables(meta, conn.getCatalog(), dbSchema, tableName)) {
                 if (!tableName.equalsIgnoreCase(pkTableName)) {
                     MultiParentNode<String> pkNode = exploited.get(pkTableName);
                     if (pkNode == null) {
@@ -169,7 +187,7 @@ public class XMLContentExporter extends AbstractContentDealer implements Content
         return sortedTableNames;
     }
 
-    private String getValues(final ResultSet rs, final String columnName, final Integer columnType)
+    private String getValues(final ResultSet rs, final String columnName, final int columnType)
             throws SQLException {
 
         String res = null;
@@ -220,16 +238,16 @@ public class XMLContentExporter extends AbstractContentDealer implements Content
         return res;
     }
 
-    private void doExportTable(final TransformerHandler handler, final Connection conn, final String tableName,
-            final String whereClause) throws SQLException, SAXException {
+    private void doExportTable(final OutputStream os, final Connection conn, final String tableName,
+            final String whereClause) throws SQLException, XMLStreamException {
 
         LOG.debug("Export table {}", tableName);
 
-        AttributesImpl attrs = new AttributesImpl();
-
         PreparedStatement stmt = null;
         ResultSet rs = null;
         ResultSet pkeyRS = null;
+        // PostgreSQL only streams results via cursors, hence within a transaction
+        boolean autoCommit = conn.getAutoCommit();
         try {
             // ------------------------------------
             // retrieve primary keys to perform an ordered select
@@ -259,31 +277,39 @@ public class XMLContentExporter extends AbstractContentDealer implements Content
             if (orderBy.length() > 0) {
                 query.append(" ORDER BY ").append(orderBy);
             }
-            stmt = conn.prepareStatement(query.toString());
+
+            if (autoCommit) {
+                conn.setAutoCommit(false);
+            }
+            stmt = conn.prepareStatement(query.toString(), ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            stmt.setFetchSize(fetchSize);
 
             rs = stmt.executeQuery();
-            while (rs.next()) {
-                attrs.clear();
 
-                final ResultSetMetaData rsMeta = rs.getMetaData();
-                for (int i = 0; i < rsMeta.getColumnCount(); i++) {
-                    final String columnName = rsMeta.getColumnName(i + 1);
-                    final Integer columnType = rsMeta.getColumnType(i + 1);
+            final ResultSetMetaData rsMeta = rs.getMetaData();
+            final String[] columnNames = new String[rsMeta.getColumnCount()];
+            final int[] columnTypes = new int[rsMeta.getColumnCount()];
+            for (int i = 0; i < rsMeta.getColumnCount(); i++) {
+                columnNames[i] = rsMeta.getColumnName(i + 1);
+                columnTypes[i] = rsMeta.getColumnType(i + 1);
+            }
+            final Set<String> nullified = COLUMNS_TO_BE_NULLIFIED.get(tableName);
 
+            final XMLStreamWriter writer = XML_OUTPUT_FACTORY.createXMLStreamWriter(
+                    os, SyncopeConstants.DEFAULT_ENCODING);
+            while (rs.next()) {
+                writer.writeCharacters("  ");
+                writer.writeEmptyElement(tableName);
+                for (int i = 0; i < columnNames.length; i++) {
                     // Retrieve value taking care of binary values.
-                    String value = getValues(rs, columnName, columnType);
-                    if (value != null && (!COLUMNS_TO_BE_NULLIFIED.containsKey(tableName)
-                            || !COLUMNS_TO_BE_NULLIFIED.get(tableName).contains(columnName))) {
-
-                        attrs.addAttribute("", "", columnName, "CDATA", value);
+                    String value = getValues(rs, columnNames[i], columnTypes[i]);
+                    if (value != null && (nullified == null || !nullified.contains(columnNames[i]))) {
+                        writer.writeAttribute(columnNames[i], value);
                     }
                 }
-
-                handler.startElement("", "", tableName, attrs);
-                handler.endElement("", "", tableName);
-
-                LOG.debug("Add record {}", attrs);
+                writer.writeCharacters("\n");
             }
+            writer.flush();
         } finally {
             if (rs != null) {
                 try {
@@ -306,6 +332,86 @@ public class XMLContentExporter extends AbstractContentDealer implements Content
                     LOG.error("While closing result set", e);
                 }
             }
+            if (autoCommit) {
+                try {
+                    conn.rollback();
+                    conn.setAutoCommit(true);
+                } catch (SQLException e) {
+                    LOG.error("While restoring auto-commit", e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Exports the given table into a temporary file, with a connection of its own.
+     */
+    private Callable<File> exportTablePart(final DataSource dataSource, final String tableName) {
+        return new Callable<File>() {
+
+            @Override
+            public File call() throws Exception {
+                File part = File.createTempFile("syncope-export-", ".xml");
+                Connection conn = null;
+                try (OutputStream os = new BufferedOutputStream(new FileOutputStream(part))) {
+                    conn = DataSourceUtils.getConnection(dataSource);
+                    doExportTable(os, conn, tableName, TABLES_TO_BE_FILTERED.get(tableName.toUpperCase()));
+                } catch (Exception e) {
+                    LOG.error("Failure exporting table {}", tableName, e);
+                    FileUtils.deleteQuietly(part);
+                    return null;
+                } finally {
+                    DataSourceUtils.releaseConnection(conn, dataSource);
+                }
+
+                if (Thread.currentThread().isInterrupted()) {
+                    FileUtils.deleteQuietly(part);
+                    return null;
+                }
+                return part;
+            }
+        };
+    }
+
+    private void exportParallel(final OutputStream os, final DataSource dataSource, final List<String> tableNames)
+            throws IOException {
+
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        Map<String, Future<File>> parts = new LinkedHashMap<>();
+        try {
+            for (String tableName : tableNames) {
+                parts.put(tableName, executor.submit(exportTablePart(dataSource, tableName)));
+            }
+
+            // parts are appended in foreign key order, as soon as each is available
+            for (Map.Entry<String, Future<File>> part : parts.entrySet()) {
+                File file = null;
+                try {
+                    file = part.getValue().get();
+                    if (file != null) {
+                        FileUtils.copyFile(file, os);
+                    }
+                } catch (ExecutionException e) {
+                    LOG.error("Failure exporting table {}", part.getKey(), e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException(e);
+                } finally {
+                    FileUtils.deleteQuietly(file);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+            // remove parts left behind when aborting
+            for (Future<File> part : parts.values()) {
+                if (!part.cancel(true) && !part.isCancelled()) {
+                    try {
+                        FileUtils.deleteQuietly(part.get());
+                    } catch (InterruptedException | ExecutionException e) {
+                        LOG.debug("While removing export part", e);
+                    }
+                }
+            }
         }
     }
 
@@ -320,17 +426,6 @@ public class XMLContentExporter extends AbstractContentDealer implements Content
             TABLE_PREFIXES_TO_BE_EXCLUDED.add(rwfPrefix);
         }
 
-        StreamResult streamResult = new StreamResult(os);
-        final SAXTransformerFactory transformerFactory = (SAXTransformerFactory) SAXTransformerFactory.newInstance();
-
-        TransformerHandler handler = transformerFactory.newTransformerHandler();
-        Transformer serializer = handler.getTransformer();
-        serializer.setOutputProperty(OutputKeys.ENCODING, SyncopeConstants.DEFAULT_ENCODING);
-        serializer.setOutputProperty(OutputKeys.INDENT, "yes");
-        handler.setResult(streamResult);
-        handler.startDocument();
-        handler.startElement("", "", ROOT_ELEMENT, new AttributesImpl());
-
         DataSource dataSource = domainsHolder.getDomains().get(domain);
         if (dataSource == null) {
             throw new IllegalArgumentException("Could not find DataSource for domain " + domain);
@@ -341,6 +436,8 @@ public class XMLContentExporter extends AbstractContentDealer implements Content
         Connection conn = null;
         ResultSet rs = null;
         try {
+            os.write(HEADER);
+
             conn = DataSourceUtils.getConnection(dataSource);
             final DatabaseMetaData meta = conn.getMetaData();
 
@@ -357,14 +454,22 @@ public class XMLContentExporter extends AbstractContentDealer implements Content
             LOG.debug("Tables to be exported {}", tableNames);
 
             // then sort tables based on foreign keys and dump
-            for (String tableName : sortByForeignKeys(dbSchema, conn, tableNames)) {
-                try {
-                    doExportTable(handler, conn, tableName, TABLES_TO_BE_FILTERED.get(tableName.toUpperCase()));
-                } catch (Exception e) {
-                    LOG.error("Failure exporting table {}", tableName, e);
+            List<String> sortedTableNames = sortByForeignKeys(dbSchema, conn, tableNames);
+            if (parallelism > 1) {
+                exportParallel(os, dataSource, sortedTableNames);
+            } else {
+                for (String tableName : sortedTableNames) {
+                    try {
+                        doExportTable(os, conn, tableName, TABLES_TO_BE_FILTERED.get(tableName.toUpperCase()));
+                    } catch (Exception e) {
+                        LOG.error("Failure exporting table {}", tableName, e);
+                    }
                 }
             }
-        } catch (SQLException e) {
+
+            os.write(FOOTER);
+            os.flush();
+        } catch (SQLException | IOException e) {
             LOG.error("While exporting database content", e);
         } finally {
             if (rs != null) {
@@ -386,8 +491,51 @@ public class XMLContentExporter extends AbstractContentDealer implements Content
                 }
             }
         }
+    }
+
+    /**
+     * Starts a standalone document, in the same format of the whole content export, on the given stream; rows can
+     * be then appended via {@link #exportRows(OutputStream, Connection, String, String)}, and closing the returned
+     * stream ends the document.
+     *
+     * @param os output stream
+     * @return stream to append rows to
+     * @throws IOException if the document cannot be started
+     */
+    public OutputStream startDocument(final OutputStream os) throws IOException {
+        os.write(HEADER);
+        return new FilterOutputStream(os) {
+
+            @Override
+            public void write(final byte[] b, final int off, final int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    out.write(FOOTER);
+                } finally {
+                    super.close();
+                }
+            }
+        };
+    }
 
-        handler.endElement("", "", ROOT_ELEMENT);
-        handler.endDocument();
+    /**
+     * Exports the rows of the given table matching the given condition, via the given connection: used to archive
+     * rows about to be removed, within the removing transaction.
+     *
+     * @param os output stream, as returned by {@link #startDocument(OutputStream)}
+     * @param conn connection
+     * @param tableName table name
+     * @param whereClause condition on table rows
+     * @throws SQLException if rows cannot be read
+     * @throws XMLStreamException if rows cannot be written
+     */
+    public void exportRows(final OutputStream os, final Connection conn, final String tableName,
+            final String whereClause) throws SQLException, XMLStreamException {
+
+        doExportTable(os, conn, tableName, whereClause);
     }
 }
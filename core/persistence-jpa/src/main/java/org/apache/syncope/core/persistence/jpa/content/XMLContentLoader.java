@@ -20,13 +20,23 @@ package org.apache.syncope.core.persistence.jpa.content;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import javax.annotation.Resource;
 import javax.sql.DataSource;
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.syncope.core.misc.spring.ApplicationContextProvider;
 import org.apache.syncope.core.misc.spring.ResourceWithFallbackLoader;
 import org.apache.syncope.core.persistence.api.content.ContentLoader;
@@ -34,13 +44,15 @@ import org.apache.syncope.core.persistence.jpa.entity.conf.JPAConf;
 import org.springframework.core.io.support.PropertiesLoaderUtils;
 import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
 import org.springframework.orm.jpa.EntityManagerFactoryUtils;
-import org.springframework.stereotype.Component;
 
 /**
  * Initialize Database with default content if no data is present already.
+ * <br/>
+ * Rows are sent to the database in JDBC batches, and independent tables are loaded in parallel; indexes and views
+ * are created once all rows are loaded.
  */
-@Component
 public class XMLContentLoader extends AbstractContentDealer implements ContentLoader {
 
     @Resource(name = "indexesXML")
@@ -49,6 +61,18 @@ public class XMLContentLoader extends AbstractContentDealer implements ContentLo
     @Resource(name = "viewsXML")
     private ResourceWithFallbackLoader viewsXML;
 
+    private int batchSize = 1000;
+
+    private int parallelism = 1;
+
+    public void setBatchSize(final int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public void setParallelism(final int parallelism) {
+        this.parallelism = parallelism;
+    }
+
     @Override
     public Integer getPriority() {
         return 0;
@@ -92,20 +116,65 @@ public class XMLContentLoader extends AbstractContentDealer implements ContentLo
         }
     }
 
+    private Map<String, Set<String>> getParentTables(final String domain, final DataSource dataSource)
+            throws SQLException {
+
+        String dbSchema = ApplicationContextProvider.getBeanFactory().getBean(domain + "DatabaseSchema", String.class);
+
+        Map<String, Set<String>> parentTables = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+
+        Connection conn = null;
+        ResultSet rs = null;
+        try {
+            conn = DataSourceUtils.getConnection(dataSource);
+            DatabaseMetaData meta = conn.getMetaData();
+
+            rs = meta.getTables(null, StringUtils.isBlank(dbSchema) ? null : dbSchema, null, new String[] { "TABLE" });
+            while (rs.next()) {
+                String tableName = rs.getString("TABLE_NAME");
+                Set<String> parents = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+                parents.addAll(getParentTables(meta, conn.getCatalog(), dbSchema, tableName));
+                parentTables.put(tableName, parents);
+            }
+        } finally {
+            if (rs != null) {
+                try {
+                    rs.close();
+                } catch (SQLException e) {
+                    LOG.error("While closing tables result set", e);
+                }
+            }
+            DataSourceUtils.releaseConnection(conn, dataSource);
+        }
+
+        return parentTables;
+    }
+
     private void loadDefaultContent(
             final String domain, final ResourceWithFallbackLoader contentXML, final DataSource dataSource)
             throws Exception {
 
+        ExecutorService executor = parallelism > 1 ? Executors.newFixedThreadPool(parallelism) : null;
+
         SAXParserFactory factory = SAXParserFactory.newInstance();
         InputStream in = null;
         try {
             in = contentXML.getResource().getInputStream();
 
+            long start = System.currentTimeMillis();
+            ContentLoaderHandler handler = new ContentLoaderHandler(
+                    dataSource, ROOT_ELEMENT, batchSize, executor, getParentTables(domain, dataSource));
+
             SAXParser parser = factory.newSAXParser();
-            parser.parse(in, new ContentLoaderHandler(dataSource, ROOT_ELEMENT));
-            LOG.debug("[{}] Default content successfully loaded", domain);
+            parser.parse(in, handler);
+            LOG.info("[{}] Default content loaded: {} rows in {} ms, {} JDBC batches, {} failed",
+                    domain, handler.getLoaded(), System.currentTimeMillis() - start, handler.getBatches(),
+                    handler.getFailed());
         } finally {
             IOUtils.closeQuietly(in);
+            if (executor != null) {
+                executor.shutdown();
+            }
         }
     }
 
@@ -20,10 +20,16 @@ package org.apache.syncope.core.persistence.jpa.dao;
 
 import java.io.StringReader;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashSet;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.regex.Pattern;
 import javax.persistence.NoResultException;
@@ -33,15 +39,17 @@ import org.apache.commons.jexl2.parser.Parser;
 import org.apache.commons.jexl2.parser.ParserConstants;
 import org.apache.commons.jexl2.parser.Token;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.openjpa.persistence.OpenJPAPersistence;
+import org.apache.syncope.common.lib.types.AttrSchemaType;
+import org.apache.syncope.core.persistence.api.attrvalue.validation.ParsingValidationException;
 import org.apache.syncope.core.persistence.api.dao.AnyDAO;
 import org.apache.syncope.core.persistence.api.dao.AnySearchDAO;
-import org.apache.syncope.core.persistence.api.dao.DerSchemaDAO;
 import org.apache.syncope.core.persistence.api.dao.NotFoundException;
-import org.apache.syncope.core.persistence.api.dao.PlainSchemaDAO;
 import org.apache.syncope.core.persistence.api.dao.search.AnyCond;
 import org.apache.syncope.core.persistence.api.dao.search.AttributeCond;
 import org.apache.syncope.core.persistence.api.dao.search.OrderByClause;
 import org.apache.syncope.core.persistence.api.dao.search.SearchCond;
+import org.apache.syncope.core.persistence.api.dao.search.SearchPage;
 import org.apache.syncope.core.persistence.api.entity.Any;
 import org.apache.syncope.core.persistence.api.entity.AnyUtils;
 import org.apache.syncope.core.persistence.api.entity.DerSchema;
@@ -51,20 +59,29 @@ import org.apache.syncope.core.persistence.api.entity.VirAttr;
 import org.apache.syncope.core.persistence.api.entity.resource.ExternalResource;
 import org.apache.syncope.core.persistence.api.entity.user.User;
 import org.apache.syncope.core.persistence.jpa.entity.AbstractPlainAttrValue;
+import org.apache.syncope.core.persistence.jpa.entity.JPAAnySearchIndex;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.transaction.annotation.Transactional;
 
 public abstract class AbstractAnyDAO<A extends Any<?, ?, ?>> extends AbstractDAO<A, Long> implements AnyDAO<A> {
 
-    @Autowired
-    protected PlainSchemaDAO plainSchemaDAO;
+    /**
+     * Maximum number of keys in a single IN clause, kept below the limit imposed by some DBMS (i.e. Oracle).
+     */
+    private static final int FIND_BY_KEYS_BATCH_SIZE = 500;
 
     @Autowired
-    protected DerSchemaDAO derSchemaDAO;
+    protected MetadataCache metadataCache;
 
     @Autowired
     protected AnySearchDAO searchDAO;
 
+    @Autowired
+    protected AnySearchIndex searchIndex;
+
+    @Autowired
+    protected DynMembershipEngine dynMembershipEngine;
+
     protected AnyUtils anyUtils;
 
     protected abstract AnyUtils init();
@@ -105,6 +122,52 @@ public abstract class AbstractAnyDAO<A extends Any<?, ?, ?>> extends AbstractDAO
         return (A) entityManager().find(getAnyUtils().anyClass(), key);
     }
 
+    /**
+     * @return names of the collection fields to be fetched together with each entity by {@link #findByKeys(List)}
+     */
+    protected String[] getPrefetchFields() {
+        return new String[] { "plainAttrs", "resources" };
+    }
+
+    @Transactional(readOnly = true)
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<A> findByKeys(final List<Long> keys) {
+        Set<Long> distinctKeys = new LinkedHashSet<>(keys);
+        Map<Long, A> found = new HashMap<>(distinctKeys.size());
+
+        List<Long> batch = new ArrayList<>(FIND_BY_KEYS_BATCH_SIZE);
+        for (Iterator<Long> itor = distinctKeys.iterator(); itor.hasNext();) {
+            batch.add(itor.next());
+
+            if (batch.size() == FIND_BY_KEYS_BATCH_SIZE || !itor.hasNext()) {
+                Query query = entityManager().createQuery("SELECT e FROM " + getAnyUtils().anyClass().getSimpleName()
+                        + " e WHERE e.id IN (:keys)");
+                query.setParameter("keys", batch);
+                OpenJPAPersistence.cast(query).getFetchPlan().
+                        addFields(getAnyUtils().anyClass(), getPrefetchFields());
+
+                for (A any : (List<A>) query.getResultList()) {
+                    found.put(any.getKey(), any);
+                }
+
+                batch = new ArrayList<>(FIND_BY_KEYS_BATCH_SIZE);
+            }
+        }
+
+        List<A> result = new ArrayList<>(found.size());
+        for (Long key : distinctKeys) {
+            A any = found.get(key);
+            if (any == null) {
+                LOG.debug("Could not find {} with key {}", getAnyUtils().getAnyTypeKind(), key);
+            } else {
+                result.add(any);
+            }
+        }
+
+        return result;
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     public A findByWorkflowId(final String workflowId) {
@@ -122,56 +185,231 @@ public abstract class AbstractAnyDAO<A extends Any<?, ?, ?>> extends AbstractDAO
         return result;
     }
 
-    private Query findByAttrValueQuery(final String entityName) {
-        return entityManager().createQuery("SELECT e FROM " + entityName + " e"
-                + " WHERE e.attribute.schema.name = :schemaName AND (e.stringValue IS NOT NULL"
-                + " AND e.stringValue = :stringValue)"
-                + " OR (e.booleanValue IS NOT NULL AND e.booleanValue = :booleanValue)"
-                + " OR (e.dateValue IS NOT NULL AND e.dateValue = :dateValue)"
-                + " OR (e.longValue IS NOT NULL AND e.longValue = :longValue)"
-                + " OR (e.doubleValue IS NOT NULL AND e.doubleValue = :doubleValue)");
+    /**
+     * @param type schema type
+     * @return name of the only value field to be compared for the given schema type, or null if not comparable
+     */
+    private String getValueField(final AttrSchemaType type) {
+        switch (type) {
+            case Boolean:
+                return "booleanValue";
+
+            case Date:
+                return "dateValue";
+
+            case Long:
+                return "longValue";
+
+            case Double:
+                return "doubleValue";
+
+            case Binary:
+                return null;
+
+            case String:
+            case Enum:
+            case Encrypted:
+            default:
+                return "stringValue";
+        }
+    }
+
+    /**
+     * @param attrValue attribute value
+     * @param type schema type
+     * @return value to be compared, in the same form as stored by the underlying column
+     */
+    private Object getValue(final PlainAttrValue attrValue, final AttrSchemaType type) {
+        switch (type) {
+            case Boolean:
+                return attrValue.getBooleanValue() == null
+                        ? null
+                        : ((AbstractPlainAttrValue) attrValue).getBooleanAsInteger(attrValue.getBooleanValue());
+
+            case Date:
+                return attrValue.getDateValue();
+
+            case Long:
+                return attrValue.getLongValue();
+
+            case Double:
+                return attrValue.getDoubleValue();
+
+            case String:
+            case Enum:
+            case Encrypted:
+            default:
+                return attrValue.getStringValue();
+        }
+    }
+
+    /**
+     * Makes values read from the underlying column comparable with values as returned by
+     * {@link #getValue(PlainAttrValue, AttrSchemaType)}, whatever the JDBC types involved.
+     */
+    private Object normalize(final Object value) {
+        return value instanceof Date
+                ? Long.valueOf(((Date) value).getTime())
+                : value instanceof Double || value instanceof Float
+                        ? Double.valueOf(((Number) value).doubleValue())
+                        : value instanceof Number
+                                ? Long.valueOf(((Number) value).longValue())
+                                : value;
+    }
+
+    private Query findByAttrValueQuery(final boolean unique, final String valueField, final boolean many) {
+        String entityName = unique
+                ? getAnyUtils().plainAttrUniqueValueClass().getName()
+                : getAnyUtils().plainAttrValueClass().getName();
+
+        return entityManager().createQuery("SELECT DISTINCT e.attribute.owner.id, e." + valueField
+                + " FROM " + entityName + " e"
+                + " WHERE e.attribute.schema.name = :schemaName AND e." + valueField
+                + (many ? " IN (:values)" : " = :value"));
     }
 
     @Override
     @SuppressWarnings("unchecked")
     public List<A> findByAttrValue(final String schemaName, final PlainAttrValue attrValue) {
-        PlainSchema schema = plainSchemaDAO.find(schemaName);
+        PlainSchema schema = metadataCache.getPlainSchema(entityManager(), schemaName);
         if (schema == null) {
             LOG.error("Invalid schema name '{}'", schemaName);
             return Collections.<A>emptyList();
         }
+        String valueField = getValueField(schema.getType());
+        if (valueField == null) {
+            LOG.error("Cannot look up values of {} schema '{}'", schema.getType(), schemaName);
+            return Collections.<A>emptyList();
+        }
 
-        String entityName = schema.isUniqueConstraint()
-                ? getAnyUtils().plainAttrUniqueValueClass().getName()
-                : getAnyUtils().plainAttrValueClass().getName();
-        Query query = findByAttrValueQuery(entityName);
+        Object value = getValue(attrValue, schema.getType());
+        if (value == null) {
+            LOG.debug("No {} value provided for schema '{}'", schema.getType(), schemaName);
+            return Collections.<A>emptyList();
+        }
+
+        Query query = findByAttrValueQuery(schema.isUniqueConstraint(), valueField, false);
         query.setParameter("schemaName", schemaName);
-        query.setParameter("stringValue", attrValue.getStringValue());
-        query.setParameter("booleanValue", attrValue.getBooleanValue() == null
-                ? null
-                : ((AbstractPlainAttrValue) attrValue).getBooleanAsInteger(attrValue.getBooleanValue()));
-        if (attrValue.getDateValue() == null) {
-            query.setParameter("dateValue", null);
+        if (value instanceof Date) {
+            query.setParameter("value", (Date) value, TemporalType.TIMESTAMP);
         } else {
-            query.setParameter("dateValue", attrValue.getDateValue(), TemporalType.TIMESTAMP);
+            query.setParameter("value", value);
         }
-        query.setParameter("longValue", attrValue.getLongValue());
-        query.setParameter("doubleValue", attrValue.getDoubleValue());
 
-        List<A> result = new ArrayList<>();
-        for (PlainAttrValue value : (List<PlainAttrValue>) query.getResultList()) {
-            A any = (A) value.getAttr().getOwner();
-            if (!result.contains(any)) {
-                result.add(any);
+        List<Long> keys = new ArrayList<>();
+        for (Object[] row : (List<Object[]>) query.getResultList()) {
+            keys.add(((Number) row[0]).longValue());
+        }
+
+        return findByKeys(keys);
+    }
+
+    /**
+     * Looks up the given values, in the same form as stored by the given column, adding the keys found to the given
+     * result under each of the strings the values were parsed from.
+     */
+    @SuppressWarnings("unchecked")
+    private void findByAttrValues(
+            final String schemaName,
+            final boolean unique,
+            final String valueField,
+            final Map<Object, Object> typed,
+            final Map<Object, List<String>> sources,
+            final Map<String, List<Long>> result) {
+
+        List<Object> distinctValues = new ArrayList<>(typed.values());
+        for (int from = 0; from < distinctValues.size(); from += FIND_BY_KEYS_BATCH_SIZE) {
+            Query query = findByAttrValueQuery(unique, valueField, true);
+            query.setParameter("schemaName", schemaName);
+            query.setParameter("values",
+                    distinctValues.subList(from, Math.min(from + FIND_BY_KEYS_BATCH_SIZE, distinctValues.size())));
+
+            for (Object[] row : (List<Object[]>) query.getResultList()) {
+                List<String> source = sources.get(normalize(row[1]));
+                if (source == null) {
+                    LOG.warn("Unexpected value {} found for schema '{}'", row[1], schemaName);
+                } else {
+                    for (String value : source) {
+                        List<Long> keys = result.get(value);
+                        if (keys == null) {
+                            keys = new ArrayList<>();
+                            result.put(value, keys);
+                        }
+                        keys.add(((Number) row[0]).longValue());
+                    }
+                }
             }
         }
+    }
+
+    private void addSource(
+            final Map<Object, Object> typed,
+            final Map<Object, List<String>> sources,
+            final Object value,
+            final String source) {
+
+        Object normalized = normalize(value);
+        typed.put(normalized, value);
+
+        List<String> list = sources.get(normalized);
+        if (list == null) {
+            list = new ArrayList<>();
+            sources.put(normalized, list);
+        }
+        list.add(source);
+    }
+
+    @Override
+    public Map<String, List<Long>> findByAttrValues(final String schemaName, final Collection<String> values) {
+        PlainSchema schema = metadataCache.getPlainSchema(entityManager(), schemaName);
+        String valueField = schema == null ? "stringValue" : getValueField(schema.getType());
+        if (valueField == null) {
+            LOG.error("Cannot look up values of {} schema '{}'", schema.getType(), schemaName);
+            return Collections.<String, List<Long>>emptyMap();
+        }
+
+        // parse each value according to schema, keeping track of which of the given strings it comes from;
+        // values not parsed, either for unknown schema or parsing errors, are compared as strings
+        Map<Object, Object> typed = new LinkedHashMap<>();
+        Map<Object, List<String>> sources = new HashMap<>();
+        boolean stringField = "stringValue".equals(valueField);
+        Map<Object, Object> strings = stringField ? typed : new LinkedHashMap<Object, Object>();
+        Map<Object, List<String>> stringSources = stringField ? sources : new HashMap<Object, List<String>>();
+        for (String value : new LinkedHashSet<>(values)) {
+            if (schema == null) {
+                addSource(strings, stringSources, value, value);
+                continue;
+            }
+
+            PlainAttrValue attrValue = getAnyUtils().newPlainAttrValue();
+            try {
+                attrValue.parseValue(schema, value);
+            } catch (ParsingValidationException e) {
+                LOG.error("While parsing '{}' as {}", value, schema.getType(), e);
+                addSource(strings, stringSources, value, value);
+                continue;
+            }
+
+            Object typedValue = getValue(attrValue, schema.getType());
+            if (typedValue != null) {
+                addSource(typed, sources, typedValue, value);
+            }
+        }
+
+        Map<String, List<Long>> result = new LinkedHashMap<>();
+
+        boolean unique = schema != null && schema.isUniqueConstraint();
+        findByAttrValues(schemaName, unique, valueField, typed, sources, result);
+        if (!stringField) {
+            findByAttrValues(schemaName, unique, "stringValue", strings, stringSources, result);
+        }
 
         return result;
     }
 
     @Override
     public A findByAttrUniqueValue(final String schemaName, final PlainAttrValue attrUniqueValue) {
-        PlainSchema schema = plainSchemaDAO.find(schemaName);
+        PlainSchema schema = metadataCache.getPlainSchema(entityManager(), schemaName);
         if (schema == null) {
             LOG.error("Invalid schema name '{}'", schemaName);
             return null;
@@ -209,14 +447,13 @@ public abstract class AbstractAnyDAO<A extends Any<?, ?, ?>> extends AbstractDAO
     }
 
     /**
-     * Generate one where clause for each different attribute schema into the derived schema expression provided.
+     * Resolve the value of each plain schema referenced by the derived schema expression provided.
      *
      * @param expression derived schema expression
      * @param value derived attribute value
-     * @param attrUtils USER / GROUP
-     * @return where clauses to use to build the query
+     * @return plain schema values, by plain schema name
      */
-    private Set<String> getWhereClause(final String expression, final String value) {
+    private Map<String, String> getPlainValues(final String expression, final String value) {
         final Parser parser = new Parser(new StringReader(expression));
 
         // Schema names
@@ -267,113 +504,107 @@ public abstract class AbstractAnyDAO<A extends Any<?, ?, ?>> extends AbstractDAO
             throw new IllegalArgumentException("literals and values have different size");
         }
 
-        // clauses to be used with INTERSECTed queries
-        final Set<String> clauses = new HashSet<>();
-
-        // builder to build the clauses
-        final StringBuilder bld = new StringBuilder();
-
-        // Contains used identifiers in order to avoid replications
-        final Set<String> used = new HashSet<>();
-
-        // Create several clauses: one for eanch identifiers
+        // Only take the first value for each identifier, in order to avoid replications
+        final Map<String, String> plainValues = new LinkedHashMap<>();
         for (int i = 0; i < identifiers.size(); i++) {
-            if (!used.contains(identifiers.get(i))) {
-
-                // verify schema existence and get schema type
-                PlainSchema schema = plainSchemaDAO.find(identifiers.get(i));
-                if (schema == null) {
-                    LOG.error("Invalid schema name '{}'", identifiers.get(i));
-                    throw new IllegalArgumentException("Invalid schema name " + identifiers.get(i));
-                }
-
-                // clear builder
-                bld.delete(0, bld.length());
-
-                bld.append("(");
-
-                // set schema name
-                bld.append("s.name = '").append(identifiers.get(i)).append("'");
-
-                bld.append(" AND ");
-
-                bld.append("s.name = a.schema_name").append(" AND ");
-
-                bld.append("a.id = v.attribute_id");
-
-                bld.append(" AND ");
-
-                // use a value clause different for eanch different schema type
-                switch (schema.getType()) {
-                    case Boolean:
-                        bld.append("v.booleanValue = '").append(attrValues.get(i)).append("'");
-                        break;
-                    case Long:
-                        bld.append("v.longValue = ").append(attrValues.get(i));
-                        break;
-                    case Double:
-                        bld.append("v.doubleValue = ").append(attrValues.get(i));
-                        break;
-                    case Date:
-                        bld.append("v.dateValue = '").append(attrValues.get(i)).append("'");
-                        break;
-                    default:
-                        bld.append("v.stringValue = '").append(attrValues.get(i)).append("'");
-                }
-
-                bld.append(")");
-
-                used.add(identifiers.get(i));
-
-                clauses.add(bld.toString());
+            if (!plainValues.containsKey(identifiers.get(i))) {
+                plainValues.put(identifiers.get(i), attrValues.get(i));
             }
         }
 
-        LOG.debug("Generated where clauses {}", clauses);
+        LOG.debug("Resolved plain values {}", plainValues);
 
-        return clauses;
+        return plainValues;
     }
 
     @Override
+    @SuppressWarnings("unchecked")
     public List<A> findByDerAttrValue(final String schemaName, final String value) {
-        DerSchema schema = derSchemaDAO.find(schemaName);
+        DerSchema schema = metadataCache.getDerSchema(entityManager(), schemaName);
         if (schema == null) {
             LOG.error("Invalid schema name '{}'", schemaName);
             return Collections.<A>emptyList();
         }
 
-        // query string
-        StringBuilder querystring = new StringBuilder();
+        // computed values are available: simple lookup, no need to parse the expression
+        if (schema.isMaterialized() && searchIndex.isEnabled()) {
+            Query query = entityManager().createQuery("SELECT DISTINCT e.anyKey FROM "
+                    + JPAAnySearchIndex.class.getSimpleName() + " e "
+                    + "WHERE e.anyTypeKind = :anyTypeKind AND e.schemaName = :schemaName AND e.stringValue = :value");
+            query.setParameter("anyTypeKind", getAnyUtils().getAnyTypeKind());
+            query.setParameter("schemaName", schemaName);
+            query.setParameter("value", value);
 
-        boolean subquery = false;
-        for (String clause : getWhereClause(schema.getExpression(), value)) {
-            if (querystring.length() > 0) {
-                subquery = true;
-                querystring.append(" AND a.owner_id IN ( ");
+            return findByKeys((List<Long>) query.getResultList());
+        }
+
+        // one nested sub-query for each plain schema found into the expression, with values as parameters
+        StringBuilder queryString = new StringBuilder();
+        List<Object> parameters = new ArrayList<>();
+        int i = 0;
+        for (Map.Entry<String, String> entry : getPlainValues(schema.getExpression(), value).entrySet()) {
+            // verify schema existence and get schema type
+            PlainSchema plainSchema = metadataCache.getPlainSchema(entityManager(), entry.getKey());
+            if (plainSchema == null) {
+                LOG.error("Invalid schema name '{}'", entry.getKey());
+                throw new IllegalArgumentException("Invalid schema name " + entry.getKey());
+            }
+            String valueField = getValueField(plainSchema.getType());
+            if (valueField == null) {
+                LOG.error("Cannot look up values of {} schema '{}'", plainSchema.getType(), entry.getKey());
+                return Collections.<A>emptyList();
             }
 
-            querystring.append("SELECT a.owner_id ").
-                    append("FROM ").append(getAnyUtils().plainAttrClass().getSimpleName().substring(3)).append(" a, ").
-                    append(getAnyUtils().plainAttrValueClass().getSimpleName().substring(3)).append(" v, ").
-                    append(PlainSchema.class.getSimpleName()).append(" s ").
-                    append("WHERE ").append(clause);
+            PlainAttrValue attrValue = getAnyUtils().newPlainAttrValue();
+            try {
+                attrValue.parseValue(plainSchema, entry.getValue());
+            } catch (ParsingValidationException e) {
+                LOG.debug("While parsing '{}' as {}, no match possible", entry.getValue(), plainSchema.getType(), e);
+                return Collections.<A>emptyList();
+            }
 
-            if (subquery) {
-                querystring.append(')');
+            if (i > 0) {
+                queryString.append(" AND e").append(i - 1).append(".attribute.owner.id IN (");
             }
+            queryString.append(i == 0 ? "SELECT DISTINCT " : "SELECT ").
+                    append('e').append(i).append(".attribute.owner.id FROM ").
+                    append(plainSchema.isUniqueConstraint()
+                            ? getAnyUtils().plainAttrUniqueValueClass().getName()
+                            : getAnyUtils().plainAttrValueClass().getName()).
+                    append(" e").append(i).
+                    append(" WHERE e").append(i).append(".attribute.schema.name = :schema").append(i).
+                    append(" AND e").append(i).append('.').append(valueField).append(" = :value").append(i);
+
+            parameters.add(entry.getKey());
+            parameters.add(getValue(attrValue, plainSchema.getType()));
+            i++;
+        }
+        if (i == 0) {
+            LOG.error("No plain schema found into expression of '{}'", schemaName);
+            return Collections.<A>emptyList();
+        }
+        for (int j = 1; j < i; j++) {
+            queryString.append(')');
         }
 
-        Query query = entityManager().createNativeQuery(querystring.toString());
+        Query query = entityManager().createQuery(queryString.toString());
+        for (int j = 0; j < i; j++) {
+            query.setParameter("schema" + j, parameters.get(2 * j));
 
-        List<A> result = new ArrayList<>();
-        for (Object anyKey : query.getResultList()) {
-            A any = find(Long.parseLong(anyKey.toString()));
-            if (!result.contains(any)) {
-                result.add(any);
+            Object parameter = parameters.get(2 * j + 1);
+            if (parameter instanceof Date) {
+                query.setParameter("value" + j, (Date) parameter, TemporalType.TIMESTAMP);
+            } else {
+                query.setParameter("value" + j, parameter);
             }
         }
 
-        return result;
+        List<Long> keys = new ArrayList<>();
+        for (Object key : query.getResultList()) {
+            keys.add(((Number) key).longValue());
+        }
+
+        return findByKeys(keys);
     }
 
     @SuppressWarnings("unchecked")
@@ -408,6 +639,20 @@ public abstract class AbstractAnyDAO<A extends Any<?, ?, ?>> extends AbstractDAO
                 getAnyUtils().getAnyTypeKind());
     }
 
+    @Override
+    public SearchPage<A> findAllAndCount(final Set<String> adminRealms,
+            final int page, final int itemsPerPage, final List<OrderByClause> orderBy, final int countLimit) {
+
+        return searchDAO.searchAndCount(adminRealms, getAllMatchingCond(), page, itemsPerPage, orderBy,
+                getAnyUtils().getAnyTypeKind(), countLimit);
+    }
+
+    @Override
+    public SearchPage<A> findAll(final Set<String> adminRealms, final String after, final int itemsPerPage) {
+        return searchDAO.search(adminRealms, getAllMatchingCond(), after, itemsPerPage,
+                Collections.<OrderByClause>emptyList(), getAnyUtils().getAnyTypeKind());
+    }
+
     @Override
     public final int count(final Set<String> adminRealms) {
         return searchDAO.count(adminRealms, getAllMatchingCond(), getAnyUtils().getAnyTypeKind());
@@ -416,11 +661,14 @@ public abstract class AbstractAnyDAO<A extends Any<?, ?, ?>> extends AbstractDAO
     @Override
     public A save(final A any) {
         A merged = entityManager().merge(any);
+        dynMembershipEngine.track(entityManager(), merged);
         for (VirAttr<?> virAttr : merged.getVirAttrs()) {
             virAttr.getValues().clear();
             virAttr.getValues().addAll(any.getVirAttr(virAttr.getSchema().getKey()).getValues());
         }
 
+        searchIndex.index(entityManager(), merged);
+
         return merged;
     }
 
@@ -0,0 +1,270 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.syncope.core.persistence.jpa.dao;
+
+import java.util.Collections;
+import java.util.List;
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import org.apache.syncope.common.lib.types.AnyTypeKind;
+import org.apache.syncope.core.misc.security.AuthContextUtils;
+import org.apache.syncope.core.misc.spring.ApplicationContextProvider;
+import org.apache.syncope.core.persistence.api.DomainsHolder;
+import org.apache.syncope.core.persistence.api.SyncopeLoader;
+import org.apache.syncope.core.persistence.api.entity.Any;
+import org.apache.syncope.core.persistence.api.entity.DerAttr;
+import org.apache.syncope.core.persistence.api.entity.PlainAttr;
+import org.apache.syncope.core.persistence.api.entity.PlainAttrValue;
+import org.apache.syncope.core.persistence.jpa.entity.JPAAnySearchIndex;
+import org.apache.syncope.core.persistence.jpa.entity.JPAAnyUtilsFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Maintains the {@link JPAAnySearchIndex} table, when enabled: rows for a given user, group or any object are
+ * rewritten within the same transaction saving it, so that attribute conditions can be matched against a single,
+ * narrow table instead of joining attributes and values through views.
+ * Values of derived attributes whose schema is flagged as materialized are stored as well, so that they can be
+ * searched and looked up like plain attribute values.
+ * Since only saved entities are indexed, at startup the table is rebuilt from all users, groups and any objects of
+ * each domain where it is found empty while such entities exist, as when enabling the search index on a populated
+ * database; emptying the table and restarting rebuilds it as well, as required after flagging a derived schema as
+ * materialized, or changing its expression.
+ */
+public class AnySearchIndex implements SyncopeLoader {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AnySearchIndex.class);
+
+    @Autowired
+    private DomainsHolder domainsHolder;
+
+    private boolean enabled;
+
+    private int batchSize = 1000;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(final boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @param batchSize number of entities indexed by each transaction when rebuilding
+     */
+    public void setBatchSize(final int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public Integer getPriority() {
+        // right after content loading, before anything searches
+        return 50;
+    }
+
+    /**
+     * Rebuilds the search index table for each domain where it is empty while users, groups or any objects exist.
+     */
+    @Override
+    public void load() {
+        if (!enabled) {
+            return;
+        }
+
+        for (final String domain : domainsHolder.getDomains().keySet()) {
+            AuthContextUtils.execWithAuthContext(domain, new AuthContextUtils.Executable<Void>() {
+
+                @Override
+                public Void exec() {
+                    if (isMissing(domain)) {
+                        LOG.warn("Search index for domain {} is empty while entities exist: rebuilding", domain);
+                        LOG.info("Search index for domain {} rebuilt: {} entities indexed", domain, rebuild(domain));
+                    }
+                    return null;
+                }
+            });
+        }
+    }
+
+    private TransactionTemplate transactionTemplate(final String domain) {
+        return new TransactionTemplate(ApplicationContextProvider.getBeanFactory().
+                getBean(domain + "TransactionManager", PlatformTransactionManager.class));
+    }
+
+    private EntityManager entityManager(final String domain) {
+        return EntityManagerFactoryUtils.getTransactionalEntityManager(EntityManagerFactoryUtils.
+                findEntityManagerFactory(ApplicationContextProvider.getBeanFactory(), domain));
+    }
+
+    private boolean isMissing(final String domain) {
+        return transactionTemplate(domain).execute(new TransactionCallback<Boolean>() {
+
+            @Override
+            public Boolean doInTransaction(final TransactionStatus status) {
+                EntityManager entityManager = entityManager(domain);
+
+                Query query = entityManager.createQuery(
+                        "SELECT e.id FROM " + JPAAnySearchIndex.class.getSimpleName() + " e");
+                query.setMaxResults(1);
+                if (!query.getResultList().isEmpty()) {
+                    return false;
+                }
+
+                for (AnyTypeKind anyTypeKind : AnyTypeKind.values()) {
+                    query = entityManager.createQuery("SELECT e.id FROM "
+                            + new JPAAnyUtilsFactory().getInstance(anyTypeKind).anyClass().getSimpleName() + " e");
+                    query.setMaxResults(1);
+                    if (!query.getResultList().isEmpty()) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+        });
+    }
+
+    /**
+     * Indexes all users, groups and any objects of the given domain, a batch at a time, each in its own transaction.
+     *
+     * @param domain domain
+     * @return number of indexed entities
+     */
+    public long rebuild(final String domain) {
+        if (!enabled) {
+            return 0;
+        }
+
+        TransactionTemplate transactionTemplate = transactionTemplate(domain);
+
+        long indexed = 0;
+        for (AnyTypeKind anyTypeKind : AnyTypeKind.values()) {
+            final Class<? extends Any<?, ?, ?>> anyClass =
+                    new JPAAnyUtilsFactory().getInstance(anyTypeKind).anyClass();
+
+            List<Long> keys = Collections.singletonList(-1L);
+            while (!keys.isEmpty()) {
+                final Long after = keys.get(keys.size() - 1);
+                keys = transactionTemplate.execute(new TransactionCallback<List<Long>>() {
+
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public List<Long> doInTransaction(final TransactionStatus status) {
+                        EntityManager entityManager = entityManager(domain);
+
+                        Query query = entityManager.createQuery("SELECT e.id FROM " + anyClass.getSimpleName()
+                                + " e WHERE e.id > :after ORDER BY e.id");
+                        query.setParameter("after", after);
+                        query.setMaxResults(batchSize);
+                        List<Long> batch = query.getResultList();
+
+                        for (Long key : batch) {
+                            index(entityManager, entityManager.find(anyClass, key));
+                        }
+                        return batch;
+                    }
+                });
+                indexed += keys.size();
+            }
+        }
+
+        return indexed;
+    }
+
+    public void index(final EntityManager entityManager, final Any<?, ?, ?> any) {
+        if (!enabled) {
+            return;
+        }
+
+        if (any.getKey() == null) {
+            entityManager.flush();
+        }
+
+        AnyTypeKind anyTypeKind = any.getType().getKind();
+        delete(entityManager, anyTypeKind, any.getKey());
+
+        for (PlainAttr<?> attr : any.getPlainAttrs()) {
+            if (attr.getUniqueValue() == null) {
+                for (PlainAttrValue value : attr.getValues()) {
+                    index(entityManager, anyTypeKind, any.getKey(), attr.getSchema().getKey(), value);
+                }
+            } else {
+                index(entityManager, anyTypeKind, any.getKey(), attr.getSchema().getKey(), attr.getUniqueValue());
+            }
+        }
+
+        for (DerAttr<?> attr : any.getDerAttrs()) {
+            if (attr.getSchema().isMaterialized()) {
+                String value = attr.getValue(any.getPlainAttrs());
+                if (value != null) {
+                    JPAAnySearchIndex row = new JPAAnySearchIndex();
+                    row.setAnyTypeKind(anyTypeKind);
+                    row.setAnyKey(any.getKey());
+                    row.setSchemaName(attr.getSchema().getKey());
+                    row.setStringValue(value);
+                    entityManager.persist(row);
+                }
+            }
+        }
+    }
+
+    private void index(
+            final EntityManager entityManager,
+            final AnyTypeKind anyTypeKind,
+            final Long anyKey,
+            final String schemaName,
+            final PlainAttrValue value) {
+
+        JPAAnySearchIndex row = new JPAAnySearchIndex();
+        row.setAnyTypeKind(anyTypeKind);
+        row.setAnyKey(anyKey);
+        row.setSchemaName(schemaName);
+        row.setValue(value);
+        entityManager.persist(row);
+    }
+
+    public void delete(final EntityManager entityManager, final AnyTypeKind anyTypeKind, final Long anyKey) {
+        if (!enabled) {
+            return;
+        }
+
+        Query query = entityManager.createQuery("DELETE FROM " + JPAAnySearchIndex.class.getSimpleName() + " e "
+                + "WHERE e.anyTypeKind = :anyTypeKind AND e.anyKey = :anyKey");
+        query.setParameter("anyTypeKind", anyTypeKind);
+        query.setParameter("anyKey", anyKey);
+        query.executeUpdate();
+    }
+
+    public void delete(final EntityManager entityManager, final String schemaName) {
+        if (!enabled) {
+            return;
+        }
+
+        Query query = entityManager.createQuery("DELETE FROM " + JPAAnySearchIndex.class.getSimpleName() + " e "
+                + "WHERE e.schemaName = :schemaName");
+        query.setParameter("schemaName", schemaName);
+        query.executeUpdate();
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.syncope.core.persistence.jpa.dao;
+
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import javax.sql.DataSource;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.syncope.core.misc.security.AuthContextUtils;
+import org.apache.syncope.core.persistence.api.DomainsHolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.support.DatabaseMetaDataCallback;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.jdbc.support.MetaDataAccessException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Provides information about SQL features supported by the database underlying each domain, as read (once) from
+ * JDBC metadata.
+ */
+@Component
+class DialectSupport {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DialectSupport.class);
+
+    private static final Pattern VERSION = Pattern.compile("(\\d+)\\.(\\d+)(?:\\.(\\d+))?");
+
+    static class Dialect {
+
+        private final String productName;
+
+        private final int[] version;
+
+        Dialect(final String productName, final String productVersion) {
+            // MariaDB might be reported as MySQL, depending on the JDBC driver in use
+            this.productName = StringUtils.containsIgnoreCase(productVersion, "mariadb")
+                    ? "mariadb"
+                    : StringUtils.lowerCase(productName);
+
+            this.version = new int[] { 0, 0, 0 };
+            Matcher matcher = VERSION.matcher(StringUtils.defaultString(productVersion));
+            if (matcher.find()) {
+                for (int i = 0; i < version.length; i++) {
+                    version[i] = matcher.group(i + 1) == null ? 0 : Integer.parseInt(matcher.group(i + 1));
+                }
+            }
+        }
+
+        private boolean is(final String name) {
+            return productName != null && productName.contains(name);
+        }
+
+        private boolean atLeast(final int major, final int minor, final int patch) {
+            int[] required = new int[] { major, minor, patch };
+            for (int i = 0; i < version.length; i++) {
+                if (version[i] != required[i]) {
+                    return version[i] > required[i];
+                }
+            }
+            return true;
+        }
+
+        public boolean supportsWindowFunctions() {
+            return is("postgresql") || is("oracle") || is("microsoft sql server")
+                    || (is("mariadb") && atLeast(10, 2, 0))
+                    || (is("mysql") && atLeast(8, 0, 0))
+                    || (is("h2") && atLeast(1, 4, 198));
+        }
+
+        public boolean supportsIntersect() {
+            return is("postgresql") || is("oracle") || is("microsoft sql server") || is("h2")
+                    || (is("mariadb") && atLeast(10, 3, 0))
+                    || (is("mysql") && atLeast(8, 0, 31));
+        }
+
+        @Override
+        public String toString() {
+            return productName + " " + version[0] + "." + version[1] + "." + version[2];
+        }
+    }
+
+    private static final Dialect UNKNOWN = new Dialect(null, null);
+
+    @Autowired
+    private DomainsHolder domainsHolder;
+
+    private final Map<String, Dialect> dialects = new ConcurrentHashMap<>();
+
+    public Dialect get() {
+        String domain = AuthContextUtils.getDomain();
+
+        Dialect dialect = dialects.get(domain);
+        if (dialect == null) {
+            DataSource dataSource = domainsHolder.getDomains().get(domain);
+            if (dataSource == null) {
+                return UNKNOWN;
+            }
+
+            try {
+                dialect = (Dialect) JdbcUtils.extractDatabaseMetaData(dataSource, new DatabaseMetaDataCallback() {
+
+                    @Override
+                    public Object processMetaData(final DatabaseMetaData dbmd)
+                            throws SQLException, MetaDataAccessException {
+
+                        return new Dialect(dbmd.getDatabaseProductName(), dbmd.getDatabaseProductVersion());
+                    }
+                });
+                LOG.debug("Domain {} is backed by {}", domain, dialect);
+            } catch (MetaDataAccessException e) {
+                LOG.error("While reading database metadata for domain {}", domain, e);
+                dialect = UNKNOWN;
+            }
+
+            dialects.put(domain, dialect);
+        }
+
+        return dialect;
+    }
+}
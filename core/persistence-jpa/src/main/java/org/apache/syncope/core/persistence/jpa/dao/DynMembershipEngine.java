@@ -0,0 +1,1028 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.syncope.core.persistence.jpa.dao;
+
+import java.beans.PropertyDescriptor;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import javax.validation.ValidationException;
+import org.apache.commons.collections4.ListUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.openjpa.enhance.PersistenceCapable;
+import org.apache.openjpa.kernel.OpenJPAStateManager;
+import org.apache.openjpa.meta.FieldMetaData;
+import org.apache.openjpa.persistence.OpenJPAEntityManager;
+import org.apache.openjpa.persistence.OpenJPAEntityManagerFactory;
+import org.apache.openjpa.persistence.OpenJPAPersistence;
+import org.apache.syncope.common.lib.types.AnyTypeKind;
+import org.apache.syncope.common.lib.types.AttrSchemaType;
+import org.apache.syncope.core.misc.search.SearchCondConverter;
+import org.apache.syncope.core.misc.security.AuthContextUtils;
+import org.apache.syncope.core.misc.spring.ApplicationContextProvider;
+import org.apache.syncope.core.persistence.api.dao.PlainSchemaDAO;
+import org.apache.syncope.core.persistence.api.dao.search.AnyCond;
+import org.apache.syncope.core.persistence.api.dao.search.AttributeCond;
+import org.apache.syncope.core.persistence.api.dao.search.SearchCond;
+import org.apache.syncope.core.persistence.api.entity.Any;
+import org.apache.syncope.core.persistence.api.entity.DynMembership;
+import org.apache.syncope.core.persistence.api.entity.resource.ExternalResource;
+import org.apache.syncope.core.persistence.api.entity.Membership;
+import org.apache.syncope.core.persistence.api.entity.PlainAttr;
+import org.apache.syncope.core.persistence.api.entity.PlainAttrValue;
+import org.apache.syncope.core.persistence.api.entity.PlainSchema;
+import org.apache.syncope.core.persistence.api.entity.anyobject.AnyObject;
+import org.apache.syncope.core.persistence.api.entity.user.User;
+import org.apache.syncope.core.persistence.jpa.entity.AbstractEntity;
+import org.apache.syncope.core.persistence.jpa.entity.JPAPlainSchema;
+import org.apache.syncope.core.persistence.jpa.entity.JPARole;
+import org.apache.syncope.core.persistence.jpa.entity.anyobject.JPAADynGroupMembership;
+import org.apache.syncope.core.persistence.jpa.entity.anyobject.JPAAPlainAttrValue;
+import org.apache.syncope.core.persistence.jpa.entity.anyobject.JPAAnyObject;
+import org.apache.syncope.core.persistence.jpa.entity.group.JPAGroup;
+import org.apache.syncope.core.persistence.jpa.entity.user.JPADynRoleMembership;
+import org.apache.syncope.core.persistence.jpa.entity.user.JPAUDynGroupMembership;
+import org.apache.syncope.core.persistence.jpa.entity.user.JPAUPlainAttrValue;
+import org.apache.syncope.core.persistence.jpa.entity.user.JPAUser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Keeps, for each domain, the conditions of dynamic group and role memberships compiled once, and indexed by the
+ * schemas and fields they reference. When a user or any object is saved, only the conditions possibly affected by the
+ * pending changes are evaluated - against the entity in memory whenever possible, via native query otherwise - then
+ * the entity is added to, or removed from, each affected dynamic membership accordingly.
+ * Compiled conditions are discarded whenever a group or a role is saved or deleted - on this node, or on any other
+ * node, when a cluster commit provider is configured; until the modifying transaction completes, its own refreshes
+ * compile conditions again each time.
+ * Compiled conditions are shared among threads, hence never modified when evaluated.
+ * When a group or role is saved, the members of its dynamic membership are instead recomputed as a whole, by
+ * comparing the keys matching the search query of its condition with the current members, and applying differences
+ * via statements by key lists.
+ */
+public class DynMembershipEngine {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DynMembershipEngine.class);
+
+    /**
+     * Reference to the memberships of an entity, from conditions or changes.
+     */
+    private static final String MEMBERSHIPS = "$memberships";
+
+    /**
+     * Reference to the relationships of an entity, from conditions or changes.
+     */
+    private static final String RELATIONSHIPS = "$relationships";
+
+    /**
+     * Reference to the resources of an entity, from conditions or changes.
+     */
+    private static final String RESOURCES = "$resources";
+
+    /**
+     * Maximum number of keys inlined in each statement when recomputing dynamic memberships.
+     */
+    private static final int IN_LIST_SIZE = 1000;
+
+    /**
+     * Fields of users and any objects holding collections, mapped to the reference they affect.
+     */
+    private static final Map<String, String> COLLECTION_FIELDS = new HashMap<>();
+
+    static {
+        COLLECTION_FIELDS.put("memberships", MEMBERSHIPS);
+        COLLECTION_FIELDS.put("relationships", RELATIONSHIPS);
+        COLLECTION_FIELDS.put("resources", RESOURCES);
+        COLLECTION_FIELDS.put("roles", MEMBERSHIPS);
+    }
+
+    /**
+     * Join table, and related columns, holding the members of a kind of dynamic membership.
+     */
+    private static class MembersTable {
+
+        private final String table;
+
+        private final String ownerColumn;
+
+        private final String memberColumn;
+
+        private final String anyTable;
+
+        private final AnyTypeKind kind;
+
+        MembersTable(
+                final String table,
+                final String ownerColumn,
+                final String memberColumn,
+                final String anyTable,
+                final AnyTypeKind kind) {
+
+            this.table = table;
+            this.ownerColumn = ownerColumn;
+            this.memberColumn = memberColumn;
+            this.anyTable = anyTable;
+            this.kind = kind;
+        }
+    }
+
+    private static final Map<Class<?>, MembersTable> MEMBERS_TABLES = new HashMap<>();
+
+    static {
+        MEMBERS_TABLES.put(JPAUDynGroupMembership.class, new MembersTable(
+                JPAUDynGroupMembership.TABLE + "_User", "uDynGroupMembership_id", "user_id",
+                JPAUser.TABLE, AnyTypeKind.USER));
+        MEMBERS_TABLES.put(JPAADynGroupMembership.class, new MembersTable(
+                JPAADynGroupMembership.TABLE + "_AnyObject", "aDynGroupMembership_id", "anyObject_id",
+                JPAAnyObject.TABLE, AnyTypeKind.ANY_OBJECT));
+        MEMBERS_TABLES.put(JPADynRoleMembership.class, new MembersTable(
+                JPADynRoleMembership.TABLE + "_User", "dynRoleMembership_id", "user_id",
+                JPAUser.TABLE, AnyTypeKind.USER));
+    }
+
+    /**
+     * Dynamic membership condition, compiled.
+     */
+    private static class Compiled {
+
+        private final Class<? extends DynMembership<?>> reference;
+
+        private final Long key;
+
+        private final SearchCond cond;
+
+        private final Set<String> references = new HashSet<>();
+
+        /**
+         * Whether the condition can be evaluated in memory.
+         */
+        private boolean local = true;
+
+        /**
+         * Whether the condition depends on memberships of any kind, hence to be evaluated on any change.
+         */
+        private boolean global;
+
+        Compiled(final Class<? extends DynMembership<?>> reference, final Long key, final SearchCond cond) {
+            this.reference = reference;
+            this.key = key;
+            this.cond = cond;
+        }
+    }
+
+    /**
+     * Compiled conditions for a given kind of members, indexed by the schemas and fields they reference.
+     */
+    private static class Conditions {
+
+        private final List<Compiled> all = new ArrayList<>();
+
+        private final List<Compiled> global = new ArrayList<>();
+
+        private final Map<String, List<Compiled>> byReference = new HashMap<>();
+
+        void add(final Compiled compiled) {
+            all.add(compiled);
+            if (compiled.global) {
+                global.add(compiled);
+            } else {
+                for (String reference : compiled.references) {
+                    List<Compiled> referencing = byReference.get(reference);
+                    if (referencing == null) {
+                        referencing = new ArrayList<>();
+                        byReference.put(reference, referencing);
+                    }
+                    referencing.add(compiled);
+                }
+            }
+        }
+
+        Collection<Compiled> affected(final Set<String> changes) {
+            if (changes == null) {
+                return all;
+            }
+
+            Set<Compiled> affected = new LinkedHashSet<>(global);
+            for (String change : changes) {
+                List<Compiled> referencing = byReference.get(change);
+                if (referencing != null) {
+                    affected.addAll(referencing);
+                }
+            }
+            return affected;
+        }
+    }
+
+    /**
+     * Compiled conditions for a given domain, as of the given version.
+     */
+    private static class DomainConditions {
+
+        private final long version;
+
+        private final Map<AnyTypeKind, Conditions> byKind;
+
+        DomainConditions(final long version, final Map<AnyTypeKind, Conditions> byKind) {
+            this.version = version;
+            this.byKind = byKind;
+        }
+    }
+
+    /**
+     * Incremented on each invalidation: conditions compiled while groups or roles were being changed are never used
+     * afterwards.
+     */
+    private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    private final Map<String, DomainConditions> domains = new ConcurrentHashMap<>();
+
+    /**
+     * Discards compiled conditions when groups, roles or their dynamic memberships are changed on other nodes.
+     */
+    private final RemoteCommitSupport remoteCommits = new RemoteCommitSupport(
+            JPAGroup.class, JPARole.class,
+            JPAUDynGroupMembership.class, JPAADynGroupMembership.class, JPADynRoleMembership.class) {
+
+        @Override
+        protected void changed(final String domain) {
+            LOG.debug("Dynamic memberships changed in domain {}, discarding compiled conditions", domain);
+            version(domain).incrementAndGet();
+        }
+    };
+
+    /**
+     * Key for binding, to the current transaction, the changes tracked for each entity being saved.
+     */
+    private final Object changesKey = new Object();
+
+    /**
+     * Progress of background recomputations, in percentage.
+     */
+    private final Map<String, Integer> progress = new ConcurrentHashMap<>();
+
+    @Autowired
+    private JPAAnySearchDAO searchDAO;
+
+    @Autowired
+    private PlainSchemaDAO plainSchemaDAO;
+
+    private boolean inMemory;
+
+    private long chunkSize;
+
+    private TaskExecutor executor;
+
+    public boolean isInMemory() {
+        return inMemory;
+    }
+
+    /**
+     * @param inMemory when false, affected conditions are always evaluated via native query; this should be the case
+     * with databases comparing strings in a case-insensitive way, as evaluation in memory is case-sensitive
+     */
+    public void setInMemory(final boolean inMemory) {
+        this.inMemory = inMemory;
+    }
+
+    public long getChunkSize() {
+        return chunkSize;
+    }
+
+    /**
+     * @param chunkSize range of keys handled by each transaction when recomputing dynamic memberships in background;
+     * this happens when more than this many users or any objects match the condition or are current members, once
+     * the transaction saving the group or role commits
+     */
+    public void setChunkSize(final long chunkSize) {
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * @param executor executor for background recomputations; a single thread ensures that subsequent conditions for
+     * the same dynamic membership are applied in order
+     */
+    public void setExecutor(final TaskExecutor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * @return background recomputations in progress, each mapped to its completion percentage
+     */
+    public Map<String, Integer> getProgress() {
+        return Collections.unmodifiableMap(progress);
+    }
+
+    private AtomicLong version(final String domain) {
+        AtomicLong version = versions.get(domain);
+        if (version == null) {
+            synchronized (versions) {
+                version = versions.get(domain);
+                if (version == null) {
+                    version = new AtomicLong();
+                    versions.put(domain, version);
+                }
+            }
+        }
+        return version;
+    }
+
+    private void compile(final SearchCond cond, final Compiled compiled) {
+        switch (cond.getType()) {
+            case LEAF:
+            case NOT_LEAF:
+                if (cond.getAttributeCond() != null) {
+                    compiled.references.add(cond.getAttributeCond().getSchema());
+                    compiled.local &= cond.getAttributeCond().getType() != AttributeCond.Type.LIKE;
+                } else if (cond.getAnyCond() != null) {
+                    compiled.references.add("key".equals(cond.getAnyCond().getSchema())
+                            ? "id" : cond.getAnyCond().getSchema());
+                    compiled.local &= cond.getAnyCond().getType() != AttributeCond.Type.LIKE;
+                } else if (cond.getAnyTypeCond() != null) {
+                    compiled.references.add("type");
+                } else if (cond.getRelationshipCond() != null) {
+                    compiled.references.add(RELATIONSHIPS);
+                } else if (cond.getResourceCond() != null) {
+                    compiled.references.add(RESOURCES);
+                    compiled.references.add(MEMBERSHIPS);
+                } else {
+                    // membership and role conditions include dynamic memberships, possibly changing along
+                    compiled.local = false;
+                    compiled.global = true;
+                }
+                break;
+
+            case AND:
+            case OR:
+                compile(cond.getLeftNodeCond(), compiled);
+                compile(cond.getRightNodeCond(), compiled);
+                break;
+
+            default:
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void compile(
+            final EntityManager entityManager,
+            final Class<? extends DynMembership<?>> reference,
+            final Conditions conditions) {
+
+        Query query = entityManager.createQuery(
+                "SELECT e.id, e.fiql FROM " + reference.getSimpleName() + " e");
+        for (Object[] row : (List<Object[]>) query.getResultList()) {
+            try {
+                Compiled compiled = new Compiled(
+                        reference, (Long) row[0], SearchCondConverter.convert((String) row[1]));
+                compile(compiled.cond, compiled);
+                compiled.local &= inMemory;
+                conditions.add(compiled);
+            } catch (Exception e) {
+                LOG.error("Could not compile dynamic membership condition {}, ignoring", row[1], e);
+            }
+        }
+    }
+
+    private Map<AnyTypeKind, Conditions> compile(final EntityManager entityManager) {
+        Map<AnyTypeKind, Conditions> compiled = new HashMap<>();
+
+        Conditions userConditions = new Conditions();
+        compile(entityManager, JPAUDynGroupMembership.class, userConditions);
+        compile(entityManager, JPADynRoleMembership.class, userConditions);
+        compiled.put(AnyTypeKind.USER, userConditions);
+
+        Conditions anyObjectConditions = new Conditions();
+        compile(entityManager, JPAADynGroupMembership.class, anyObjectConditions);
+        compiled.put(AnyTypeKind.ANY_OBJECT, anyObjectConditions);
+
+        return compiled;
+    }
+
+    private Conditions getConditions(final EntityManager entityManager, final AnyTypeKind kind) {
+        if (TransactionSynchronizationManager.hasResource(this)) {
+            return compile(entityManager).get(kind);
+        }
+
+        String domain = AuthContextUtils.getDomain();
+        remoteCommits.listen(domain, entityManager.getEntityManagerFactory());
+        long version = version(domain).get();
+
+        DomainConditions compiled = domains.get(domain);
+        if (compiled == null || compiled.version != version) {
+            compiled = new DomainConditions(version, compile(entityManager));
+            domains.put(domain, compiled);
+        }
+        return compiled.byKind.get(kind);
+    }
+
+    /**
+     * Discards all compiled conditions for the current domain, both now and after the current transaction completes.
+     */
+    public void invalidate() {
+        final String domain = AuthContextUtils.getDomain();
+        version(domain).incrementAndGet();
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()
+                && !TransactionSynchronizationManager.hasResource(this)) {
+
+            TransactionSynchronizationManager.bindResource(this, domain);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+
+                @Override
+                public void afterCompletion(final int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(DynMembershipEngine.this);
+                    version(domain).incrementAndGet();
+                }
+            });
+        }
+    }
+
+    /**
+     * Finds out which schemas and fields of the given entity are being changed by the current transaction.
+     *
+     * @param entityManager entity manager
+     * @param any user or any object
+     * @return references being changed, or null if unknown
+     */
+    private Set<String> getChanges(final EntityManager entityManager, final Any<?, ?, ?> any) {
+        if (any.getKey() == null || !(any instanceof PersistenceCapable)) {
+            return null;
+        }
+        OpenJPAEntityManager oem = OpenJPAPersistence.cast(entityManager);
+        if (!oem.contains(any) || oem.isNewlyPersistent(any)) {
+            return null;
+        }
+        Object stateManager = ((PersistenceCapable) any).pcGetStateManager();
+        if (!(stateManager instanceof OpenJPAStateManager)) {
+            return null;
+        }
+
+        Set<String> changes = new HashSet<>();
+
+        // fields of the entity itself
+        FieldMetaData[] fields = ((OpenJPAStateManager) stateManager).getMetaData().getFields();
+        BitSet dirty = ((OpenJPAStateManager) stateManager).getDirty();
+        for (int i = dirty.nextSetBit(0); i >= 0; i = dirty.nextSetBit(i + 1)) {
+            String field = fields[i].getName();
+            if ("plainAttrs".equals(field)) {
+                // attributes added or removed: cannot tell which ones for sure
+                return null;
+            }
+            changes.add(COLLECTION_FIELDS.containsKey(field) ? COLLECTION_FIELDS.get(field) : field);
+        }
+
+        // attributes, values and memberships being changed
+        for (Object object : oem.getDirtyObjects()) {
+            if (object instanceof PlainAttr) {
+                PlainAttr<?> attr = (PlainAttr<?>) object;
+                if (attr.getOwner() == null || attr.getSchema() == null) {
+                    return null;
+                }
+                if (any.equals(attr.getOwner())) {
+                    changes.add(attr.getSchema().getKey());
+                }
+            } else if (object instanceof PlainAttrValue) {
+                PlainAttr<?> attr = ((PlainAttrValue) object).getAttr();
+                if (attr == null || attr.getOwner() == null || attr.getSchema() == null) {
+                    return null;
+                }
+                if (any.equals(attr.getOwner())) {
+                    changes.add(attr.getSchema().getKey());
+                }
+            } else if (object instanceof Membership && any.equals(((Membership<?>) object).getLeftEnd())) {
+                changes.add(MEMBERSHIPS);
+            }
+        }
+
+        return changes;
+    }
+
+    /**
+     * Tracks the changes pending on the given entity, just merged: this is needed because entities are flushed - hence
+     * their pending changes lost - before dynamic memberships are refreshed.
+     *
+     * @param entityManager entity manager
+     * @param any entity just merged
+     */
+    @SuppressWarnings("unchecked")
+    public void track(final EntityManager entityManager, final Any<?, ?, ?> any) {
+        if (!(any instanceof User || any instanceof AnyObject)
+                || !TransactionSynchronizationManager.isSynchronizationActive()) {
+
+            return;
+        }
+
+        Map<Any<?, ?, ?>, Set<String>> tracked =
+                (Map<Any<?, ?, ?>, Set<String>>) TransactionSynchronizationManager.getResource(changesKey);
+        if (tracked == null) {
+            tracked = new IdentityHashMap<>();
+            TransactionSynchronizationManager.bindResource(changesKey, tracked);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+
+                @Override
+                public void afterCompletion(final int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(changesKey);
+                }
+            });
+        }
+
+        Set<String> changes = getChanges(entityManager, any);
+        if (changes == null || (tracked.containsKey(any) && tracked.get(any) == null)) {
+            tracked.put(any, null);
+        } else if (tracked.containsKey(any)) {
+            tracked.get(any).addAll(changes);
+        } else {
+            tracked.put(any, changes);
+        }
+    }
+
+    /**
+     * @param any entity being saved
+     * @return changes tracked for the given entity within the current transaction, or null if unknown
+     */
+    @SuppressWarnings("unchecked")
+    private Set<String> getTrackedChanges(final Any<?, ?, ?> any) {
+        Map<Any<?, ?, ?>, Set<String>> tracked =
+                (Map<Any<?, ?, ?>, Set<String>>) TransactionSynchronizationManager.getResource(changesKey);
+        return tracked == null ? null : tracked.get(any);
+    }
+
+    /**
+     * Refreshes the dynamic memberships of the given entity, for all conditions possibly affected by the changes
+     * tracked within the current transaction - or for all conditions, if no changes were tracked.
+     *
+     * @param entityManager entity manager
+     * @param any user or any object, being saved
+     * @param reference kind of dynamic memberships to refresh
+     */
+    @SuppressWarnings("unchecked")
+    public void refresh(
+            final EntityManager entityManager,
+            final Any<?, ?, ?> any,
+            final Class<? extends DynMembership<?>> reference) {
+
+        AnyTypeKind kind = any instanceof User ? AnyTypeKind.USER : AnyTypeKind.ANY_OBJECT;
+
+        List<Compiled> affected = new ArrayList<>();
+        for (Compiled compiled : getConditions(entityManager, kind).affected(getTrackedChanges(any))) {
+            if (compiled.reference.equals(reference)) {
+                affected.add(compiled);
+            }
+        }
+        if (affected.isEmpty()) {
+            return;
+        }
+
+        // current dynamic memberships, read at once
+        Set<Long> current = new HashSet<>();
+        if (any.getKey() != null) {
+            Query query = entityManager.createQuery("SELECT e.id FROM " + reference.getSimpleName() + " e "
+                    + "WHERE :any MEMBER OF e." + (kind == AnyTypeKind.USER ? "users" : "anyObjects"));
+            query.setParameter("any", any);
+            current.addAll((List<Long>) query.getResultList());
+        }
+
+        for (Compiled compiled : affected) {
+            boolean matches = compiled.local
+                    ? matches(any, compiled.cond, kind)
+                    : searchDAO.matches(any, compiled.cond, kind);
+
+            if (matches != current.contains(compiled.key)) {
+                DynMembership<Any<?, ?, ?>> membership =
+                        (DynMembership<Any<?, ?, ?>>) entityManager.find(compiled.reference, compiled.key);
+                if (matches) {
+                    LOG.debug("Adding {} to {} {}", any, reference.getSimpleName(), compiled.key);
+                    membership.add(any);
+                } else {
+                    LOG.debug("Removing {} from {} {}", any, reference.getSimpleName(), compiled.key);
+                    membership.remove(any);
+                }
+            }
+        }
+    }
+
+    /**
+     * Aligns the members of the given dynamic membership, in the given key range, with the entities matching the
+     * given condition: keys of matches and of current members are read first, then missing matches are inserted and
+     * members no longer matching deleted, by key lists. Matches are read before any change, as some DBMSes (e.g.
+     * MySQL) do not allow statements reading, via the search views, the same table they modify.
+     */
+    private int recompute(
+            final EntityManager entityManager,
+            final MembersTable members,
+            final Long key,
+            final SearchCond cond,
+            final long lower,
+            final long upper) {
+
+        Set<Long> toInsert = new HashSet<>();
+        List<Object> parameters = new ArrayList<>();
+        String matchQuery = searchDAO.buildMatchQuery(cond, members.kind, parameters);
+        if (matchQuery != null) {
+            parameters.add(lower);
+            int lowerParam = parameters.size();
+            parameters.add(upper);
+            int upperParam = parameters.size();
+
+            Query query = entityManager.createNativeQuery("SELECT m.any_id FROM (" + matchQuery + ") m "
+                    + "WHERE m.any_id BETWEEN ?" + lowerParam + " AND ?" + upperParam);
+            searchDAO.fillWithParameters(query, parameters);
+            for (Object match : query.getResultList()) {
+                toInsert.add(((Number) match).longValue());
+            }
+        }
+
+        Query query = entityManager.createNativeQuery("SELECT " + members.memberColumn
+                + " FROM " + members.table + " WHERE " + members.ownerColumn + "=?1"
+                + " AND " + members.memberColumn + " BETWEEN ?2 AND ?3");
+        query.setParameter(1, key);
+        query.setParameter(2, lower);
+        query.setParameter(3, upper);
+        Set<Long> toDelete = new HashSet<>();
+        for (Object member : query.getResultList()) {
+            toDelete.add(((Number) member).longValue());
+        }
+
+        Set<Long> current = new HashSet<>(toDelete);
+        toDelete.removeAll(toInsert);
+        toInsert.removeAll(current);
+        if (toDelete.isEmpty() && toInsert.isEmpty()) {
+            return 0;
+        }
+
+        // keys are numbers, safe to be inlined; inserted rows are selected from the table of users or any objects,
+        // not from the members table itself
+        for (List<Long> keys : ListUtils.partition(new ArrayList<>(toDelete), IN_LIST_SIZE)) {
+            query = entityManager.createNativeQuery("DELETE FROM " + members.table
+                    + " WHERE " + members.ownerColumn + "=?1"
+                    + " AND " + members.memberColumn + " IN (" + StringUtils.join(keys, ',') + ")");
+            query.setParameter(1, key);
+            query.executeUpdate();
+        }
+        for (List<Long> keys : ListUtils.partition(new ArrayList<>(toInsert), IN_LIST_SIZE)) {
+            entityManager.createNativeQuery("INSERT INTO " + members.table
+                    + " (" + members.ownerColumn + ", " + members.memberColumn + ")"
+                    + " SELECT " + key + ", id FROM " + members.anyTable
+                    + " WHERE id IN (" + StringUtils.join(keys, ',') + ")").executeUpdate();
+        }
+
+        return toDelete.size() + toInsert.size();
+    }
+
+    /**
+     * @return number of rows to be read for recomputing the given dynamic membership: entities matching its
+     * condition, plus current members
+     */
+    private long count(
+            final EntityManager entityManager,
+            final MembersTable members,
+            final Long key,
+            final SearchCond cond) {
+
+        long count = 0;
+
+        List<Object> parameters = new ArrayList<>();
+        String matchQuery = searchDAO.buildMatchQuery(cond, members.kind, parameters);
+        if (matchQuery != null) {
+            Query query = entityManager.createNativeQuery("SELECT COUNT(m.any_id) FROM (" + matchQuery + ") m");
+            searchDAO.fillWithParameters(query, parameters);
+            count += ((Number) query.getSingleResult()).longValue();
+        }
+
+        Query query = entityManager.createNativeQuery("SELECT COUNT(" + members.memberColumn + ")"
+                + " FROM " + members.table + " WHERE " + members.ownerColumn + "=?1");
+        query.setParameter(1, key);
+        count += ((Number) query.getSingleResult()).longValue();
+
+        return count;
+    }
+
+    private EntityManager entityManager(final String domain) {
+        return EntityManagerFactoryUtils.getTransactionalEntityManager(EntityManagerFactoryUtils.
+                findEntityManagerFactory(ApplicationContextProvider.getBeanFactory(), domain));
+    }
+
+    private void recompute(
+            final String domain,
+            final Class<?> reference,
+            final MembersTable members,
+            final Long key,
+            final String fiql,
+            final long min,
+            final long max,
+            final long step) {
+
+        final String progressKey = progressKey(domain, members, key);
+
+        AuthContextUtils.execWithAuthContext(domain, new AuthContextUtils.Executable<Void>() {
+
+            @Override
+            public Void exec() {
+                TransactionTemplate transactionTemplate = new TransactionTemplate(
+                        ApplicationContextProvider.getBeanFactory().
+                        getBean(domain + "TransactionManager", PlatformTransactionManager.class));
+                final SearchCond cond = SearchCondConverter.convert(fiql);
+
+                long chunks = (max - min) / step + 1;
+                try {
+                    for (long chunk = 0; chunk < chunks; chunk++) {
+                        final long lower = min + chunk * step;
+                        final long upper = Math.min(lower + step - 1, max);
+                        transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+
+                            @Override
+                            protected void doInTransactionWithoutResult(final TransactionStatus status) {
+                                recompute(entityManager(domain), members, key, cond, lower, upper);
+                            }
+                        });
+
+                        int percentage = (int) ((chunk + 1) * 100 / chunks);
+                        progress.put(progressKey, percentage);
+                        LOG.info("Recomputing {}: {}%", progressKey, percentage);
+                    }
+                } catch (Exception e) {
+                    LOG.error("While recomputing {}", progressKey, e);
+                } finally {
+                    // members were changed behind the L2 cache
+                    OpenJPAEntityManagerFactory emf = OpenJPAPersistence.cast(EntityManagerFactoryUtils.
+                            findEntityManagerFactory(ApplicationContextProvider.getBeanFactory(), domain));
+                    emf.getStoreCache().evict(reference, key);
+                    emf.getQueryResultCache().evictAll(reference);
+
+                    progress.remove(progressKey);
+                }
+
+                return null;
+            }
+        });
+    }
+
+    private String progressKey(final String domain, final MembersTable members, final Long key) {
+        return domain + "/" + members.table + "/" + key;
+    }
+
+    /**
+     * Recomputes the members of the given dynamic membership, just flushed. When more than chunk size entities match
+     * its condition or are its current members, recomputation is performed by background chunks once the current
+     * transaction commits.
+     *
+     * @param entityManager entity manager
+     * @param membership dynamic membership
+     */
+    public void recompute(final EntityManager entityManager, final DynMembership<?> membership) {
+        final Class<?> reference = membership.getClass();
+        final MembersTable members = MEMBERS_TABLES.get(reference);
+        final Long key = membership.getKey();
+        final String fiql = membership.getFIQLCond();
+
+        Object[] range = (Object[]) entityManager.createNativeQuery(
+                "SELECT MIN(id), MAX(id) FROM " + members.anyTable).getSingleResult();
+        if (range[0] == null) {
+            return;
+        }
+        final long min = ((Number) range[0]).longValue();
+        final long max = ((Number) range[1]).longValue();
+
+        SearchCond cond = SearchCondConverter.convert(fiql);
+        boolean small = count(entityManager, members, key, cond) <= chunkSize;
+        if (small || executor == null || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            // when few rows are involved, a single statement set covers the whole key range
+            long step = small ? max - min + 1 : chunkSize;
+            int changed = 0;
+            for (long lower = min; lower <= max; lower += step) {
+                changed += recompute(entityManager, members, key, cond, lower, Math.min(lower + step - 1, max));
+            }
+            LOG.debug("{} members changed for {} {}", changed, members.table, key);
+
+            entityManager.refresh(membership);
+        } else {
+            final String domain = AuthContextUtils.getDomain();
+            final long step = chunkSize;
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+
+                @Override
+                public void afterCommit() {
+                    progress.put(progressKey(domain, members, key), 0);
+                    executor.execute(new Runnable() {
+
+                        @Override
+                        public void run() {
+                            recompute(domain, reference, members, key, fiql, min, max, step);
+                        }
+                    });
+                }
+            });
+        }
+    }
+
+    // ------------------ evaluation in memory, mirroring JPAAnySearchDAO ------------------
+    private boolean matches(final Any<?, ?, ?> any, final SearchCond cond, final AnyTypeKind kind) {
+        switch (cond.getType()) {
+            case LEAF:
+            case NOT_LEAF:
+                boolean not = cond.getType() == SearchCond.Type.NOT_LEAF;
+                if (cond.getAttributeCond() != null) {
+                    return matches(any, cond.getAttributeCond(), not, kind);
+                }
+                if (cond.getAnyCond() != null) {
+                    return matches(any, cond.getAnyCond(), not);
+                }
+                if (cond.getAnyTypeCond() != null) {
+                    return kind == AnyTypeKind.ANY_OBJECT
+                            && any.getType().getKey().equals(cond.getAnyTypeCond().getAnyTypeName()) != not;
+                }
+                if (cond.getRelationshipCond() != null) {
+                    Long anyObjectKey = cond.getRelationshipCond().getAnyObjectKey();
+                    return (any instanceof User
+                            ? ((User) any).getRelationships(anyObjectKey)
+                            : ((AnyObject) any).getRelationships(anyObjectKey)).isEmpty() == not;
+                }
+                if (cond.getResourceCond() != null) {
+                    Set<String> resources = new HashSet<>(any.getResourceNames());
+                    if (any instanceof User) {
+                        for (Membership<?> membership : ((User) any).getMemberships()) {
+                            for (ExternalResource resource : membership.getRightEnd().getResources()) {
+                                resources.add(resource.getKey());
+                            }
+                        }
+                    }
+                    return resources.contains(cond.getResourceCond().getResourceName()) != not;
+                }
+                return false;
+
+            case AND:
+                return matches(any, cond.getLeftNodeCond(), kind) && matches(any, cond.getRightNodeCond(), kind);
+
+            case OR:
+                return matches(any, cond.getLeftNodeCond(), kind) || matches(any, cond.getRightNodeCond(), kind);
+
+            default:
+                return false;
+        }
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private boolean compare(
+            final Object value, final AttributeCond.Type type, final boolean not, final Object expected) {
+        if (value == null || expected == null) {
+            return false;
+        }
+
+        int result = value instanceof Number && expected instanceof Number
+                ? Double.compare(((Number) value).doubleValue(), ((Number) expected).doubleValue())
+                : value instanceof Date && expected instanceof Date
+                        ? Long.compare(((Date) value).getTime(), ((Date) expected).getTime())
+                        : value instanceof Comparable && value.getClass().equals(expected.getClass())
+                                ? ((Comparable) value).compareTo(expected)
+                                : value.toString().compareTo(expected.toString());
+
+        switch (type) {
+            case EQ:
+                return not ? result != 0 : result == 0;
+
+            case GE:
+                return not ? result < 0 : result >= 0;
+
+            case GT:
+                return not ? result <= 0 : result > 0;
+
+            case LE:
+                return not ? result > 0 : result <= 0;
+
+            case LT:
+                return not ? result >= 0 : result < 0;
+
+            default:
+                return false;
+        }
+    }
+
+    private PlainAttrValue newPlainAttrValue(final AnyTypeKind kind) {
+        return kind == AnyTypeKind.USER ? new JPAUPlainAttrValue() : new JPAAPlainAttrValue();
+    }
+
+    private boolean matches(
+            final Any<?, ?, ?> any, final AttributeCond cond, final boolean not, final AnyTypeKind kind) {
+        PlainSchema schema = plainSchemaDAO.find(cond.getSchema());
+        if (schema == null) {
+            return false;
+        }
+
+        PlainAttr<?> attr = any.getPlainAttr(cond.getSchema());
+        if (cond.getType() == AttributeCond.Type.ISNULL || cond.getType() == AttributeCond.Type.ISNOTNULL) {
+            boolean exists = (cond.getType() == AttributeCond.Type.ISNOTNULL) != not;
+            return (attr != null) == exists;
+        }
+        if (attr == null) {
+            return false;
+        }
+
+        PlainAttrValue expected = newPlainAttrValue(kind);
+        try {
+            schema.getValidator().validate(cond.getExpression(), expected);
+        } catch (ValidationException e) {
+            LOG.error("Could not validate expression '{}'", cond.getExpression(), e);
+            return false;
+        }
+
+        List<PlainAttrValue> values = attr.getUniqueValue() == null
+                ? new ArrayList<PlainAttrValue>(attr.getValues())
+                : Collections.<PlainAttrValue>singletonList(attr.getUniqueValue());
+        for (PlainAttrValue value : values) {
+            if (compare(value.getValue(), cond.getType(), not, expected.getValue())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean matches(final Any<?, ?, ?> any, final AnyCond cond, final boolean not) {
+        String field = "key".equals(cond.getSchema()) || "id".equals(cond.getSchema()) ? "key" : cond.getSchema();
+
+        PropertyDescriptor property = BeanUtils.getPropertyDescriptor(any.getClass(), field);
+        if (property == null || property.getReadMethod() == null) {
+            LOG.warn("Ignoring invalid schema '{}'", cond.getSchema());
+            return false;
+        }
+
+        Object value;
+        try {
+            value = property.getReadMethod().invoke(any);
+        } catch (Exception e) {
+            LOG.error("Could not read {} from {}", field, any, e);
+            return false;
+        }
+        if (value instanceof AbstractEntity) {
+            value = ((AbstractEntity<?>) value).getKey();
+        } else if (value instanceof Enum) {
+            value = ((Enum<?>) value).name();
+        }
+
+        if (cond.getType() == AttributeCond.Type.ISNULL) {
+            return (value == null) != not;
+        }
+        if (cond.getType() == AttributeCond.Type.ISNOTNULL) {
+            return (value != null) != not;
+        }
+
+        PlainSchema schema = new JPAPlainSchema();
+        schema.setKey(field);
+        schema.setType(value instanceof Boolean
+                ? AttrSchemaType.Boolean
+                : value instanceof Date
+                        ? AttrSchemaType.Date
+                        : value instanceof Double || value instanceof Float
+                                ? AttrSchemaType.Double
+                                : value instanceof Number
+                                        ? AttrSchemaType.Long
+                                        : AttrSchemaType.String);
+
+        PlainAttrValue expected = new JPAUPlainAttrValue();
+        try {
+            schema.getValidator().validate(cond.getExpression(), expected);
+        } catch (ValidationException e) {
+            LOG.error("Could not validate expression '{}'", cond.getExpression(), e);
+            return false;
+        }
+
+        return compare(value, cond.getType(), not, expected.getValue());
+    }
+}
@@ -64,6 +64,11 @@ public class JPAAnyObjectDAO extends AbstractAnyDAO<AnyObject> implements AnyObj
         return new JPAAnyUtilsFactory().getInstance(AnyTypeKind.ANY_OBJECT);
     }
 
+    @Override
+    protected String[] getPrefetchFields() {
+        return new String[] { "plainAttrs", "memberships", "resources" };
+    }
+
     @Override
     protected void securityChecks(final AnyObject anyObject) {
         Set<String> authRealms = AuthContextUtils.getAuthorizations().get(Entitlement.ANY_OBJECT_READ);
@@ -132,6 +137,7 @@ public class JPAAnyObjectDAO extends AbstractAnyDAO<AnyObject> implements AnyObj
             group.getADynMembership().remove(any);
         }
 
+        searchIndex.delete(entityManager(), AnyTypeKind.ANY_OBJECT, any.getKey());
         entityManager().remove(any);
     }
 
@@ -22,10 +22,14 @@ import java.lang.annotation.Annotation;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import javax.persistence.Entity;
 import javax.persistence.Query;
@@ -33,34 +37,36 @@ import javax.persistence.TemporalType;
 import javax.validation.ValidationException;
 import javax.validation.constraints.Max;
 import javax.validation.constraints.Min;
-import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.collections4.Transformer;
 import org.apache.commons.lang3.ClassUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.syncope.common.lib.types.AnyTypeKind;
 import org.apache.syncope.common.lib.types.AttrSchemaType;
+import org.apache.syncope.core.misc.DataFormat;
 import org.apache.syncope.core.misc.RealmUtils;
 import org.apache.syncope.core.persistence.api.dao.AnyObjectDAO;
-import org.apache.syncope.core.persistence.api.dao.PlainSchemaDAO;
 import org.apache.syncope.core.persistence.api.dao.GroupDAO;
-import org.apache.syncope.core.persistence.api.dao.RealmDAO;
 import org.apache.syncope.core.persistence.api.dao.AnySearchDAO;
 import org.apache.syncope.core.persistence.api.dao.UserDAO;
 import org.apache.syncope.core.persistence.api.dao.search.AttributeCond;
 import org.apache.syncope.core.persistence.api.dao.search.MembershipCond;
 import org.apache.syncope.core.persistence.api.dao.search.OrderByClause;
+import org.apache.syncope.core.persistence.api.dao.search.ProjectedAny;
 import org.apache.syncope.core.persistence.api.dao.search.ResourceCond;
 import org.apache.syncope.core.persistence.api.dao.search.RoleCond;
 import org.apache.syncope.core.persistence.api.dao.search.SearchCond;
+import org.apache.syncope.core.persistence.api.dao.search.SearchHandler;
+import org.apache.syncope.core.persistence.api.dao.search.SearchPage;
 import org.apache.syncope.core.persistence.api.dao.search.AnyCond;
 import org.apache.syncope.core.persistence.api.dao.search.AnyTypeCond;
 import org.apache.syncope.core.persistence.api.dao.search.RelationshipCond;
 import org.apache.syncope.core.persistence.api.entity.Any;
 import org.apache.syncope.core.persistence.api.entity.AnyUtils;
 import org.apache.syncope.core.persistence.api.entity.AnyUtilsFactory;
+import org.apache.syncope.core.persistence.api.entity.DerSchema;
 import org.apache.syncope.core.persistence.api.entity.PlainAttrValue;
 import org.apache.syncope.core.persistence.api.entity.PlainSchema;
-import org.apache.syncope.core.persistence.api.entity.Realm;
+import org.apache.syncope.core.persistence.jpa.entity.JPAAnySearchIndex;
 import org.apache.syncope.core.persistence.jpa.entity.JPAPlainSchema;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
@@ -71,8 +77,101 @@ public class JPAAnySearchDAO extends AbstractDAO<Any<?, ?, ?>, Long> implements
 
     private static final String EMPTY_ATTR_QUERY = "SELECT any_id FROM user_search_attr WHERE 1=2";
 
-    @Autowired
-    private RealmDAO realmDAO;
+    private static final int PROJECTION_BATCH_SIZE = 500;
+
+    /**
+     * Parameters taking their value straight from the leaf condition.
+     */
+    private enum LeafParam implements SearchQueryCache.ParamBinder {
+
+        ANY_TYPE_NAME,
+        ANY_OBJECT_KEY,
+        GROUP_KEY,
+        ROLE_KEY,
+        RESOURCE_NAME,
+        ATTR_EXPRESSION,
+        ANY_EXPRESSION;
+
+        @Override
+        public Object bind(final SearchCond leaf) {
+            Object value;
+
+            switch (this) {
+                case ANY_TYPE_NAME:
+                    value = leaf.getAnyTypeCond().getAnyTypeName();
+                    break;
+
+                case ANY_OBJECT_KEY:
+                    value = leaf.getRelationshipCond().getAnyObjectKey();
+                    break;
+
+                case GROUP_KEY:
+                    value = leaf.getMembershipCond().getGroupKey();
+                    break;
+
+                case ROLE_KEY:
+                    value = leaf.getRoleCond().getRoleKey();
+                    break;
+
+                case RESOURCE_NAME:
+                    value = leaf.getResourceCond().getResourceName();
+                    break;
+
+                case ATTR_EXPRESSION:
+                    value = leaf.getAttributeCond().getExpression();
+                    break;
+
+                case ANY_EXPRESSION:
+                default:
+                    value = leaf.getAnyCond().getExpression();
+            }
+
+            return value;
+        }
+    }
+
+    /**
+     * Parameters with a value depending only on the shape of the leaf condition.
+     */
+    private static class ConstantParam implements SearchQueryCache.ParamBinder {
+
+        private final Object value;
+
+        ConstantParam(final Object value) {
+            this.value = value;
+        }
+
+        @Override
+        public Object bind(final SearchCond leaf) {
+            return value;
+        }
+    }
+
+    /**
+     * Parameters whose value is parsed from the leaf condition's expression, according to the given schema.
+     */
+    private static class TypedParam implements SearchQueryCache.ParamBinder {
+
+        private final PlainSchema schema;
+
+        private final AnyUtils attrUtils;
+
+        private final boolean anyCond;
+
+        TypedParam(final PlainSchema schema, final AnyUtils attrUtils, final boolean anyCond) {
+            this.schema = schema;
+            this.attrUtils = attrUtils;
+            this.anyCond = anyCond;
+        }
+
+        @Override
+        public Object bind(final SearchCond leaf) {
+            PlainAttrValue attrValue = attrUtils.newPlainAttrValue();
+            schema.getValidator().validate(
+                    anyCond ? leaf.getAnyCond().getExpression() : leaf.getAttributeCond().getExpression(), attrValue);
+            return attrValue.getValue();
+        }
+    }
 
     @Autowired
     private AnyObjectDAO anyObjectDAO;
@@ -84,41 +183,52 @@ public class JPAAnySearchDAO extends AbstractDAO<Any<?, ?, ?>, Long> implements
     private GroupDAO groupDAO;
 
     @Autowired
-    private PlainSchemaDAO schemaDAO;
+    private AnyUtilsFactory anyUtilsFactory;
+
+    @Autowired
+    private DialectSupport dialectSupport;
 
     @Autowired
-    private AnyUtilsFactory anyUtilsFactory;
+    private AnySearchIndex searchIndex;
 
-    private String getAdminRealmsFilter(final Set<String> adminRealms, final SearchSupport svs) {
-        Set<Long> realmKeys = new HashSet<>();
-        for (String realmPath : RealmUtils.normalize(adminRealms)) {
-            Realm realm = realmDAO.find(realmPath);
-            if (realm == null) {
-                LOG.warn("Ignoring invalid realm {}", realmPath);
-            } else {
-                CollectionUtils.collect(realmDAO.findDescendants(realm), new Transformer<Realm, Long>() {
+    @Autowired
+    private SearchQueryCache queryCache;
 
-                    @Override
-                    public Long transform(final Realm descendant) {
-                        return descendant.getKey();
-                    }
-                }, realmKeys);
-            }
-        }
+    @Autowired
+    private MetadataCache metadataCache;
+
+    @Autowired
+    private SearchQueryGenerator generator;
+
+    @Autowired
+    private SearchStreamSupport streamSupport;
+
+    private String getAdminRealmsFilter(
+            final Set<String> adminRealms, final List<Object> parameters, final SearchSupport svs) {
 
         StringBuilder adminRealmFilter = new StringBuilder().
                 append("SELECT any_id FROM ").append(svs.field().name).
-                append(" WHERE realm_id IN (SELECT id AS realm_id FROM Realm");
+                append(" WHERE realm_id IN (SELECT id AS realm_id FROM Realm WHERE");
 
+        // each admin realm matches itself and all its descendants, via materialized path
         boolean firstRealm = true;
-        for (Long realmKey : realmKeys) {
-            if (firstRealm) {
-                adminRealmFilter.append(" WHERE");
-                firstRealm = false;
+        for (String realmPath : RealmUtils.normalize(adminRealms)) {
+            if (StringUtils.contains(realmPath, '@')) {
+                LOG.warn("Ignoring invalid realm {}", realmPath);
             } else {
-                adminRealmFilter.append(" OR");
+                if (firstRealm) {
+                    firstRealm = false;
+                } else {
+                    adminRealmFilter.append(" OR");
+                }
+                adminRealmFilter.append(" fullPath=?").append(setParameter(parameters, realmPath)).
+                        append(" OR fullPath LIKE ?").append(setParameter(
+                                parameters, RealmUtils.getDescendantsPattern(realmPath))).
+                        append(" ESCAPE '").append(RealmUtils.LIKE_ESCAPE).append('\'');
             }
-            adminRealmFilter.append(" id = ").append(realmKey);
+        }
+        if (firstRealm) {
+            adminRealmFilter.append(" 1=2");
         }
 
         adminRealmFilter.append(')');
@@ -126,22 +236,30 @@ public class JPAAnySearchDAO extends AbstractDAO<Any<?, ?, ?>, Long> implements
         return adminRealmFilter.toString();
     }
 
-    @Override
-    public int count(final Set<String> adminRealms, final SearchCond searchCondition, final AnyTypeKind typeKind) {
-        List<Object> parameters = Collections.synchronizedList(new ArrayList<>());
+    private StringBuilder buildCountQuery(final Set<String> adminRealms, final SearchCond searchCondition,
+            final List<Object> parameters, final AnyTypeKind typeKind) {
 
         // 1. get the query string from the search condition
         SearchSupport svs = new SearchSupport(typeKind);
-        StringBuilder queryString = getQuery(searchCondition, parameters, typeKind, svs);
+        StringBuilder queryString = new StringBuilder("SELECT u.any_id FROM (").
+                append(getQuery(searchCondition, parameters, typeKind, svs));
 
         // 2. take into account administrative realms
-        queryString.insert(0, "SELECT u.any_id FROM (");
         queryString.append(") u WHERE any_id IN (");
-        queryString.append(getAdminRealmsFilter(adminRealms, svs)).append(')');
+        queryString.append(getAdminRealmsFilter(adminRealms, parameters, svs)).append(')');
 
-        // 3. prepare the COUNT query
-        queryString.insert(0, "SELECT COUNT(any_id) FROM (");
-        queryString.append(") count_any_id");
+        return queryString;
+    }
+
+    @Override
+    public int count(final Set<String> adminRealms, final SearchCond searchCondition, final AnyTypeKind typeKind) {
+        List<Object> parameters = Collections.synchronizedList(new ArrayList<>());
+
+        // 1. get the query string from the search condition, taking into account administrative realms, and
+        // prepare the COUNT query
+        StringBuilder queryString = new StringBuilder("SELECT COUNT(any_id) FROM (").
+                append(buildCountQuery(adminRealms, searchCondition, parameters, typeKind)).
+                append(") count_any_id");
 
         Query countQuery = entityManager().createNativeQuery(queryString.toString());
         fillWithParameters(countQuery, parameters);
@@ -188,6 +306,157 @@ public class JPAAnySearchDAO extends AbstractDAO<Any<?, ?, ?>, Long> implements
         return result;
     }
 
+    @Override
+    public <T extends Any<?, ?, ?>> SearchPage<T> searchAndCount(
+            final Set<String> adminRealms, final SearchCond searchCondition, final int page, final int itemsPerPage,
+            final List<OrderByClause> orderBy, final AnyTypeKind typeKind, final int countLimit) {
+
+        SearchPage<T> result = new SearchPage<>();
+        result.setTotalCount(0);
+
+        if (adminRealms != null && !adminRealms.isEmpty()) {
+            LOG.debug("Search condition:\n{}", searchCondition);
+
+            if (searchCondition != null && searchCondition.isValid()) {
+                try {
+                    result = doSearchAndCount(
+                            adminRealms, searchCondition, page, itemsPerPage, orderBy, typeKind, countLimit,
+                            new Transformer<List<Object>, List<T>>() {
+
+                        @Override
+                        public List<T> transform(final List<Object> raw) {
+                            return buildResult(raw, typeKind);
+                        }
+                    });
+                } catch (Exception e) {
+                    LOG.error("While searching for {}", typeKind, e);
+                }
+            } else {
+                LOG.error("Invalid search condition:\n{}", searchCondition);
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    public <T extends Any<?, ?, ?>> SearchPage<T> search(
+            final Set<String> adminRealms, final SearchCond searchCondition, final String after,
+            final int itemsPerPage, final List<OrderByClause> orderBy, final AnyTypeKind typeKind) {
+
+        SearchPage<T> result = new SearchPage<>();
+
+        if (adminRealms != null && !adminRealms.isEmpty()) {
+            LOG.debug("Search condition:\n{}", searchCondition);
+
+            if (searchCondition != null && searchCondition.isValid()) {
+                // invalid tokens are reported to the caller, rather than returning an empty page
+                List<Object> afterValues = after == null
+                        ? null
+                        : KeysetSupport.decode(after,
+                                parseOrderBy(typeKind, new SearchSupport(typeKind), orderBy).items.size() + 1);
+
+                try {
+                    result = doSearch(adminRealms, searchCondition, afterValues, itemsPerPage, orderBy, typeKind);
+                } catch (Exception e) {
+                    LOG.error("While searching for {}", typeKind, e);
+                }
+            } else {
+                LOG.error("Invalid search condition:\n{}", searchCondition);
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    public SearchPage<ProjectedAny> project(
+            final Set<String> adminRealms, final SearchCond searchCondition, final int page, final int itemsPerPage,
+            final List<OrderByClause> orderBy, final AnyTypeKind typeKind, final int countLimit,
+            final Collection<String> plainSchemas) {
+
+        SearchPage<ProjectedAny> result = new SearchPage<>();
+        result.setTotalCount(0);
+
+        if (adminRealms != null && !adminRealms.isEmpty()) {
+            LOG.debug("Search condition:\n{}", searchCondition);
+
+            if (searchCondition != null && searchCondition.isValid()) {
+                final Map<String, PlainSchema> schemas = new LinkedHashMap<>();
+                for (String schemaName : plainSchemas) {
+                    PlainSchema schema = metadataCache.getPlainSchema(entityManager(), schemaName);
+                    if (schema == null || schema.getType() == AttrSchemaType.Binary) {
+                        LOG.warn("Ignoring invalid or binary plain schema for projection: {}", schemaName);
+                    } else {
+                        schemas.put(schemaName, schema);
+                    }
+                }
+
+                try {
+                    result = doSearchAndCount(
+                            adminRealms, searchCondition, page, itemsPerPage, orderBy, typeKind, countLimit,
+                            new Transformer<List<Object>, List<ProjectedAny>>() {
+
+                        @Override
+                        public List<ProjectedAny> transform(final List<Object> raw) {
+                            return buildProjection(raw, typeKind, schemas);
+                        }
+                    });
+                } catch (Exception e) {
+                    LOG.error("While searching for {}", typeKind, e);
+                }
+            } else {
+                LOG.error("Invalid search condition:\n{}", searchCondition);
+            }
+        }
+
+        return result;
+    }
+
+    @Override
+    public <T extends Any<?, ?, ?>> void stream(
+            final Set<String> adminRealms, final SearchCond searchCondition, final List<OrderByClause> orderBy,
+            final AnyTypeKind typeKind, final SearchHandler<T> handler) {
+
+        if (adminRealms == null || adminRealms.isEmpty()) {
+            return;
+        }
+
+        LOG.debug("Search condition:\n{}", searchCondition);
+        if (searchCondition == null || !searchCondition.isValid()) {
+            LOG.error("Invalid search condition:\n{}", searchCondition);
+            return;
+        }
+
+        List<Object> parameters = Collections.synchronizedList(new ArrayList<>());
+
+        // 1. get the query string from the search condition, taking into account administrative groups and ordering
+        SearchSupport svs = new SearchSupport(typeKind);
+        OrderBySupport orderBySupport = parseOrderBy(typeKind, svs, orderBy);
+        StringBuilder queryString =
+                buildSearchQuery(adminRealms, searchCondition, parameters, orderBySupport, typeKind, svs).
+                append(buildOrderBy(orderBySupport));
+
+        // 2. prepare the search query and populate it with parameter values
+        Query query = entityManager().createNativeQuery(queryString.toString());
+        fillWithParameters(query, parameters);
+
+        // 3. read keys through the cursor, and load entities one chunk at a time
+        streamSupport.stream(entityManager(), query, new SearchStreamSupport.ChunkHandler() {
+
+            @Override
+            public boolean handle(final List<Object> rows) {
+                boolean more = true;
+                for (Iterator<T> itor = JPAAnySearchDAO.this.<T>buildResult(rows, typeKind).iterator();
+                        more && itor.hasNext();) {
+
+                    more = handler.handle(itor.next());
+                }
+                return more;
+            }
+        });
+    }
+
     @Override
     public <T extends Any<?, ?, ?>> boolean matches(
             final T any, final SearchCond searchCondition, final AnyTypeKind typeKind) {
@@ -196,16 +465,16 @@ public class JPAAnySearchDAO extends AbstractDAO<Any<?, ?, ?>, Long> implements
 
         // 1. get the query string from the search condition
         SearchSupport svs = new SearchSupport(typeKind);
-        StringBuilder queryString = getQuery(searchCondition, parameters, typeKind, svs);
+        StringBuilder condQuery = getQuery(searchCondition, parameters, typeKind, svs);
 
         boolean matches;
-        if (queryString.length() == 0) {
+        if (condQuery.length() == 0) {
             // Could be empty: got into a group search with a single membership condition ...
             matches = false;
         } else {
             // 2. take into account the passed user
-            queryString.insert(0, "SELECT u.any_id FROM (");
-            queryString.append(") u WHERE any_id=?").append(setParameter(parameters, any.getKey()));
+            StringBuilder queryString = new StringBuilder("SELECT u.any_id FROM (").append(condQuery).
+                    append(") u WHERE any_id=?").append(setParameter(parameters, any.getKey()));
 
             // 3. prepare the search query
             Query query = entityManager().createNativeQuery(queryString.toString());
@@ -220,6 +489,24 @@ public class JPAAnySearchDAO extends AbstractDAO<Any<?, ?, ?>, Long> implements
         return matches;
     }
 
+    /**
+     * Builds the native query selecting the keys of all entities matching the given condition, regardless of realms.
+     *
+     * @param searchCondition search condition
+     * @param typeKind any type kind
+     * @param parameters filled with the parameter values of the returned query
+     * @return native query selecting any_id, or null if nothing can match
+     */
+    String buildMatchQuery(
+            final SearchCond searchCondition, final AnyTypeKind typeKind, final List<Object> parameters) {
+
+
+        StringBuilder condQuery = getQuery(searchCondition, parameters, typeKind, new SearchSupport(typeKind));
+        return condQuery.length() == 0
+                ? null
+                : new StringBuilder("SELECT u.any_id FROM (").append(condQuery).append(") u").toString();
+    }
+
     private int setParameter(final List<Object> parameters, final Object parameter) {
         int key;
         synchronized (parameters) {
@@ -230,7 +517,14 @@ public class JPAAnySearchDAO extends AbstractDAO<Any<?, ?, ?>, Long> implements
         return key;
     }
 
-    private void fillWithParameters(final Query query, final List<Object> parameters) {
+    private int setParameter(final List<Object> parameters, final SearchQueryCache.Template template,
+            final SearchQueryCache.ParamBinder binder, final Object parameter) {
+
+        template.bind(binder);
+        return setParameter(parameters, parameter);
+    }
+
+    void fillWithParameters(final Query query, final List<Object> parameters) {
         for (int i = 0; i < parameters.size(); i++) {
             if (parameters.get(i) instanceof Date) {
                 query.setParameter(i + 1, (Date) parameters.get(i), TemporalType.TIMESTAMP);
@@ -244,12 +538,15 @@ public class JPAAnySearchDAO extends AbstractDAO<Any<?, ?, ?>, Long> implements
         }
     }
 
-    private StringBuilder buildSelect(final OrderBySupport orderBySupport) {
+    private StringBuilder buildSelect(final OrderBySupport orderBySupport, final boolean windowCount) {
         final StringBuilder select = new StringBuilder("SELECT u.any_id");
 
         for (OrderBySupport.Item obs : orderBySupport.items) {
             select.append(',').append(obs.select);
         }
+        if (windowCount) {
+            select.append(',').append("COUNT(*) OVER() AS total_count");
+        }
         select.append(" FROM ");
 
         return select;
@@ -292,6 +589,24 @@ public class JPAAnySearchDAO extends AbstractDAO<Any<?, ?, ?>, Long> implements
     private OrderBySupport parseOrderBy(final AnyTypeKind type, final SearchSupport svs,
             final List<OrderByClause> orderByClauses) {
 
+        StringBuilder key = new StringBuilder("orderBy|").append(type.name());
+        for (OrderByClause clause : orderByClauses) {
+            key.append('|').append(clause.getField()).append(' ').append(clause.getDirection());
+        }
+
+        long version = queryCache.version();
+        OrderBySupport orderBySupport = queryCache.get(key.toString());
+        if (orderBySupport == null) {
+            orderBySupport = doParseOrderBy(type, svs, orderByClauses);
+            queryCache.put(key.toString(), orderBySupport, version);
+        }
+
+        return orderBySupport;
+    }
+
+    private OrderBySupport doParseOrderBy(final AnyTypeKind type, final SearchSupport svs,
+            final List<OrderByClause> orderByClauses) {
+
         final AnyUtils attrUtils = anyUtilsFactory.getInstance(type);
 
         OrderBySupport orderBySupport = new OrderBySupport();
@@ -304,7 +619,7 @@ public class JPAAnySearchDAO extends AbstractDAO<Any<?, ?, ?>, Long> implements
 
             Field anyField = ReflectionUtils.findField(attrUtils.anyClass(), fieldName);
             if (anyField == null) {
-                PlainSchema schema = schemaDAO.find(fieldName);
+                PlainSchema schema = metadataCache.getPlainSchema(entityManager(), fieldName);
                 if (schema != null) {
                     if (schema.isUniqueConstraint()) {
                         orderBySupport.views.add(svs.uniqueAttr());
@@ -316,6 +631,7 @@ public class JPAAnySearchDAO extends AbstractDAO<Any<?, ?, ?>, Long> implements
                                 append(svs.uniqueAttr().alias).
                                 append(".schema_name='").append(fieldName).append("'").toString();
                         obs.orderBy = fieldName + " " + clause.getDirection().name();
+                        obs.column = svs.uniqueAttr().alias + "." + svs.fieldName(schema.getType());
                     } else {
                         orderBySupport.views.add(svs.attr());
 
@@ -326,6 +642,7 @@ public class JPAAnySearchDAO extends AbstractDAO<Any<?, ?, ?>, Long> implements
                                 append(svs.attr().alias).
                                 append(".schema_name='").append(fieldName).append("'").toString();
                         obs.orderBy = fieldName + " " + clause.getDirection().name();
+                        obs.column = svs.attr().alias + "." + svs.fieldName(schema.getType());
                     }
                 }
             } else {
@@ -334,7 +651,9 @@ public class JPAAnySearchDAO extends AbstractDAO<Any<?, ?, ?>, Long> implements
                 obs.select = svs.field().alias + "." + fieldName;
                 obs.where = StringUtils.EMPTY;
                 obs.orderBy = svs.field().alias + "." + fieldName + " " + clause.getDirection().name();
+                obs.column = svs.field().alias + "." + fieldName;
             }
+            obs.direction = clause.getDirection();
 
             if (obs.isEmpty()) {
                 LOG.warn("Cannot build any valid clause from {}", clause);
@@ -346,6 +665,218 @@ public class JPAAnySearchDAO extends AbstractDAO<Any<?, ?, ?>, Long> implements
         return orderBySupport;
     }
 
+    private StringBuilder buildSearchQuery(final Set<String> adminRealms, final SearchCond nodeCond,
+            final List<Object> parameters, final OrderBySupport orderBySupport, final AnyTypeKind typeKind,
+            final SearchSupport svs) {
+
+        return buildSearchQuery(adminRealms, nodeCond, parameters, orderBySupport, typeKind, svs, false);
+    }
+
+    private StringBuilder buildSearchQuery(final Set<String> adminRealms, final SearchCond nodeCond,
+            final List<Object> parameters, final OrderBySupport orderBySupport, final AnyTypeKind typeKind,
+            final SearchSupport svs, final boolean windowCount) {
+
+        // 1. get the query string from the search condition
+        StringBuilder condQuery = getQuery(nodeCond, parameters, typeKind, svs);
+
+        // 2. take into account administrative groups and ordering
+        StringBuilder queryString = buildSelect(orderBySupport, windowCount);
+        if (condQuery.charAt(0) == '(') {
+            queryString.append(condQuery).append(buildWhere(orderBySupport));
+        } else {
+            queryString.append('(').append(condQuery).append(')').append(buildWhere(orderBySupport));
+        }
+        queryString.append(getAdminRealmsFilter(adminRealms, parameters, svs)).append(')');
+
+        return queryString;
+    }
+
+    /**
+     * Builds the ORDER BY clause for keyset pagination: NULL values always come last, whatever the direction and the
+     * DBMS default, as expected by {@link #buildKeysetWhere(OrderBySupport, List, List)}.
+     */
+    private StringBuilder buildKeysetOrderBy(final OrderBySupport orderBySupport) {
+        StringBuilder orderBy = new StringBuilder(" ORDER BY ");
+        for (OrderBySupport.Item obs : orderBySupport.items) {
+            orderBy.append("CASE WHEN ").append(obs.column).append(" IS NULL THEN 1 ELSE 0 END, ").
+                    append(obs.column).append(' ').append(obs.direction.name()).append(',');
+        }
+        orderBy.append("u.any_id ASC");
+
+        return orderBy;
+    }
+
+    /**
+     * Builds the condition selecting rows strictly following, in the given ordering, the row identified by the given
+     * keyset values; such values are expected to match ordering items, followed by the key. NULL values are taken
+     * as following any other value.
+     */
+    private String buildKeysetWhere(
+            final OrderBySupport orderBySupport, final List<Object> after, final List<Object> parameters) {
+
+        List<String> columns = new ArrayList<>();
+        List<OrderByClause.Direction> directions = new ArrayList<>();
+        for (OrderBySupport.Item obs : orderBySupport.items) {
+            columns.add(obs.column);
+            directions.add(obs.direction);
+        }
+        columns.add("u.any_id");
+        directions.add(OrderByClause.Direction.ASC);
+
+        List<String> disjuncts = new ArrayList<>();
+        for (int i = 0; i < columns.size(); i++) {
+            // nothing follows NULL on this column, but other NULL values
+            if (after.get(i) == null) {
+                continue;
+            }
+
+            StringBuilder disjunct = new StringBuilder("(");
+            for (int j = 0; j < i; j++) {
+                if (after.get(j) == null) {
+                    disjunct.append(columns.get(j)).append(" IS NULL AND ");
+                } else {
+                    disjunct.append(columns.get(j)).append("=?").append(setParameter(parameters, after.get(j))).
+                            append(" AND ");
+                }
+            }
+            disjunct.append('(').append(columns.get(i)).
+                    append(directions.get(i) == OrderByClause.Direction.DESC ? '<' : '>').
+                    append('?').append(setParameter(parameters, after.get(i)));
+            // the key, last, is never NULL
+            if (i < columns.size() - 1) {
+                disjunct.append(" OR ").append(columns.get(i)).append(" IS NULL");
+            }
+            disjunct.append("))");
+            disjuncts.add(disjunct.toString());
+        }
+
+        return " AND (" + StringUtils.join(disjuncts, " OR ") + ")";
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Any<?, ?, ?>> List<T> buildResult(final List<Object> raw, final AnyTypeKind typeKind) {
+        List<Long> keys = new ArrayList<>(raw.size());
+        for (Object anyKey : raw) {
+            keys.add(toKey(anyKey));
+        }
+
+        // load entities in batches, preserving the order of keys and discarding duplicates
+        List<T> result = typeKind == AnyTypeKind.USER
+                ? (List<T>) userDAO.findByKeys(keys)
+                : typeKind == AnyTypeKind.GROUP
+                        ? (List<T>) groupDAO.findByKeys(keys)
+                        : (List<T>) anyObjectDAO.findByKeys(keys);
+        if (result.size() < new HashSet<>(keys).size()) {
+            LOG.error("Could not find some {} among {}, even though returned by the native query", typeKind, keys);
+        }
+
+        return result;
+    }
+
+    private static long toKey(final Object anyKey) {
+        return anyKey instanceof Object[]
+                ? ((Number) ((Object[]) anyKey)[0]).longValue()
+                : ((Number) anyKey).longValue();
+    }
+
+    private static String format(final PlainSchema schema, final Object[] row) {
+        // row columns: any_id, schema_name, booleanvalue, datevalue, doublevalue, longvalue, stringvalue
+        switch (schema.getType()) {
+            case Boolean:
+                return row[2] == null ? null : String.valueOf(((Number) row[2]).intValue() == 1);
+
+            case Date:
+                return row[3] == null
+                        ? null
+                        : schema.getConversionPattern() == null
+                                ? DataFormat.format((Date) row[3])
+                                : DataFormat.format((Date) row[3], false, schema.getConversionPattern());
+
+            case Double:
+                return row[4] == null
+                        ? null
+                        : schema.getConversionPattern() == null
+                                ? DataFormat.format(((Number) row[4]).doubleValue())
+                                : DataFormat.format(((Number) row[4]).doubleValue(), schema.getConversionPattern());
+
+            case Long:
+                return row[5] == null
+                        ? null
+                        : schema.getConversionPattern() == null
+                                ? DataFormat.format(((Number) row[5]).longValue())
+                                : DataFormat.format(((Number) row[5]).longValue(), schema.getConversionPattern());
+
+            case String:
+            case Enum:
+            case Encrypted:
+            default:
+                return row[6] == null ? null : row[6].toString();
+        }
+    }
+
+    /**
+     * Reads values for the given schemas straight from attribute views, for all keys found in the given raw results,
+     * in batches; the order of keys is preserved and duplicates are discarded.
+     */
+    @SuppressWarnings("unchecked")
+    private List<ProjectedAny> buildProjection(
+            final List<Object> raw, final AnyTypeKind typeKind, final Map<String, PlainSchema> schemas) {
+
+        Map<Long, ProjectedAny> result = new LinkedHashMap<>();
+        for (Object anyKey : raw) {
+            long key = toKey(anyKey);
+            if (!result.containsKey(key)) {
+                result.put(key, new ProjectedAny(key));
+            }
+        }
+        if (result.isEmpty() || schemas.isEmpty()) {
+            return new ArrayList<>(result.values());
+        }
+
+        SearchSupport svs = new SearchSupport(typeKind);
+        List<Long> keys = new ArrayList<>(result.keySet());
+        for (int from = 0; from < keys.size(); from += PROJECTION_BATCH_SIZE) {
+            List<Long> batch = keys.subList(from, Math.min(from + PROJECTION_BATCH_SIZE, keys.size()));
+
+            List<Object> parameters = new ArrayList<>();
+            StringBuilder queryString = new StringBuilder();
+            for (SearchSupport.SearchView view : new SearchSupport.SearchView[] { svs.attr(), svs.uniqueAttr() }) {
+                if (queryString.length() > 0) {
+                    queryString.append(" UNION ALL ");
+                }
+                queryString.append("SELECT any_id, schema_name, booleanvalue, datevalue, doublevalue, longvalue, ").
+                        append("stringvalue FROM ").append(view.name).append(" WHERE schema_name IN (");
+                for (Iterator<String> itor = schemas.keySet().iterator(); itor.hasNext();) {
+                    queryString.append('?').append(setParameter(parameters, itor.next()));
+                    if (itor.hasNext()) {
+                        queryString.append(',');
+                    }
+                }
+                queryString.append(") AND any_id IN (");
+                for (Iterator<Long> itor = batch.iterator(); itor.hasNext();) {
+                    queryString.append('?').append(setParameter(parameters, itor.next()));
+                    if (itor.hasNext()) {
+                        queryString.append(',');
+                    }
+                }
+                queryString.append(')');
+            }
+
+            Query query = entityManager().createNativeQuery(queryString.toString());
+            fillWithParameters(query, parameters);
+
+            for (Object[] row : (List<Object[]>) query.getResultList()) {
+                PlainSchema schema = schemas.get(row[1].toString());
+                String value = format(schema, row);
+                if (value != null) {
+                    result.get(toKey(row)).add(schema.getKey(), value);
+                }
+            }
+        }
+
+        return new ArrayList<>(result.values());
+    }
+
     @SuppressWarnings("unchecked")
     private <T extends Any<?, ?, ?>> List<T> doSearch(final Set<String> adminRealms,
             final SearchCond nodeCond, final int page, final int itemsPerPage, final List<OrderByClause> orderBy,
@@ -353,64 +884,251 @@ public class JPAAnySearchDAO extends AbstractDAO<Any<?, ?, ?>, Long> implements
 
         List<Object> parameters = Collections.synchronizedList(new ArrayList<>());
 
-        // 1. get the query string from the search condition
+        // 1. get the query string from the search condition, taking into account administrative groups and ordering
         SearchSupport svs = new SearchSupport(typeKind);
-        StringBuilder queryString = getQuery(nodeCond, parameters, typeKind, svs);
-
-        // 2. take into account administrative groups and ordering
         OrderBySupport orderBySupport = parseOrderBy(typeKind, svs, orderBy);
-        if (queryString.charAt(0) == '(') {
-            queryString.insert(0, buildSelect(orderBySupport));
-            queryString.append(buildWhere(orderBySupport));
-        } else {
-            queryString.insert(0, buildSelect(orderBySupport).append('('));
-            queryString.append(')').append(buildWhere(orderBySupport));
-        }
-        queryString.
-                append(getAdminRealmsFilter(adminRealms, svs)).append(')').
+        StringBuilder queryString =
+                buildSearchQuery(adminRealms, nodeCond, parameters, orderBySupport, typeKind, svs).
                 append(buildOrderBy(orderBySupport));
 
-        // 3. prepare the search query
+        // 2. prepare the search query
         Query query = entityManager().createNativeQuery(queryString.toString());
 
-        // 4. page starts from 1, while setFirtResult() starts from 0
+        // 3. page starts from 1, while setFirtResult() starts from 0
         query.setFirstResult(itemsPerPage * (page <= 0 ? 0 : page - 1));
 
         if (itemsPerPage >= 0) {
             query.setMaxResults(itemsPerPage);
         }
 
+        // 4. populate the search query with parameter values
+        fillWithParameters(query, parameters);
+
+        // 5. Prepare the result (avoiding duplicates)
+        return buildResult(query.getResultList(), typeKind);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> SearchPage<T> doSearchAndCount(final Set<String> adminRealms,
+            final SearchCond nodeCond, final int page, final int itemsPerPage, final List<OrderByClause> orderBy,
+            final AnyTypeKind typeKind, final int countLimit, final Transformer<List<Object>, List<T>> builder) {
+
+        List<Object> parameters = Collections.synchronizedList(new ArrayList<>());
+
+        // 1. get the query string from the search condition, taking into account administrative groups and ordering;
+        // the total count is added to each row when supported and when ordering does not multiply rows
+        SearchSupport svs = new SearchSupport(typeKind);
+        OrderBySupport orderBySupport = parseOrderBy(typeKind, svs, orderBy);
+        boolean windowCount = countLimit <= 0
+                && dialectSupport.get().supportsWindowFunctions()
+                && !orderBySupport.views.contains(svs.attr());
+        StringBuilder queryString =
+                buildSearchQuery(adminRealms, nodeCond, parameters, orderBySupport, typeKind, svs, windowCount).
+                append(buildOrderBy(orderBySupport));
+
+        // 2. prepare the search query
+        Query query = entityManager().createNativeQuery(queryString.toString());
+
+        // 3. page starts from 1, while setFirtResult() starts from 0
+        int offset = itemsPerPage * (page <= 0 ? 0 : page - 1);
+        query.setFirstResult(offset);
+
+        if (itemsPerPage >= 0) {
+            query.setMaxResults(itemsPerPage);
+        }
+
+        // 4. populate the search query with parameter values
+        fillWithParameters(query, parameters);
+
+        // 5. Prepare the result (avoiding duplicates)
+        List<Object> raw = query.getResultList();
+
+        SearchPage<T> result = new SearchPage<>();
+        result.getItems().addAll(builder.transform(raw));
+
+        // 6. get the total count from the first row, infer it from a partial page or, as last resort, count
+        if (windowCount && !raw.isEmpty()) {
+            Object[] row = (Object[]) raw.get(0);
+            result.setTotalCount(((Number) row[row.length - 1]).intValue());
+        } else if (itemsPerPage < 0 || (raw.size() < itemsPerPage && (!raw.isEmpty() || offset == 0))) {
+            result.setTotalCount(offset + raw.size());
+        } else if (countLimit > 0) {
+            List<Object> countParameters = Collections.synchronizedList(new ArrayList<>());
+            Query countQuery = entityManager().createNativeQuery(
+                    buildCountQuery(adminRealms, nodeCond, countParameters, typeKind).toString());
+            countQuery.setMaxResults(countLimit + 1);
+            fillWithParameters(countQuery, countParameters);
+
+            int count = countQuery.getResultList().size();
+            result.setTotalCount(Math.max(offset + raw.size(), Math.min(count, countLimit)));
+            result.setTotalCountEstimated(count > countLimit);
+        } else {
+            result.setTotalCount(count(adminRealms, nodeCond, typeKind));
+        }
+
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Any<?, ?, ?>> SearchPage<T> doSearch(final Set<String> adminRealms,
+            final SearchCond nodeCond, final List<Object> after, final int itemsPerPage,
+            final List<OrderByClause> orderBy, final AnyTypeKind typeKind) {
+
+        List<Object> parameters = Collections.synchronizedList(new ArrayList<>());
+
+        // 1. get the query string from the search condition, taking into account administrative groups and ordering
+        SearchSupport svs = new SearchSupport(typeKind);
+        OrderBySupport orderBySupport = parseOrderBy(typeKind, svs, orderBy);
+        StringBuilder queryString = buildSearchQuery(adminRealms, nodeCond, parameters, orderBySupport, typeKind, svs);
+
+        // 2. seek right after the last row of the previous page, if any
+        if (after != null) {
+            queryString.append(buildKeysetWhere(orderBySupport, after, parameters));
+        }
+
+        // 3. the key is always the last ordering item, to get a total ordering
+        queryString.append(buildKeysetOrderBy(orderBySupport));
+
+        // 4. prepare the search query
+        Query query = entityManager().createNativeQuery(queryString.toString());
+        query.setMaxResults(itemsPerPage);
+
         // 5. populate the search query with parameter values
         fillWithParameters(query, parameters);
 
-        // 6. Prepare the result (avoiding duplicates)
-        List<T> result = new ArrayList<>();
-
-        for (Object anyKey : query.getResultList()) {
-            long actualKey = anyKey instanceof Object[]
-                    ? ((Number) ((Object[]) anyKey)[0]).longValue()
-                    : ((Number) anyKey).longValue();
-
-            T any = typeKind == AnyTypeKind.USER
-                    ? (T) userDAO.find(actualKey)
-                    : typeKind == AnyTypeKind.GROUP
-                            ? (T) groupDAO.find(actualKey)
-                            : (T) anyObjectDAO.find(actualKey);
-            if (any == null) {
-                LOG.error("Could not find {} with id {}, even though returned by the native query",
-                        typeKind, actualKey);
-            } else {
-                if (!result.contains(any)) {
-                    result.add(any);
+        // 6. Prepare the result (avoiding duplicates) and the token for the next page
+        List<Object> raw = query.getResultList();
+
+        SearchPage<T> result = new SearchPage<>();
+        result.getItems().addAll(this.<T>buildResult(raw, typeKind));
+
+        if (!raw.isEmpty() && raw.size() >= itemsPerPage) {
+            Object last = raw.get(raw.size() - 1);
+
+            List<Object> next = new ArrayList<>();
+            if (last instanceof Object[]) {
+                Object[] row = (Object[]) last;
+                for (int i = 1; i < row.length; i++) {
+                    next.add(row[i]);
                 }
+                next.add(row[0]);
+            } else {
+                next.add(last);
             }
+            result.setNext(KeysetSupport.encode(next));
         }
 
         return result;
     }
 
+    private String getShape(final SearchCond nodeCond) {
+        StringBuilder shape = new StringBuilder();
+
+        switch (nodeCond.getType()) {
+
+            case LEAF:
+            case NOT_LEAF:
+                shape.append(nodeCond.getType() == SearchCond.Type.NOT_LEAF ? "[NOT" : "[");
+                if (nodeCond.getAnyTypeCond() != null) {
+                    shape.append(" type");
+                }
+                if (nodeCond.getRelationshipCond() != null) {
+                    shape.append(" relationship");
+                }
+                if (nodeCond.getMembershipCond() != null) {
+                    shape.append(" membership");
+                }
+                if (nodeCond.getRoleCond() != null) {
+                    shape.append(" role");
+                }
+                if (nodeCond.getResourceCond() != null) {
+                    shape.append(" resource");
+                }
+                if (nodeCond.getAttributeCond() != null) {
+                    shape.append(" attr:").append(nodeCond.getAttributeCond().getSchema()).
+                            append(':').append(nodeCond.getAttributeCond().getType());
+                }
+                if (nodeCond.getAnyCond() != null) {
+                    shape.append(" any:").append(nodeCond.getAnyCond().getSchema()).
+                            append(':').append(nodeCond.getAnyCond().getType());
+                }
+                shape.append(']');
+                break;
+
+            case AND:
+            case OR:
+                shape.append('(').append(getShape(nodeCond.getLeftNodeCond())).
+                        append(' ').append(nodeCond.getType()).append(' ').
+                        append(getShape(nodeCond.getRightNodeCond())).append(')');
+                break;
+
+            default:
+        }
+
+        return shape.toString();
+    }
+
+    /**
+     * Returns the query string for the given search condition, adding the related parameter values: the template
+     * compiled for the first condition with the same shape is reused, when available.
+     */
+    private StringBuilder getQuery(final SearchCond searchCondition, final List<Object> parameters,
+            final AnyTypeKind typeKind, final SearchSupport svs) {
+
+        String key = typeKind.name() + (searchIndex.isEnabled() ? "|index" : "")
+                + (generator.isFlat() ? "|flat|" : "|nested|") + getShape(searchCondition);
+
+        long version = queryCache.version();
+        SearchQueryCache.Template template = queryCache.get(key);
+        if (template != null) {
+            try {
+                parameters.addAll(template.bind(searchCondition));
+                return new StringBuilder(template.getQuery());
+            } catch (ValidationException e) {
+                LOG.debug("Could not bind values of {}, compiling", searchCondition, e);
+            }
+        }
+
+        template = new SearchQueryCache.Template();
+        StringBuilder query = getQuery(searchCondition, parameters, template, typeKind, svs);
+        template.setQuery(query.toString());
+        if (template.isCacheable()) {
+            queryCache.put(key, template, version);
+        }
+
+        return query;
+    }
+
+    private void collectOperands(final SearchCond nodeCond, final SearchCond.Type type,
+            final List<SearchCond> operands) {
+
+        if (nodeCond.getType() == type) {
+            collectOperands(nodeCond.getLeftNodeCond(), type, operands);
+            collectOperands(nodeCond.getRightNodeCond(), type, operands);
+        } else {
+            operands.add(nodeCond);
+        }
+    }
+
+    /**
+     * Flattens nested AND (or OR) conditions into a single n-ary node, and returns the queries for its operands, in
+     * the same left-to-right order followed by leaf conditions.
+     */
+    private List<String> getOperandQueries(final SearchCond nodeCond, final List<Object> parameters,
+            final SearchQueryCache.Template template, final AnyTypeKind type, final SearchSupport svs) {
+
+        List<SearchCond> operands = new ArrayList<>();
+        collectOperands(nodeCond, nodeCond.getType(), operands);
+
+        List<String> queries = new ArrayList<>(operands.size());
+        for (SearchCond operand : operands) {
+            queries.add(getQuery(operand, parameters, template, type, svs).toString());
+        }
+        return queries;
+    }
+
     private StringBuilder getQuery(final SearchCond nodeCond, final List<Object> parameters,
-            final AnyTypeKind type, final SearchSupport svs) {
+            final SearchQueryCache.Template template, final AnyTypeKind type, final SearchSupport svs) {
 
         StringBuilder query = new StringBuilder();
 
@@ -418,52 +1136,63 @@ public class JPAAnySearchDAO extends AbstractDAO<Any<?, ?, ?>, Long> implements
 
             case LEAF:
             case NOT_LEAF:
+                template.nextLeaf();
+
                 if (nodeCond.getAnyTypeCond() != null && AnyTypeKind.ANY_OBJECT == type) {
                     query.append(getQuery(nodeCond.getAnyTypeCond(),
-                            nodeCond.getType() == SearchCond.Type.NOT_LEAF, parameters, svs));
+                            nodeCond.getType() == SearchCond.Type.NOT_LEAF, parameters, template, svs));
                 }
                 if (nodeCond.getRelationshipCond() != null
                         && (AnyTypeKind.USER == type || AnyTypeKind.ANY_OBJECT == type)) {
 
                     query.append(getQuery(nodeCond.getRelationshipCond(),
-                            nodeCond.getType() == SearchCond.Type.NOT_LEAF, parameters, svs));
+                            nodeCond.getType() == SearchCond.Type.NOT_LEAF, parameters, template, svs));
                 }
                 if (nodeCond.getMembershipCond() != null
                         && (AnyTypeKind.USER == type || AnyTypeKind.ANY_OBJECT == type)) {
 
                     query.append(getQuery(nodeCond.getMembershipCond(),
-                            nodeCond.getType() == SearchCond.Type.NOT_LEAF, parameters, svs));
+                            nodeCond.getType() == SearchCond.Type.NOT_LEAF, parameters, template, svs));
                 }
                 if (nodeCond.getRoleCond() != null && AnyTypeKind.USER == type) {
                     query.append(getQuery(nodeCond.getRoleCond(),
-                            nodeCond.getType() == SearchCond.Type.NOT_LEAF, parameters, svs));
+                            nodeCond.getType() == SearchCond.Type.NOT_LEAF, parameters, template, svs));
                 }
                 if (nodeCond.getResourceCond() != null) {
                     query.append(getQuery(nodeCond.getResourceCond(),
-                            nodeCond.getType() == SearchCond.Type.NOT_LEAF, parameters, type, svs));
+                            nodeCond.getType() == SearchCond.Type.NOT_LEAF, parameters, template, type, svs));
                 }
                 if (nodeCond.getAttributeCond() != null) {
                     query.append(getQuery(nodeCond.getAttributeCond(),
-                            nodeCond.getType() == SearchCond.Type.NOT_LEAF, parameters, type, svs));
+                            nodeCond.getType() == SearchCond.Type.NOT_LEAF, parameters, template, type, svs));
                 }
                 if (nodeCond.getAnyCond() != null) {
                     query.append(getQuery(nodeCond.getAnyCond(),
-                            nodeCond.getType() == SearchCond.Type.NOT_LEAF, parameters, type, svs));
+                            nodeCond.getType() == SearchCond.Type.NOT_LEAF, parameters, template, type, svs));
                 }
                 break;
 
             case AND:
-                query.append(getQuery(nodeCond.getLeftNodeCond(), parameters, type, svs)).
-                        append(" AND any_id IN ( ").
-                        append(getQuery(nodeCond.getRightNodeCond(), parameters, type, svs)).
-                        append(")");
+                if (generator.isFlat()) {
+                    query.append(generator.and(getOperandQueries(nodeCond, parameters, template, type, svs),
+                            dialectSupport.get().supportsIntersect()));
+                } else {
+                    query.append(getQuery(nodeCond.getLeftNodeCond(), parameters, template, type, svs)).
+                            append(" AND any_id IN ( ").
+                            append(getQuery(nodeCond.getRightNodeCond(), parameters, template, type, svs)).
+                            append(")");
+                }
                 break;
 
             case OR:
-                query.append(getQuery(nodeCond.getLeftNodeCond(), parameters, type, svs)).
-                        append(" OR any_id IN ( ").
-                        append(getQuery(nodeCond.getRightNodeCond(), parameters, type, svs)).
-                        append(")");
+                if (generator.isFlat()) {
+                    query.append(generator.or(getOperandQueries(nodeCond, parameters, template, type, svs)));
+                } else {
+                    query.append(getQuery(nodeCond.getLeftNodeCond(), parameters, template, type, svs)).
+                            append(" OR any_id IN ( ").
+                            append(getQuery(nodeCond.getRightNodeCond(), parameters, template, type, svs)).
+                            append(")");
+                }
                 break;
 
             default:
@@ -473,7 +1202,7 @@ public class JPAAnySearchDAO extends AbstractDAO<Any<?, ?, ?>, Long> implements
     }
 
     private String getQuery(final AnyTypeCond cond, final boolean not, final List<Object> parameters,
-            final SearchSupport svs) {
+            final SearchQueryCache.Template template, final SearchSupport svs) {
 
         StringBuilder query = new StringBuilder("SELECT DISTINCT any_id FROM ").
                 append(svs.field().name).append(" WHERE type_name");
@@ -484,13 +1213,13 @@ public class JPAAnySearchDAO extends AbstractDAO<Any<?, ?, ?>, Long> implements
             query.append('=');
         }
 
-        query.append('?').append(setParameter(parameters, cond.getAnyTypeName()));
+        query.append('?').append(setParameter(parameters, template, LeafParam.ANY_TYPE_NAME, cond.getAnyTypeName()));
 
         return query.toString();
     }
 
     private String getQuery(final RelationshipCond cond, final boolean not, final List<Object> parameters,
-            final SearchSupport svs) {
+            final SearchQueryCache.Template template, final SearchSupport svs) {
 
         StringBuilder query = new StringBuilder("SELECT DISTINCT any_id FROM ").
                 append(svs.field().name).append(" WHERE ");
@@ -503,14 +1232,15 @@ public class JPAAnySearchDAO extends AbstractDAO<Any<?, ?, ?>, Long> implements
 
         query.append("SELECT DISTINCT any_id ").append("FROM ").
                 append(svs.relationship().name).append(" WHERE ").
-                append("right_anyObject_id=?").append(setParameter(parameters, cond.getAnyObjectKey())).
+                append("right_anyObject_id=?").
+                append(setParameter(parameters, template, LeafParam.ANY_OBJECT_KEY, cond.getAnyObjectKey())).
                 append(')');
 
         return query.toString();
     }
 
     private String getQuery(final MembershipCond cond, final boolean not, final List<Object> parameters,
-            final SearchSupport svs) {
+            final SearchQueryCache.Template template, final SearchSupport svs) {
 
         StringBuilder query = new StringBuilder("SELECT DISTINCT any_id FROM ").
                 append(svs.field().name).append(" WHERE ");
@@ -523,7 +1253,8 @@ public class JPAAnySearchDAO extends AbstractDAO<Any<?, ?, ?>, Long> implements
 
         query.append("SELECT DISTINCT any_id ").append("FROM ").
                 append(svs.membership().name).append(" WHERE ").
-                append("group_id=?").append(setParameter(parameters, cond.getGroupKey())).
+                append("group_id=?").
+                append(setParameter(parameters, template, LeafParam.GROUP_KEY, cond.getGroupKey())).
                 append(')');
 
         if (not) {
@@ -534,14 +1265,15 @@ public class JPAAnySearchDAO extends AbstractDAO<Any<?, ?, ?>, Long> implements
 
         query.append("SELECT DISTINCT any_id ").append("FROM ").
                 append(svs.dyngroupmembership().name).append(" WHERE ").
-                append("group_id=?").append(setParameter(parameters, cond.getGroupKey())).
+                append("group_id=?").
+                append(setParameter(parameters, template, LeafParam.GROUP_KEY, cond.getGroupKey())).
                 append(')');
 
         return query.toString();
     }
 
     private String getQuery(final RoleCond cond, final boolean not, final List<Object> parameters,
-            final SearchSupport svs) {
+            final SearchQueryCache.Template template, final SearchSupport svs) {
 
         StringBuilder query = new StringBuilder("SELECT DISTINCT any_id FROM ").
                 append(svs.field().name).append(" WHERE ");
@@ -554,7 +1286,7 @@ public class JPAAnySearchDAO extends AbstractDAO<Any<?, ?, ?>, Long> implements
 
         query.append("SELECT DISTINCT any_id ").append("FROM ").
                 append(svs.role().name).append(" WHERE ").
-                append("role_id=?").append(setParameter(parameters, cond.getRoleKey())).
+                append("role_id=?").append(setParameter(parameters, template, LeafParam.ROLE_KEY, cond.getRoleKey())).
                 append(')');
 
         if (not) {
@@ -565,14 +1297,14 @@ public class JPAAnySearchDAO extends AbstractDAO<Any<?, ?, ?>, Long> implements
 
         query.append("SELECT DISTINCT any_id ").append("FROM ").
                 append(svs.dynrolemembership().name).append(" WHERE ").
-                append("role_id=?").append(setParameter(parameters, cond.getRoleKey())).
+                append("role_id=?").append(setParameter(parameters, template, LeafParam.ROLE_KEY, cond.getRoleKey())).
                 append(')');
 
         return query.toString();
     }
 
     private String getQuery(final ResourceCond cond, final boolean not, final List<Object> parameters,
-            final AnyTypeKind typeKind, final SearchSupport svs) {
+            final SearchQueryCache.Template template, final AnyTypeKind typeKind, final SearchSupport svs) {
 
         final StringBuilder query = new StringBuilder("SELECT DISTINCT any_id FROM ").
                 append(svs.field().name).append(" WHERE ");
@@ -586,13 +1318,13 @@ public class JPAAnySearchDAO extends AbstractDAO<Any<?, ?, ?>, Long> implements
         query.append("SELECT DISTINCT any_id FROM ").
                 append(svs.resource().name).
                 append(" WHERE resource_name=?").
-                append(setParameter(parameters, cond.getResourceName()));
+                append(setParameter(parameters, template, LeafParam.RESOURCE_NAME, cond.getResourceName()));
 
         if (typeKind == AnyTypeKind.USER) {
             query.append(" UNION SELECT DISTINCT any_id FROM ").
                     append(svs.groupResource().name).
                     append(" WHERE resource_name=?").
-                    append(setParameter(parameters, cond.getResourceName()));
+                    append(setParameter(parameters, template, LeafParam.RESOURCE_NAME, cond.getResourceName()));
         }
 
         query.append(')');
@@ -602,7 +1334,10 @@ public class JPAAnySearchDAO extends AbstractDAO<Any<?, ?, ?>, Long> implements
 
     private void fillAttributeQuery(final StringBuilder query, final PlainAttrValue attrValue,
             final PlainSchema schema, final AttributeCond cond, final boolean not,
-            final List<Object> parameters, final SearchSupport svs) {
+            final List<Object> parameters, final SearchQueryCache.Template template, final AnyUtils attrUtils,
+            final SearchSupport svs) {
+
+        SearchQueryCache.ParamBinder binder = new TypedParam(schema, attrUtils, cond instanceof AnyCond);
 
         String column = (cond instanceof AnyCond)
                 ? cond.getSchema()
@@ -628,7 +1363,9 @@ public class JPAAnySearchDAO extends AbstractDAO<Any<?, ?, ?>, Long> implements
                     if (not) {
                         query.append(" NOT ");
                     }
-                    query.append(" LIKE ?").append(setParameter(parameters, cond.getExpression()));
+                    query.append(" LIKE ?").append(setParameter(parameters, template,
+                            cond instanceof AnyCond ? LeafParam.ANY_EXPRESSION : LeafParam.ATTR_EXPRESSION,
+                            cond.getExpression()));
                 } else {
                     if (!(cond instanceof AnyCond)) {
                         query.append("' AND");
@@ -645,7 +1382,7 @@ public class JPAAnySearchDAO extends AbstractDAO<Any<?, ?, ?>, Long> implements
                 } else {
                     query.append('=');
                 }
-                query.append('?').append(setParameter(parameters, attrValue.getValue()));
+                query.append('?').append(setParameter(parameters, template, binder, attrValue.getValue()));
                 break;
 
             case GE:
@@ -655,7 +1392,7 @@ public class JPAAnySearchDAO extends AbstractDAO<Any<?, ?, ?>, Long> implements
                 } else {
                     query.append(">=");
                 }
-                query.append('?').append(setParameter(parameters, attrValue.getValue()));
+                query.append('?').append(setParameter(parameters, template, binder, attrValue.getValue()));
                 break;
 
             case GT:
@@ -665,7 +1402,7 @@ public class JPAAnySearchDAO extends AbstractDAO<Any<?, ?, ?>, Long> implements
                 } else {
                     query.append('>');
                 }
-                query.append('?').append(setParameter(parameters, attrValue.getValue()));
+                query.append('?').append(setParameter(parameters, template, binder, attrValue.getValue()));
                 break;
 
             case LE:
@@ -675,7 +1412,7 @@ public class JPAAnySearchDAO extends AbstractDAO<Any<?, ?, ?>, Long> implements
                 } else {
                     query.append("<=");
                 }
-                query.append('?').append(setParameter(parameters, attrValue.getValue()));
+                query.append('?').append(setParameter(parameters, template, binder, attrValue.getValue()));
                 break;
 
             case LT:
@@ -685,7 +1422,7 @@ public class JPAAnySearchDAO extends AbstractDAO<Any<?, ?, ?>, Long> implements
                 } else {
                     query.append('<');
                 }
-                query.append('?').append(setParameter(parameters, attrValue.getValue()));
+                query.append('?').append(setParameter(parameters, template, binder, attrValue.getValue()));
                 break;
 
             default:
@@ -693,11 +1430,22 @@ public class JPAAnySearchDAO extends AbstractDAO<Any<?, ?, ?>, Long> implements
     }
 
     private String getQuery(final AttributeCond cond, final boolean not, final List<Object> parameters,
-            final AnyTypeKind typeKind, final SearchSupport svs) {
+            final SearchQueryCache.Template template, final AnyTypeKind typeKind, final SearchSupport svs) {
 
         AnyUtils attrUtils = anyUtilsFactory.getInstance(typeKind);
 
-        PlainSchema schema = schemaDAO.find(cond.getSchema());
+        PlainSchema schema = metadataCache.getPlainSchema(entityManager(), cond.getSchema());
+        boolean materialized = false;
+        if (schema == null && searchIndex.isEnabled()) {
+            // values of materialized derived schemas are found into the search index, as strings
+            DerSchema derSchema = metadataCache.getDerSchema(entityManager(), cond.getSchema());
+            if (derSchema != null && derSchema.isMaterialized()) {
+                schema = new JPAPlainSchema();
+                schema.setKey(derSchema.getKey());
+                schema.setType(AttrSchemaType.String);
+                materialized = true;
+            }
+        }
         if (schema == null) {
             LOG.warn("Ignoring invalid schema '{}'", cond.getSchema());
             return EMPTY_ATTR_QUERY;
@@ -712,40 +1460,59 @@ public class JPAAnySearchDAO extends AbstractDAO<Any<?, ?, ?>, Long> implements
             }
         } catch (ValidationException e) {
             LOG.error("Could not validate expression '" + cond.getExpression() + "'", e);
+            template.setUncacheable();
             return EMPTY_ATTR_QUERY;
         }
 
         StringBuilder query = new StringBuilder("SELECT DISTINCT any_id FROM ");
-        if (cond.getType() == AttributeCond.Type.ISNOTNULL) {
-            query.append(svs.field().name).
-                    append(" WHERE any_id NOT IN (SELECT any_id FROM ").
-                    append(svs.nullAttr().name).
-                    append(" WHERE schema_name='").append(schema.getKey()).append("')");
+        if (cond.getType() == AttributeCond.Type.ISNULL || cond.getType() == AttributeCond.Type.ISNOTNULL) {
+            // (anti-)join against attributes, rather than enumerating all missing (any, schema) pairs
+            boolean exists = (cond.getType() == AttributeCond.Type.ISNOTNULL) != not;
+            query.append(svs.field().name).append(' ').append(svs.field().alias).
+                    append(" WHERE ").append(exists ? "EXISTS" : "NOT EXISTS");
+            if (materialized) {
+                query.append(" (SELECT si.any_id FROM ").append(JPAAnySearchIndex.TABLE).
+                        append(" si WHERE si.any_kind='").append(typeKind.name()).
+                        append("' AND si.any_id=").append(svs.field().alias).append(".any_id");
+            } else {
+                query.append(" (SELECT pa.id FROM ").append(attrUtils.plainAttrClass().getSimpleName().substring(3)).
+                        append(" pa WHERE pa.owner_id=").append(svs.field().alias).append(".any_id");
+            }
+            query.append(materialized ? " AND si.schema_name=?" : " AND pa.schema_name=?").append(setParameter(
+                    parameters, template, new ConstantParam(schema.getKey()), schema.getKey())).
+                    append(')');
+        } else if (searchIndex.isEnabled()) {
+            query.append(JPAAnySearchIndex.TABLE).
+                    append(" WHERE any_kind='").append(typeKind.name()).
+                    append("' AND schema_name='").append(schema.getKey());
+
+            fillAttributeQuery(query, attrValue, schema, cond, not, parameters, template, attrUtils, svs);
         } else {
-            if (cond.getType() == AttributeCond.Type.ISNULL) {
-                query.append(svs.nullAttr().name).
-                        append(" WHERE schema_name='").append(schema.getKey()).append("'");
+            if (schema.isUniqueConstraint()) {
+                query.append(svs.uniqueAttr().name);
             } else {
-                if (schema.isUniqueConstraint()) {
-                    query.append(svs.uniqueAttr().name);
-                } else {
-                    query.append(svs.attr().name);
-                }
-                query.append(" WHERE schema_name='").append(schema.getKey());
-
-                fillAttributeQuery(query, attrValue, schema, cond, not, parameters, svs);
+                query.append(svs.attr().name);
             }
+            query.append(" WHERE schema_name='").append(schema.getKey());
+
+            fillAttributeQuery(query, attrValue, schema, cond, not, parameters, template, attrUtils, svs);
         }
 
         return query.toString();
     }
 
     @SuppressWarnings("rawtypes")
-    private String getQuery(final AnyCond cond, final boolean not, final List<Object> parameters,
-            final AnyTypeKind typeKind, final SearchSupport svs) {
+    private String getQuery(final AnyCond anyCond, final boolean not, final List<Object> parameters,
+            final SearchQueryCache.Template template, final AnyTypeKind typeKind, final SearchSupport svs) {
 
         AnyUtils attrUtils = anyUtilsFactory.getInstance(typeKind);
 
+        // the schema is rewritten below into the actual column name: work on a copy, as search conditions are
+        // re-used across pages and shared among threads by dynamic memberships
+        AnyCond cond = new AnyCond(anyCond.getType());
+        cond.setSchema(anyCond.getSchema());
+        cond.setExpression(anyCond.getExpression());
+
         // Keeps track of difference between entity's getKey() and JPA @Id fields
         if ("key".equals(cond.getSchema())) {
             cond.setSchema("id");
@@ -812,6 +1579,7 @@ public class JPAAnySearchDAO extends AbstractDAO<Any<?, ?, ?>, Long> implements
                 schema.getValidator().validate(cond.getExpression(), attrValue);
             } catch (ValidationException e) {
                 LOG.error("Could not validate expression '" + cond.getExpression() + "'", e);
+                template.setUncacheable();
                 return EMPTY_ATTR_QUERY;
             }
         }
@@ -819,8 +1587,18 @@ public class JPAAnySearchDAO extends AbstractDAO<Any<?, ?, ?>, Long> implements
         final StringBuilder query = new StringBuilder("SELECT DISTINCT any_id FROM ").
                 append(svs.field().name).append(" WHERE ");
 
-        fillAttributeQuery(query, attrValue, schema, cond, not, parameters, svs);
+        fillAttributeQuery(query, attrValue, schema, cond, not, parameters, template, attrUtils, svs);
 
         return query.toString();
     }
+
+    @Override
+    public long getQueryCacheHits() {
+        return queryCache.getHits();
+    }
+
+    @Override
+    public long getQueryCacheMisses() {
+        return queryCache.getMisses();
+    }
 }
@@ -20,7 +20,6 @@ package org.apache.syncope.core.persistence.jpa.dao;
 
 import org.apache.syncope.core.persistence.api.dao.ConfDAO;
 import org.apache.syncope.core.persistence.api.dao.PlainAttrDAO;
-import org.apache.syncope.core.persistence.api.dao.PlainSchemaDAO;
 import org.apache.syncope.core.persistence.api.entity.PlainAttrUniqueValue;
 import org.apache.syncope.core.persistence.api.entity.conf.CPlainAttr;
 import org.apache.syncope.core.persistence.api.entity.conf.Conf;
@@ -35,10 +34,10 @@ import org.springframework.transaction.annotation.Transactional;
 public class JPAConfDAO extends AbstractDAO<Conf, Long> implements ConfDAO {
 
     @Autowired
-    private PlainSchemaDAO schemaDAO;
+    private PlainAttrDAO attrDAO;
 
     @Autowired
-    private PlainAttrDAO attrDAO;
+    private MetadataCache metadataCache;
 
     @Override
     public Conf get() {
@@ -56,7 +55,7 @@ public class JPAConfDAO extends AbstractDAO<Conf, Long> implements ConfDAO {
     @Transactional(readOnly = true)
     @Override
     public CPlainAttr find(final String key) {
-        return get().getPlainAttr(key);
+        return metadataCache.getConf(entityManager(), key);
     }
 
     @Transactional(readOnly = true)
@@ -65,7 +64,7 @@ public class JPAConfDAO extends AbstractDAO<Conf, Long> implements ConfDAO {
         CPlainAttr result = find(key);
         if (result == null) {
             JPACPlainAttr newAttr = new JPACPlainAttr();
-            newAttr.setSchema(schemaDAO.find(key));
+            newAttr.setSchema(metadataCache.getPlainSchema(entityManager(), key));
 
             JPACPlainAttrValue attrValue;
             if (newAttr.getSchema().isUniqueConstraint()) {
@@ -84,6 +83,7 @@ public class JPAConfDAO extends AbstractDAO<Conf, Long> implements ConfDAO {
 
     @Override
     public Conf save(final CPlainAttr attr) {
+        metadataCache.invalidate();
         Conf instance = get();
 
         CPlainAttr old = instance.getPlainAttr(attr.getSchema().getKey());
@@ -102,6 +102,7 @@ public class JPAConfDAO extends AbstractDAO<Conf, Long> implements ConfDAO {
 
     @Override
     public Conf delete(final String key) {
+        metadataCache.invalidate();
         Conf instance = get();
         CPlainAttr attr = instance.getPlainAttr(key);
         if (attr != null) {
@@ -43,6 +43,15 @@ public class JPADerSchemaDAO extends AbstractDAO<DerSchema, String> implements D
     @Autowired
     private ExternalResourceDAO resourceDAO;
 
+    @Autowired
+    private AnySearchIndex searchIndex;
+
+    @Autowired
+    private SearchQueryCache queryCache;
+
+    @Autowired
+    private MetadataCache metadataCache;
+
     @Override
     public DerSchema find(final String key) {
         return entityManager().find(JPADerSchema.class, key);
@@ -81,6 +90,11 @@ public class JPADerSchemaDAO extends AbstractDAO<DerSchema, String> implements D
 
     @Override
     public DerSchema save(final DerSchema derSchema) {
+        queryCache.invalidate();
+        metadataCache.invalidate();
+        if (!derSchema.isMaterialized()) {
+            searchIndex.delete(entityManager(), derSchema.getKey());
+        }
         return entityManager().merge(derSchema);
     }
 
@@ -91,6 +105,9 @@ public class JPADerSchemaDAO extends AbstractDAO<DerSchema, String> implements D
             return;
         }
 
+        queryCache.invalidate();
+        metadataCache.invalidate();
+
         AnyUtilsFactory anyUtilsFactory = new JPAAnyUtilsFactory();
         for (AnyTypeKind anyTypeKind : AnyTypeKind.values()) {
             AnyUtils anyUtils = anyUtilsFactory.getInstance(anyTypeKind);
@@ -101,6 +118,7 @@ public class JPADerSchemaDAO extends AbstractDAO<DerSchema, String> implements D
 
             resourceDAO.deleteMapping(key, anyUtils.derIntMappingType());
         }
+        searchIndex.delete(entityManager(), key);
 
         if (schema.getAnyTypeClass() != null) {
             schema.getAnyTypeClass().remove(schema);
@@ -69,6 +69,9 @@ public class JPAExternalResourceDAO extends AbstractDAO<ExternalResource, String
     @Autowired
     private ConnectorRegistry connRegistry;
 
+    @Autowired
+    private UserMembershipCache membershipCache;
+
     @Override
     public ExternalResource find(final String name) {
         return entityManager().find(JPAExternalResource.class, name);
@@ -139,6 +142,7 @@ public class JPAExternalResourceDAO extends AbstractDAO<ExternalResource, String
     @Transactional(rollbackFor = { Throwable.class })
     public ExternalResource save(final ExternalResource resource) {
         ExternalResource merged = entityManager().merge(resource);
+        membershipCache.invalidate();
         try {
             connRegistry.registerConnector(merged);
         } catch (NotFoundException e) {
@@ -219,6 +223,7 @@ public class JPAExternalResourceDAO extends AbstractDAO<ExternalResource, String
             provision.setResource(null);
         }
 
+        membershipCache.invalidate();
         entityManager().remove(resource);
     }
 }
@@ -27,7 +27,6 @@ import javax.persistence.NoResultException;
 import javax.persistence.TypedQuery;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.collections4.Predicate;
-import org.apache.syncope.common.lib.SyncopeConstants;
 import org.apache.syncope.common.lib.types.AnyTypeKind;
 import org.apache.syncope.common.lib.types.Entitlement;
 import org.apache.syncope.common.lib.types.ResourceOperation;
@@ -39,7 +38,6 @@ import org.apache.syncope.core.persistence.api.entity.user.User;
 import org.apache.syncope.core.persistence.jpa.entity.group.JPAGroup;
 import org.apache.syncope.common.lib.types.PropagationByResource;
 import org.apache.syncope.core.misc.RealmUtils;
-import org.apache.syncope.core.misc.search.SearchCondConverter;
 import org.apache.syncope.core.misc.security.AuthContextUtils;
 import org.apache.syncope.core.misc.security.DelegatedAdministrationException;
 import org.apache.syncope.core.persistence.api.dao.AnyObjectDAO;
@@ -49,11 +47,12 @@ import org.apache.syncope.core.persistence.api.entity.anyobject.AMembership;
 import org.apache.syncope.core.persistence.api.entity.anyobject.AnyObject;
 import org.apache.syncope.core.persistence.api.entity.user.UMembership;
 import org.apache.syncope.core.persistence.jpa.entity.JPAAnyUtilsFactory;
+import org.apache.syncope.core.persistence.jpa.entity.anyobject.JPAADynGroupMembership;
 import org.apache.syncope.core.persistence.jpa.entity.anyobject.JPAAMembership;
+import org.apache.syncope.core.persistence.jpa.entity.user.JPAUDynGroupMembership;
 import org.apache.syncope.core.persistence.jpa.entity.user.JPAUMembership;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
-import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 @Repository
@@ -65,6 +64,9 @@ public class JPAGroupDAO extends AbstractAnyDAO<Group> implements GroupDAO {
     @Autowired
     private UserDAO userDAO;
 
+    @Autowired
+    private UserMembershipCache membershipCache;
+
     @Override
     protected AnyUtils init() {
         return new JPAAnyUtilsFactory().getInstance(AnyTypeKind.GROUP);
@@ -161,27 +163,23 @@ public class JPAGroupDAO extends AbstractAnyDAO<Group> implements GroupDAO {
 
     @Override
     public Group save(final Group group) {
+        membershipCache.invalidate();
+        dynMembershipEngine.invalidate();
+        Group merged = super.save(group);
+
         // refresh dynaminc memberships
-        if (group.getADynMembership() != null) {
-            List<AnyObject> matching = searchDAO.search(SyncopeConstants.FULL_ADMIN_REALMS,
-                    SearchCondConverter.convert(group.getADynMembership().getFIQLCond()), AnyTypeKind.ANY_OBJECT);
+        if (merged.getADynMembership() != null || merged.getUDynMembership() != null) {
+            entityManager().flush();
 
-            group.getADynMembership().getMembers().clear();
-            for (AnyObject anyObject : matching) {
-                group.getADynMembership().add(anyObject);
+            if (merged.getADynMembership() != null) {
+                dynMembershipEngine.recompute(entityManager(), merged.getADynMembership());
             }
-        }
-        if (group.getUDynMembership() != null) {
-            List<User> matching = searchDAO.search(SyncopeConstants.FULL_ADMIN_REALMS,
-                    SearchCondConverter.convert(group.getUDynMembership().getFIQLCond()), AnyTypeKind.USER);
-
-            group.getUDynMembership().getMembers().clear();
-            for (User user : matching) {
-                group.getUDynMembership().add(user);
+            if (merged.getUDynMembership() != null) {
+                dynMembershipEngine.recompute(entityManager(), merged.getUDynMembership());
             }
         }
 
-        return super.save(group);
+        return merged;
     }
 
     @Override
@@ -199,6 +197,9 @@ public class JPAGroupDAO extends AbstractAnyDAO<Group> implements GroupDAO {
             entityManager().remove(membership);
         }
 
+        searchIndex.delete(entityManager(), AnyTypeKind.GROUP, group.getKey());
+        membershipCache.invalidate();
+        dynMembershipEngine.invalidate();
         entityManager().remove(group);
     }
 
@@ -245,27 +246,13 @@ public class JPAGroupDAO extends AbstractAnyDAO<Group> implements GroupDAO {
         return result;
     }
 
-    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
     @Override
     public void refreshDynMemberships(final AnyObject anyObject) {
-        for (Group role : findAll(SyncopeConstants.FULL_ADMIN_REALMS, -1, -1)) {
-            if (role.getADynMembership() != null && !searchDAO.matches(anyObject,
-                    SearchCondConverter.convert(role.getADynMembership().getFIQLCond()), AnyTypeKind.ANY_OBJECT)) {
-
-                role.getADynMembership().remove(anyObject);
-            }
-        }
+        dynMembershipEngine.refresh(entityManager(), anyObject, JPAADynGroupMembership.class);
     }
 
-    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
     @Override
     public void refreshDynMemberships(final User user) {
-        for (Group role : findAll(SyncopeConstants.FULL_ADMIN_REALMS, -1, -1)) {
-            if (role.getUDynMembership() != null && !searchDAO.matches(user,
-                    SearchCondConverter.convert(role.getUDynMembership().getFIQLCond()), AnyTypeKind.USER)) {
-
-                role.getUDynMembership().remove(user);
-            }
-        }
+        dynMembershipEngine.refresh(entityManager(), user, JPAUDynGroupMembership.class);
     }
 }
@@ -19,13 +19,13 @@
 package org.apache.syncope.core.persistence.jpa.dao;
 
 import java.util.List;
+import java.util.Map;
 import javax.persistence.TypedQuery;
 import org.apache.syncope.common.lib.types.AnyTypeKind;
 import org.apache.syncope.core.persistence.api.dao.ExternalResourceDAO;
 import org.apache.syncope.core.persistence.api.dao.PlainAttrDAO;
 import org.apache.syncope.core.persistence.api.dao.PlainSchemaDAO;
 import org.apache.syncope.core.persistence.api.entity.AnyTypeClass;
-import org.apache.syncope.core.persistence.api.entity.AnyUtils;
 import org.apache.syncope.core.persistence.api.entity.AnyUtilsFactory;
 import org.apache.syncope.core.persistence.api.entity.PlainAttr;
 import org.apache.syncope.core.persistence.api.entity.PlainSchema;
@@ -43,6 +43,18 @@ public class JPAPlainSchemaDAO extends AbstractDAO<PlainSchema, String> implemen
     @Autowired
     private ExternalResourceDAO resourceDAO;
 
+    @Autowired
+    private AnySearchIndex searchIndex;
+
+    @Autowired
+    private SearchQueryCache queryCache;
+
+    @Autowired
+    private MetadataCache metadataCache;
+
+    @Autowired
+    private PlainSchemaCleanup cleanup;
+
     @Override
     public PlainSchema find(final String key) {
         return entityManager().find(JPAPlainSchema.class, key);
@@ -63,10 +75,16 @@ public class JPAPlainSchemaDAO extends AbstractDAO<PlainSchema, String> implemen
     @Override
     public List<PlainSchema> findAll() {
         TypedQuery<PlainSchema> query = entityManager().createQuery(
-                "SELECT e FROM " + JPAPlainSchema.class.getSimpleName() + " e", PlainSchema.class);
+                "SELECT e FROM " + JPAPlainSchema.class.getSimpleName()
+                + " e WHERE e.pendingDeletion IS NULL OR e.pendingDeletion = 0", PlainSchema.class);
         return query.getResultList();
     }
 
+    @Override
+    public Map<String, String> findPendingDeletions() {
+        return cleanup.getStatus(entityManager());
+    }
+
     @Override
     public <T extends PlainAttr<?>> List<T> findAttrs(final PlainSchema schema, final Class<T> reference) {
         StringBuilder queryString = new StringBuilder("SELECT e FROM ").
@@ -81,6 +99,8 @@ public class JPAPlainSchemaDAO extends AbstractDAO<PlainSchema, String> implemen
 
     @Override
     public PlainSchema save(final PlainSchema schema) {
+        queryCache.invalidate();
+        metadataCache.invalidate();
         return entityManager().merge(schema);
     }
 
@@ -91,21 +111,23 @@ public class JPAPlainSchemaDAO extends AbstractDAO<PlainSchema, String> implemen
             return;
         }
 
+        queryCache.invalidate();
+        metadataCache.invalidate();
+
         AnyUtilsFactory anyUtilsFactory = new JPAAnyUtilsFactory();
         for (AnyTypeKind anyTypeKind : AnyTypeKind.values()) {
-            AnyUtils anyUtils = anyUtilsFactory.getInstance(anyTypeKind);
-
-            for (PlainAttr<?> attr : findAttrs(schema, anyUtils.plainAttrClass())) {
-                plainAttrDAO.delete(attr.getKey(), anyUtils.plainAttrClass());
-            }
-
-            resourceDAO.deleteMapping(key, anyUtils.plainIntMappingType());
+            resourceDAO.deleteMapping(key, anyUtilsFactory.getInstance(anyTypeKind).plainIntMappingType());
         }
+        searchIndex.delete(entityManager(), key);
 
         if (schema.getAnyTypeClass() != null) {
             schema.getAnyTypeClass().remove(schema);
+            schema.setAnyTypeClass(null);
         }
 
-        entityManager().remove(schema);
+        // with many attributes, these and then the schema itself are removed in background
+        if (cleanup.delete(entityManager(), key)) {
+            entityManager().remove(schema);
+        }
     }
 }
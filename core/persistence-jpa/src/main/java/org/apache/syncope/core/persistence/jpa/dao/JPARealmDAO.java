@@ -20,15 +20,16 @@ package org.apache.syncope.core.persistence.jpa.dao;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.regex.Pattern;
 import javax.persistence.NoResultException;
 import javax.persistence.TypedQuery;
-import org.apache.commons.collections4.CollectionUtils;
-import org.apache.commons.collections4.Predicate;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.syncope.common.lib.SyncopeConstants;
 import org.apache.syncope.common.lib.types.PolicyType;
+import org.apache.syncope.core.misc.RealmUtils;
 import org.apache.syncope.core.persistence.api.dao.MalformedPathException;
 import org.apache.syncope.core.persistence.api.dao.RealmDAO;
 import org.apache.syncope.core.persistence.api.dao.RoleDAO;
@@ -49,8 +50,27 @@ public class JPARealmDAO extends AbstractDAO<Realm, Long> implements RealmDAO {
     @Autowired
     private RoleDAO roleDAO;
 
+    @Autowired
+    private RealmTreeIndex realmTreeIndex;
+
+    private List<Realm> find(final List<Long> keys) {
+        List<Realm> result = new ArrayList<>(keys.size());
+        for (Long key : keys) {
+            Realm realm = find(key);
+            if (realm != null) {
+                result.add(realm);
+            }
+        }
+        return result;
+    }
+
     @Override
     public Realm getRoot() {
+        RealmTreeIndex.Snapshot snapshot = realmTreeIndex.get(entityManager());
+        if (snapshot != null) {
+            return snapshot.getRoot() == null ? null : find(snapshot.getRoot());
+        }
+
         TypedQuery<Realm> query = entityManager().createQuery(
                 "SELECT e FROM " + JPARealm.class.getSimpleName() + " e WHERE e.parent IS NULL", Realm.class);
 
@@ -80,25 +100,24 @@ public class JPARealmDAO extends AbstractDAO<Realm, Long> implements RealmDAO {
             throw new MalformedPathException(fullPath);
         }
 
-        Realm root = getRoot();
-        if (root == null) {
-            return null;
+        RealmTreeIndex.Snapshot snapshot = realmTreeIndex.get(entityManager());
+        if (snapshot != null) {
+            Long key = snapshot.find(fullPath);
+            return key == null ? null : find(key);
         }
 
-        Realm current = root;
-        for (final String pathElement : fullPath.substring(1).split("/")) {
-            current = CollectionUtils.find(findChildren(current), new Predicate<Realm>() {
+        TypedQuery<Realm> query = entityManager().createQuery(
+                "SELECT e FROM " + JPARealm.class.getSimpleName() + " e WHERE e.fullPath=:fullPath", Realm.class);
+        query.setParameter("fullPath", fullPath);
 
-                @Override
-                public boolean evaluate(final Realm realm) {
-                    return pathElement.equals(realm.getName());
-                }
-            });
-            if (current == null) {
-                return null;
-            }
+        Realm result = null;
+        try {
+            result = query.getSingleResult();
+        } catch (NoResultException e) {
+            LOG.debug("Realm {} not found", fullPath, e);
         }
-        return current;
+
+        return result;
     }
 
     private <T extends Policy> List<Realm> findSamePolicyChildren(final Realm realm, final T policy) {
@@ -139,23 +158,51 @@ public class JPARealmDAO extends AbstractDAO<Realm, Long> implements RealmDAO {
         return result;
     }
 
-    private void findAncestors(final List<Realm> result, final Realm realm) {
-        if (realm.getParent() != null && !result.contains(realm.getParent())) {
-            result.add(realm.getParent());
-            findAncestors(result, realm.getParent());
-        }
-    }
-
     @Override
     public List<Realm> findAncestors(final Realm realm) {
+        RealmTreeIndex.Snapshot snapshot = realm.getKey() == null ? null : realmTreeIndex.get(entityManager());
+        if (snapshot != null) {
+            return find(snapshot.findAncestors(realm.getKey()));
+        }
+
+        // ancestors' full paths are all prefixes of the given realm's
+        String fullPath = realm.getFullPath();
+        List<String> fullPaths = new ArrayList<>();
+        fullPaths.add(fullPath);
+        for (int idx = fullPath.lastIndexOf('/'); idx > 0; idx = fullPath.lastIndexOf('/', idx - 1)) {
+            fullPaths.add(fullPath.substring(0, idx));
+        }
+        if (!SyncopeConstants.ROOT_REALM.equals(fullPath)) {
+            fullPaths.add(SyncopeConstants.ROOT_REALM);
+        }
+
+        TypedQuery<Realm> query = entityManager().createQuery(
+                "SELECT e FROM " + JPARealm.class.getSimpleName() + " e WHERE e.fullPath IN (:fullPaths)",
+                Realm.class);
+        query.setParameter("fullPaths", fullPaths);
+
+        Map<String, Realm> found = new HashMap<>();
+        for (Realm ancestor : query.getResultList()) {
+            found.put(ancestor.getFullPath(), ancestor);
+        }
+
+        // same order as before: the given realm first, then up to the root
         List<Realm> result = new ArrayList<>();
-        result.add(realm);
-        findAncestors(result, realm);
+        for (String path : fullPaths) {
+            if (found.containsKey(path)) {
+                result.add(found.get(path));
+            }
+        }
         return result;
     }
 
     @Override
     public List<Realm> findChildren(final Realm realm) {
+        RealmTreeIndex.Snapshot snapshot = realm.getKey() == null ? null : realmTreeIndex.get(entityManager());
+        if (snapshot != null) {
+            return find(snapshot.findChildren(realm.getKey()));
+        }
+
         TypedQuery<Realm> query = entityManager().createQuery(
                 "SELECT e FROM " + JPARealm.class.getSimpleName() + " e WHERE e.parent=:realm", Realm.class);
         query.setParameter("realm", realm);
@@ -163,21 +210,25 @@ public class JPARealmDAO extends AbstractDAO<Realm, Long> implements RealmDAO {
         return query.getResultList();
     }
 
-    private void findDescendants(final List<Realm> result, final Realm realm) {
-        result.add(realm);
-        List<Realm> children = findChildren(realm);
-        if (children != null) {
-            for (Realm child : children) {
-                findDescendants(result, child);
-            }
-        }
+    private List<Realm> findDescendants(final String fullPath) {
+        TypedQuery<Realm> query = entityManager().createQuery(
+                "SELECT e FROM " + JPARealm.class.getSimpleName() + " e "
+                + "WHERE e.fullPath=:fullPath OR e.fullPath LIKE :prefix ESCAPE '" + RealmUtils.LIKE_ESCAPE + "' "
+                + "ORDER BY e.fullPath", Realm.class);
+        query.setParameter("fullPath", fullPath);
+        query.setParameter("prefix", RealmUtils.getDescendantsPattern(fullPath));
+
+        return query.getResultList();
     }
 
     @Override
     public List<Realm> findDescendants(final Realm realm) {
-        List<Realm> result = new ArrayList<>();
-        findDescendants(result, realm);
-        return result;
+        RealmTreeIndex.Snapshot snapshot = realm.getKey() == null ? null : realmTreeIndex.get(entityManager());
+        if (snapshot != null) {
+            return find(snapshot.findDescendants(realm.getKey()));
+        }
+
+        return findDescendants(realm.getFullPath());
     }
 
     @Override
@@ -189,11 +240,28 @@ public class JPARealmDAO extends AbstractDAO<Realm, Long> implements RealmDAO {
 
     @Override
     public Realm save(final Realm realm) {
-        return entityManager().merge(realm);
+        realmTreeIndex.invalidate();
+
+        String formerFullPath = ((JPARealm) realm).getFormerFullPath();
+        ((JPARealm) realm).clearFormerFullPath();
+
+        Realm merged = entityManager().merge(realm);
+
+        // realm was renamed or moved: update full path of all descendants
+        if (formerFullPath != null && !formerFullPath.equals(merged.getFullPath())) {
+            for (Realm descendant : findDescendants(formerFullPath)) {
+                ((JPARealm) descendant).setFullPath(
+                        merged.getFullPath() + descendant.getFullPath().substring(formerFullPath.length()));
+            }
+        }
+
+        return merged;
     }
 
     @Override
     public void delete(final Realm realm) {
+        realmTreeIndex.invalidate();
+
         for (Realm toBeDeleted : findDescendants(realm)) {
             for (Role role : roleDAO.findByRealm(toBeDeleted)) {
                 role.getRealms().remove(toBeDeleted);
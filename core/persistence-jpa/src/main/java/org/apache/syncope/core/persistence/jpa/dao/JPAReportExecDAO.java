@@ -18,9 +18,12 @@
  */
 package org.apache.syncope.core.persistence.jpa.dao;
 
+import java.util.Collections;
 import java.util.List;
+import javax.persistence.Query;
 import javax.persistence.TypedQuery;
 import org.apache.syncope.core.persistence.api.dao.ReportExecDAO;
+import org.apache.syncope.core.persistence.api.dao.search.SearchPage;
 import org.apache.syncope.core.persistence.api.entity.Report;
 import org.apache.syncope.core.persistence.api.entity.ReportExec;
 import org.apache.syncope.core.persistence.jpa.entity.JPAReportExec;
@@ -65,6 +68,64 @@ public class JPAReportExecDAO extends AbstractDAO<ReportExec, Long> implements R
         return query.getResultList();
     }
 
+    private TypedQuery<ReportExec> buildFindAllQuery(final Report report, final Long before) {
+        StringBuilder queryString = new StringBuilder("SELECT e FROM ").
+                append(JPAReportExec.class.getSimpleName()).
+                append(" e WHERE e.report=:report ");
+        if (before != null) {
+            queryString.append("AND e.id < :before ");
+        }
+        // keys are assigned in creation order
+        queryString.append("ORDER BY e.id DESC");
+
+        TypedQuery<ReportExec> query = entityManager().createQuery(queryString.toString(), ReportExec.class);
+        query.setParameter("report", report);
+        if (before != null) {
+            query.setParameter("before", before);
+        }
+        return query;
+    }
+
+    @Override
+    public List<ReportExec> findAll(final Report report, final int page, final int itemsPerPage) {
+        TypedQuery<ReportExec> query = buildFindAllQuery(report, null);
+
+        query.setFirstResult(itemsPerPage * (page <= 0
+                ? 0
+                : page - 1));
+
+        if (itemsPerPage > 0) {
+            query.setMaxResults(itemsPerPage);
+        }
+
+        return query.getResultList();
+    }
+
+    @Override
+    public SearchPage<ReportExec> findAll(final Report report, final String after, final int itemsPerPage) {
+        TypedQuery<ReportExec> query = buildFindAllQuery(
+                report, after == null ? null : KeysetSupport.decodeKey(after));
+        // one more, to know whether there is a next page
+        query.setMaxResults(itemsPerPage + 1);
+        List<ReportExec> result = query.getResultList();
+
+        SearchPage<ReportExec> page = new SearchPage<>();
+        page.getItems().addAll(result.subList(0, Math.min(itemsPerPage, result.size())));
+        if (result.size() > itemsPerPage && !page.getItems().isEmpty()) {
+            page.setNext(KeysetSupport.encode(Collections.<Object>singletonList(
+                    page.getItems().get(page.getItems().size() - 1).getKey())));
+        }
+        return page;
+    }
+
+    @Override
+    public int count(final Report report) {
+        Query query = entityManager().createQuery(
+                "SELECT COUNT(e) FROM " + JPAReportExec.class.getSimpleName() + " e WHERE e.report=:report");
+        query.setParameter("report", report);
+        return ((Number) query.getSingleResult()).intValue();
+    }
+
     /**
      * This method is annotated as transactional because called from ReportJob.
      *
@@ -21,26 +21,24 @@ package org.apache.syncope.core.persistence.jpa.dao;
 import java.util.List;
 import javax.persistence.NoResultException;
 import javax.persistence.TypedQuery;
-import org.apache.syncope.common.lib.SyncopeConstants;
-import org.apache.syncope.common.lib.types.AnyTypeKind;
-import org.apache.syncope.core.misc.search.SearchCondConverter;
 import org.apache.syncope.core.persistence.api.dao.RoleDAO;
-import org.apache.syncope.core.persistence.api.dao.AnySearchDAO;
 import org.apache.syncope.core.persistence.api.entity.Realm;
 import org.apache.syncope.core.persistence.api.entity.Role;
 import org.apache.syncope.core.persistence.api.entity.user.User;
 import org.apache.syncope.core.persistence.jpa.entity.JPARole;
+import org.apache.syncope.core.persistence.jpa.entity.user.JPADynRoleMembership;
 import org.apache.syncope.core.persistence.jpa.entity.user.JPAUser;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
-import org.springframework.transaction.annotation.Propagation;
-import org.springframework.transaction.annotation.Transactional;
 
 @Repository
 public class JPARoleDAO extends AbstractDAO<Role, Long> implements RoleDAO {
 
     @Autowired
-    private AnySearchDAO searchDAO;
+    private DynMembershipEngine dynMembershipEngine;
+
+    @Autowired
+    private UserMembershipCache membershipCache;
 
     @Override
     public Role find(final Long key) {
@@ -80,18 +78,17 @@ public class JPARoleDAO extends AbstractDAO<Role, Long> implements RoleDAO {
 
     @Override
     public Role save(final Role role) {
+        membershipCache.invalidate();
+        dynMembershipEngine.invalidate();
+        Role merged = entityManager().merge(role);
+
         // refresh dynaminc memberships
-        if (role.getDynMembership() != null) {
-            List<User> matchingUsers = searchDAO.search(SyncopeConstants.FULL_ADMIN_REALMS,
-                    SearchCondConverter.convert(role.getDynMembership().getFIQLCond()), AnyTypeKind.USER);
-
-            role.getDynMembership().getMembers().clear();
-            for (User user : matchingUsers) {
-                role.getDynMembership().add(user);
-            }
+        if (merged.getDynMembership() != null) {
+            entityManager().flush();
+            dynMembershipEngine.recompute(entityManager(), merged.getDynMembership());
         }
 
-        return entityManager().merge(role);
+        return merged;
     }
 
     @Override
@@ -104,6 +101,8 @@ public class JPARoleDAO extends AbstractDAO<Role, Long> implements RoleDAO {
             user.remove(role);
         }
 
+        membershipCache.invalidate();
+        dynMembershipEngine.invalidate();
         entityManager().remove(role);
     }
 
@@ -117,16 +116,9 @@ public class JPARoleDAO extends AbstractDAO<Role, Long> implements RoleDAO {
         delete(role);
     }
 
-    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
     @Override
     public void refreshDynMemberships(final User user) {
-        for (Role role : findAll()) {
-            if (role.getDynMembership() != null && !searchDAO.matches(user,
-                    SearchCondConverter.convert(role.getDynMembership().getFIQLCond()), AnyTypeKind.USER)) {
-
-                role.getDynMembership().remove(user);
-            }
-        }
+        dynMembershipEngine.refresh(entityManager(), user, JPADynRoleMembership.class);
     }
 
 }
@@ -18,11 +18,14 @@
  */
 package org.apache.syncope.core.persistence.jpa.dao;
 
+import java.util.Collections;
 import java.util.List;
+import javax.persistence.Query;
 import javax.persistence.TypedQuery;
 import org.apache.syncope.common.lib.types.TaskType;
 import org.apache.syncope.core.persistence.api.dao.TaskDAO;
 import org.apache.syncope.core.persistence.api.dao.TaskExecDAO;
+import org.apache.syncope.core.persistence.api.dao.search.SearchPage;
 import org.apache.syncope.core.persistence.api.entity.task.Task;
 import org.apache.syncope.core.persistence.api.entity.task.TaskExec;
 import org.apache.syncope.core.persistence.jpa.entity.task.JPATaskExec;
@@ -78,6 +81,75 @@ public class JPATaskExecDAO extends AbstractDAO<TaskExec, Long> implements TaskE
         return query.getResultList();
     }
 
+    private TypedQuery<TaskExec> buildFindAllQuery(final Task task, final Long before) {
+        StringBuilder queryString = new StringBuilder("SELECT e FROM ").
+                append(JPATaskExec.class.getSimpleName()).
+                append(" e WHERE e.task=:task ");
+        if (before != null) {
+            queryString.append("AND e.id < :before ");
+        }
+        // keys are assigned in creation order
+        queryString.append("ORDER BY e.id DESC");
+
+        TypedQuery<TaskExec> query = entityManager().createQuery(queryString.toString(), TaskExec.class);
+        query.setParameter("task", task);
+        if (before != null) {
+            query.setParameter("before", before);
+        }
+        return query;
+    }
+
+    @Override
+    public List<TaskExec> findAll(final Task task, final int page, final int itemsPerPage) {
+        TypedQuery<TaskExec> query = buildFindAllQuery(task, null);
+
+        query.setFirstResult(itemsPerPage * (page <= 0
+                ? 0
+                : page - 1));
+
+        if (itemsPerPage > 0) {
+            query.setMaxResults(itemsPerPage);
+        }
+
+        return query.getResultList();
+    }
+
+    @Override
+    public SearchPage<TaskExec> findAll(final Task task, final String after, final int itemsPerPage) {
+        TypedQuery<TaskExec> query = buildFindAllQuery(task, after == null ? null : KeysetSupport.decodeKey(after));
+        // one more, to know whether there is a next page
+        query.setMaxResults(itemsPerPage + 1);
+        List<TaskExec> result = query.getResultList();
+
+        SearchPage<TaskExec> page = new SearchPage<>();
+        page.getItems().addAll(result.subList(0, Math.min(itemsPerPage, result.size())));
+        if (result.size() > itemsPerPage && !page.getItems().isEmpty()) {
+            page.setNext(KeysetSupport.encode(Collections.<Object>singletonList(
+                    page.getItems().get(page.getItems().size() - 1).getKey())));
+        }
+        return page;
+    }
+
+    @Override
+    public int count(final Task task) {
+        Query query = entityManager().createQuery(
+                "SELECT COUNT(e) FROM " + JPATaskExec.class.getSimpleName() + " e WHERE e.task=:task");
+        query.setParameter("task", task);
+        return ((Number) query.getSingleResult()).intValue();
+    }
+
+    @Override
+    public int count(final Task task, final String status) {
+        Query query = entityManager().createQuery(
+                "SELECT COUNT(e) FROM " + JPATaskExec.class.getSimpleName() + " e WHERE e.task=:task AND "
+                + (status == null ? "e.status IS NULL" : "e.status=:status"));
+        query.setParameter("task", task);
+        if (status != null) {
+            query.setParameter("status", status);
+        }
+        return ((Number) query.getSingleResult()).intValue();
+    }
+
     @Override
     public TaskExec save(final TaskExec execution) {
         return entityManager().merge(execution);
@@ -0,0 +1,413 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.syncope.core.persistence.jpa.dao;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Query;
+import javax.persistence.TemporalType;
+import javax.xml.stream.XMLStreamException;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.time.DateUtils;
+import org.apache.openjpa.persistence.OpenJPAPersistence;
+import org.apache.syncope.common.lib.types.TaskType;
+import org.apache.syncope.core.misc.security.AuthContextUtils;
+import org.apache.syncope.core.misc.spring.ApplicationContextProvider;
+import org.apache.syncope.core.persistence.api.TaskRetention;
+import org.apache.syncope.core.persistence.api.dao.TaskDAO;
+import org.apache.syncope.core.persistence.api.entity.task.Task;
+import org.apache.syncope.core.persistence.jpa.content.XMLContentExporter;
+import org.apache.syncope.core.persistence.jpa.entity.task.AbstractTask;
+import org.apache.syncope.core.persistence.jpa.entity.task.JPATaskExec;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Removes, for each task type, the tasks and executions exceeding the configured {@link TaskRetentionPolicy}, via
+ * set-based statements each handling a batch of rows in its own transaction.
+ * Propagation and notification tasks are run once, hence they are removed as a whole - with their executions - when
+ * all of their executions are older than the configured age, and always keep at least their most recent execution;
+ * scheduled, synchronization and push tasks are instead never removed, only their executions are.
+ * When an archive directory is set, rows are exported there, as compressed XML in the same format of the whole
+ * content export: rows are read within the removing transaction but only appended to the archive once such transaction
+ * completes, so that rows whose removal is rolled back - and retried by next run - are not archived twice.
+ */
+public class JPATaskRetention implements TaskRetention {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TaskRetention.class);
+
+    /**
+     * Statuses of successful executions, for all task types: any other status is considered a failure.
+     */
+    private static final List<String> SUCCESS_STATUSES = Arrays.asList("SUCCESS", "SENT");
+
+    private static final String RECIPIENTS_TABLE = "NotificationTask_recipients";
+
+    @Autowired
+    private TaskDAO taskDAO;
+
+    @Autowired
+    private XMLContentExporter exporter;
+
+    private String cronExpression;
+
+    private int batchSize = 1000;
+
+    private String archiveDirectory;
+
+    private Map<TaskType, TaskRetentionPolicy> policies = Collections.emptyMap();
+
+    public void setCronExpression(final String cronExpression) {
+        this.cronExpression = cronExpression;
+    }
+
+    @Override
+    public String getCronExpression() {
+        return cronExpression;
+    }
+
+    public void setBatchSize(final int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public void setArchiveDirectory(final String archiveDirectory) {
+        this.archiveDirectory = archiveDirectory;
+    }
+
+    public void setPolicies(final Map<TaskType, TaskRetentionPolicy> policies) {
+        this.policies = policies;
+    }
+
+    public Map<TaskType, TaskRetentionPolicy> getPolicies() {
+        return policies;
+    }
+
+    private EntityManagerFactory entityManagerFactory(final String domain) {
+        return EntityManagerFactoryUtils.findEntityManagerFactory(ApplicationContextProvider.getBeanFactory(), domain);
+    }
+
+    /**
+     * Archive for the rows removed from a given domain and task type, created when first needed.
+     */
+    private class Archive {
+
+        private final String name;
+
+        private OutputStream os;
+
+        Archive(final String domain, final TaskType type) {
+            this.name = domain + "-" + type.name() + "-" + new SimpleDateFormat("yyyyMMddHHmmss").format(new Date())
+                    + ".xml.gz";
+        }
+
+        public OutputStream get() throws IOException {
+            if (os == null) {
+                File dir = new File(archiveDirectory);
+                if (!dir.isDirectory() && !dir.mkdirs()) {
+                    throw new IOException("Could not create " + dir.getAbsolutePath());
+                }
+                os = exporter.startDocument(new BufferedOutputStream(
+                        new GZIPOutputStream(new FileOutputStream(new File(dir, name)))));
+            }
+            return os;
+        }
+
+        public void close() {
+            if (os != null) {
+                LOG.info("Removed rows archived as {}", name);
+            }
+            IOUtils.closeQuietly(os);
+        }
+    }
+
+    /**
+     * Removes, in subsequent transactions, the tasks or executions selected by the given query, a batch at a time.
+     *
+     * @param domain domain
+     * @param queryString JPQL query selecting keys of tasks or executions to remove
+     * @param parameters query parameters
+     * @param tasks whether the given query selects tasks, rather than executions
+     * @param archive archive, null when not archiving
+     * @return number of removed executions
+     */
+    private long purge(
+            final String domain,
+            final String queryString,
+            final Map<String, Object> parameters,
+            final boolean tasks,
+            final Archive archive) {
+
+        final EntityManagerFactory emf = entityManagerFactory(domain);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(ApplicationContextProvider.getBeanFactory().
+                getBean(domain + "TransactionManager", PlatformTransactionManager.class));
+
+        final ByteArrayOutputStream archived = new ByteArrayOutputStream();
+
+        long removed = 0;
+        boolean more = true;
+        while (more) {
+            archived.reset();
+            int[] batch = transactionTemplate.execute(new TransactionCallback<int[]>() {
+
+                @Override
+                @SuppressWarnings("unchecked")
+                public int[] doInTransaction(final TransactionStatus status) {
+                    EntityManager entityManager = EntityManagerFactoryUtils.getTransactionalEntityManager(emf);
+
+                    Query query = entityManager.createQuery(queryString);
+                    for (Map.Entry<String, Object> parameter : parameters.entrySet()) {
+                        if (parameter.getValue() instanceof Date) {
+                            query.setParameter(parameter.getKey(), (Date) parameter.getValue(), TemporalType.TIMESTAMP);
+                        } else {
+                            query.setParameter(parameter.getKey(), parameter.getValue());
+                        }
+                    }
+                    query.setMaxResults(batchSize);
+                    List<Object> keys = query.getResultList();
+                    if (keys.isEmpty()) {
+                        return new int[] { 0, 0 };
+                    }
+
+                    // keys are numbers, safe to be inlined
+                    String keyList = StringUtils.join(keys, ',');
+                    String taskCond = "id IN (" + keyList + ")";
+                    String recipientCond = "notificationTask_id IN (" + keyList + ")";
+                    String execCond = (tasks ? "task_id" : "id") + " IN (" + keyList + ")";
+
+                    if (archive != null) {
+                        Connection conn = (Connection) OpenJPAPersistence.cast(entityManager).getConnection();
+                        try {
+                            if (tasks) {
+                                exporter.exportRows(archived, conn, AbstractTask.TABLE, taskCond);
+                                exporter.exportRows(archived, conn, RECIPIENTS_TABLE, recipientCond);
+                            }
+                            exporter.exportRows(archived, conn, JPATaskExec.TABLE, execCond);
+                        } catch (SQLException | XMLStreamException e) {
+                            throw new IllegalStateException("Could not archive rows before removal", e);
+                        } finally {
+                            try {
+                                conn.close();
+                            } catch (SQLException e) {
+                                LOG.error("While releasing connection", e);
+                            }
+                        }
+                    }
+
+                    int execs = entityManager.createNativeQuery(
+                            "DELETE FROM " + JPATaskExec.TABLE + " WHERE " + execCond).executeUpdate();
+                    if (tasks) {
+                        entityManager.createNativeQuery(
+                                "DELETE FROM " + RECIPIENTS_TABLE + " WHERE " + recipientCond).executeUpdate();
+                        entityManager.createNativeQuery(
+                                "DELETE FROM " + AbstractTask.TABLE + " WHERE " + taskCond).executeUpdate();
+                    }
+
+                    return new int[] { keys.size(), execs };
+                }
+            });
+
+            if (archive != null && archived.size() > 0) {
+                try {
+                    archived.writeTo(archive.get());
+                } catch (IOException e) {
+                    throw new IllegalStateException("Could not archive removed rows", e);
+                }
+            }
+
+            // rows were removed behind OpenJPA's back
+            emf.getCache().evict(JPATaskExec.class);
+            emf.getCache().evict(AbstractTask.class);
+            OpenJPAPersistence.cast(emf).getQueryResultCache().evictAll(JPATaskExec.class);
+            OpenJPAPersistence.cast(emf).getQueryResultCache().evictAll(AbstractTask.class);
+
+            removed += batch[1];
+            more = batch[0] == batchSize;
+        }
+
+        return removed;
+    }
+
+    /**
+     * Finds, for each task of the given type with more than the given number of executions, start date and key of the
+     * most recent execution exceeding such number: that and all older executions are to be removed.
+     * Executions are ordered by start date, then by key for executions started at the same instant.
+     *
+     * @param domain domain
+     * @param type task type
+     * @param maxExecs number of most recent executions to keep for each task
+     * @return start date and key of the most recent execution to remove, for each task
+     */
+    private Map<Long, Object[]> findCutoffs(final String domain, final TaskType type, final long maxExecs) {
+        final EntityManagerFactory emf = entityManagerFactory(domain);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(ApplicationContextProvider.getBeanFactory().
+                getBean(domain + "TransactionManager", PlatformTransactionManager.class));
+        transactionTemplate.setReadOnly(true);
+
+        return transactionTemplate.execute(new TransactionCallback<Map<Long, Object[]>>() {
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public Map<Long, Object[]> doInTransaction(final TransactionStatus status) {
+                EntityManager entityManager = EntityManagerFactoryUtils.getTransactionalEntityManager(emf);
+
+                Query tasks = entityManager.createQuery("SELECT e.task.id FROM "
+                        + JPATaskExec.class.getSimpleName() + " e WHERE e.task.type=:type "
+                        + "GROUP BY e.task.id HAVING COUNT(e.id) > :maxExecs");
+                tasks.setParameter("type", type);
+                tasks.setParameter("maxExecs", maxExecs);
+
+                // one seek on the (task_id, startDate) index for each task, rather than counting newer executions for
+                // each execution
+                Query cutoff = entityManager.createQuery("SELECT e.startDate, e.id FROM "
+                        + JPATaskExec.class.getSimpleName()
+                        + " e WHERE e.task.id=:task AND e.startDate IS NOT NULL ORDER BY e.startDate DESC, e.id DESC");
+                cutoff.setFirstResult((int) maxExecs);
+                cutoff.setMaxResults(1);
+
+                Map<Long, Object[]> cutoffs = new LinkedHashMap<>();
+                for (Object task : tasks.getResultList()) {
+                    cutoff.setParameter("task", task);
+                    List<Object[]> result = cutoff.getResultList();
+                    if (!result.isEmpty()) {
+                        cutoffs.put(((Number) task).longValue(), result.get(0));
+                    }
+                }
+                return cutoffs;
+            }
+        });
+    }
+
+    private long purge(final String domain, final TaskType type, final TaskRetentionPolicy policy) {
+        boolean runOnce = type == TaskType.PROPAGATION || type == TaskType.NOTIFICATION;
+        Class<? extends Task> reference = taskDAO.getEntityReference(type);
+
+        Archive archive = StringUtils.isBlank(archiveDirectory) ? null : new Archive(domain, type);
+        long removed = 0;
+        try {
+            if (policy.getMaxAge() >= 0) {
+                Map<String, Object> parameters = new HashMap<>();
+                parameters.put("type", type);
+                parameters.put("before", DateUtils.addDays(new Date(), -policy.getMaxAge()));
+                if (policy.isKeepFailures()) {
+                    parameters.put("statuses", SUCCESS_STATUSES);
+                }
+
+                StringBuilder queryString = new StringBuilder();
+                if (runOnce) {
+                    queryString.append("SELECT t.id FROM ").append(reference.getSimpleName()).append(" t ").
+                            append("WHERE t.type=:type ").
+                            append("AND EXISTS (SELECT e FROM ").append(JPATaskExec.class.getSimpleName()).
+                            append(" e WHERE e.task=t) ").
+                            append("AND NOT EXISTS (SELECT e FROM ").append(JPATaskExec.class.getSimpleName()).
+                            append(" e WHERE e.task=t AND (e.endDate IS NULL OR e.endDate >= :before");
+                    if (policy.isKeepFailures()) {
+                        queryString.append(" OR e.status NOT IN :statuses");
+                    }
+                    queryString.append(")) ");
+                    if (type == TaskType.NOTIFICATION) {
+                        queryString.append("AND t.executed=1 ");
+                    }
+                    queryString.append("ORDER BY t.id");
+                } else {
+                    queryString.append("SELECT e.id FROM ").append(JPATaskExec.class.getSimpleName()).append(" e ").
+                            append("WHERE e.task.type=:type AND e.endDate < :before ");
+                    if (policy.isKeepFailures()) {
+                        queryString.append("AND e.status IN :statuses ");
+                    }
+                    queryString.append("ORDER BY e.id");
+                }
+
+                removed += purge(domain, queryString.toString(), parameters, runOnce, archive);
+            }
+
+            if (policy.getMaxExecs() >= 0) {
+                // tasks run once without executions would be run again
+                long maxExecs = runOnce ? Math.max(1L, policy.getMaxExecs()) : (long) policy.getMaxExecs();
+
+                StringBuilder queryString = new StringBuilder("SELECT e.id FROM ").
+                        append(JPATaskExec.class.getSimpleName()).append(" e ").
+                        append("WHERE e.task.id=:task ").
+                        append("AND (e.startDate < :cutoffDate OR (e.startDate = :cutoffDate AND e.id <= :cutoff)) ");
+                if (policy.isKeepFailures()) {
+                    queryString.append("AND e.status IN :statuses ");
+                }
+                queryString.append("ORDER BY e.id");
+
+                for (Map.Entry<Long, Object[]> cutoff : findCutoffs(domain, type, maxExecs).entrySet()) {
+                    Map<String, Object> parameters = new HashMap<>();
+                    parameters.put("task", cutoff.getKey());
+                    parameters.put("cutoffDate", cutoff.getValue()[0]);
+                    parameters.put("cutoff", ((Number) cutoff.getValue()[1]).longValue());
+                    if (policy.isKeepFailures()) {
+                        parameters.put("statuses", SUCCESS_STATUSES);
+                    }
+
+                    removed += purge(domain, queryString.toString(), parameters, false, archive);
+                }
+            }
+        } finally {
+            if (archive != null) {
+                archive.close();
+            }
+        }
+
+        return removed;
+    }
+
+    @Override
+    public long purge() {
+        String domain = AuthContextUtils.getDomain();
+
+        long removed = 0;
+        for (Map.Entry<TaskType, TaskRetentionPolicy> entry : policies.entrySet()) {
+            if (entry.getValue().getMaxAge() >= 0 || entry.getValue().getMaxExecs() >= 0) {
+                long typeRemoved = purge(domain, entry.getKey(), entry.getValue());
+                LOG.info("{} {} task executions removed from domain {}", typeRemoved, entry.getKey(), domain);
+
+                removed += typeRemoved;
+            }
+        }
+
+        return removed;
+    }
+}
@@ -58,16 +58,12 @@ import org.apache.syncope.core.persistence.api.entity.policy.AccountPolicy;
 import org.apache.syncope.core.persistence.api.entity.policy.PasswordPolicy;
 import org.apache.syncope.core.persistence.api.entity.resource.ExternalResource;
 import org.apache.syncope.core.persistence.api.entity.user.SecurityQuestion;
-import org.apache.syncope.core.persistence.api.entity.user.UMembership;
 import org.apache.syncope.core.persistence.api.entity.user.User;
 import org.apache.syncope.core.persistence.jpa.entity.JPAAnyUtilsFactory;
-import org.apache.syncope.core.persistence.jpa.entity.user.JPADynRoleMembership;
-import org.apache.syncope.core.persistence.jpa.entity.user.JPAUDynGroupMembership;
 import org.apache.syncope.core.persistence.jpa.entity.user.JPAUser;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.support.AbstractBeanDefinition;
 import org.springframework.stereotype.Repository;
-import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 @Repository
@@ -79,6 +75,9 @@ public class JPAUserDAO extends AbstractAnyDAO<User> implements UserDAO {
     @Autowired
     private GroupDAO groupDAO;
 
+    @Autowired
+    private UserMembershipCache membershipCache;
+
     @Autowired
     private RoleDAO roleDAO;
 
@@ -96,6 +95,11 @@ public class JPAUserDAO extends AbstractAnyDAO<User> implements UserDAO {
         return new JPAAnyUtilsFactory().getInstance(AnyTypeKind.USER);
     }
 
+    @Override
+    protected String[] getPrefetchFields() {
+        return new String[] { "plainAttrs", "memberships", "resources" };
+    }
+
     @Override
     protected void securityChecks(final User user) {
         // Allows anonymous (during self-registration) and self (during self-update) to read own user,
@@ -356,6 +360,7 @@ public class JPAUserDAO extends AbstractAnyDAO<User> implements UserDAO {
 
         roleDAO.refreshDynMemberships(merged);
         groupDAO.refreshDynMemberships(merged);
+        membershipCache.invalidate(merged.getKey());
 
         return merged;
     }
@@ -369,52 +374,36 @@ public class JPAUserDAO extends AbstractAnyDAO<User> implements UserDAO {
             group.getUDynMembership().remove(user);
         }
 
+        membershipCache.invalidate(user.getKey());
+        searchIndex.delete(entityManager(), AnyTypeKind.USER, user.getKey());
         entityManager().remove(user);
     }
 
-    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    @Transactional(readOnly = true)
     @Override
     public List<Role> findDynRoleMemberships(final User user) {
-        TypedQuery<Role> query = entityManager().createQuery(
-                "SELECT e.role FROM " + JPADynRoleMembership.class.getSimpleName()
-                + " e WHERE :user MEMBER OF e.users", Role.class);
-        query.setParameter("user", user);
-
-        return query.getResultList();
+        return new ArrayList<>(membershipCache.get(entityManager(), user).getDynRoles());
     }
 
-    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    @Transactional(readOnly = true)
     @Override
     public List<Group> findDynGroupMemberships(final User user) {
-        TypedQuery<Group> query = entityManager().createQuery(
-                "SELECT e.group FROM " + JPAUDynGroupMembership.class.getSimpleName()
-                + " e WHERE :user MEMBER OF e.users", Group.class);
-        query.setParameter("user", user);
-
-        return query.getResultList();
+        return new ArrayList<>(membershipCache.get(entityManager(), user).getDynGroups());
     }
 
-    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    @Transactional(readOnly = true)
     @Override
     public Collection<Role> findAllRoles(final User user) {
-        return CollectionUtils.union(user.getRoles(), findDynRoleMemberships(user));
+        return new ArrayList<>(membershipCache.get(entityManager(), user).getRoles());
     }
 
-    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    @Transactional(readOnly = true)
     @Override
     public Collection<Group> findAllGroups(final User user) {
-        return CollectionUtils.union(
-                CollectionUtils.collect(user.getMemberships(), new Transformer<UMembership, Group>() {
-
-                    @Override
-                    public Group transform(final UMembership input) {
-                        return input.getRightEnd();
-                    }
-                }, new ArrayList<Group>()),
-                findDynGroupMemberships(user));
+        return new ArrayList<>(membershipCache.get(entityManager(), user).getGroups());
     }
 
-    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    @Transactional(readOnly = true)
     @Override
     public Collection<Long> findAllGroupKeys(final User user) {
         return CollectionUtils.collect(findAllGroups(user), new Transformer<Group, Long>() {
@@ -426,19 +415,13 @@ public class JPAUserDAO extends AbstractAnyDAO<User> implements UserDAO {
         });
     }
 
-    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    @Transactional(readOnly = true)
     @Override
     public Collection<ExternalResource> findAllResources(final User user) {
-        Set<ExternalResource> result = new HashSet<>();
-        result.addAll(user.getResources());
-        for (Group group : findAllGroups(user)) {
-            result.addAll(group.getResources());
-        }
-
-        return result;
+        return new HashSet<>(membershipCache.get(entityManager(), user).getResources());
     }
 
-    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    @Transactional(readOnly = true)
     @Override
     public Collection<String> findAllResourceNames(final User user) {
         return CollectionUtils.collect(findAllResources(user), new Transformer<ExternalResource, String>() {
@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.syncope.core.persistence.jpa.dao;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import org.apache.commons.codec.binary.Base64;
+import org.apache.syncope.common.lib.SyncopeClientException;
+import org.apache.syncope.common.lib.types.ClientExceptionType;
+
+/**
+ * Encodes and decodes the opaque tokens used by keyset (seek) pagination: each token holds the values of the ORDER BY
+ * columns for the last row of a page, followed by its key.
+ */
+final class KeysetSupport {
+
+    private static final String SEPARATOR = ".";
+
+    private static final char NULL = 'N';
+
+    private static final char STRING = 'S';
+
+    private static final char LONG = 'L';
+
+    private static final char DOUBLE = 'D';
+
+    private static final char DATE = 'T';
+
+    private static final char BOOLEAN = 'B';
+
+    public static String encode(final List<Object> values) {
+        StringBuilder token = new StringBuilder();
+
+        for (Object value : values) {
+            if (token.length() > 0) {
+                token.append(SEPARATOR);
+            }
+
+            char type;
+            String text;
+            if (value == null) {
+                type = NULL;
+                text = "";
+            } else if (value instanceof Boolean) {
+                type = BOOLEAN;
+                text = value.toString();
+            } else if (value instanceof Date) {
+                type = DATE;
+                text = String.valueOf(((Date) value).getTime());
+            } else if (value instanceof Double || value instanceof Float
+                    || (value instanceof BigDecimal && ((BigDecimal) value).scale() > 0)) {
+
+                type = DOUBLE;
+                text = String.valueOf(((Number) value).doubleValue());
+            } else if (value instanceof Number) {
+                type = LONG;
+                text = String.valueOf(((Number) value).longValue());
+            } else {
+                type = STRING;
+                text = value.toString();
+            }
+
+            token.append(type).append(Base64.encodeBase64URLSafeString(text.getBytes(StandardCharsets.UTF_8)));
+        }
+
+        return token.toString();
+    }
+
+    private static SyncopeClientException invalid(final String token, final String message) {
+        SyncopeClientException sce = SyncopeClientException.build(ClientExceptionType.InvalidSearchExpression);
+        sce.getElements().add(message + ": " + token);
+        return sce;
+    }
+
+    /**
+     * @param token keyset token
+     * @return values held by the given token
+     * @throws SyncopeClientException if the token is not valid
+     */
+    public static List<Object> decode(final String token) {
+        List<Object> values = new ArrayList<>();
+
+        for (String part : token.split("\\" + SEPARATOR)) {
+            if (part.isEmpty()) {
+                throw invalid(token, "Invalid keyset token");
+            }
+
+            String text = new String(Base64.decodeBase64(part.substring(1)), StandardCharsets.UTF_8);
+            try {
+                values.add(decode(part.charAt(0), text));
+            } catch (IllegalArgumentException e) {
+                throw invalid(token, "Invalid keyset token");
+            }
+        }
+
+        return values;
+    }
+
+    /**
+     * @param token keyset token
+     * @param size number of values expected: ordering items, followed by the key
+     * @return values held by the given token
+     * @throws SyncopeClientException if the token is not valid, or not matching the expected number of values
+     */
+    public static List<Object> decode(final String token, final int size) {
+        List<Object> values = decode(token);
+        if (values.size() != size) {
+            throw invalid(token, "Keyset token not matching the requested ordering");
+        }
+
+        return values;
+    }
+
+    private static Object decode(final char type, final String text) {
+        switch (type) {
+            case NULL:
+                return null;
+
+            case BOOLEAN:
+                return Boolean.valueOf(text);
+
+            case DATE:
+                return new Date(Long.parseLong(text));
+
+            case DOUBLE:
+                return Double.valueOf(text);
+
+            case LONG:
+                return Long.valueOf(text);
+
+            case STRING:
+                return text;
+
+            default:
+                throw new IllegalArgumentException("Unknown type " + type);
+        }
+    }
+
+    /**
+     * @param token token holding a single key, as for pages ordered by key only
+     * @return key
+     */
+    public static Long decodeKey(final String token) {
+        List<Object> values = decode(token, 1);
+        if (!(values.get(0) instanceof Long)) {
+            throw invalid(token, "Invalid keyset token");
+        }
+
+        return (Long) values.get(0);
+    }
+
+    private KeysetSupport() {
+        // private constructor for static utility class
+    }
+}
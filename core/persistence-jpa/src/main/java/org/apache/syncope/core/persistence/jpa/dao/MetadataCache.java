@@ -0,0 +1,246 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.syncope.core.persistence.jpa.dao;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import org.apache.syncope.core.misc.security.AuthContextUtils;
+import org.apache.syncope.core.misc.spring.ApplicationContextProvider;
+import org.apache.syncope.core.persistence.api.entity.DerSchema;
+import org.apache.syncope.core.persistence.api.entity.PlainSchema;
+import org.apache.syncope.core.persistence.api.entity.conf.CPlainAttr;
+import org.apache.syncope.core.persistence.jpa.entity.JPADerSchema;
+import org.apache.syncope.core.persistence.jpa.entity.JPAPlainSchema;
+import org.apache.syncope.core.persistence.jpa.entity.conf.JPACPlainAttr;
+import org.apache.syncope.core.persistence.jpa.entity.conf.JPACPlainAttrUniqueValue;
+import org.apache.syncope.core.persistence.jpa.entity.conf.JPACPlainAttrValue;
+import org.apache.syncope.core.persistence.jpa.entity.conf.JPAConf;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Keeps, for each domain, an immutable snapshot of plain and derived schemas and of configuration parameters, read at
+ * once and detached: such metadata changes rarely but is looked up very often - once per attribute when generating
+ * search queries, for example. Snapshot entities are meant for reading only, and must never be associated to managed
+ * entities.
+ * Snapshots are discarded whenever schemas or configuration parameters are saved or deleted - on this node, or on
+ * any other node, when a cluster commit provider is configured - and read again when first needed; until the
+ * modifying transaction completes, its own lookups go through the EntityManager.
+ */
+@Component
+public class MetadataCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MetadataCache.class);
+
+    private static class Snapshot {
+
+        private final long version;
+
+        private final Map<String, PlainSchema> plainSchemas;
+
+        private final Map<String, DerSchema> derSchemas;
+
+        private final Map<String, CPlainAttr> conf;
+
+        Snapshot(
+                final long version,
+                final Map<String, PlainSchema> plainSchemas,
+                final Map<String, DerSchema> derSchemas,
+                final Map<String, CPlainAttr> conf) {
+
+            this.version = version;
+            this.plainSchemas = Collections.unmodifiableMap(plainSchemas);
+            this.derSchemas = Collections.unmodifiableMap(derSchemas);
+            this.conf = Collections.unmodifiableMap(conf);
+        }
+    }
+
+    /**
+     * Incremented on each invalidation: snapshots loaded while metadata was being changed are never used afterwards.
+     */
+    private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    private final Map<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+
+    /**
+     * Discards snapshots when metadata is changed on other nodes.
+     */
+    private final RemoteCommitSupport remoteCommits = new RemoteCommitSupport(
+            JPAPlainSchema.class, JPADerSchema.class, JPAConf.class,
+            JPACPlainAttr.class, JPACPlainAttrValue.class, JPACPlainAttrUniqueValue.class) {
+
+        @Override
+        protected void changed(final String domain) {
+            LOG.debug("Metadata changed in domain {}, discarding snapshot", domain);
+            version(domain).incrementAndGet();
+        }
+    };
+
+    private final AtomicLong loads = new AtomicLong();
+
+    private AtomicLong version(final String domain) {
+        AtomicLong version = versions.get(domain);
+        if (version == null) {
+            synchronized (versions) {
+                version = versions.get(domain);
+                if (version == null) {
+                    version = new AtomicLong();
+                    versions.put(domain, version);
+                }
+            }
+        }
+        return version;
+    }
+
+    private Snapshot load(final long version, final String domain) {
+        EntityManagerFactory entityManagerFactory = EntityManagerFactoryUtils.findEntityManagerFactory(
+                ApplicationContextProvider.getBeanFactory(), domain);
+        remoteCommits.listen(domain, entityManagerFactory);
+
+        Map<String, PlainSchema> plainSchemas = new HashMap<>();
+        Map<String, DerSchema> derSchemas = new HashMap<>();
+        Map<String, CPlainAttr> conf = new HashMap<>();
+
+        // read everything with a dedicated EntityManager in a read-only transaction (non-transactional reads are
+        // detached straight away, with no chance to load lazy fields), detaching all on commit
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            entityManager.getTransaction().begin();
+
+            for (PlainSchema schema : entityManager.createQuery(
+                    "SELECT e FROM " + JPAPlainSchema.class.getSimpleName() + " e", PlainSchema.class).
+                    getResultList()) {
+
+                schema.getValidator();
+                plainSchemas.put(schema.getKey(), schema);
+            }
+
+            for (DerSchema schema : entityManager.createQuery(
+                    "SELECT e FROM " + JPADerSchema.class.getSimpleName() + " e", DerSchema.class).
+                    getResultList()) {
+
+                derSchemas.put(schema.getKey(), schema);
+            }
+
+            for (CPlainAttr attr : entityManager.createQuery(
+                    "SELECT e FROM " + JPACPlainAttr.class.getSimpleName() + " e", CPlainAttr.class).
+                    getResultList()) {
+
+                // load values before detaching
+                attr.getValues().size();
+                attr.getUniqueValue();
+                attr.getSchema().getValidator();
+                conf.put(attr.getSchema().getKey(), attr);
+            }
+
+            entityManager.getTransaction().commit();
+        } finally {
+            if (entityManager.getTransaction().isActive()) {
+                entityManager.getTransaction().rollback();
+            }
+            entityManager.close();
+        }
+
+        loads.incrementAndGet();
+        LOG.debug("Metadata snapshot for domain {} loaded: {} plain schemas, {} derived schemas, {} parameters",
+                domain, plainSchemas.size(), derSchemas.size(), conf.size());
+
+        return new Snapshot(version, plainSchemas, derSchemas, conf);
+    }
+
+    /**
+     * @return snapshot for the current domain, or null if metadata is being changed by the current transaction
+     */
+    private Snapshot snapshot() {
+        if (TransactionSynchronizationManager.hasResource(this)) {
+            return null;
+        }
+
+        String domain = AuthContextUtils.getDomain();
+        long version = version(domain).get();
+
+        Snapshot snapshot = snapshots.get(domain);
+        if (snapshot == null || snapshot.version != version) {
+            snapshot = load(version, domain);
+            snapshots.put(domain, snapshot);
+        }
+        return snapshot;
+    }
+
+    public PlainSchema getPlainSchema(final EntityManager entityManager, final String key) {
+        Snapshot snapshot = snapshot();
+        return snapshot == null
+                ? entityManager.find(JPAPlainSchema.class, key)
+                : snapshot.plainSchemas.get(key);
+    }
+
+    public DerSchema getDerSchema(final EntityManager entityManager, final String key) {
+        Snapshot snapshot = snapshot();
+        return snapshot == null
+                ? entityManager.find(JPADerSchema.class, key)
+                : snapshot.derSchemas.get(key);
+    }
+
+    public CPlainAttr getConf(final EntityManager entityManager, final String key) {
+        Snapshot snapshot = snapshot();
+        if (snapshot == null) {
+            JPAConf instance = entityManager.find(JPAConf.class, 1L);
+            return instance == null ? null : instance.getPlainAttr(key);
+        }
+        return snapshot.conf.get(key);
+    }
+
+    /**
+     * Discards the snapshot for the current domain, both now and after the current transaction completes.
+     */
+    public void invalidate() {
+        final String domain = AuthContextUtils.getDomain();
+        version(domain).incrementAndGet();
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()
+                && !TransactionSynchronizationManager.hasResource(this)) {
+
+            TransactionSynchronizationManager.bindResource(this, domain);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+
+                @Override
+                public void afterCompletion(final int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(MetadataCache.this);
+                    version(domain).incrementAndGet();
+                }
+            });
+        }
+    }
+
+    /**
+     * @return number of snapshots loaded so far
+     */
+    public long getLoads() {
+        return loads.get();
+    }
+}
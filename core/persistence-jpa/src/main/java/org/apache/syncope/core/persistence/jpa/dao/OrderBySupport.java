@@ -22,6 +22,7 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import org.apache.syncope.core.persistence.api.dao.search.OrderByClause;
 
 class OrderBySupport {
 
@@ -33,6 +34,10 @@ class OrderBySupport {
 
         protected String orderBy;
 
+        protected String column;
+
+        protected OrderByClause.Direction direction;
+
         protected boolean isEmpty() {
             return (select == null || select.isEmpty())
                     && (where == null || where.isEmpty())
@@ -0,0 +1,458 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.syncope.core.persistence.jpa.dao;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.persistence.Cache;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Query;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.apache.openjpa.persistence.OpenJPAPersistence;
+import org.apache.openjpa.persistence.QueryResultCache;
+import org.apache.syncope.core.misc.security.AuthContextUtils;
+import org.apache.syncope.core.misc.spring.ApplicationContextProvider;
+import org.apache.syncope.core.persistence.api.DomainsHolder;
+import org.apache.syncope.core.persistence.api.SyncopeLoader;
+import org.apache.syncope.core.persistence.jpa.entity.JPAPlainSchema;
+import org.apache.syncope.core.persistence.jpa.entity.anyobject.JPAAPlainAttr;
+import org.apache.syncope.core.persistence.jpa.entity.anyobject.JPAAPlainAttrUniqueValue;
+import org.apache.syncope.core.persistence.jpa.entity.anyobject.JPAAPlainAttrValue;
+import org.apache.syncope.core.persistence.jpa.entity.anyobject.JPAAnyObject;
+import org.apache.syncope.core.persistence.jpa.entity.conf.JPACPlainAttr;
+import org.apache.syncope.core.persistence.jpa.entity.conf.JPACPlainAttrUniqueValue;
+import org.apache.syncope.core.persistence.jpa.entity.conf.JPACPlainAttrValue;
+import org.apache.syncope.core.persistence.jpa.entity.conf.JPAConf;
+import org.apache.syncope.core.persistence.jpa.entity.group.JPAGPlainAttr;
+import org.apache.syncope.core.persistence.jpa.entity.group.JPAGPlainAttrUniqueValue;
+import org.apache.syncope.core.persistence.jpa.entity.group.JPAGPlainAttrValue;
+import org.apache.syncope.core.persistence.jpa.entity.group.JPAGroup;
+import org.apache.syncope.core.persistence.jpa.entity.user.JPAUPlainAttr;
+import org.apache.syncope.core.persistence.jpa.entity.user.JPAUPlainAttrUniqueValue;
+import org.apache.syncope.core.persistence.jpa.entity.user.JPAUPlainAttrValue;
+import org.apache.syncope.core.persistence.jpa.entity.user.JPAUser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Removes the attributes of a plain schema being deleted via set-based statements - values, unique values, then
+ * attributes - each handling a batch of attributes, instead of loading and removing them one by one.
+ * When attributes are more than batch size, the schema is marked as pending deletion and removal is performed by
+ * background batches, each in its own transaction, once the transaction deleting the schema commits; the schema itself
+ * is removed after the last batch.
+ * As each batch removes what is left, removals which failed or were interrupted by shutdown are resumed at startup, or
+ * when deleting the schema again; progress and failures are reported by {@link #getStatus(EntityManager)}.
+ * Users, groups, any objects and configuration owning removed attributes are evicted from the L2 cache.
+ */
+public class PlainSchemaCleanup implements SyncopeLoader {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PlainSchemaCleanup.class);
+
+    private static class AttrTables {
+
+        private final String attrTable;
+
+        private final String valueTable;
+
+        private final String uniqueValueTable;
+
+        private final Class<?> attrClass;
+
+        private final Class<?> valueClass;
+
+        private final Class<?> uniqueValueClass;
+
+        private final Class<?> ownerClass;
+
+        AttrTables(
+                final String attrTable,
+                final String valueTable,
+                final String uniqueValueTable,
+                final Class<?> attrClass,
+                final Class<?> valueClass,
+                final Class<?> uniqueValueClass,
+                final Class<?> ownerClass) {
+
+            this.attrTable = attrTable;
+            this.valueTable = valueTable;
+            this.uniqueValueTable = uniqueValueTable;
+            this.attrClass = attrClass;
+            this.valueClass = valueClass;
+            this.uniqueValueClass = uniqueValueClass;
+            this.ownerClass = ownerClass;
+        }
+    }
+
+    private static final List<AttrTables> ATTR_TABLES = Arrays.asList(
+            new AttrTables(JPAUPlainAttr.TABLE, JPAUPlainAttrValue.TABLE, JPAUPlainAttrUniqueValue.TABLE,
+                    JPAUPlainAttr.class, JPAUPlainAttrValue.class, JPAUPlainAttrUniqueValue.class, JPAUser.class),
+            new AttrTables(JPAGPlainAttr.TABLE, JPAGPlainAttrValue.TABLE, JPAGPlainAttrUniqueValue.TABLE,
+                    JPAGPlainAttr.class, JPAGPlainAttrValue.class, JPAGPlainAttrUniqueValue.class, JPAGroup.class),
+            new AttrTables(JPAAPlainAttr.TABLE, JPAAPlainAttrValue.TABLE, JPAAPlainAttrUniqueValue.TABLE,
+                    JPAAPlainAttr.class, JPAAPlainAttrValue.class, JPAAPlainAttrUniqueValue.class,
+                    JPAAnyObject.class),
+            new AttrTables(JPACPlainAttr.TABLE, JPACPlainAttrValue.TABLE, JPACPlainAttrUniqueValue.TABLE,
+                    JPACPlainAttr.class, JPACPlainAttrValue.class, JPACPlainAttrUniqueValue.class, JPAConf.class));
+
+    /**
+     * Progress of background removals, in percentage.
+     */
+    private final ConcurrentMap<String, Integer> progress = new ConcurrentHashMap<>();
+
+    /**
+     * Failures of the last background removals, by schema.
+     */
+    private final Map<String, String> failures = new ConcurrentHashMap<>();
+
+    @Autowired
+    private DomainsHolder domainsHolder;
+
+    @Autowired
+    private SearchQueryCache queryCache;
+
+    @Autowired
+    private MetadataCache metadataCache;
+
+    private int batchSize;
+
+    private TaskExecutor executor;
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * @param batchSize number of attributes removed by each set of statements; schemas with more attributes than this
+     * are removed in background
+     */
+    public void setBatchSize(final int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @param executor executor for background removals
+     */
+    public void setExecutor(final TaskExecutor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * @return background removals in progress, each mapped to its completion percentage
+     */
+    public Map<String, Integer> getProgress() {
+        return Collections.unmodifiableMap(progress);
+    }
+
+    @Override
+    public Integer getPriority() {
+        return 500;
+    }
+
+    /**
+     * Resumes the removal of the attributes of schemas pending deletion, for all domains.
+     */
+    @Override
+    public void load() {
+        if (executor == null) {
+            return;
+        }
+
+        for (final String domain : domainsHolder.getDomains().keySet()) {
+            AuthContextUtils.execWithAuthContext(domain, new AuthContextUtils.Executable<Void>() {
+
+                @Override
+                public Void exec() {
+                    new TransactionTemplate(ApplicationContextProvider.getBeanFactory().
+                            getBean(domain + "TransactionManager", PlatformTransactionManager.class)).
+                            execute(new TransactionCallbackWithoutResult() {
+
+                                @Override
+                                protected void doInTransactionWithoutResult(final TransactionStatus status) {
+                                    EntityManager entityManager = entityManager(domain);
+                                    for (String schema : findPending(entityManager)) {
+                                        LOG.info("Resuming removal of attributes of {}/{}", domain, schema);
+                                        schedule(domain, schema, count(entityManager, schema));
+                                    }
+                                }
+                            });
+                    return null;
+                }
+            });
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> findPending(final EntityManager entityManager) {
+        Query query = entityManager.createQuery("SELECT e.name FROM " + JPAPlainSchema.class.getSimpleName()
+                + " e WHERE e.pendingDeletion = 1");
+        return query.getResultList();
+    }
+
+    /**
+     * Reports the schemas pending deletion within the given entity manager's domain, each mapped to the completion
+     * percentage of the removal of its attributes, or to the failure that interrupted it; schemas with removal not
+     * running on this node are reported as pending.
+     *
+     * @param entityManager entity manager
+     * @return schemas pending deletion, mapped to removal status
+     */
+    public Map<String, String> getStatus(final EntityManager entityManager) {
+        String domain = AuthContextUtils.getDomain();
+
+        Map<String, String> status = new TreeMap<>();
+        for (String schema : findPending(entityManager)) {
+            String progressKey = domain + "/" + schema;
+            Integer percentage = progress.get(progressKey);
+            status.put(schema, percentage == null
+                    ? failures.containsKey(progressKey) ? "failed: " + failures.get(progressKey) : "pending"
+                    : percentage + "%");
+        }
+        return status;
+    }
+
+    private EntityManager entityManager(final String domain) {
+        return EntityManagerFactoryUtils.getTransactionalEntityManager(EntityManagerFactoryUtils.
+                findEntityManagerFactory(ApplicationContextProvider.getBeanFactory(), domain));
+    }
+
+    private long count(final EntityManager entityManager, final String schema) {
+        long count = 0;
+        for (AttrTables tables : ATTR_TABLES) {
+            Query query = entityManager.createNativeQuery(
+                    "SELECT COUNT(id) FROM " + tables.attrTable + " WHERE schema_name=?1");
+            query.setParameter(1, schema);
+            count += ((Number) query.getSingleResult()).longValue();
+        }
+        return count;
+    }
+
+    /**
+     * Removes the next batch of attributes of the given schema from the given tables, then evicts these and their
+     * owners from the L2 cache.
+     *
+     * @param entityManager entity manager
+     * @param tables attribute, value and unique value tables
+     * @param schema schema name
+     * @return number of attributes removed
+     */
+    @SuppressWarnings("unchecked")
+    private int delete(final EntityManager entityManager, final AttrTables tables, final String schema) {
+        Query query = entityManager.createNativeQuery(
+                "SELECT id, owner_id FROM " + tables.attrTable + " WHERE schema_name=?1 ORDER BY id");
+        query.setParameter(1, schema);
+        query.setMaxResults(batchSize);
+        List<Object[]> batch = query.getResultList();
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        // the batch is made of all attributes of the given schema whose key is within the selected range
+        Object lower = batch.get(0)[0];
+        Object upper = batch.get(batch.size() - 1)[0];
+        String attrs = "SELECT id FROM " + tables.attrTable + " WHERE schema_name=?1 AND id BETWEEN ?2 AND ?3";
+        for (String statement : Arrays.asList(
+                "DELETE FROM " + tables.valueTable + " WHERE attribute_id IN (" + attrs + ")",
+                "DELETE FROM " + tables.uniqueValueTable + " WHERE attribute_id IN (" + attrs + ")",
+                "DELETE FROM " + tables.attrTable + " WHERE schema_name=?1 AND id BETWEEN ?2 AND ?3")) {
+
+            query = entityManager.createNativeQuery(statement);
+            query.setParameter(1, schema);
+            query.setParameter(2, lower);
+            query.setParameter(3, upper);
+            query.executeUpdate();
+        }
+
+        EntityManagerFactory emf = entityManager.getEntityManagerFactory();
+        Cache cache = emf.getCache();
+        for (Object[] row : batch) {
+            cache.evict(tables.attrClass, ((Number) row[0]).longValue());
+            if (row[1] != null) {
+                cache.evict(tables.ownerClass, ((Number) row[1]).longValue());
+            }
+        }
+        cache.evict(tables.valueClass);
+        cache.evict(tables.uniqueValueClass);
+        QueryResultCache queryResultCache = OpenJPAPersistence.cast(emf).getQueryResultCache();
+        queryResultCache.evictAll(tables.attrClass);
+        queryResultCache.evictAll(tables.ownerClass);
+
+        return batch.size();
+    }
+
+    /**
+     * Starts removing in background the attributes of the given schema, unless already doing so.
+     */
+    private void schedule(final String domain, final String schema, final long count) {
+        if (progress.putIfAbsent(domain + "/" + schema, 0) != null) {
+            LOG.debug("Attributes of {}/{} already being removed in background", domain, schema);
+            return;
+        }
+
+        executor.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                delete(domain, schema, count);
+            }
+        });
+    }
+
+    private void delete(final String domain, final String schema, final long count) {
+        final String progressKey = domain + "/" + schema;
+        failures.remove(progressKey);
+
+        AuthContextUtils.execWithAuthContext(domain, new AuthContextUtils.Executable<Void>() {
+
+            @Override
+            public Void exec() {
+                TransactionTemplate transactionTemplate = new TransactionTemplate(
+                        ApplicationContextProvider.getBeanFactory().
+                        getBean(domain + "TransactionManager", PlatformTransactionManager.class));
+
+                long removed = 0;
+                try {
+                    for (final AttrTables tables : ATTR_TABLES) {
+                        int batch;
+                        do {
+                            batch = transactionTemplate.execute(new TransactionCallback<Integer>() {
+
+                                @Override
+                                public Integer doInTransaction(final TransactionStatus status) {
+                                    return delete(entityManager(domain), tables, schema);
+                                }
+                            });
+                            removed += batch;
+
+                            int percentage = count == 0 ? 100 : (int) (Math.min(removed, count) * 100 / count);
+                            progress.put(progressKey, percentage);
+                            LOG.info("Removing attributes of {}: {}%", progressKey, percentage);
+                        } while (batch == batchSize);
+                    }
+
+                    transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+
+                        @Override
+                        protected void doInTransactionWithoutResult(final TransactionStatus status) {
+                            EntityManager entityManager = entityManager(domain);
+                            JPAPlainSchema plainSchema = entityManager.find(JPAPlainSchema.class, schema);
+                            if (plainSchema != null) {
+                                entityManager.remove(plainSchema);
+                            }
+
+                            queryCache.invalidate();
+                            metadataCache.invalidate();
+                        }
+                    });
+                    LOG.info("Schema {} removed along with {} attributes", progressKey, removed);
+                } catch (Exception e) {
+                    // the schema is still marked as pending deletion: removal is resumed at next startup, or when
+                    // deleting the schema again
+                    LOG.error("While removing attributes of {}, {} removed so far", progressKey, removed, e);
+                    failures.put(progressKey, ExceptionUtils.getRootCauseMessage(e));
+                } finally {
+                    progress.remove(progressKey);
+                }
+
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Removes all attributes of the given schema, via set-based statements. When attributes are more than batch size,
+     * the schema is marked as pending deletion, removal is performed by background batches once the current
+     * transaction commits, and the schema is removed afterwards.
+     *
+     * @param entityManager entity manager
+     * @param schema schema name
+     * @return whether all attributes were removed, hence the schema can be removed within the current transaction
+     */
+    public boolean delete(final EntityManager entityManager, final String schema) {
+        final String domain = AuthContextUtils.getDomain();
+        if (progress.containsKey(domain + "/" + schema)) {
+            LOG.debug("Attributes of {} already being removed in background", schema);
+            return false;
+        }
+
+        entityManager.flush();
+
+        final long count = count(entityManager, schema);
+        if (count <= batchSize || executor == null || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            long removed = 0;
+            for (AttrTables tables : ATTR_TABLES) {
+                int batch;
+                do {
+                    batch = delete(entityManager, tables, schema);
+                    removed += batch;
+                } while (batch == batchSize);
+            }
+            LOG.debug("{} attributes removed for schema {}", removed, schema);
+
+            if (removed > 0 && TransactionSynchronizationManager.isSynchronizationActive()) {
+                // owners loaded after removal, within the current transaction, might have been cached without
+                // the attributes that rollback brings back
+                final EntityManagerFactory emf = entityManager.getEntityManagerFactory();
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+
+                    @Override
+                    public void afterCompletion(final int status) {
+                        if (status != STATUS_COMMITTED) {
+                            for (AttrTables tables : ATTR_TABLES) {
+                                emf.getCache().evict(tables.attrClass);
+                                emf.getCache().evict(tables.ownerClass);
+                            }
+                        }
+                    }
+                });
+            }
+
+            return true;
+        }
+
+        JPAPlainSchema plainSchema = entityManager.find(JPAPlainSchema.class, schema);
+        if (plainSchema != null) {
+            plainSchema.setPendingDeletion(true);
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+
+            @Override
+            public void afterCommit() {
+                schedule(domain, schema, count);
+            }
+        });
+        return false;
+    }
+}
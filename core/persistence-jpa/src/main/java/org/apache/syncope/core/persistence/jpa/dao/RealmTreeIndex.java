@@ -0,0 +1,234 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.syncope.core.persistence.jpa.dao;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import org.apache.syncope.core.misc.security.AuthContextUtils;
+import org.apache.syncope.core.persistence.jpa.entity.JPARealm;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Keeps, for each domain, an immutable in-memory snapshot of the realm tree, so that lookups by path, ancestors and
+ * descendants can be resolved without querying the database.
+ * Snapshots are discarded whenever a realm is saved or deleted - on this node, or on any other node, when a cluster
+ * commit provider is configured - and lazily rebuilt with a single query; until the modifying transaction completes,
+ * its own lookups are not served by any snapshot.
+ */
+@Component
+class RealmTreeIndex {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RealmTreeIndex.class);
+
+    static class Node {
+
+        private final Long key;
+
+        private final Node parent;
+
+        private final String fullPath;
+
+        private final List<Node> children = new ArrayList<>();
+
+        Node(final Long key, final Node parent, final String fullPath) {
+            this.key = key;
+            this.parent = parent;
+            this.fullPath = fullPath;
+        }
+    }
+
+    static class Snapshot {
+
+        private final long version;
+
+        private final Node root;
+
+        private final Map<String, Node> byPath;
+
+        private final Map<Long, Node> byKey;
+
+        Snapshot(final long version, final Node root, final Map<String, Node> byPath, final Map<Long, Node> byKey) {
+            this.version = version;
+            this.root = root;
+            this.byPath = byPath;
+            this.byKey = byKey;
+        }
+
+        public Long getRoot() {
+            return root == null ? null : root.key;
+        }
+
+        public Long find(final String fullPath) {
+            Node node = byPath.get(fullPath);
+            return node == null ? null : node.key;
+        }
+
+        public List<Long> findAncestors(final Long key) {
+            List<Long> result = new ArrayList<>();
+            for (Node node = byKey.get(key); node != null; node = node.parent) {
+                result.add(node.key);
+            }
+            return result;
+        }
+
+        public List<Long> findChildren(final Long key) {
+            Node node = byKey.get(key);
+            if (node == null) {
+                return Collections.emptyList();
+            }
+
+            List<Long> result = new ArrayList<>(node.children.size());
+            for (Node child : node.children) {
+                result.add(child.key);
+            }
+            return result;
+        }
+
+        private void findDescendants(final List<Long> result, final Node node) {
+            result.add(node.key);
+            for (Node child : node.children) {
+                findDescendants(result, child);
+            }
+        }
+
+        public List<Long> findDescendants(final Long key) {
+            List<Long> result = new ArrayList<>();
+
+            Node node = byKey.get(key);
+            if (node != null) {
+                findDescendants(result, node);
+            }
+            return result;
+        }
+    }
+
+    private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    private final Map<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+
+    private final RemoteCommitSupport remoteCommits = new RemoteCommitSupport(JPARealm.class) {
+
+        @Override
+        protected void changed(final String domain) {
+            LOG.debug("Realms changed in domain {}, discarding tree", domain);
+            version(domain).incrementAndGet();
+        }
+    };
+
+    private AtomicLong version(final String domain) {
+        AtomicLong version = versions.get(domain);
+        if (version == null) {
+            synchronized (versions) {
+                version = versions.get(domain);
+                if (version == null) {
+                    version = new AtomicLong();
+                    versions.put(domain, version);
+                }
+            }
+        }
+        return version;
+    }
+
+    private Snapshot build(final long version, final EntityManager entityManager) {
+        Query query = entityManager.createQuery(
+                "SELECT e.id, p.id, e.fullPath FROM " + JPARealm.class.getSimpleName() + " e LEFT JOIN e.parent p "
+                + "ORDER BY e.fullPath");
+
+        Map<String, Node> byPath = new HashMap<>();
+        Map<Long, Node> byKey = new HashMap<>();
+        Node root = null;
+
+        // ordering by full path guarantees that parents are met before their children
+        for (Object raw : query.getResultList()) {
+            Object[] row = (Object[]) raw;
+
+            Node parent = row[1] == null ? null : byKey.get(((Number) row[1]).longValue());
+            Node node = new Node(((Number) row[0]).longValue(), parent, (String) row[2]);
+            if (parent == null) {
+                root = node;
+            } else {
+                parent.children.add(node);
+            }
+
+            byPath.put(node.fullPath, node);
+            byKey.put(node.key, node);
+        }
+
+        return new Snapshot(version, root, byPath, byKey);
+    }
+
+    /**
+     * Returns the realm tree snapshot for the current domain, or {@code null} if realms were modified by the current
+     * transaction.
+     *
+     * @param entityManager entity manager for the current domain, used if the snapshot needs to be (re)built
+     * @return realm tree snapshot, or {@code null}
+     */
+    public Snapshot get(final EntityManager entityManager) {
+        if (TransactionSynchronizationManager.hasResource(this)) {
+            return null;
+        }
+
+        String domain = AuthContextUtils.getDomain();
+        remoteCommits.listen(domain, entityManager.getEntityManagerFactory());
+        long version = version(domain).get();
+
+        Snapshot snapshot = snapshots.get(domain);
+        if (snapshot == null || snapshot.version != version) {
+            snapshot = build(version, entityManager);
+            snapshots.put(domain, snapshot);
+            LOG.debug("Realm tree for domain {} rebuilt: {} realms", domain, snapshot.byKey.size());
+        }
+
+        return snapshot;
+    }
+
+    /**
+     * Discards the realm tree snapshot for the current domain, both now and after the current transaction completes.
+     */
+    public void invalidate() {
+        final String domain = AuthContextUtils.getDomain();
+        version(domain).incrementAndGet();
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()
+                && !TransactionSynchronizationManager.hasResource(this)) {
+
+            TransactionSynchronizationManager.bindResource(this, domain);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+
+                @Override
+                public void afterCompletion(final int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(RealmTreeIndex.this);
+                    version(domain).incrementAndGet();
+                }
+            });
+        }
+    }
+}
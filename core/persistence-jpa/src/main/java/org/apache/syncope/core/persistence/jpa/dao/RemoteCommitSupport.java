@@ -0,0 +1,119 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.syncope.core.persistence.jpa.dao;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import javax.persistence.EntityManagerFactory;
+import org.apache.openjpa.event.RemoteCommitEvent;
+import org.apache.openjpa.event.RemoteCommitEventManager;
+import org.apache.openjpa.event.RemoteCommitListener;
+import org.apache.openjpa.persistence.OpenJPAPersistence;
+import org.apache.openjpa.util.OpenJPAId;
+
+/**
+ * Listens, once per domain, to commit events from other nodes - delivered when a cluster commit provider is
+ * configured - and notifies when instances of any of the given entity classes were persisted, updated or deleted
+ * there, so that in-memory structures built from such entities can be discarded.
+ */
+abstract class RemoteCommitSupport {
+
+    private final Set<Class<?>> classes;
+
+    /**
+     * Domains for which remote commit events are being listened to.
+     */
+    private final Set<String> listening = new CopyOnWriteArraySet<>();
+
+    RemoteCommitSupport(final Class<?>... classes) {
+        this.classes = new HashSet<Class<?>>(Arrays.asList(classes));
+    }
+
+    private boolean isChanged(final Collection<?> oids) {
+        if (oids != null) {
+            for (Object oid : oids) {
+                if (oid instanceof OpenJPAId && classes.contains(((OpenJPAId) oid).getType())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean isChangedType(final Collection<?> typeNames) {
+        if (typeNames != null) {
+            for (Class<?> clazz : classes) {
+                if (typeNames.contains(clazz.getName())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Starts listening to remote commit events for the given domain, unless already doing so.
+     *
+     * @param domain domain
+     * @param entityManagerFactory entity manager factory of the given domain
+     */
+    public void listen(final String domain, final EntityManagerFactory entityManagerFactory) {
+        if (!listening.add(domain)) {
+            return;
+        }
+
+        RemoteCommitEventManager eventManager = OpenJPAPersistence.cast(entityManagerFactory).
+                getConfiguration().getRemoteCommitEventManager();
+        if (eventManager != null && eventManager.areRemoteEventsEnabled()) {
+            eventManager.addListener(new RemoteCommitListener() {
+
+                @Override
+                public void afterCommit(final RemoteCommitEvent event) {
+                    // events carry either the ids or the type names of updated and deleted instances
+                    boolean changed = isChangedType(event.getPersistedTypeNames());
+                    if (!changed && event.getPayloadType() == RemoteCommitEvent.PAYLOAD_EXTENTS) {
+                        changed = isChangedType(event.getUpdatedTypeNames())
+                                || isChangedType(event.getDeletedTypeNames());
+                    } else if (!changed) {
+                        changed = isChanged(event.getUpdatedObjectIds()) || isChanged(event.getDeletedObjectIds());
+                    }
+
+                    if (changed) {
+                        changed(domain);
+                    }
+                }
+
+                @Override
+                public void close() {
+                    listening.remove(domain);
+                }
+            });
+        }
+    }
+
+    /**
+     * Invoked when instances of the given entity classes were changed on another node.
+     *
+     * @param domain domain
+     */
+    protected abstract void changed(String domain);
+}
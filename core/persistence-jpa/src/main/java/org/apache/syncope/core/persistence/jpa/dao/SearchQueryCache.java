@@ -0,0 +1,273 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.syncope.core.persistence.jpa.dao;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.syncope.core.misc.security.AuthContextUtils;
+import org.apache.syncope.core.persistence.api.dao.search.SearchCond;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Keeps, for each domain, the query templates compiled by {@link JPAAnySearchDAO}, keyed by the shape of the search
+ * condition (kinds of conditions, schema names and operators) or of the ordering clauses: values are never part of
+ * templates, but bound as parameters at each execution.
+ * Templates are discarded whenever a schema is saved or deleted; until the modifying transaction completes, its own
+ * searches do not use any template.
+ */
+@Component
+public class SearchQueryCache {
+
+    private static final int MAX_ENTRIES = 1000;
+
+    /**
+     * Computes the value of a query parameter from the leaf condition it was generated for.
+     */
+    interface ParamBinder {
+
+        Object bind(SearchCond leaf);
+    }
+
+    static class Binding {
+
+        private final int leaf;
+
+        private final ParamBinder binder;
+
+        Binding(final int leaf, final ParamBinder binder) {
+            this.leaf = leaf;
+            this.binder = binder;
+        }
+    }
+
+    /**
+     * Query text generated for a search condition, with the way to compute its parameter values from any other
+     * search condition with the same shape.
+     */
+    static class Template {
+
+        private final List<Binding> bindings = new ArrayList<>();
+
+        private int leaves;
+
+        private boolean cacheable = true;
+
+        private String query;
+
+        void nextLeaf() {
+            leaves++;
+        }
+
+        void bind(final ParamBinder binder) {
+            bindings.add(new Binding(leaves - 1, binder));
+        }
+
+        /**
+         * Marks this template as depending on parameter values, hence not reusable.
+         */
+        void setUncacheable() {
+            this.cacheable = false;
+        }
+
+        boolean isCacheable() {
+            return cacheable;
+        }
+
+        String getQuery() {
+            return query;
+        }
+
+        void setQuery(final String query) {
+            this.query = query;
+        }
+
+        private void collectLeaves(final SearchCond cond, final List<SearchCond> leaves) {
+            switch (cond.getType()) {
+                case LEAF:
+                case NOT_LEAF:
+                    leaves.add(cond);
+                    break;
+
+                case AND:
+                case OR:
+                    collectLeaves(cond.getLeftNodeCond(), leaves);
+                    collectLeaves(cond.getRightNodeCond(), leaves);
+                    break;
+
+                default:
+            }
+        }
+
+        /**
+         * Computes parameter values for the given search condition, expected to have the same shape as the one this
+         * template was compiled from.
+         *
+         * @param cond search condition
+         * @return parameter values, in the order expected by the query text
+         */
+        List<Object> bind(final SearchCond cond) {
+            List<SearchCond> condLeaves = new ArrayList<>(leaves);
+            collectLeaves(cond, condLeaves);
+
+            List<Object> parameters = Collections.synchronizedList(new ArrayList<>(bindings.size()));
+            for (Binding binding : bindings) {
+                parameters.add(binding.binder.bind(condLeaves.get(binding.leaf)));
+            }
+            return parameters;
+        }
+    }
+
+    private final Map<String, Map<String, Object>> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Incremented on each invalidation: entries built while schemas were being changed are never cached.
+     */
+    private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private Map<String, Object> entries(final String domain) {
+        Map<String, Object> domainEntries = entries.get(domain);
+        if (domainEntries == null) {
+            synchronized (entries) {
+                domainEntries = entries.get(domain);
+                if (domainEntries == null) {
+                    domainEntries = Collections.synchronizedMap(new LinkedHashMap<String, Object>(16, 0.75f, true) {
+
+                        private static final long serialVersionUID = 2832158127620355873L;
+
+                        @Override
+                        protected boolean removeEldestEntry(final Map.Entry<String, Object> eldest) {
+                            return size() > MAX_ENTRIES;
+                        }
+                    });
+                    entries.put(domain, domainEntries);
+                }
+            }
+        }
+        return domainEntries;
+    }
+
+    private AtomicLong version(final String domain) {
+        AtomicLong version = versions.get(domain);
+        if (version == null) {
+            synchronized (versions) {
+                version = versions.get(domain);
+                if (version == null) {
+                    version = new AtomicLong();
+                    versions.put(domain, version);
+                }
+            }
+        }
+        return version;
+    }
+
+    /**
+     * @return version of the entries for the current domain, to be read before building any entry to put
+     */
+    long version() {
+        return version(AuthContextUtils.getDomain()).get();
+    }
+
+    /**
+     * Returns the entry cached for the given shape in the current domain.
+     *
+     * @param <T> entry type
+     * @param key shape of search condition or ordering clauses
+     * @return cached entry, or {@code null} if missing or if schemas were modified by the current transaction
+     */
+    @SuppressWarnings("unchecked")
+    <T> T get(final String key) {
+        T entry = TransactionSynchronizationManager.hasResource(this)
+                ? null
+                : (T) entries(AuthContextUtils.getDomain()).get(key);
+        if (entry == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return entry;
+    }
+
+    /**
+     * Caches the given entry in the current domain, unless entries were invalidated since the given version.
+     *
+     * @param key shape of search condition or ordering clauses
+     * @param entry entry to cache
+     * @param version version read before building the entry
+     */
+    void put(final String key, final Object entry, final long version) {
+        if (!TransactionSynchronizationManager.hasResource(this)) {
+            String domain = AuthContextUtils.getDomain();
+            Map<String, Object> domainEntries = entries(domain);
+            synchronized (domainEntries) {
+                if (version(domain).get() == version) {
+                    domainEntries.put(key, entry);
+                }
+            }
+        }
+    }
+
+    private void clear(final String domain) {
+        Map<String, Object> domainEntries = entries(domain);
+        synchronized (domainEntries) {
+            version(domain).incrementAndGet();
+            domainEntries.clear();
+        }
+    }
+
+    /**
+     * Discards all cached entries for the current domain, both now and after the current transaction completes.
+     */
+    public void invalidate() {
+        final String domain = AuthContextUtils.getDomain();
+        clear(domain);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()
+                && !TransactionSynchronizationManager.hasResource(this)) {
+
+            TransactionSynchronizationManager.bindResource(this, domain);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+
+                @Override
+                public void afterCompletion(final int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(SearchQueryCache.this);
+                    clear(domain);
+                }
+            });
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.syncope.core.persistence.jpa.dao;
+
+import java.util.List;
+
+/**
+ * Combines the queries generated by {@link JPAAnySearchDAO} for the operands of AND / OR search conditions.
+ * When flat, n-ary AND / OR nodes are combined at once via set operations or joins, leaving the database free to
+ * choose the evaluation order; otherwise each binary node nests its right operand as {@code any_id IN} subquery of
+ * the left one.
+ */
+public class SearchQueryGenerator {
+
+    private boolean flat = true;
+
+    public boolean isFlat() {
+        return flat;
+    }
+
+    public void setFlat(final boolean flat) {
+        this.flat = flat;
+    }
+
+    /**
+     * Returns a query selecting the keys returned by all the given queries.
+     *
+     * @param queries queries selecting {@code any_id}
+     * @param intersect whether {@code INTERSECT} is supported: if not, joins are used
+     * @return query selecting {@code any_id}
+     */
+    public String and(final List<String> queries, final boolean intersect) {
+        StringBuilder query = new StringBuilder();
+
+        if (intersect) {
+            for (int i = 0; i < queries.size(); i++) {
+                if (i > 0) {
+                    query.append(" INTERSECT ");
+                }
+                query.append("SELECT any_id FROM (").append(queries.get(i)).append(") t").append(i);
+            }
+        } else {
+            query.append("SELECT t0.any_id FROM (").append(queries.get(0)).append(") t0");
+            for (int i = 1; i < queries.size(); i++) {
+                query.append(" INNER JOIN (").append(queries.get(i)).append(") t").append(i).
+                        append(" ON t").append(i).append(".any_id=t0.any_id");
+            }
+        }
+
+        return query.toString();
+    }
+
+    /**
+     * Returns a query selecting the keys returned by any of the given queries.
+     *
+     * @param queries queries selecting {@code any_id}
+     * @return query selecting {@code any_id}
+     */
+    public String or(final List<String> queries) {
+        StringBuilder query = new StringBuilder();
+
+        for (int i = 0; i < queries.size(); i++) {
+            if (i > 0) {
+                query.append(" UNION ");
+            }
+            query.append("SELECT any_id FROM (").append(queries.get(i)).append(") t").append(i);
+        }
+
+        return query.toString();
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.syncope.core.persistence.jpa.dao;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import org.apache.openjpa.persistence.OpenJPAPersistence;
+import org.apache.openjpa.persistence.jdbc.FetchDirection;
+import org.apache.openjpa.persistence.jdbc.JDBCFetchPlan;
+import org.apache.openjpa.persistence.jdbc.LRSSizeAlgorithm;
+import org.apache.openjpa.persistence.jdbc.ResultSetType;
+
+/**
+ * Reads the results of native queries through forward-only cursors, in chunks of configurable size: the persistence
+ * context is flushed and cleared after each chunk is handled.
+ */
+public class SearchStreamSupport {
+
+    /**
+     * Receives the rows read from the cursor, one chunk at a time.
+     */
+    interface ChunkHandler {
+
+        /**
+         * @param rows rows read from the cursor; the list is reused for the next chunk
+         * @return whether more rows shall be read
+         */
+        boolean handle(List<Object> rows);
+    }
+
+    private int fetchSize = 1000;
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    public void setFetchSize(final int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    public void stream(final EntityManager entityManager, final Query query, final ChunkHandler handler) {
+        JDBCFetchPlan fetchPlan = (JDBCFetchPlan) OpenJPAPersistence.cast(query).getFetchPlan();
+        fetchPlan.setFetchBatchSize(fetchSize);
+        fetchPlan.setResultSetType(ResultSetType.FORWARD_ONLY);
+        fetchPlan.setFetchDirection(FetchDirection.FORWARD);
+        fetchPlan.setLRSSizeAlgorithm(LRSSizeAlgorithm.UNKNOWN);
+
+        List<?> rows = query.getResultList();
+        try {
+            List<Object> chunk = new ArrayList<>(fetchSize);
+            boolean more = true;
+            for (Iterator<?> itor = rows.iterator(); more && itor.hasNext();) {
+                chunk.add(itor.next());
+
+                if (chunk.size() == fetchSize || !itor.hasNext()) {
+                    more = handler.handle(chunk);
+                    chunk.clear();
+
+                    entityManager.flush();
+                    entityManager.clear();
+                }
+            }
+        } finally {
+            OpenJPAPersistence.close(rows);
+        }
+    }
+}
@@ -133,10 +133,6 @@ class SearchSupport {
         return new SearchView("svdr", field().name + "_dynrmemb");
     }
 
-    public SearchView nullAttr() {
-        return new SearchView("svna", field().name + "_null_attr");
-    }
-
     public SearchView resource() {
         return new SearchView("svr", field().name + "_resource");
     }
@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.syncope.core.persistence.jpa.dao;
+
+/**
+ * Retention policy for the tasks and executions of a given type.
+ *
+ * @see JPATaskRetention
+ */
+public class TaskRetentionPolicy {
+
+    /**
+     * Days after which executions - or tasks run once, with all of their executions - are removed; negative to keep
+     * them regardless of age.
+     */
+    private int maxAge = -1;
+
+    /**
+     * Number of most recent executions kept for each task; negative to keep all.
+     */
+    private int maxExecs = -1;
+
+    /**
+     * Whether failed executions - and tasks run once with any failed execution - are kept anyway.
+     */
+    private boolean keepFailures;
+
+    public int getMaxAge() {
+        return maxAge;
+    }
+
+    public void setMaxAge(final int maxAge) {
+        this.maxAge = maxAge;
+    }
+
+    public int getMaxExecs() {
+        return maxExecs;
+    }
+
+    public void setMaxExecs(final int maxExecs) {
+        this.maxExecs = maxExecs;
+    }
+
+    public boolean isKeepFailures() {
+        return keepFailures;
+    }
+
+    public void setKeepFailures(final boolean keepFailures) {
+        this.keepFailures = keepFailures;
+    }
+}
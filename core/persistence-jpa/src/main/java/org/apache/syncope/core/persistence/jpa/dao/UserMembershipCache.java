@@ -0,0 +1,324 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.syncope.core.persistence.jpa.dao;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import org.apache.openjpa.enhance.PersistenceCapable;
+import org.apache.openjpa.kernel.OpenJPAStateManager;
+import org.apache.openjpa.meta.FieldMetaData;
+import org.apache.openjpa.persistence.OpenJPAEntityManager;
+import org.apache.openjpa.persistence.OpenJPAPersistence;
+import org.apache.syncope.core.persistence.api.entity.Role;
+import org.apache.syncope.core.persistence.api.entity.group.Group;
+import org.apache.syncope.core.persistence.api.entity.resource.ExternalResource;
+import org.apache.syncope.core.persistence.api.entity.user.UMembership;
+import org.apache.syncope.core.persistence.api.entity.user.User;
+import org.apache.syncope.core.persistence.jpa.entity.JPARole;
+import org.apache.syncope.core.persistence.jpa.entity.group.JPAGroup;
+import org.apache.syncope.core.persistence.jpa.entity.resource.JPAExternalResource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Keeps, for the duration of the current transaction, a read-only snapshot of the dynamic memberships and of the
+ * effective groups, roles and resources of each user, read by two joined queries over the search views.
+ * Snapshots are discarded whenever the user is saved or deleted, and all of them whenever a group, role or resource is
+ * saved or deleted; outside transactions, snapshots are read each time.
+ * As static memberships, roles and resources can be changed in memory before saving, the effective sets of users which
+ * are new or whose such fields were changed or flushed within the current transaction are instead computed from the
+ * user entity.
+ */
+@Component
+public class UserMembershipCache {
+
+    public static class Snapshot {
+
+        private final Set<Role> dynRoles = new LinkedHashSet<>();
+
+        private final Set<Group> dynGroups = new LinkedHashSet<>();
+
+        private final Set<Role> roles = new LinkedHashSet<>();
+
+        private final Set<Group> groups = new LinkedHashSet<>();
+
+        private final Set<ExternalResource> resources = new LinkedHashSet<>();
+
+        public Collection<Role> getDynRoles() {
+            return Collections.unmodifiableCollection(dynRoles);
+        }
+
+        public Collection<Group> getDynGroups() {
+            return Collections.unmodifiableCollection(dynGroups);
+        }
+
+        /**
+         * @return static and dynamic roles
+         */
+        public Collection<Role> getRoles() {
+            return Collections.unmodifiableCollection(roles);
+        }
+
+        /**
+         * @return groups from static and dynamic memberships
+         */
+        public Collection<Group> getGroups() {
+            return Collections.unmodifiableCollection(groups);
+        }
+
+        /**
+         * @return resources assigned directly and via static or dynamic group memberships
+         */
+        public Collection<ExternalResource> getResources() {
+            return Collections.unmodifiableCollection(resources);
+        }
+    }
+
+    /**
+     * User fields from which effective groups, roles and resources are computed.
+     */
+    private static final Set<String> MEMBERSHIP_FIELDS = new HashSet<>(
+            Arrays.asList("memberships", "roles", "resources"));
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    @SuppressWarnings("unchecked")
+    private Snapshot load(final EntityManager entityManager, final User user) {
+        Snapshot snapshot = new Snapshot();
+
+        Query query = entityManager.createNativeQuery(
+                "SELECT 'R' AS kind, role_id AS key_value FROM user_search_dynrmemb WHERE any_id=?1 "
+                + "UNION ALL "
+                + "SELECT 'G' AS kind, group_id AS key_value FROM user_search_udyngmemb WHERE any_id=?2 "
+                + "UNION ALL "
+                + "SELECT 'r' AS kind, role_id AS key_value FROM user_search_role WHERE any_id=?3 "
+                + "UNION ALL "
+                + "SELECT 'g' AS kind, group_id AS key_value FROM UMembership WHERE user_id=?4");
+        for (int i = 1; i <= 4; i++) {
+            query.setParameter(i, user.getKey());
+        }
+
+        for (Object[] row : (List<Object[]>) query.getResultList()) {
+            Long key = ((Number) row[1]).longValue();
+            switch (String.valueOf(row[0]).trim()) {
+                case "R":
+                    snapshot.dynRoles.add(entityManager.find(JPARole.class, key));
+                    break;
+
+                case "G":
+                    snapshot.dynGroups.add(entityManager.find(JPAGroup.class, key));
+                    break;
+
+                case "r":
+                    snapshot.roles.add(entityManager.find(JPARole.class, key));
+                    break;
+
+                default:
+                    snapshot.groups.add(entityManager.find(JPAGroup.class, key));
+            }
+        }
+        snapshot.roles.addAll(snapshot.dynRoles);
+        snapshot.groups.addAll(snapshot.dynGroups);
+
+        query = entityManager.createNativeQuery(
+                "SELECT resource_name FROM user_search_resource WHERE any_id=?1 "
+                + "UNION "
+                + "SELECT resource_name FROM user_search_group_res WHERE any_id=?2 "
+                + "UNION "
+                + "SELECT st.resource_name FROM user_search_udyngmemb d, SyncopeGroup_ExternalResource st "
+                + "WHERE d.any_id=?3 AND st.group_id=d.group_id");
+        for (int i = 1; i <= 3; i++) {
+            query.setParameter(i, user.getKey());
+        }
+
+        for (Object name : query.getResultList()) {
+            snapshot.resources.add(entityManager.find(JPAExternalResource.class, name.toString()));
+        }
+
+        return snapshot;
+    }
+
+    /**
+     * Computes effective groups, roles and resources from the given user entity, on top of the given dynamic
+     * memberships.
+     *
+     * @param user user
+     * @param dynamic snapshot providing dynamic memberships
+     * @return snapshot built from the given user entity
+     */
+    private Snapshot build(final User user, final Snapshot dynamic) {
+        Snapshot snapshot = new Snapshot();
+        snapshot.dynRoles.addAll(dynamic.dynRoles);
+        snapshot.dynGroups.addAll(dynamic.dynGroups);
+
+        snapshot.roles.addAll(user.getRoles());
+        snapshot.roles.addAll(snapshot.dynRoles);
+
+        for (UMembership membership : user.getMemberships()) {
+            snapshot.groups.add(membership.getRightEnd());
+        }
+        snapshot.groups.addAll(snapshot.dynGroups);
+
+        snapshot.resources.addAll(user.getResources());
+        for (Group group : snapshot.groups) {
+            snapshot.resources.addAll(group.getResources());
+        }
+
+        return snapshot;
+    }
+
+    /**
+     * Tells whether the effective sets of the given user cannot be read from the database, as the user is new or its
+     * memberships, roles or resources were changed in memory or flushed within the current transaction.
+     *
+     * @param entityManager entity manager
+     * @param user user
+     * @return whether the effective sets of the given user shall be computed from the entity
+     */
+    private boolean isChanged(final EntityManager entityManager, final User user) {
+        if (!(user instanceof PersistenceCapable)) {
+            return true;
+        }
+        OpenJPAEntityManager oem = OpenJPAPersistence.cast(entityManager);
+        if (!oem.contains(user)) {
+            // detached: the entity is the only reference
+            return true;
+        }
+        if (oem.isNewlyPersistent(user)) {
+            return true;
+        }
+        Object stateManager = ((PersistenceCapable) user).pcGetStateManager();
+        if (!(stateManager instanceof OpenJPAStateManager)) {
+            return true;
+        }
+
+        FieldMetaData[] fields = ((OpenJPAStateManager) stateManager).getMetaData().getFields();
+        BitSet changed = (BitSet) ((OpenJPAStateManager) stateManager).getDirty().clone();
+        changed.or(((OpenJPAStateManager) stateManager).getFlushed());
+        for (int i = changed.nextSetBit(0); i >= 0; i = changed.nextSetBit(i + 1)) {
+            if (MEMBERSHIP_FIELDS.contains(fields[i].getName())) {
+                return true;
+            }
+        }
+
+        // memberships being changed
+        for (Object object : oem.getDirtyObjects()) {
+            if (object instanceof UMembership && user.equals(((UMembership) object).getLeftEnd())) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<Long, Snapshot> snapshots() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return null;
+        }
+
+        Map<Long, Snapshot> snapshots = (Map<Long, Snapshot>) TransactionSynchronizationManager.getResource(this);
+        if (snapshots == null) {
+            snapshots = new HashMap<>();
+            TransactionSynchronizationManager.bindResource(this, snapshots);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+
+                @Override
+                public void afterCompletion(final int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(UserMembershipCache.this);
+                }
+            });
+        }
+        return snapshots;
+    }
+
+    /**
+     * Returns the snapshot for the given user, reading it if not available yet within the current transaction.
+     *
+     * @param entityManager entity manager
+     * @param user user
+     * @return snapshot of dynamic memberships and effective groups, roles and resources for the given user
+     */
+    public Snapshot get(final EntityManager entityManager, final User user) {
+        if (user.getKey() == null) {
+            return build(user, new Snapshot());
+        }
+
+        Map<Long, Snapshot> snapshots = snapshots();
+        Snapshot snapshot = snapshots == null ? null : snapshots.get(user.getKey());
+        if (snapshot == null) {
+            misses.incrementAndGet();
+
+            snapshot = load(entityManager, user);
+            if (snapshots != null) {
+                snapshots.put(user.getKey(), snapshot);
+            }
+        } else {
+            hits.incrementAndGet();
+        }
+
+        return isChanged(entityManager, user) ? build(user, snapshot) : snapshot;
+    }
+
+    /**
+     * Discards the snapshot for the given user, within the current transaction.
+     *
+     * @param userKey user key
+     */
+    @SuppressWarnings("unchecked")
+    public void invalidate(final Long userKey) {
+        Map<Long, Snapshot> snapshots = (Map<Long, Snapshot>) TransactionSynchronizationManager.getResource(this);
+        if (snapshots != null) {
+            snapshots.remove(userKey);
+        }
+    }
+
+    /**
+     * Discards all snapshots within the current transaction.
+     */
+    @SuppressWarnings("unchecked")
+    public void invalidate() {
+        Map<Long, Snapshot> snapshots = (Map<Long, Snapshot>) TransactionSynchronizationManager.getResource(this);
+        if (snapshots != null) {
+            snapshots.clear();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+}
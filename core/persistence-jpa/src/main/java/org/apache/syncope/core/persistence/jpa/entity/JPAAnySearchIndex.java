@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.syncope.core.persistence.jpa.entity;
+
+import java.util.Date;
+import javax.persistence.Basic;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+import org.apache.syncope.common.lib.types.AnyTypeKind;
+import org.apache.syncope.core.persistence.api.entity.PlainAttrValue;
+
+/**
+ * Denormalized row of the search index: one for each plain attribute value of any user, group or any object, typed
+ * as the source value.
+ */
+@Entity
+@Table(name = JPAAnySearchIndex.TABLE)
+public class JPAAnySearchIndex extends AbstractEntity<Long> {
+
+    public static final String TABLE = "AnySearchIndex";
+
+    private static final long serialVersionUID = -3526391434510934045L;
+
+    @Id
+    private Long id;
+
+    @Column(name = "any_kind", nullable = false)
+    @Enumerated(EnumType.STRING)
+    private AnyTypeKind anyTypeKind;
+
+    @Column(name = "any_id", nullable = false)
+    private Long anyKey;
+
+    @Column(name = "schema_name", nullable = false)
+    private String schemaName;
+
+    private String stringValue;
+
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date dateValue;
+
+    @Basic
+    private Integer booleanValue;
+
+    private Long longValue;
+
+    private Double doubleValue;
+
+    @Override
+    public Long getKey() {
+        return id;
+    }
+
+    public AnyTypeKind getAnyTypeKind() {
+        return anyTypeKind;
+    }
+
+    public void setAnyTypeKind(final AnyTypeKind anyTypeKind) {
+        this.anyTypeKind = anyTypeKind;
+    }
+
+    public Long getAnyKey() {
+        return anyKey;
+    }
+
+    public void setAnyKey(final Long anyKey) {
+        this.anyKey = anyKey;
+    }
+
+    public String getSchemaName() {
+        return schemaName;
+    }
+
+    public void setSchemaName(final String schemaName) {
+        this.schemaName = schemaName;
+    }
+
+    public String getStringValue() {
+        return stringValue;
+    }
+
+    public void setStringValue(final String stringValue) {
+        this.stringValue = stringValue;
+    }
+
+    public Date getDateValue() {
+        return dateValue == null
+                ? null
+                : new Date(dateValue.getTime());
+    }
+
+    public Boolean getBooleanValue() {
+        return booleanValue == null
+                ? null
+                : isBooleanAsInteger(booleanValue);
+    }
+
+    public Long getLongValue() {
+        return longValue;
+    }
+
+    public Double getDoubleValue() {
+        return doubleValue;
+    }
+
+    /**
+     * Copies the typed content of the given attribute value; binary values are not searchable, hence not copied.
+     *
+     * @param value plain attribute value to index
+     */
+    public void setValue(final PlainAttrValue value) {
+        this.stringValue = value.getStringValue();
+        this.dateValue = value.getDateValue();
+        this.booleanValue = value.getBooleanValue() == null
+                ? null
+                : getBooleanAsInteger(value.getBooleanValue());
+        this.longValue = value.getLongValue();
+        this.doubleValue = value.getDoubleValue();
+    }
+}
@@ -18,6 +18,8 @@
  */
 package org.apache.syncope.core.persistence.jpa.entity;
 
+import java.util.EnumMap;
+import java.util.Map;
 import org.apache.syncope.common.lib.types.AnyTypeKind;
 import org.apache.syncope.core.persistence.api.entity.Any;
 import org.apache.syncope.core.persistence.api.entity.AnyUtils;
@@ -30,14 +32,25 @@ import org.springframework.stereotype.Component;
 @Component
 public class JPAAnyUtilsFactory implements AnyUtilsFactory {
 
+    /**
+     * {@link JPAAnyUtils} instances are immutable, hence shared.
+     */
+    private static final Map<AnyTypeKind, AnyUtils> INSTANCES = new EnumMap<>(AnyTypeKind.class);
+
+    static {
+        for (AnyTypeKind anyTypeKind : AnyTypeKind.values()) {
+            INSTANCES.put(anyTypeKind, new JPAAnyUtils(anyTypeKind));
+        }
+    }
+
     @Override
     public AnyUtils getInstance(final AnyTypeKind anyTypeKind) {
-        return new JPAAnyUtils(anyTypeKind);
+        return INSTANCES.get(anyTypeKind);
     }
 
     @Override
     public AnyUtils getInstance(final String anyTypeKind) {
-        return new JPAAnyUtils(AnyTypeKind.valueOf(anyTypeKind));
+        return INSTANCES.get(AnyTypeKind.valueOf(anyTypeKind));
     }
 
     @Override
@@ -55,7 +68,7 @@ public class JPAAnyUtilsFactory implements AnyUtilsFactory {
             throw new IllegalArgumentException("Any type not supported: " + any.getClass().getName());
         }
 
-        return new JPAAnyUtils(type);
+        return INSTANCES.get(type);
     }
 
 }
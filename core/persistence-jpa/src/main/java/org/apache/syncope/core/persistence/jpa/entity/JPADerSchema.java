@@ -25,6 +25,8 @@ import javax.persistence.FetchType;
 import javax.persistence.Id;
 import javax.persistence.OneToOne;
 import javax.persistence.Table;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
 import org.apache.syncope.common.lib.types.AttrSchemaType;
 import org.apache.syncope.core.persistence.api.entity.AnyTypeClass;
 import org.apache.syncope.core.persistence.api.entity.DerSchema;
@@ -49,6 +51,16 @@ public class JPADerSchema extends AbstractEntity<String> implements DerSchema {
     @Column(nullable = false)
     private String expression;
 
+    @Min(0)
+    @Max(1)
+    private Integer materialized;
+
+    public JPADerSchema() {
+        super();
+
+        materialized = getBooleanAsInteger(false);
+    }
+
     @Override
     public String getKey() {
         return name;
@@ -80,6 +92,16 @@ public class JPADerSchema extends AbstractEntity<String> implements DerSchema {
         this.expression = expression;
     }
 
+    @Override
+    public boolean isMaterialized() {
+        return isBooleanAsInteger(materialized);
+    }
+
+    @Override
+    public void setMaterialized(final boolean materialized) {
+        this.materialized = getBooleanAsInteger(materialized);
+    }
+
     @Override
     public AttrSchemaType getType() {
         return AttrSchemaType.String;
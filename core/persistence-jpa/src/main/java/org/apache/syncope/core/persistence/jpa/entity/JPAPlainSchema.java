@@ -104,6 +104,14 @@ public class JPAPlainSchema extends AbstractEntity<String> implements PlainSchem
     @Column(nullable = true)
     private String mimeType;
 
+    /**
+     * Set when attributes, and then the schema itself, are being removed in background.
+     */
+    @Basic
+    @Min(0)
+    @Max(1)
+    private Integer pendingDeletion;
+
     @Transient
     private Validator validator;
 
@@ -290,4 +298,11 @@ public class JPAPlainSchema extends AbstractEntity<String> implements PlainSchem
         this.mimeType = mimeType;
     }
 
+    public boolean isPendingDeletion() {
+        return isBooleanAsInteger(pendingDeletion);
+    }
+
+    public void setPendingDeletion(final boolean pendingDeletion) {
+        this.pendingDeletion = getBooleanAsInteger(pendingDeletion);
+    }
 }
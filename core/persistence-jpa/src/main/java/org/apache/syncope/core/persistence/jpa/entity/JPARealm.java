@@ -36,6 +36,7 @@ import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.OneToMany;
 import javax.persistence.Table;
+import javax.persistence.Transient;
 import javax.persistence.UniqueConstraint;
 import javax.validation.constraints.Size;
 import org.apache.commons.collections4.CollectionUtils;
@@ -70,6 +71,18 @@ public class JPARealm extends AbstractEntity<Long> implements Realm {
     @ManyToOne
     private JPARealm parent;
 
+    /**
+     * Materialized full path, kept in sync with name and parent, for realms to be looked up by path or by prefix.
+     */
+    @Column(nullable = false)
+    private String fullPath;
+
+    /**
+     * Full path before latest rename or move, for descendants to be updated accordingly upon save.
+     */
+    @Transient
+    private String formerFullPath;
+
     @ManyToOne(fetch = FetchType.EAGER)
     private JPAPasswordPolicy passwordPolicy;
 
@@ -103,9 +116,30 @@ public class JPARealm extends AbstractEntity<Long> implements Realm {
 
     @Override
     public String getFullPath() {
-        return getParent() == null
+        return fullPath;
+    }
+
+    public void setFullPath(final String fullPath) {
+        this.fullPath = fullPath;
+    }
+
+    public String getFormerFullPath() {
+        return formerFullPath;
+    }
+
+    public void clearFormerFullPath() {
+        this.formerFullPath = null;
+    }
+
+    private void refreshFullPath() {
+        String newFullPath = getParent() == null
                 ? SyncopeConstants.ROOT_REALM
                 : StringUtils.appendIfMissing(getParent().getFullPath(), "/") + getName();
+
+        if (id != null && fullPath != null && formerFullPath == null && !fullPath.equals(newFullPath)) {
+            formerFullPath = fullPath;
+        }
+        fullPath = newFullPath;
     }
 
     @Override
@@ -121,12 +155,14 @@ public class JPARealm extends AbstractEntity<Long> implements Realm {
     @Override
     public void setName(final String name) {
         this.name = name;
+        refreshFullPath();
     }
 
     @Override
     public void setParent(final Realm parent) {
         checkType(parent, JPARealm.class);
         this.parent = (JPARealm) parent;
+        refreshFullPath();
     }
 
     @Override
@@ -18,16 +18,31 @@
  */
 package org.apache.syncope.core.persistence.jpa.spring;
 
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceException;
+import org.apache.openjpa.lib.conf.Configurations;
 import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
 
 /**
  * Extension of {@link LocalContainerEntityManagerFactoryBean} relying on {@link CommonEntityManagerFactoryConf} for
  * common configuration options.
+ * <br/>
+ * The JDBC batch limit can be set for each domain: OpenJPA's default update manager sorts the rows to flush by
+ * foreign key constraints, then sends consecutive statements for the same table - say, all the attribute values of
+ * the users being created or deleted - as a single JDBC batch.
  */
 public class DomainEntityManagerFactoryBean extends LocalContainerEntityManagerFactoryBean {
 
     private static final long serialVersionUID = 49152547930966545L;
 
+    private static final String DB_DICTIONARY = "openjpa.jdbc.DBDictionary";
+
+    private Integer batchLimit;
+
+    public void setBatchLimit(final int batchLimit) {
+        this.batchLimit = batchLimit;
+    }
+
     public void setCommonEntityManagerFactoryConf(final CommonEntityManagerFactoryConf commonEMFConf) {
         super.setJpaPropertyMap(commonEMFConf.getJpaPropertyMap());
 
@@ -42,4 +57,19 @@ public class DomainEntityManagerFactoryBean extends LocalContainerEntityManagerF
         }
     }
 
+    @Override
+    protected EntityManagerFactory createNativeEntityManagerFactory() throws PersistenceException {
+        // vendor properties - including the dictionary set via databasePlatform - are merged in at this point
+        Object dictionary = getJpaPropertyMap().get(DB_DICTIONARY);
+        if (batchLimit != null && dictionary != null) {
+            // batchLimit=-1 is unlimited, 0 disables batching; any value explicitly given for the dictionary wins
+            getJpaPropertyMap().put(DB_DICTIONARY, Configurations.combinePlugins(
+                    Configurations.getPlugin(
+                            Configurations.getClassName(dictionary.toString()), "batchLimit=" + batchLimit),
+                    dictionary.toString()));
+        }
+
+        return super.createNativeEntityManagerFactory();
+    }
+
 }
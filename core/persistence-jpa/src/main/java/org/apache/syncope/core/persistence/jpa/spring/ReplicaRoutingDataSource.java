@@ -0,0 +1,248 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.syncope.core.persistence.jpa.spring;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.sql.DataSource;
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.syncope.core.misc.security.AuthContextUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.jdbc.datasource.ConnectionProxy;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * {@link DataSource} for a domain's EntityManagerFactory, handing out connections to a read replica for read-only
+ * transactions, when configured.
+ * <br/>
+ * Any other connection is taken from the primary: OpenJPA starts read-write transactions eagerly, hence before
+ * Spring flags them as such; read-only transactions only request connections when the first statement is sent.
+ * Committing a read-write transaction on the primary counts as a write for the current user and the current thread:
+ * read-only transactions by the same user, or on the same thread, keep going to the primary during the configured
+ * interval, so that users, as well as tasks and jobs running as admin, read their own writes despite replica lag.
+ * <br/>
+ * Writes are not tracked across principals on different threads: when a job running as admin updates a user, the
+ * read-only transactions of that user - including authentication, as user finders are read-only - can be served by the
+ * replica, hence see the previous state, until the replica catches up; {@code readYourWritesMillis} does not help in
+ * such case and should be set according to the expected replica lag only.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource implements InitializingBean, DisposableBean {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    private DataSource primary;
+
+    private String replicaDriverClassName;
+
+    private String replicaUrl;
+
+    private String replicaUsername;
+
+    private String replicaPassword;
+
+    private int replicaMaxTotal = 8;
+
+    private long readYourWritesMillis = 5000;
+
+    private BasicDataSource replica;
+
+    /**
+     * Last write time, by username.
+     */
+    private final Map<String, Long> lastWrites = new ConcurrentHashMap<>();
+
+    /**
+     * Last write time, for the current thread.
+     */
+    private final ThreadLocal<Long> lastThreadWrite = new ThreadLocal<>();
+
+    /**
+     * Last time expired entries were removed from {@link #lastWrites}.
+     */
+    private final AtomicLong lastEviction = new AtomicLong();
+
+    public void setPrimary(final DataSource primary) {
+        this.primary = primary;
+    }
+
+    public void setReplicaDriverClassName(final String replicaDriverClassName) {
+        this.replicaDriverClassName = replicaDriverClassName;
+    }
+
+    public void setReplicaUrl(final String replicaUrl) {
+        this.replicaUrl = replicaUrl;
+    }
+
+    public void setReplicaUsername(final String replicaUsername) {
+        this.replicaUsername = replicaUsername;
+    }
+
+    public void setReplicaPassword(final String replicaPassword) {
+        this.replicaPassword = replicaPassword;
+    }
+
+    public void setReplicaMaxTotal(final int replicaMaxTotal) {
+        this.replicaMaxTotal = replicaMaxTotal;
+    }
+
+    public void setReadYourWritesMillis(final long readYourWritesMillis) {
+        this.readYourWritesMillis = readYourWritesMillis;
+    }
+
+    public boolean isReplicaEnabled() {
+        return replica != null;
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        if (StringUtils.isNotBlank(replicaUrl)) {
+            replica = new BasicDataSource();
+            replica.setDriverClassName(replicaDriverClassName);
+            replica.setUrl(replicaUrl);
+            replica.setUsername(replicaUsername);
+            replica.setPassword(replicaPassword);
+            replica.setMaxTotal(replicaMaxTotal);
+            replica.setDefaultReadOnly(true);
+            replica.setDefaultTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+
+            LOG.info("Read-only transactions routed to replica {}", replicaUrl);
+        }
+    }
+
+    @Override
+    public void destroy() throws SQLException {
+        if (replica != null) {
+            replica.close();
+        }
+    }
+
+    private boolean useReplica() {
+        if (replica == null
+                || !TransactionSynchronizationManager.isActualTransactionActive()
+                || !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+
+            return false;
+        }
+
+        long now = System.currentTimeMillis();
+
+        Long threadWrite = lastThreadWrite.get();
+        if (threadWrite != null) {
+            if (now - threadWrite < readYourWritesMillis) {
+                return false;
+            }
+            lastThreadWrite.remove();
+        }
+
+        String username = AuthContextUtils.getUsername();
+        Long lastWrite = lastWrites.get(username);
+        if (lastWrite != null) {
+            if (now - lastWrite < readYourWritesMillis) {
+                return false;
+            }
+            lastWrites.remove(username, lastWrite);
+        }
+        return true;
+    }
+
+    private void written(final String username) {
+        long now = System.currentTimeMillis();
+        lastWrites.put(username, now);
+        lastThreadWrite.set(now);
+
+        // users not reading after writing would otherwise never be removed: sweep once per interval at most
+        long eviction = lastEviction.get();
+        if (now - eviction >= readYourWritesMillis && lastEviction.compareAndSet(eviction, now)) {
+            for (Map.Entry<String, Long> entry : lastWrites.entrySet()) {
+                if (now - entry.getValue() >= readYourWritesMillis) {
+                    lastWrites.remove(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+    }
+
+    private Connection trackWrites(final Connection connection) {
+        if (replica == null) {
+            return connection;
+        }
+
+        final String username = AuthContextUtils.getUsername();
+        return (Connection) Proxy.newProxyInstance(
+                ConnectionProxy.class.getClassLoader(),
+                new Class<?>[] { ConnectionProxy.class },
+                new InvocationHandler() {
+
+                    @Override
+                    public Object invoke(final Object proxy, final Method method, final Object[] args)
+                            throws Throwable {
+
+                        switch (method.getName()) {
+                            case "equals":
+                                return proxy == args[0];
+
+                            case "hashCode":
+                                return System.identityHashCode(proxy);
+
+                            case "getTargetConnection":
+                                return connection;
+
+                            case "commit":
+                                if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+                                    written(username);
+                                }
+                                break;
+
+                            default:
+                        }
+
+                        try {
+                            return method.invoke(connection, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getTargetException();
+                        }
+                    }
+                });
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return useReplica()
+                ? replica.getConnection()
+                : trackWrites(primary.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(final String username, final String password) throws SQLException {
+        return useReplica()
+                ? replica.getConnection(username, password)
+                : trackWrites(primary.getConnection(username, password));
+    }
+}
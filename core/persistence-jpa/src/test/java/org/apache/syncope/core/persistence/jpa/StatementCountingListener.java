@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.syncope.core.persistence.jpa;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+import org.apache.openjpa.lib.jdbc.AbstractJDBCListener;
+import org.apache.openjpa.lib.jdbc.JDBCEvent;
+
+/**
+ * Counts the statements executed via JDBC - each batch counting once - by SQL.
+ */
+public class StatementCountingListener extends AbstractJDBCListener {
+
+    private static final ConcurrentMap<String, AtomicInteger> EXECUTIONS = new ConcurrentHashMap<>();
+
+    public static void reset() {
+        EXECUTIONS.clear();
+    }
+
+    /**
+     * @param table table name
+     * @return number of statements executed for inserting into the given table, each batch counting once
+     */
+    public static int getInserts(final String table) {
+        Pattern pattern = Pattern.compile("INSERT INTO (\\w+\\.)?" + table + " .*", Pattern.CASE_INSENSITIVE);
+
+        int executions = 0;
+        for (Map.Entry<String, AtomicInteger> entry : EXECUTIONS.entrySet()) {
+            if (pattern.matcher(entry.getKey()).matches()) {
+                executions += entry.getValue().get();
+            }
+        }
+        return executions;
+    }
+
+    @Override
+    public void afterExecuteStatement(final JDBCEvent event) {
+        if (event.getSQL() != null) {
+            EXECUTIONS.putIfAbsent(event.getSQL(), new AtomicInteger());
+            EXECUTIONS.get(event.getSQL()).incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.syncope.core.persistence.jpa.content;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import javax.xml.parsers.SAXParserFactory;
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+public class ContentLoaderHandlerTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ContentLoaderHandlerTest.class);
+
+    private static final String ROOT_ELEMENT = "dataset";
+
+    private static final int ROWS = 5000;
+
+    private BasicDataSource dataSource;
+
+    private JdbcTemplate jdbcTemplate;
+
+    private Map<String, Set<String>> parentTables;
+
+    @Before
+    public void setUp() {
+        dataSource = new BasicDataSource();
+        dataSource.setDriverClassName("org.h2.Driver");
+        dataSource.setUrl("jdbc:h2:mem:contentLoaderTest;DB_CLOSE_DELAY=-1");
+        dataSource.setUsername("sa");
+
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        jdbcTemplate.execute("CREATE TABLE Parent (id BIGINT PRIMARY KEY, name VARCHAR(255))");
+        jdbcTemplate.execute("CREATE TABLE Child (id BIGINT PRIMARY KEY, flag INTEGER, "
+                + "parent_id BIGINT REFERENCES Parent(id))");
+        jdbcTemplate.execute("CREATE TABLE Other (id BIGINT PRIMARY KEY, name VARCHAR(255))");
+
+        parentTables = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        parentTables.put("Parent", Collections.<String>emptySet());
+        parentTables.put("Child", Collections.<String>singleton("PARENT"));
+        parentTables.put("Other", Collections.<String>emptySet());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        dataSource.close();
+    }
+
+    /**
+     * Rows grouped by table, as produced by the exporter.
+     */
+    private static byte[] grouped() {
+        StringBuilder xml = new StringBuilder("<dataset>");
+        for (int i = 0; i < ROWS; i++) {
+            xml.append("<Parent id=\"").append(i).append("\" name=\"parent").append(i).append("\"/>");
+        }
+        for (int i = 0; i < ROWS; i++) {
+            xml.append("<Other id=\"").append(i).append("\" name=\"other").append(i).append("\"/>");
+        }
+        for (int i = 0; i < ROWS; i++) {
+            xml.append("<Child id=\"").append(i).append("\" flag=\"").append(i % 2).
+                    append("\" parent_id=\"").append(i).append("\"/>");
+        }
+        return xml.append("</dataset>").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Rows for different tables interleaved, each child right after its parent.
+     */
+    private static byte[] interleaved() {
+        StringBuilder xml = new StringBuilder("<dataset>");
+        for (int i = 0; i < ROWS / 10; i++) {
+            xml.append("<Parent id=\"").append(i).append("\" name=\"parent").append(i).append("\"/>");
+            xml.append("<Child id=\"").append(i).append("\" parent_id=\"").append(i).append("\"/>");
+            xml.append("<Other id=\"").append(i).append("\" name=\"other").append(i).append("\"/>");
+        }
+        return xml.append("</dataset>").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private long load(final byte[] content, final int batchSize, final int parallelism) throws Exception {
+        jdbcTemplate.execute("DELETE FROM Child");
+        jdbcTemplate.execute("DELETE FROM Parent");
+        jdbcTemplate.execute("DELETE FROM Other");
+
+        ExecutorService executor = parallelism > 1 ? Executors.newFixedThreadPool(parallelism) : null;
+        try {
+            long start = System.currentTimeMillis();
+            ContentLoaderHandler handler = new ContentLoaderHandler(
+                    dataSource, ROOT_ELEMENT, batchSize, executor, parentTables);
+            SAXParserFactory.newInstance().newSAXParser().parse(new ByteArrayInputStream(content), handler);
+            long elapsed = System.currentTimeMillis() - start;
+
+            assertEquals(0, handler.getFailed());
+            assertEquals(
+                    jdbcTemplate.queryForObject("SELECT COUNT(*) FROM Parent", Long.class).longValue()
+                    + jdbcTemplate.queryForObject("SELECT COUNT(*) FROM Child", Long.class).longValue()
+                    + jdbcTemplate.queryForObject("SELECT COUNT(*) FROM Other", Long.class).longValue(),
+                    handler.getLoaded());
+            return elapsed;
+        } finally {
+            if (executor != null) {
+                executor.shutdown();
+            }
+        }
+    }
+
+    @Test
+    public void benchmark() throws Exception {
+        byte[] content = grouped();
+
+        // warm up
+        load(content, 1000, 4);
+
+        long single = load(content, 1, 1);
+        assertEquals(ROWS, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM Child", Integer.class).intValue());
+
+        long batched = load(content, 1000, 1);
+        assertEquals(ROWS, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM Child", Integer.class).intValue());
+
+        long parallel = load(content, 1000, 4);
+        assertEquals(ROWS, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM Child", Integer.class).intValue());
+        assertEquals(ROWS / 2,
+                jdbcTemplate.queryForObject("SELECT COUNT(*) FROM Child WHERE flag = 1", Integer.class).intValue());
+
+        LOG.info("Loading {} rows on H2: {} ms row by row, {} ms batched, {} ms batched and parallel",
+                ROWS * 3, single, batched, parallel);
+    }
+
+    @Test
+    public void foreignKeyOrder() throws Exception {
+        load(interleaved(), 1000, 4);
+        assertEquals(ROWS / 10, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM Child", Integer.class).intValue());
+        assertEquals(ROWS / 10, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM Parent", Integer.class).intValue());
+    }
+
+    @Test
+    public void interleavedBatching() throws Exception {
+        StringBuilder xml = new StringBuilder("<dataset>");
+        for (int i = 0; i < ROWS / 10; i++) {
+            xml.append("<Parent id=\"").append(i).append("\" name=\"parent").append(i).append("\"/>");
+            xml.append("<Other id=\"").append(i).append("\" name=\"other").append(i).append("\"/>");
+        }
+        for (int i = 0; i < ROWS / 10; i++) {
+            xml.append("<Child id=\"").append(i).append("\" parent_id=\"").append(i).append("\"/>");
+            xml.append("<Other id=\"").append(ROWS + i).append("\" name=\"other").append(i).append("\"/>");
+        }
+        byte[] content = xml.append("</dataset>").toString().getBytes(StandardCharsets.UTF_8);
+
+        // rows for independent tables are batched together even when interleaved...
+        ContentLoaderHandler handler = new ContentLoaderHandler(
+                dataSource, ROOT_ELEMENT, 1000, null, parentTables);
+        SAXParserFactory.newInstance().newSAXParser().parse(new ByteArrayInputStream(content), handler);
+        assertEquals(0, handler.getFailed());
+        assertEquals(ROWS / 10 * 4, handler.getLoaded());
+        assertEquals(3, handler.getBatches());
+        assertEquals(ROWS / 10, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM Child", Integer.class).intValue());
+
+        // ...unless their foreign keys are not known
+        jdbcTemplate.execute("DELETE FROM Child");
+        jdbcTemplate.execute("DELETE FROM Parent");
+        jdbcTemplate.execute("DELETE FROM Other");
+        handler = new ContentLoaderHandler(
+                dataSource, ROOT_ELEMENT, 1000, null, Collections.<String, Set<String>>emptyMap());
+        SAXParserFactory.newInstance().newSAXParser().parse(new ByteArrayInputStream(content), handler);
+        assertEquals(0, handler.getFailed());
+        assertEquals(ROWS / 10 * 4, handler.getLoaded());
+        assertEquals(0, handler.getBatches());
+    }
+
+    @Test
+    public void failingRows() throws Exception {
+        byte[] content = ("<dataset><Parent id=\"1\" name=\"one\"/><Parent id=\"1\" name=\"duplicate\"/>"
+                + "<Parent id=\"2\" name=\"two\"/></dataset>").getBytes(StandardCharsets.UTF_8);
+
+        ContentLoaderHandler handler = new ContentLoaderHandler(
+                dataSource, ROOT_ELEMENT, 1000, null, parentTables);
+        SAXParserFactory.newInstance().newSAXParser().parse(new ByteArrayInputStream(content), handler);
+
+        assertEquals(2, handler.getLoaded());
+        assertEquals(1, handler.getFailed());
+        assertEquals(2, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM Parent", Integer.class).intValue());
+    }
+}
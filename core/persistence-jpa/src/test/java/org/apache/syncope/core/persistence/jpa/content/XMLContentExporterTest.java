@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.syncope.core.persistence.jpa.content;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.xml.parsers.SAXParserFactory;
+import org.apache.syncope.common.lib.SyncopeConstants;
+import org.apache.syncope.core.persistence.jpa.AbstractTest;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.DefaultHandler;
+
+public class XMLContentExporterTest extends AbstractTest {
+
+    @Autowired
+    private XMLContentExporter exporter;
+
+    private byte[] export(final int fetchSize, final int parallelism) throws Exception {
+        exporter.setFetchSize(fetchSize);
+        exporter.setParallelism(parallelism);
+        try {
+            ByteArrayOutputStream os = new ByteArrayOutputStream();
+            exporter.export(SyncopeConstants.MASTER_DOMAIN, os, null, null);
+            return os.toByteArray();
+        } finally {
+            exporter.setFetchSize(1000);
+            exporter.setParallelism(4);
+        }
+    }
+
+    @Test
+    public void sequentialAndParallel() throws Exception {
+        byte[] sequential = export(10, 1);
+        byte[] parallel = export(10, 4);
+        assertEquals(new String(sequential, SyncopeConstants.DEFAULT_CHARSET),
+                new String(parallel, SyncopeConstants.DEFAULT_CHARSET));
+
+        final AtomicInteger rows = new AtomicInteger();
+        final AtomicInteger schemas = new AtomicInteger();
+        SAXParserFactory.newInstance().newSAXParser().parse(new ByteArrayInputStream(parallel), new DefaultHandler() {
+
+            @Override
+            public void startElement(
+                    final String uri, final String localName, final String qName, final Attributes attributes) {
+
+                if (!"dataset".equals(qName)) {
+                    rows.incrementAndGet();
+                }
+                if ("PLAINSCHEMA".equalsIgnoreCase(qName)) {
+                    schemas.incrementAndGet();
+                }
+            }
+        });
+        assertTrue(rows.get() > 0);
+        // all rows of each table are exported
+        assertTrue(schemas.get() > 1);
+    }
+}
@@ -22,33 +22,46 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.collections4.Predicate;
+import org.apache.syncope.common.lib.SyncopeClientException;
 import org.apache.syncope.common.lib.SyncopeConstants;
+import org.apache.syncope.common.lib.types.ClientExceptionType;
 import org.apache.syncope.common.lib.types.AnyTypeKind;
 import org.apache.syncope.core.persistence.api.dao.AnyObjectDAO;
+import org.apache.syncope.core.persistence.api.dao.DerSchemaDAO;
 import org.apache.syncope.core.persistence.api.dao.GroupDAO;
 import org.apache.syncope.core.persistence.api.dao.AnySearchDAO;
 import org.apache.syncope.core.persistence.api.dao.UserDAO;
 import org.apache.syncope.core.persistence.api.dao.search.AttributeCond;
 import org.apache.syncope.core.persistence.api.dao.search.MembershipCond;
 import org.apache.syncope.core.persistence.api.dao.search.OrderByClause;
+import org.apache.syncope.core.persistence.api.dao.search.ProjectedAny;
 import org.apache.syncope.core.persistence.api.dao.search.ResourceCond;
 import org.apache.syncope.core.persistence.api.dao.search.RoleCond;
 import org.apache.syncope.core.persistence.api.dao.search.SearchCond;
+import org.apache.syncope.core.persistence.api.dao.search.SearchHandler;
+import org.apache.syncope.core.persistence.api.dao.search.SearchPage;
 import org.apache.syncope.core.persistence.api.dao.search.AnyCond;
 import org.apache.syncope.core.persistence.api.dao.search.AnyTypeCond;
 import org.apache.syncope.core.persistence.api.dao.search.RelationshipCond;
+import org.apache.syncope.core.persistence.api.entity.DerSchema;
 import org.apache.syncope.core.persistence.api.entity.anyobject.AnyObject;
 import org.apache.syncope.core.persistence.api.entity.group.Group;
 import org.apache.syncope.core.persistence.api.entity.user.User;
 import org.apache.syncope.core.persistence.jpa.AbstractTest;
+import org.apache.syncope.core.persistence.jpa.dao.AnySearchIndex;
+import org.apache.syncope.core.persistence.jpa.dao.SearchQueryGenerator;
+import org.apache.syncope.core.persistence.jpa.dao.SearchStreamSupport;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.transaction.annotation.Transactional;
@@ -68,6 +81,18 @@ public class AnySearchTest extends AbstractTest {
     @Autowired
     private AnySearchDAO searchDAO;
 
+    @Autowired
+    private DerSchemaDAO derSchemaDAO;
+
+    @Autowired
+    private AnySearchIndex searchIndex;
+
+    @Autowired
+    private SearchQueryGenerator generator;
+
+    @Autowired
+    private SearchStreamSupport streamSupport;
+
     @Test
     public void anyObjectMatch() {
         AnyObject anyObject = anyObjectDAO.find(1L);
@@ -95,6 +120,30 @@ public class AnySearchTest extends AbstractTest {
         assertTrue(searchDAO.matches(user, SearchCond.getLeafCond(roleCond), AnyTypeKind.USER));
     }
 
+    @Test
+    public void matchReusingConditions() {
+        User user = userDAO.find(1L);
+        assertNotNull(user);
+
+        AnyCond keyCond = new AnyCond(AttributeCond.Type.EQ);
+        keyCond.setSchema("key");
+        keyCond.setExpression("1");
+
+        AnyCond realmCond = new AnyCond(AttributeCond.Type.EQ);
+        realmCond.setSchema("realm");
+        realmCond.setExpression(user.getRealm().getKey().toString());
+
+        SearchCond cond = SearchCond.getAndCond(SearchCond.getLeafCond(keyCond), SearchCond.getLeafCond(realmCond));
+
+        // the same condition is evaluated more times, as done for dynamic memberships and paged searches
+        for (int i = 0; i < 3; i++) {
+            assertTrue(searchDAO.matches(user, cond, AnyTypeKind.USER));
+            assertEquals(1, searchDAO.search(SyncopeConstants.FULL_ADMIN_REALMS, cond, AnyTypeKind.USER).size());
+        }
+        assertEquals("key", keyCond.getSchema());
+        assertEquals("realm", realmCond.getSchema());
+    }
+
     @Test
     public void groupMatch() {
         Group group = groupDAO.find(1L);
@@ -107,6 +156,19 @@ public class AnySearchTest extends AbstractTest {
         assertTrue(searchDAO.matches(group, SearchCond.getLeafCond(attrCond), AnyTypeKind.GROUP));
     }
 
+    @Test
+    public void searchWithWildcardsInAdminRealms() {
+        AnyCond idCond = new AnyCond(AttributeCond.Type.ISNOTNULL);
+        idCond.setSchema("id");
+        SearchCond cond = SearchCond.getLeafCond(idCond);
+
+        assertEquals(1, searchDAO.count(Collections.singleton("/even"), cond, AnyTypeKind.USER));
+
+        // wildcards in admin realms are matched literally
+        assertEquals(0, searchDAO.count(Collections.singleton("%"), cond, AnyTypeKind.USER));
+        assertEquals(0, searchDAO.count(Collections.singleton("/even%"), cond, AnyTypeKind.USER));
+    }
+
     @Test
     public void searchWithLikeCondition() {
         AttributeCond fullnameLeafCond = new AttributeCond(AttributeCond.Type.LIKE);
@@ -206,6 +268,454 @@ public class AnySearchTest extends AbstractTest {
         assertTrue(users.isEmpty());
     }
 
+    @Test
+    public void searchByKeyset() {
+        AnyCond idCond = new AnyCond(AttributeCond.Type.ISNOTNULL);
+        idCond.setSchema("id");
+        SearchCond cond = SearchCond.getLeafCond(idCond);
+
+        OrderByClause orderByClause = new OrderByClause();
+        orderByClause.setField("username");
+        orderByClause.setDirection(OrderByClause.Direction.DESC);
+
+        List<User> all = searchDAO.search(SyncopeConstants.FULL_ADMIN_REALMS,
+                cond, Collections.singletonList(orderByClause), AnyTypeKind.USER);
+        assertFalse(all.isEmpty());
+
+        List<User> walked = new ArrayList<>();
+        String after = null;
+        do {
+            SearchPage<User> page = searchDAO.search(SyncopeConstants.FULL_ADMIN_REALMS,
+                    cond, after, 2, Collections.singletonList(orderByClause), AnyTypeKind.USER);
+            assertTrue(page.getItems().size() <= 2);
+            walked.addAll(page.getItems());
+            after = page.getNext();
+        } while (after != null);
+
+        assertEquals(all, walked);
+
+        // the same condition on a relationship field is used for every page
+        AnyCond realmCond = new AnyCond(AttributeCond.Type.EQ);
+        realmCond.setSchema("realm");
+        realmCond.setExpression("1");
+        SearchCond rootCond = SearchCond.getLeafCond(realmCond);
+
+        walked.clear();
+        after = null;
+        do {
+            SearchPage<User> page = searchDAO.search(SyncopeConstants.FULL_ADMIN_REALMS,
+                    rootCond, after, 1, Collections.singletonList(orderByClause), AnyTypeKind.USER);
+            walked.addAll(page.getItems());
+            after = page.getNext();
+        } while (after != null);
+        assertEquals(4, walked.size());
+
+        try {
+            searchDAO.search(SyncopeConstants.FULL_ADMIN_REALMS,
+                    cond, "invalid", 2, Collections.singletonList(orderByClause), AnyTypeKind.USER);
+            fail();
+        } catch (SyncopeClientException e) {
+            assertEquals(ClientExceptionType.InvalidSearchExpression, e.getType());
+        }
+
+        // token built for a different ordering
+        String byKey = searchDAO.<User>search(SyncopeConstants.FULL_ADMIN_REALMS,
+                cond, null, 1, Collections.<OrderByClause>emptyList(), AnyTypeKind.USER).getNext();
+        assertNotNull(byKey);
+        try {
+            searchDAO.search(SyncopeConstants.FULL_ADMIN_REALMS,
+                    cond, byKey, 2, Collections.singletonList(orderByClause), AnyTypeKind.USER);
+            fail();
+        } catch (SyncopeClientException e) {
+            assertEquals(ClientExceptionType.InvalidSearchExpression, e.getType());
+        }
+    }
+
+    @Test
+    public void searchByKeysetWithNulls() {
+        // only one user with non-NULL last login date
+        User user = userDAO.find(2L);
+        user.setLastLoginDate(new Date());
+        userDAO.save(user);
+        userDAO.flush();
+
+        AnyCond idCond = new AnyCond(AttributeCond.Type.ISNOTNULL);
+        idCond.setSchema("id");
+        SearchCond cond = SearchCond.getLeafCond(idCond);
+
+        int count = searchDAO.count(SyncopeConstants.FULL_ADMIN_REALMS, cond, AnyTypeKind.USER);
+
+        for (OrderByClause.Direction direction : OrderByClause.Direction.values()) {
+            OrderByClause orderByClause = new OrderByClause();
+            orderByClause.setField("lastLoginDate");
+            orderByClause.setDirection(direction);
+
+            List<User> walked = new ArrayList<>();
+            String after = null;
+            do {
+                SearchPage<User> page = searchDAO.search(SyncopeConstants.FULL_ADMIN_REALMS,
+                        cond, after, 2, Collections.singletonList(orderByClause), AnyTypeKind.USER);
+                walked.addAll(page.getItems());
+                after = page.getNext();
+            } while (after != null);
+
+            // NULL values come last, whatever the direction
+            assertEquals(count, walked.size());
+            assertEquals(count, new HashSet<>(walked).size());
+            assertEquals(2L, walked.get(0).getKey(), 0);
+        }
+    }
+
+    @Test
+    public void searchAndCount() {
+        AnyCond idCond = new AnyCond(AttributeCond.Type.ISNOTNULL);
+        idCond.setSchema("id");
+        SearchCond cond = SearchCond.getLeafCond(idCond);
+
+        int count = searchDAO.count(SyncopeConstants.FULL_ADMIN_REALMS, cond, AnyTypeKind.USER);
+        assertTrue(count > 2);
+
+        // full page: total count is computed
+        SearchPage<User> page = searchDAO.searchAndCount(SyncopeConstants.FULL_ADMIN_REALMS,
+                cond, 1, 2, Collections.<OrderByClause>emptyList(), AnyTypeKind.USER, -1);
+        assertEquals(2, page.getItems().size());
+        assertEquals(count, page.getTotalCount());
+        assertFalse(page.isTotalCountEstimated());
+
+        // partial page: total count is inferred
+        page = searchDAO.searchAndCount(SyncopeConstants.FULL_ADMIN_REALMS,
+                cond, 1, count + 1, Collections.<OrderByClause>emptyList(), AnyTypeKind.USER, -1);
+        assertEquals(count, page.getItems().size());
+        assertEquals(count, page.getTotalCount());
+
+        // bounded count
+        page = searchDAO.searchAndCount(SyncopeConstants.FULL_ADMIN_REALMS,
+                cond, 1, 1, Collections.<OrderByClause>emptyList(), AnyTypeKind.USER, 2);
+        assertEquals(1, page.getItems().size());
+        assertEquals(2, page.getTotalCount());
+        assertTrue(page.isTotalCountEstimated());
+    }
+
+    @Test
+    public void searchWithCachedQuery() {
+        AttributeCond firstnameCond = new AttributeCond(AttributeCond.Type.EQ);
+        firstnameCond.setSchema("firstname");
+        firstnameCond.setExpression("Gioacchino");
+
+        List<User> users = searchDAO.search(SyncopeConstants.FULL_ADMIN_REALMS,
+                SearchCond.getLeafCond(firstnameCond), AnyTypeKind.USER);
+        assertEquals(1, users.size());
+        assertEquals(1L, users.get(0).getKey(), 0);
+
+        // same shape, different values: the query template is reused
+        long hits = searchDAO.getQueryCacheHits();
+        long misses = searchDAO.getQueryCacheMisses();
+
+        firstnameCond = new AttributeCond(AttributeCond.Type.EQ);
+        firstnameCond.setSchema("firstname");
+        firstnameCond.setExpression("Giuseppe");
+
+        users = searchDAO.search(SyncopeConstants.FULL_ADMIN_REALMS,
+                SearchCond.getLeafCond(firstnameCond), AnyTypeKind.USER);
+        assertEquals(1, users.size());
+        assertEquals(2L, users.get(0).getKey(), 0);
+        assertTrue(searchDAO.getQueryCacheHits() > hits);
+        assertEquals(misses, searchDAO.getQueryCacheMisses());
+
+        // typed values are parsed again for each search
+        AttributeCond loginDateCond = new AttributeCond(AttributeCond.Type.LT);
+        loginDateCond.setSchema("loginDate");
+        loginDateCond.setExpression("2009-06-01");
+
+        users = searchDAO.search(SyncopeConstants.FULL_ADMIN_REALMS,
+                SearchCond.getLeafCond(loginDateCond), AnyTypeKind.USER);
+        assertEquals(1, users.size());
+
+        loginDateCond.setExpression("2009-07-01");
+        users = searchDAO.search(SyncopeConstants.FULL_ADMIN_REALMS,
+                SearchCond.getLeafCond(loginDateCond), AnyTypeKind.USER);
+        assertEquals(2, users.size());
+
+        loginDateCond.setExpression("not a date");
+        users = searchDAO.search(SyncopeConstants.FULL_ADMIN_REALMS,
+                SearchCond.getLeafCond(loginDateCond), AnyTypeKind.USER);
+        assertTrue(users.isEmpty());
+    }
+
+    private Set<Long> searchKeys(final SearchCond cond) {
+        Set<Long> keys = new HashSet<>();
+        for (User user : searchDAO.<User>search(SyncopeConstants.FULL_ADMIN_REALMS, cond, AnyTypeKind.USER)) {
+            keys.add(user.getKey());
+        }
+        return keys;
+    }
+
+    @Test
+    public void compareQueryGenerators() {
+        AttributeCond fullnameCond = new AttributeCond(AttributeCond.Type.LIKE);
+        fullnameCond.setSchema("fullname");
+        fullnameCond.setExpression("%o%");
+
+        MembershipCond groupCond = new MembershipCond();
+        groupCond.setGroupKey(1L);
+
+        AttributeCond loginDateCond = new AttributeCond(AttributeCond.Type.EQ);
+        loginDateCond.setSchema("loginDate");
+        loginDateCond.setExpression("2009-05-26");
+
+        AttributeCond gioacchinoCond = new AttributeCond(AttributeCond.Type.EQ);
+        gioacchinoCond.setSchema("firstname");
+        gioacchinoCond.setExpression("Gioacchino");
+
+        AttributeCond giuseppeCond = new AttributeCond(AttributeCond.Type.EQ);
+        giuseppeCond.setSchema("firstname");
+        giuseppeCond.setExpression("Giuseppe");
+
+        AnyCond usernameCond = new AnyCond(AnyCond.Type.LIKE);
+        usernameCond.setSchema("username");
+        usernameCond.setExpression("%ini");
+
+        ResourceCond ws2 = new ResourceCond();
+        ws2.setResourceName("ws-target-resource-2");
+
+        ResourceCond ws1 = new ResourceCond();
+        ws1.setResourceName("ws-target-resource-list-mappings-2");
+
+        List<SearchCond> conds = new ArrayList<>();
+        conds.add(SearchCond.getAndCond(
+                SearchCond.getAndCond(SearchCond.getLeafCond(fullnameCond), SearchCond.getLeafCond(groupCond)),
+                SearchCond.getLeafCond(loginDateCond)));
+        conds.add(SearchCond.getOrCond(
+                SearchCond.getOrCond(SearchCond.getLeafCond(gioacchinoCond), SearchCond.getLeafCond(giuseppeCond)),
+                SearchCond.getLeafCond(usernameCond)));
+        conds.add(SearchCond.getAndCond(SearchCond.getNotLeafCond(ws2), SearchCond.getLeafCond(ws1)));
+        conds.add(SearchCond.getAndCond(
+                SearchCond.getLeafCond(usernameCond),
+                SearchCond.getOrCond(SearchCond.getLeafCond(gioacchinoCond), SearchCond.getNotLeafCond(groupCond))));
+
+        try {
+            for (SearchCond cond : conds) {
+                generator.setFlat(false);
+                Set<Long> nested = searchKeys(cond);
+
+                generator.setFlat(true);
+                assertEquals(nested, searchKeys(cond));
+            }
+
+            // (A OR B) AND C
+            Set<Long> expected = searchKeys(SearchCond.getLeafCond(usernameCond));
+            expected.addAll(searchKeys(SearchCond.getLeafCond(giuseppeCond)));
+            expected.retainAll(searchKeys(SearchCond.getLeafCond(groupCond)));
+            assertFalse(expected.isEmpty());
+
+            assertEquals(expected, searchKeys(SearchCond.getAndCond(
+                    SearchCond.getOrCond(SearchCond.getLeafCond(usernameCond), SearchCond.getLeafCond(giuseppeCond)),
+                    SearchCond.getLeafCond(groupCond))));
+        } finally {
+            generator.setFlat(true);
+        }
+    }
+
+    @Test
+    public void searchIndex() {
+        searchIndex.setEnabled(true);
+        try {
+            // only saved users get indexed
+            userDAO.save(userDAO.find(1L));
+            userDAO.save(userDAO.find(4L));
+            userDAO.flush();
+
+            AttributeCond fullnameCond = new AttributeCond(AttributeCond.Type.LIKE);
+            fullnameCond.setSchema("fullname");
+            fullnameCond.setExpression("%ini");
+
+            List<User> users = searchDAO.search(SyncopeConstants.FULL_ADMIN_REALMS,
+                    SearchCond.getLeafCond(fullnameCond), AnyTypeKind.USER);
+            assertEquals(2, users.size());
+
+            AttributeCond loginDateCond = new AttributeCond(AttributeCond.Type.LT);
+            loginDateCond.setSchema("loginDate");
+            loginDateCond.setExpression("2009-06-01");
+
+            users = searchDAO.search(SyncopeConstants.FULL_ADMIN_REALMS,
+                    SearchCond.getLeafCond(loginDateCond), AnyTypeKind.USER);
+            assertEquals(1, users.size());
+            assertEquals(1L, users.get(0).getKey(), 0);
+
+            userDAO.delete(4L);
+            userDAO.flush();
+
+            users = searchDAO.search(SyncopeConstants.FULL_ADMIN_REALMS,
+                    SearchCond.getLeafCond(fullnameCond), AnyTypeKind.USER);
+            assertEquals(1, users.size());
+            assertEquals(1L, users.get(0).getKey(), 0);
+        } finally {
+            searchIndex.setEnabled(false);
+        }
+    }
+
+    @Test
+    public void rebuildSearchIndex() {
+        AttributeCond fullnameCond = new AttributeCond(AttributeCond.Type.LIKE);
+        fullnameCond.setSchema("fullname");
+        fullnameCond.setExpression("%ini");
+
+        List<User> users = searchDAO.search(SyncopeConstants.FULL_ADMIN_REALMS,
+                SearchCond.getLeafCond(fullnameCond), AnyTypeKind.USER);
+        assertFalse(users.isEmpty());
+
+        searchIndex.setEnabled(true);
+        try {
+            // no user was saved since enabling the search index
+            assertTrue(searchDAO.search(SyncopeConstants.FULL_ADMIN_REALMS,
+                    SearchCond.getLeafCond(fullnameCond), AnyTypeKind.USER).isEmpty());
+
+            assertEquals(userDAO.count(SyncopeConstants.FULL_ADMIN_REALMS)
+                    + groupDAO.count(SyncopeConstants.FULL_ADMIN_REALMS)
+                    + anyObjectDAO.count(SyncopeConstants.FULL_ADMIN_REALMS),
+                    searchIndex.rebuild(SyncopeConstants.MASTER_DOMAIN));
+
+            assertEquals(new HashSet<>(users), new HashSet<>(searchDAO.search(SyncopeConstants.FULL_ADMIN_REALMS,
+                    SearchCond.getLeafCond(fullnameCond), AnyTypeKind.USER)));
+        } finally {
+            searchIndex.setEnabled(false);
+        }
+    }
+
+    @Test
+    public void searchMaterializedDerAttr() {
+        DerSchema cn = derSchemaDAO.find("cn");
+        cn.setMaterialized(true);
+        derSchemaDAO.save(cn);
+
+        searchIndex.setEnabled(true);
+        try {
+            // only saved users get derived values materialized
+            userDAO.save(userDAO.find(1L));
+            userDAO.save(userDAO.find(3L));
+            userDAO.flush();
+
+            List<User> users = userDAO.findByDerAttrValue("cn", "Vivaldi, Antonio");
+            assertEquals(1, users.size());
+            assertEquals(3L, users.get(0).getKey(), 0);
+
+            AttributeCond cnCond = new AttributeCond(AttributeCond.Type.LIKE);
+            cnCond.setSchema("cn");
+            cnCond.setExpression("%, %");
+
+            users = searchDAO.search(SyncopeConstants.FULL_ADMIN_REALMS,
+                    SearchCond.getLeafCond(cnCond), AnyTypeKind.USER);
+            assertEquals(2, users.size());
+
+            cnCond = new AttributeCond(AttributeCond.Type.ISNULL);
+            cnCond.setSchema("cn");
+
+            users = searchDAO.search(SyncopeConstants.FULL_ADMIN_REALMS,
+                    SearchCond.getLeafCond(cnCond), AnyTypeKind.USER);
+            assertFalse(users.isEmpty());
+            for (User user : users) {
+                assertTrue(user.getKey() != 1L && user.getKey() != 3L);
+            }
+        } finally {
+            searchIndex.setEnabled(false);
+        }
+    }
+
+    @Test
+    public void stream() {
+        AnyCond idCond = new AnyCond(AttributeCond.Type.ISNOTNULL);
+        idCond.setSchema("id");
+        SearchCond cond = SearchCond.getLeafCond(idCond);
+
+        OrderByClause orderByClause = new OrderByClause();
+        orderByClause.setField("username");
+        orderByClause.setDirection(OrderByClause.Direction.DESC);
+
+        List<User> users = searchDAO.search(SyncopeConstants.FULL_ADMIN_REALMS,
+                cond, Collections.singletonList(orderByClause), AnyTypeKind.USER);
+        assertTrue(users.size() > 3);
+
+        int fetchSize = streamSupport.getFetchSize();
+        streamSupport.setFetchSize(2);
+        try {
+            final List<String> usernames = new ArrayList<>();
+            searchDAO.stream(SyncopeConstants.FULL_ADMIN_REALMS, cond, Collections.singletonList(orderByClause),
+                    AnyTypeKind.USER, new SearchHandler<User>() {
+
+                        @Override
+                        public boolean handle(final User user) {
+                            usernames.add(user.getUsername());
+                            return true;
+                        }
+                    });
+            assertEquals(users.size(), usernames.size());
+            for (int i = 0; i < users.size(); i++) {
+                assertEquals(users.get(i).getUsername(), usernames.get(i));
+            }
+
+            // the handler can stop streaming at any time
+            usernames.clear();
+            searchDAO.stream(SyncopeConstants.FULL_ADMIN_REALMS, cond, Collections.<OrderByClause>emptyList(),
+                    AnyTypeKind.USER, new SearchHandler<User>() {
+
+                        @Override
+                        public boolean handle(final User user) {
+                            usernames.add(user.getUsername());
+                            return usernames.size() < 3;
+                        }
+                    });
+            assertEquals(3, usernames.size());
+        } finally {
+            streamSupport.setFetchSize(fetchSize);
+        }
+    }
+
+    @Test
+    public void project() {
+        AnyCond idCond = new AnyCond(AttributeCond.Type.ISNOTNULL);
+        idCond.setSchema("id");
+        SearchCond cond = SearchCond.getLeafCond(idCond);
+
+        OrderByClause orderByClause = new OrderByClause();
+        orderByClause.setField("username");
+        orderByClause.setDirection(OrderByClause.Direction.ASC);
+
+        List<String> schemas = Arrays.asList("firstname", "fullname", "loginDate");
+
+        SearchPage<User> users = searchDAO.searchAndCount(SyncopeConstants.FULL_ADMIN_REALMS,
+                cond, 1, 3, Collections.singletonList(orderByClause), AnyTypeKind.USER, -1);
+        SearchPage<ProjectedAny> projections = searchDAO.project(SyncopeConstants.FULL_ADMIN_REALMS,
+                cond, 1, 3, Collections.singletonList(orderByClause), AnyTypeKind.USER, -1, schemas);
+        assertEquals(users.getTotalCount(), projections.getTotalCount());
+        assertEquals(3, projections.getItems().size());
+
+        for (int i = 0; i < users.getItems().size(); i++) {
+            User user = users.getItems().get(i);
+            ProjectedAny projection = projections.getItems().get(i);
+            assertEquals(user.getKey(), projection.getKey());
+
+            for (String schema : schemas) {
+                if (user.getPlainAttr(schema) == null) {
+                    assertFalse(projection.getPlainAttrs().containsKey(schema));
+                } else {
+                    assertEquals(
+                            new HashSet<>(user.getPlainAttr(schema).getValuesAsStrings()),
+                            new HashSet<>(projection.getPlainAttrs().get(schema)));
+                }
+            }
+        }
+
+        // rossini has two login dates
+        AnyCond usernameCond = new AnyCond(AttributeCond.Type.EQ);
+        usernameCond.setSchema("username");
+        usernameCond.setExpression("rossini");
+        projections = searchDAO.project(SyncopeConstants.FULL_ADMIN_REALMS, SearchCond.getLeafCond(usernameCond),
+                1, 10, Collections.<OrderByClause>emptyList(), AnyTypeKind.USER, -1, schemas);
+        assertEquals(1, projections.getItems().size());
+        assertEquals(Long.valueOf(1L), projections.getItems().get(0).getKey());
+        assertEquals(2, projections.getItems().get(0).getPlainAttrs().get("loginDate").size());
+    }
+
     @Test
     public void searchByGroup() {
         MembershipCond groupCond = new MembershipCond();
@@ -253,6 +763,22 @@ public class AnySearchTest extends AbstractTest {
                 SearchCond.getLeafCond(coolLeafCond), AnyTypeKind.USER);
         assertNotNull(users);
         assertEquals(1, users.size());
+
+        coolLeafCond = new AttributeCond(AttributeCond.Type.ISNULL);
+        coolLeafCond.setSchema("cool");
+
+        List<User> notNull = searchDAO.search(SyncopeConstants.FULL_ADMIN_REALMS,
+                SearchCond.getNotLeafCond(coolLeafCond), AnyTypeKind.USER);
+        assertEquals(users, notNull);
+
+        AttributeCond loginDateCond = new AttributeCond(AttributeCond.Type.ISNULL);
+        loginDateCond.setSchema("loginDate");
+
+        users = searchDAO.search(SyncopeConstants.FULL_ADMIN_REALMS,
+                SearchCond.getAndCond(SearchCond.getLeafCond(coolLeafCond), SearchCond.getLeafCond(loginDateCond)),
+                AnyTypeKind.USER);
+        assertNotNull(users);
+        assertEquals(3, users.size());
     }
 
     @Test
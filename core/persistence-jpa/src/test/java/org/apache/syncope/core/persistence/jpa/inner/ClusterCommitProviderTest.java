@@ -0,0 +1,268 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.syncope.core.persistence.jpa.inner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.apache.openjpa.conf.OpenJPAConfiguration;
+import org.apache.openjpa.event.RemoteCommitEvent;
+import org.apache.openjpa.event.RemoteCommitEventManager;
+import org.apache.openjpa.event.RemoteCommitListener;
+import org.apache.openjpa.persistence.OpenJPAPersistence;
+import org.apache.openjpa.util.LongId;
+import org.apache.openjpa.util.StringId;
+import org.apache.syncope.core.persistence.jpa.AbstractTest;
+import org.apache.syncope.core.persistence.jpa.cluster.TCPClusterCommitProvider;
+import org.apache.syncope.core.persistence.jpa.entity.JPAPlainSchema;
+import org.apache.syncope.core.persistence.jpa.entity.user.JPAUser;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.transaction.annotation.Transactional;
+
+@Transactional("Master")
+public class ClusterCommitProviderTest extends AbstractTest {
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private OpenJPAConfiguration conf;
+
+    private final List<TCPClusterCommitProvider> nodes = new ArrayList<>();
+
+    private final List<RemoteCommitEventManager> eventManagers = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        conf = OpenJPAPersistence.cast(entityManager().getEntityManagerFactory()).getConfiguration();
+    }
+
+    @After
+    public void tearDown() {
+        for (TCPClusterCommitProvider node : nodes) {
+            node.close();
+        }
+        for (RemoteCommitEventManager eventManager : eventManagers) {
+            eventManager.close();
+        }
+    }
+
+    private TCPClusterCommitProvider node(
+            final BlockingQueue<RemoteCommitEvent> received,
+            final int port,
+            final String addresses,
+            final String secret) {
+
+        RemoteCommitEventManager eventManager = new RemoteCommitEventManager(conf);
+        eventManagers.add(eventManager);
+        if (received != null) {
+            eventManager.addListener(new RemoteCommitListener() {
+
+                @Override
+                public void afterCommit(final RemoteCommitEvent event) {
+                    received.add(event);
+                }
+
+                @Override
+                public void close() {
+                    // nothing to do
+                }
+            });
+        }
+
+        TCPClusterCommitProvider node = new TCPClusterCommitProvider();
+        node.setConfiguration(conf);
+        node.setBindAddress("127.0.0.1");
+        node.setPort(port);
+        node.setAddresses(addresses);
+        node.setSecret(secret);
+        node.setWriteTimeout(2000);
+        node.setRemoteCommitEventManager(eventManager);
+        node.endConfiguration();
+        nodes.add(node);
+        return node;
+    }
+
+    @Test
+    public void broadcast() throws Exception {
+        int port1 = freePort();
+        int port2 = freePort();
+
+        BlockingQueue<RemoteCommitEvent> received = new LinkedBlockingQueue<>();
+        TCPClusterCommitProvider node1 = node(null, port1, "127.0.0.1:" + port2, "secret");
+        TCPClusterCommitProvider node2 = node(received, port2, "127.0.0.1:" + port1, "secret");
+
+        LongId updated = new LongId(JPAUser.class, 1L);
+        StringId deleted = new StringId(JPAPlainSchema.class, "fullname");
+        node1.broadcast(new RemoteCommitEvent(RemoteCommitEvent.PAYLOAD_OIDS,
+                Collections.emptyList(), Collections.emptyList(),
+                Collections.singletonList(updated), Collections.singletonList(deleted)));
+
+        RemoteCommitEvent event = received.poll(10, TimeUnit.SECONDS);
+        assertNotNull(event);
+        assertEquals(Collections.singleton(updated), new HashSet<>(event.getUpdatedObjectIds()));
+        assertEquals(Collections.singleton(deleted), new HashSet<>(event.getDeletedObjectIds()));
+
+        assertEquals(1, node1.getSent());
+        assertEquals(0, node1.getFailures());
+        assertEquals(1, node2.getReceived());
+        assertTrue(node2.getMaxLag() >= node2.getAverageLag());
+
+        // events exceeding the maximum payload size are sent as class-level evictions
+        List<Object> oids = new ArrayList<>();
+        for (long i = 0; i < 10; i++) {
+            oids.add(new LongId(JPAUser.class, i));
+        }
+        node1.setMaxPayloadSize(256);
+        node1.broadcast(new RemoteCommitEvent(RemoteCommitEvent.PAYLOAD_OIDS,
+                Collections.emptyList(), Collections.emptyList(), oids, Collections.emptyList()));
+
+        event = received.poll(10, TimeUnit.SECONDS);
+        assertNotNull(event);
+        assertEquals(RemoteCommitEvent.PAYLOAD_EXTENTS, event.getPayloadType());
+        assertEquals(Collections.singleton(JPAUser.class.getName()), new HashSet<>(event.getUpdatedTypeNames()));
+    }
+
+    @Test
+    public void rejectUnknownOrUnsigned() throws Exception {
+        int port1 = freePort();
+        int port2 = freePort();
+        int port3 = freePort();
+
+        // node2 only accepts connections from a host other than loopback
+        BlockingQueue<RemoteCommitEvent> received2 = new LinkedBlockingQueue<>();
+        node(received2, port2, "192.0.2.1:" + port1, "secret");
+        // node3 requires events signed with a different secret
+        BlockingQueue<RemoteCommitEvent> received3 = new LinkedBlockingQueue<>();
+        TCPClusterCommitProvider node3 = node(received3, port3, "127.0.0.1:" + port1, "other");
+
+        TCPClusterCommitProvider node1 = node(
+                null, port1, "127.0.0.1:" + port2 + ";127.0.0.1:" + port3, "secret");
+        node1.broadcast(new RemoteCommitEvent(RemoteCommitEvent.PAYLOAD_OIDS,
+                Collections.emptyList(), Collections.emptyList(),
+                Collections.singletonList(new LongId(JPAUser.class, 1L)), Collections.emptyList()));
+
+        assertNull(received2.poll(2, TimeUnit.SECONDS));
+        assertNull(received3.poll(1, TimeUnit.SECONDS));
+        assertEquals(0, node3.getReceived());
+        assertTrue(node3.getFailures() > 0);
+    }
+
+    @Test
+    public void stalledNode() throws Exception {
+        int port1 = freePort();
+        int port2 = freePort();
+
+        // a node accepting connections but never reading from them
+        try (ServerSocket stalled = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"))) {
+            List<Object> oids = new ArrayList<>();
+            for (long i = 0; i < 50000; i++) {
+                oids.add(new LongId(JPAUser.class, i));
+            }
+
+            BlockingQueue<RemoteCommitEvent> received = new LinkedBlockingQueue<>();
+            TCPClusterCommitProvider node1 = node(
+                    null, port1, "127.0.0.1:" + stalled.getLocalPort() + ";127.0.0.1:" + port2, "secret");
+            node(received, port2, "127.0.0.1:" + port1, "secret");
+
+            // broadcasting is not held by the stalled node...
+            long start = System.currentTimeMillis();
+            for (int i = 0; i < 10; i++) {
+                node1.broadcast(new RemoteCommitEvent(RemoteCommitEvent.PAYLOAD_OIDS,
+                        Collections.emptyList(), Collections.emptyList(), oids, Collections.emptyList()));
+            }
+            assertTrue(System.currentTimeMillis() - start < 5000);
+
+            // ...nor is delivery to other nodes
+            for (int i = 0; i < 10; i++) {
+                RemoteCommitEvent event = received.poll(10, TimeUnit.SECONDS);
+                assertNotNull(event);
+                assertEquals(oids.size(), event.getUpdatedObjectIds().size());
+            }
+
+            // writes to the stalled node time out, and related events are dropped
+            Socket accepted = stalled.accept();
+            long deadline = System.currentTimeMillis() + 30000;
+            while (node1.getFailures() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(100);
+            }
+            assertTrue(node1.getFailures() > 0);
+            accepted.close();
+        }
+    }
+
+    @Test
+    public void evictAllAfterMissedEvents() throws Exception {
+        int port1 = freePort();
+        int port2 = freePort();
+
+        // node2 is not running yet: the event cannot be delivered
+        TCPClusterCommitProvider node1 = node(null, port1, "127.0.0.1:" + port2, "secret");
+        node1.broadcast(new RemoteCommitEvent(RemoteCommitEvent.PAYLOAD_OIDS,
+                Collections.emptyList(), Collections.emptyList(),
+                Collections.singletonList(new LongId(JPAUser.class, 1L)), Collections.emptyList()));
+        long deadline = System.currentTimeMillis() + 10000;
+        while (node1.getFailures() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(100);
+        }
+        assertTrue(node1.getFailures() > 0);
+
+        // once node2 is reachable, it is told to evict all persistent classes, with no further event
+        BlockingQueue<RemoteCommitEvent> received = new LinkedBlockingQueue<>();
+        node(received, port2, "127.0.0.1:" + port1, "secret");
+
+        RemoteCommitEvent event = received.poll(10, TimeUnit.SECONDS);
+        assertNotNull(event);
+        assertEquals(RemoteCommitEvent.PAYLOAD_EXTENTS, event.getPayloadType());
+        assertTrue(event.getUpdatedTypeNames().contains(JPAUser.class.getName()));
+        assertTrue(event.getUpdatedTypeNames().contains(JPAPlainSchema.class.getName()));
+
+        // further events are delivered as usual
+        LongId updated = new LongId(JPAUser.class, 2L);
+        node1.broadcast(new RemoteCommitEvent(RemoteCommitEvent.PAYLOAD_OIDS,
+                Collections.emptyList(), Collections.emptyList(),
+                Collections.singletonList(updated), Collections.emptyList()));
+
+        event = received.poll(10, TimeUnit.SECONDS);
+        assertNotNull(event);
+        assertEquals(Collections.singleton(updated), new HashSet<>(event.getUpdatedObjectIds()));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void secretRequired() throws Exception {
+        node(null, freePort(), "127.0.0.1:" + freePort(), null);
+    }
+}
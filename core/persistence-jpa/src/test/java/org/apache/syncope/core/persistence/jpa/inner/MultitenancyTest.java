@@ -27,7 +27,10 @@ import java.util.ArrayList;
 import java.util.List;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.collections4.Transformer;
+import org.apache.openjpa.jdbc.conf.JDBCConfiguration;
+import org.apache.openjpa.persistence.OpenJPAPersistence;
 import org.apache.syncope.common.lib.SyncopeConstants;
+import org.apache.syncope.common.lib.types.AttrSchemaType;
 import org.apache.syncope.common.lib.types.CipherAlgorithm;
 import org.apache.syncope.common.lib.types.Entitlement;
 import org.apache.syncope.core.misc.security.SyncopeAuthenticationDetails;
@@ -35,8 +38,10 @@ import org.apache.syncope.core.misc.security.SyncopeGrantedAuthority;
 import org.apache.syncope.core.persistence.api.dao.PlainSchemaDAO;
 import org.apache.syncope.core.persistence.api.dao.RealmDAO;
 import org.apache.syncope.core.persistence.api.dao.UserDAO;
+import org.apache.syncope.core.persistence.api.entity.PlainSchema;
 import org.apache.syncope.core.persistence.api.entity.user.User;
 import org.apache.syncope.core.persistence.jpa.AbstractTest;
+import org.apache.syncope.core.persistence.jpa.StatementCountingListener;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
@@ -86,6 +91,29 @@ public class MultitenancyTest extends AbstractTest {
         assertEquals(16, plainSchemaDAO.findAll().size());
     }
 
+    @Test
+    public void batchLimit() {
+        JDBCConfiguration conf = (JDBCConfiguration) OpenJPAPersistence.cast(
+                entityManager().getEntityManagerFactory()).getConfiguration();
+        assertEquals(100, conf.getDBDictionaryInstance().batchLimit);
+    }
+
+    @Test
+    public void batchedFlush() {
+        for (int i = 0; i < 5; i++) {
+            PlainSchema schema = entityFactory.newEntity(PlainSchema.class);
+            schema.setKey("batched" + i);
+            schema.setType(AttrSchemaType.String);
+            plainSchemaDAO.save(schema);
+        }
+
+        StatementCountingListener.reset();
+        plainSchemaDAO.flush();
+
+        // all rows inserted by a single JDBC batch
+        assertEquals(1, StatementCountingListener.getInserts("PlainSchema"));
+    }
+
     @Test
     public void readRealm() {
         assertEquals(1, realmDAO.findAll().size());
@@ -25,7 +25,13 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.util.Collections;
 import java.util.List;
+import org.apache.openjpa.event.RemoteCommitEvent;
+import org.apache.openjpa.event.RemoteCommitEventManager;
+import org.apache.openjpa.persistence.OpenJPAPersistence;
+import org.apache.openjpa.util.LongId;
+import org.apache.openjpa.util.StringId;
 import org.apache.syncope.common.lib.SyncopeConstants;
 import org.apache.syncope.common.lib.types.AttrSchemaType;
 import org.apache.syncope.common.lib.types.EntityViolationType;
@@ -34,6 +40,10 @@ import org.apache.syncope.core.persistence.api.dao.PlainSchemaDAO;
 import org.apache.syncope.core.persistence.api.entity.PlainSchema;
 import org.apache.syncope.core.persistence.api.entity.group.GPlainAttr;
 import org.apache.syncope.core.persistence.jpa.AbstractTest;
+import org.apache.syncope.core.persistence.jpa.dao.MetadataCache;
+import org.apache.syncope.core.persistence.jpa.entity.JPAPlainSchema;
+import org.apache.syncope.core.persistence.jpa.entity.conf.JPAConf;
+import org.apache.syncope.core.persistence.jpa.entity.user.JPAUser;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.transaction.annotation.Transactional;
@@ -44,6 +54,9 @@ public class PlainSchemaTest extends AbstractTest {
     @Autowired
     private PlainSchemaDAO plainSchemaDAO;
 
+    @Autowired
+    private MetadataCache metadataCache;
+
     @Test
     public void findAll() {
         List<PlainSchema> schemas = plainSchemaDAO.findAll();
@@ -137,6 +150,61 @@ public class PlainSchemaTest extends AbstractTest {
         assertNull("delete did not work", actual);
     }
 
+    @Test
+    public void metadataCache() throws InterruptedException {
+        assertNotNull(metadataCache.getPlainSchema(entityManager(), "fullname"));
+        long loads = metadataCache.getLoads();
+        assertNotNull(metadataCache.getPlainSchema(entityManager(), "fullname"));
+        assertEquals(loads, metadataCache.getLoads());
+
+        // invalidation by another thread, not within any transaction, discards the snapshot
+        Thread invalidator = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                metadataCache.invalidate();
+            }
+        });
+        invalidator.start();
+        invalidator.join();
+
+        assertNotNull(metadataCache.getPlainSchema(entityManager(), "fullname"));
+        assertEquals(loads + 1, metadataCache.getLoads());
+
+        // metadata changed on other nodes, notified by instance or by type, discards the snapshot
+        RemoteCommitEventManager eventManager = OpenJPAPersistence.cast(entityManager().getEntityManagerFactory()).
+                getConfiguration().getRemoteCommitEventManager();
+        eventManager.fireEvent(new RemoteCommitEvent(RemoteCommitEvent.PAYLOAD_OIDS, null, null,
+                Collections.singletonList(new StringId(JPAPlainSchema.class, "fullname")), null));
+        assertNotNull(metadataCache.getPlainSchema(entityManager(), "fullname"));
+        assertEquals(loads + 2, metadataCache.getLoads());
+
+        eventManager.fireEvent(new RemoteCommitEvent(RemoteCommitEvent.PAYLOAD_EXTENTS, null, null,
+                Collections.singletonList(JPAConf.class.getName()), null));
+        assertNotNull(metadataCache.getPlainSchema(entityManager(), "fullname"));
+        assertEquals(loads + 3, metadataCache.getLoads());
+
+        // ...while other changes do not
+        eventManager.fireEvent(new RemoteCommitEvent(RemoteCommitEvent.PAYLOAD_OIDS, null, null,
+                Collections.singletonList(new LongId(JPAUser.class, 1L)), null));
+        eventManager.fireEvent(new RemoteCommitEvent(RemoteCommitEvent.PAYLOAD_EXTENTS, null, null,
+                Collections.singletonList(JPAUser.class.getName()), null));
+        assertNotNull(metadataCache.getPlainSchema(entityManager(), "fullname"));
+        assertEquals(loads + 3, metadataCache.getLoads());
+
+        // schemas created or deleted by the current transaction are seen straight away
+        PlainSchema schema = entityFactory.newEntity(PlainSchema.class);
+        schema.setKey("secondaryEmail");
+        schema.setType(AttrSchemaType.String);
+        plainSchemaDAO.save(schema);
+        assertNotNull(metadataCache.getPlainSchema(entityManager(), "secondaryEmail"));
+
+        plainSchemaDAO.delete("secondaryEmail");
+        assertNull(metadataCache.getPlainSchema(entityManager(), "secondaryEmail"));
+
+        assertEquals(loads + 3, metadataCache.getLoads());
+    }
+
     @Test
     public void issueSYNCOPE418() {
         PlainSchema schema = entityFactory.newEntity(PlainSchema.class);
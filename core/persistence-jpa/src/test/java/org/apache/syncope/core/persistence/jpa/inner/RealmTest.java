@@ -25,8 +25,12 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.util.Collections;
 import java.util.List;
+import javax.annotation.Resource;
 import org.apache.commons.collections4.CollectionUtils;
+import org.apache.openjpa.event.RemoteCommitEvent;
+import org.apache.openjpa.persistence.OpenJPAPersistence;
 import org.apache.syncope.common.lib.SyncopeConstants;
 import org.apache.syncope.common.lib.types.EntityViolationType;
 import org.apache.syncope.core.persistence.api.attrvalue.validation.InvalidEntityException;
@@ -37,9 +41,16 @@ import org.apache.syncope.core.persistence.api.entity.policy.AccountPolicy;
 import org.apache.syncope.core.persistence.api.entity.policy.PasswordPolicy;
 import org.apache.syncope.core.persistence.api.entity.Realm;
 import org.apache.syncope.core.persistence.jpa.AbstractTest;
+import org.apache.syncope.core.persistence.jpa.entity.JPARealm;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Transactional("Master")
 public class RealmTest extends AbstractTest {
@@ -50,6 +61,9 @@ public class RealmTest extends AbstractTest {
     @Autowired
     private PolicyDAO policyDAO;
 
+    @Resource(name = "MasterTransactionManager")
+    private PlatformTransactionManager transactionManager;
+
     @Test
     public void getRoot() {
         assertNotNull(realmDAO.getRoot());
@@ -98,6 +112,18 @@ public class RealmTest extends AbstractTest {
                 isEmpty());
     }
 
+    @Test
+    public void findAncestors() {
+        List<Realm> ancestors = realmDAO.findAncestors(realmDAO.find("/even/two"));
+        assertEquals(3, ancestors.size());
+        assertEquals("/even/two", ancestors.get(0).getFullPath());
+        assertEquals("/even", ancestors.get(1).getFullPath());
+        assertEquals(realmDAO.getRoot(), ancestors.get(2));
+
+        ancestors = realmDAO.findAncestors(realmDAO.getRoot());
+        assertEquals(1, ancestors.size());
+    }
+
     @Test
     public void findAll() {
         List<Realm> list = realmDAO.findAll();
@@ -132,6 +158,23 @@ public class RealmTest extends AbstractTest {
         assertEquals(4L, actual.getPasswordPolicy().getKey(), 0);
     }
 
+    @Test
+    public void move() {
+        Realm realm = realmDAO.find("/even");
+        realm.setName("renamed");
+        realm.setParent(realmDAO.find("/odd"));
+
+        Realm actual = realmDAO.save(realm);
+        realmDAO.flush();
+        assertEquals("/odd/renamed", actual.getFullPath());
+
+        assertNull(realmDAO.find("/even/two"));
+        Realm child = realmDAO.find("/odd/renamed/two");
+        assertNotNull(child);
+        assertEquals(4L, child.getKey(), 0);
+        assertEquals(3, realmDAO.findDescendants(realmDAO.find("/odd")).size());
+    }
+
     @Test
     public void saveInvalidName() {
         Realm realm = entityFactory.newEntity(Realm.class);
@@ -175,4 +218,117 @@ public class RealmTest extends AbstractTest {
         realmDAO.delete(key);
         assertNull(realmDAO.find(key));
     }
+
+    private Realm find(final TransactionTemplate txTemplate, final String fullPath) {
+        return txTemplate.execute(new TransactionCallback<Realm>() {
+
+            @Override
+            public Realm doInTransaction(final TransactionStatus status) {
+                return realmDAO.find(fullPath);
+            }
+        });
+    }
+
+    private void remoteChange(final TransactionTemplate txTemplate) {
+        txTemplate.execute(new TransactionCallbackWithoutResult() {
+
+            @Override
+            protected void doInTransactionWithoutResult(final TransactionStatus status) {
+                OpenJPAPersistence.cast(entityManager().getEntityManagerFactory()).getConfiguration().
+                        getRemoteCommitEventManager().fireEvent(new RemoteCommitEvent(
+                                RemoteCommitEvent.PAYLOAD_EXTENTS, null, null,
+                                Collections.singletonList(JPARealm.class.getName()), null));
+            }
+        });
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void treeIndex() {
+        final TransactionTemplate txTemplate = new TransactionTemplate(transactionManager);
+
+        // 0. tree lookups, building the snapshot
+        assertNull(find(txTemplate, "/even/new"));
+
+        // 1. realm saved: found by path, among descendants and children, with ancestors
+        final Long key = txTemplate.execute(new TransactionCallback<Long>() {
+
+            @Override
+            public Long doInTransaction(final TransactionStatus status) {
+                Realm realm = entityFactory.newEntity(Realm.class);
+                realm.setName("new");
+                realm.setParent(realmDAO.find("/even"));
+                return realmDAO.save(realm).getKey();
+            }
+        });
+        txTemplate.execute(new TransactionCallbackWithoutResult() {
+
+            @Override
+            protected void doInTransactionWithoutResult(final TransactionStatus status) {
+                Realm realm = realmDAO.find("/even/new");
+                assertNotNull(realm);
+                assertEquals(key, realm.getKey());
+
+                Realm even = realmDAO.find("/even");
+                assertTrue(realmDAO.findDescendants(even).contains(realm));
+                assertTrue(realmDAO.findDescendants(realmDAO.getRoot()).contains(realm));
+                assertFalse(realmDAO.findDescendants(realmDAO.find("/odd")).contains(realm));
+                assertTrue(realmDAO.findChildren(even).contains(realm));
+
+                List<Realm> ancestors = realmDAO.findAncestors(realm);
+                assertEquals(3, ancestors.size());
+                assertEquals(realm, ancestors.get(0));
+                assertEquals(even, ancestors.get(1));
+                assertEquals(realmDAO.getRoot(), ancestors.get(2));
+            }
+        });
+
+        // 2. realm deleted: not found any more
+        txTemplate.execute(new TransactionCallbackWithoutResult() {
+
+            @Override
+            protected void doInTransactionWithoutResult(final TransactionStatus status) {
+                realmDAO.delete(key);
+            }
+        });
+        txTemplate.execute(new TransactionCallbackWithoutResult() {
+
+            @Override
+            protected void doInTransactionWithoutResult(final TransactionStatus status) {
+                assertNull(realmDAO.find("/even/new"));
+                assertEquals(2, realmDAO.findDescendants(realmDAO.find("/even")).size());
+                assertEquals(1, realmDAO.findChildren(realmDAO.find("/even")).size());
+            }
+        });
+
+        // 3. realm added by another node: found once notified
+        txTemplate.execute(new TransactionCallbackWithoutResult() {
+
+            @Override
+            protected void doInTransactionWithoutResult(final TransactionStatus status) {
+                entityManager().createNativeQuery("INSERT INTO " + JPARealm.TABLE
+                        + " (id, name, fullPath, parent_id) VALUES (1000, 'remote', '/odd/remote', 2)").
+                        executeUpdate();
+            }
+        });
+        try {
+            assertNull(find(txTemplate, "/odd/remote"));
+
+            remoteChange(txTemplate);
+            Realm remote = find(txTemplate, "/odd/remote");
+            assertNotNull(remote);
+            assertEquals(1000L, remote.getKey(), 0);
+        } finally {
+            txTemplate.execute(new TransactionCallbackWithoutResult() {
+
+                @Override
+                protected void doInTransactionWithoutResult(final TransactionStatus status) {
+                    entityManager().createNativeQuery("DELETE FROM " + JPARealm.TABLE + " WHERE id=1000").
+                            executeUpdate();
+                }
+            });
+            remoteChange(txTemplate);
+        }
+        assertNull(find(txTemplate, "/odd/remote"));
+    }
 }
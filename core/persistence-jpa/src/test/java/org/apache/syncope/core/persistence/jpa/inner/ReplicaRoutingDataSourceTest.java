@@ -0,0 +1,229 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.syncope.core.persistence.jpa.inner;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.apache.syncope.core.persistence.jpa.spring.ReplicaRoutingDataSource;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public class ReplicaRoutingDataSourceTest {
+
+    private BasicDataSource primary;
+
+    private ReplicaRoutingDataSource dataSource;
+
+    private static void init(final Connection conn, final String name) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS Node (name VARCHAR(20))");
+            stmt.execute("DELETE FROM Node");
+            stmt.execute("INSERT INTO Node VALUES ('" + name + "')");
+        }
+    }
+
+    private String node() throws SQLException {
+        try (Connection conn = dataSource.getConnection();
+                Statement stmt = conn.createStatement();
+                ResultSet rs = stmt.executeQuery("SELECT name FROM Node")) {
+
+            rs.next();
+            return rs.getString(1);
+        }
+    }
+
+    private static void beginTransaction(final boolean readOnly) {
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(readOnly);
+    }
+
+    private static void endTransaction() {
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    private void write(final String username) throws SQLException {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(username, null));
+        beginTransaction(false);
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            init(conn, "primary");
+            conn.commit();
+        } finally {
+            endTransaction();
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    private String readOnlyNode(final String username) throws SQLException {
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(username, null));
+        beginTransaction(true);
+        try {
+            return node();
+        } finally {
+            endTransaction();
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    @Before
+    public void setUp() throws SQLException {
+        primary = new BasicDataSource();
+        primary.setDriverClassName("org.h2.Driver");
+        primary.setUrl("jdbc:h2:mem:primaryTest;DB_CLOSE_DELAY=-1");
+        primary.setUsername("sa");
+        try (Connection conn = primary.getConnection()) {
+            init(conn, "primary");
+        }
+
+        BasicDataSource replica = new BasicDataSource();
+        replica.setDriverClassName("org.h2.Driver");
+        replica.setUrl("jdbc:h2:mem:replicaTest;DB_CLOSE_DELAY=-1");
+        replica.setUsername("sa");
+        try (Connection conn = replica.getConnection()) {
+            init(conn, "replica");
+        }
+        replica.close();
+
+        dataSource = new ReplicaRoutingDataSource();
+        dataSource.setPrimary(primary);
+        dataSource.setReplicaDriverClassName("org.h2.Driver");
+        dataSource.setReplicaUrl("jdbc:h2:mem:replicaTest;DB_CLOSE_DELAY=-1");
+        dataSource.setReplicaUsername("sa");
+        dataSource.setReadYourWritesMillis(60000);
+        dataSource.afterPropertiesSet();
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        endTransaction();
+        dataSource.destroy();
+        primary.close();
+    }
+
+    @Test
+    public void routing() throws SQLException {
+        assertTrue(dataSource.isReplicaEnabled());
+
+        // no transaction
+        assertEquals("primary", node());
+
+        // read-only transaction, no previous writes
+        beginTransaction(true);
+        assertEquals("replica", node());
+        endTransaction();
+    }
+
+    @Test
+    public void readYourWrites() throws SQLException {
+        // read-write transaction
+        beginTransaction(false);
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            init(conn, "primary");
+            conn.commit();
+        }
+        endTransaction();
+
+        // read-only transaction right after writing
+        beginTransaction(true);
+        assertEquals("primary", node());
+        endTransaction();
+
+        dataSource.setReadYourWritesMillis(0);
+        beginTransaction(true);
+        assertEquals("replica", node());
+        endTransaction();
+    }
+
+    @Test
+    public void noReplica() throws SQLException {
+        ReplicaRoutingDataSource noReplica = new ReplicaRoutingDataSource();
+        noReplica.setPrimary(primary);
+        noReplica.afterPropertiesSet();
+        assertFalse(noReplica.isReplicaEnabled());
+
+        dataSource = noReplica;
+        beginTransaction(true);
+        assertEquals("primary", node());
+        endTransaction();
+    }
+
+    @Test
+    public void readYourWritesOnSameThread() throws Exception {
+        // a job running as admin, then reading on the same thread as another user
+        write("admin");
+        assertEquals("primary", readOnlyNode("rossini"));
+
+        // another principal on another thread is not covered until the interval expires
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            assertEquals("replica", executor.submit(new Callable<String>() {
+
+                @Override
+                public String call() throws Exception {
+                    return readOnlyNode("rossini");
+                }
+            }).get());
+            assertEquals("primary", executor.submit(new Callable<String>() {
+
+                @Override
+                public String call() throws Exception {
+                    return readOnlyNode("admin");
+                }
+            }).get());
+        } finally {
+            executor.shutdown();
+        }
+
+        dataSource.setReadYourWritesMillis(0);
+        assertEquals("replica", readOnlyNode("rossini"));
+    }
+
+    @Test
+    public void expiredWritesEvicted() throws SQLException {
+        @SuppressWarnings("unchecked")
+        Map<String, Long> lastWrites = (Map<String, Long>) ReflectionTestUtils.getField(dataSource, "lastWrites");
+
+        write("rossini");
+        write("vivaldi");
+        assertEquals(2, lastWrites.size());
+
+        // writes of users never reading afterwards are dropped once expired
+        dataSource.setReadYourWritesMillis(0);
+        write("verdi");
+        assertTrue(lastWrites.isEmpty());
+    }
+}
@@ -20,6 +20,7 @@ package org.apache.syncope.core.persistence.jpa.inner;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.util.Date;
@@ -28,6 +29,7 @@ import org.apache.syncope.common.lib.types.PropagationTaskExecStatus;
 import org.apache.syncope.common.lib.types.TaskType;
 import org.apache.syncope.core.persistence.api.dao.TaskDAO;
 import org.apache.syncope.core.persistence.api.dao.TaskExecDAO;
+import org.apache.syncope.core.persistence.api.dao.search.SearchPage;
 import org.apache.syncope.core.persistence.api.entity.task.PropagationTask;
 import org.apache.syncope.core.persistence.api.entity.task.TaskExec;
 import org.apache.syncope.core.persistence.jpa.AbstractTest;
@@ -69,6 +71,42 @@ public class TaskExecTest extends AbstractTest {
         assertEquals(Long.valueOf(1L), latestStarted.getKey());
     }
 
+    @Test
+    public void countAndPage() {
+        PropagationTask task = taskDAO.find(1L);
+        assertNotNull(task);
+        assertEquals(1, taskExecDAO.count(task));
+
+        for (int i = 0; i < 3; i++) {
+            TaskExec exec = entityFactory.newEntity(TaskExec.class);
+            exec.setStartDate(new Date());
+            exec.setEndDate(new Date());
+            exec.setStatus(PropagationTaskExecStatus.FAILURE.name());
+            exec.setTask(task);
+            taskExecDAO.save(exec);
+        }
+        taskExecDAO.flush();
+
+        assertEquals(4, taskExecDAO.count(task));
+        assertEquals(1, taskExecDAO.count(task, PropagationTaskExecStatus.SUCCESS.name()));
+        assertEquals(3, taskExecDAO.count(task, PropagationTaskExecStatus.FAILURE.name()));
+        assertEquals(0, taskExecDAO.count(task, null));
+
+        List<TaskExec> paged = taskExecDAO.findAll(task, 2, 3);
+        assertEquals(1, paged.size());
+        assertEquals(Long.valueOf(1L), paged.get(0).getKey());
+
+        SearchPage<TaskExec> page = taskExecDAO.findAll(task, null, 3);
+        assertEquals(3, page.getItems().size());
+        assertNotNull(page.getNext());
+        assertTrue(page.getItems().get(0).getKey() > page.getItems().get(1).getKey());
+
+        page = taskExecDAO.findAll(task, page.getNext(), 3);
+        assertEquals(1, page.getItems().size());
+        assertEquals(Long.valueOf(1L), page.getItems().get(0).getKey());
+        assertNull(page.getNext());
+    }
+
     @Test
     public void issueSYNCOPE214() {
         PropagationTask task = taskDAO.find(1L);
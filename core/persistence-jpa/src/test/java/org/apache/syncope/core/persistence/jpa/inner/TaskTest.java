@@ -24,11 +24,24 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
 import java.util.Collections;
+import java.util.Date;
+import java.util.EnumMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.time.DateUtils;
 import org.apache.syncope.common.lib.types.AnyTypeKind;
+import org.apache.syncope.common.lib.types.PropagationTaskExecStatus;
 import org.apache.syncope.common.lib.types.ResourceOperation;
 import org.apache.syncope.common.lib.types.TaskType;
 import org.apache.syncope.core.persistence.api.dao.ExternalResourceDAO;
@@ -37,9 +50,13 @@ import org.apache.syncope.core.persistence.api.dao.UserDAO;
 import org.apache.syncope.core.persistence.api.dao.search.OrderByClause;
 import org.apache.syncope.core.persistence.api.entity.resource.ExternalResource;
 import org.apache.syncope.core.persistence.api.entity.task.PropagationTask;
+import org.apache.syncope.core.persistence.api.entity.task.SyncTask;
 import org.apache.syncope.core.persistence.api.entity.task.Task;
+import org.apache.syncope.core.persistence.api.entity.task.TaskExec;
 import org.apache.syncope.core.persistence.api.entity.user.User;
 import org.apache.syncope.core.persistence.jpa.AbstractTest;
+import org.apache.syncope.core.persistence.jpa.dao.JPATaskRetention;
+import org.apache.syncope.core.persistence.jpa.dao.TaskRetentionPolicy;
 import org.identityconnectors.framework.common.objects.Attribute;
 import org.identityconnectors.framework.common.objects.AttributeBuilder;
 import org.junit.Test;
@@ -58,6 +75,9 @@ public class TaskTest extends AbstractTest {
     @Autowired
     private UserDAO userDAO;
 
+    @Autowired
+    private JPATaskRetention taskRetention;
+
     @Test
     public void findWithoutExecs() {
         List<PropagationTask> tasks = taskDAO.findToExec(TaskType.PROPAGATION);
@@ -146,4 +166,80 @@ public class TaskTest extends AbstractTest {
                 TaskType.PROPAGATION, resource, null, null, -1, -1, Collections.<OrderByClause>emptyList()).
                 contains(task));
     }
+
+    private TaskExec newExec(final Task task, final String status, final Date endDate) {
+        TaskExec exec = entityFactory.newEntity(TaskExec.class);
+        exec.setStartDate(endDate);
+        exec.setEndDate(endDate);
+        exec.setStatus(status);
+        exec.setTask(task);
+        task.addExec(exec);
+        return exec;
+    }
+
+    private PropagationTask newPropagationTask(final String status, final Date endDate) {
+        PropagationTask task = entityFactory.newEntity(PropagationTask.class);
+        task.setResource(resourceDAO.find("ws-target-resource-1"));
+        task.setAnyTypeKind(AnyTypeKind.USER);
+        task.setOperation(ResourceOperation.CREATE);
+        task.setConnObjectKey("one@two.com");
+        task.setAttributes(Collections.singleton(AttributeBuilder.build("testAttribute", "testValue")));
+        newExec(task, status, endDate);
+        return taskDAO.save(task);
+    }
+
+    @Test
+    public void retention() throws IOException {
+        Date old = DateUtils.addDays(new Date(), -10);
+        Long succeeded = newPropagationTask(PropagationTaskExecStatus.SUCCESS.name(), old).getKey();
+        Long failed = newPropagationTask(PropagationTaskExecStatus.FAILURE.name(), old).getKey();
+        Long recent = newPropagationTask(PropagationTaskExecStatus.SUCCESS.name(), new Date()).getKey();
+
+        // executions are kept by start date: the most recent one is created first
+        SyncTask syncTask = taskDAO.find(4L);
+        Date newest = DateUtils.addDays(new Date(), -1);
+        for (int i = 0; i < 3; i++) {
+            newExec(syncTask, "SUCCESS", DateUtils.addDays(newest, -i));
+            syncTask = taskDAO.save(syncTask);
+            taskDAO.flush();
+        }
+
+        TaskRetentionPolicy propagation = new TaskRetentionPolicy();
+        propagation.setMaxAge(5);
+        propagation.setKeepFailures(true);
+        TaskRetentionPolicy sync = new TaskRetentionPolicy();
+        sync.setMaxExecs(1);
+        Map<TaskType, TaskRetentionPolicy> policies = new EnumMap<>(TaskType.class);
+        policies.put(TaskType.PROPAGATION, propagation);
+        policies.put(TaskType.SYNCHRONIZATION, sync);
+
+        File archiveDir = Files.createTempDirectory("retention").toFile();
+        Map<TaskType, TaskRetentionPolicy> configured = taskRetention.getPolicies();
+        taskRetention.setPolicies(policies);
+        taskRetention.setArchiveDirectory(archiveDir.getAbsolutePath());
+        try {
+            assertEquals(3, taskRetention.purge());
+
+            File[] archives = archiveDir.listFiles();
+            assertEquals(2, archives.length);
+            for (File archive : archives) {
+                try (InputStream in = new GZIPInputStream(new FileInputStream(archive))) {
+                    assertTrue(IOUtils.toString(in).contains("<TaskExec "));
+                }
+            }
+        } finally {
+            taskRetention.setPolicies(configured);
+            taskRetention.setArchiveDirectory(null);
+            FileUtils.deleteQuietly(archiveDir);
+        }
+        taskDAO.clear();
+
+        assertNull(taskDAO.find(succeeded));
+        assertNotNull(taskDAO.find(failed));
+        assertNotNull(taskDAO.find(recent));
+        assertEquals(1, taskDAO.find(4L).getExecs().size());
+        assertEquals(newest, taskDAO.find(4L).getExecs().get(0).getStartDate());
+        // executions without end date are never considered old
+        assertNotNull(taskDAO.find(1L));
+    }
 }
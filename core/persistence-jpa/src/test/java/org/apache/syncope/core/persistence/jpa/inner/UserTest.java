@@ -19,12 +19,17 @@
 package org.apache.syncope.core.persistence.jpa.inner;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 import org.apache.syncope.common.lib.SyncopeConstants;
 import org.apache.syncope.common.lib.types.CipherAlgorithm;
 import org.apache.syncope.core.persistence.api.attrvalue.validation.InvalidEntityException;
@@ -83,6 +88,15 @@ public class UserTest extends AbstractTest {
         assertEquals("did not get expected number of users", 1, list.size());
     }
 
+    @Test
+    public void findByKeys() {
+        List<User> list = userDAO.findByKeys(Arrays.asList(3L, 1L, 3L, 100L, 2L));
+        assertEquals(3, list.size());
+        assertEquals(Long.valueOf(3L), list.get(0).getKey());
+        assertEquals(Long.valueOf(1L), list.get(1).getKey());
+        assertEquals(Long.valueOf(2L), list.get(2).getKey());
+    }
+
     @Test
     public void findByDerAttributeValue() {
         final List<User> list = userDAO.findByDerAttrValue("cn", "Vivaldi, Antonio");
@@ -117,6 +131,40 @@ public class UserTest extends AbstractTest {
         assertEquals("did not get expected number of users", 1, list.size());
     }
 
+    @Test
+    public void findByAttributeValues() {
+        Map<String, List<Long>> keys = userDAO.findByAttrValues("fullname",
+                Arrays.asList("Gioacchino Rossini", "Giuseppe Verdi", "Giuseppe Verdi", "Nobody"));
+        assertEquals(2, keys.size());
+        assertEquals(Collections.singletonList(1L), keys.get("Gioacchino Rossini"));
+        assertEquals(Collections.singletonList(2L), keys.get("Giuseppe Verdi"));
+        assertFalse(keys.containsKey("Nobody"));
+
+        UPlainAttrValue coolValue = entityFactory.newEntity(UPlainAttrValue.class);
+        coolValue.setBooleanValue(true);
+
+        keys = userDAO.findByAttrValues("cool", Collections.singletonList("true"));
+        assertEquals(1, keys.size());
+        assertEquals(userDAO.findByAttrValue("cool", coolValue).get(0).getKey(), keys.get("true").get(0));
+    }
+
+    @Test
+    public void findByAttributeValuesAsStrings() {
+        // values not matching the schema type are compared as strings
+        entityManager().createNativeQuery(
+                "UPDATE UPlainAttrValue SET stringValue='yesterday' WHERE id=28").executeUpdate();
+
+        Map<String, List<Long>> keys = userDAO.findByAttrValues("loginDate",
+                Arrays.asList("2009-05-26", "yesterday", "tomorrow"));
+        assertEquals(2, keys.size());
+        assertEquals(Collections.singletonList(1L), keys.get("2009-05-26"));
+        assertEquals(Collections.singletonList(4L), keys.get("yesterday"));
+        assertFalse(keys.containsKey("tomorrow"));
+
+        // unknown schema: values are compared as strings, hence nothing is found
+        assertTrue(userDAO.findByAttrValues("nonexisting", Arrays.asList("Gioacchino Rossini")).isEmpty());
+    }
+
     @Test
     public void findById() {
         User user = userDAO.find(1L);
@@ -26,8 +26,11 @@ import static org.junit.Assert.assertTrue;
 
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import javax.annotation.Resource;
 import javax.persistence.TypedQuery;
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.collections4.Transformer;
@@ -52,11 +55,19 @@ import org.apache.syncope.core.persistence.api.entity.user.UDynGroupMembership;
 import org.apache.syncope.core.persistence.api.entity.user.UPlainAttr;
 import org.apache.syncope.core.persistence.api.entity.user.User;
 import org.apache.syncope.core.persistence.jpa.AbstractTest;
+import org.apache.syncope.core.persistence.jpa.dao.DynMembershipEngine;
 import org.apache.syncope.core.persistence.jpa.entity.anyobject.JPAADynGroupMembership;
 import org.apache.syncope.core.persistence.jpa.entity.user.JPAUDynGroupMembership;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Transactional("Master")
 public class GroupTest extends AbstractTest {
@@ -88,6 +99,15 @@ public class GroupTest extends AbstractTest {
     @Autowired
     private AnyTypeClassDAO anyTypeClassDAO;
 
+    @Autowired
+    private DynMembershipEngine dynMembershipEngine;
+
+    @Resource(name = "dynMembershipExecutor")
+    private TaskExecutor dynMembershipExecutor;
+
+    @Resource(name = "MasterTransactionManager")
+    private PlatformTransactionManager transactionManager;
+
     @Test(expected = InvalidEntityException.class)
     public void saveWithTwoOwners() {
         Group root = groupDAO.find("root");
@@ -228,6 +248,179 @@ public class GroupTest extends AbstractTest {
         assertTrue(dynGroupMemberships.isEmpty());
     }
 
+    @Test
+    public void udynMembershipOnUserSave() {
+        // 0. create group with dynamic membership: user 4 matches
+        Group group = entityFactory.newEntity(Group.class);
+        group.setRealm(realmDAO.getRoot());
+        group.setName("new");
+
+        UDynGroupMembership dynMembership = entityFactory.newEntity(UDynGroupMembership.class);
+        dynMembership.setFIQLCond("cool==true");
+        dynMembership.setGroup(group);
+
+        group.setUDynMembership(dynMembership);
+
+        group = groupDAO.save(group);
+        groupDAO.flush();
+
+        // 1. change the attribute value of user 4: removed from dynamic membership
+        User user = userDAO.find(4L);
+        assertTrue(findDynGroupMemberships(user).contains(group));
+
+        user.getPlainAttr("cool").getValues().get(0).setBooleanValue(false);
+        userDAO.save(user);
+        userDAO.flush();
+
+        assertTrue(findDynGroupMemberships(userDAO.find(4L)).isEmpty());
+
+        // 2. change it back: added again
+        user = userDAO.find(4L);
+        user.getPlainAttr("cool").getValues().get(0).setBooleanValue(true);
+        userDAO.save(user);
+        userDAO.flush();
+
+        assertTrue(findDynGroupMemberships(userDAO.find(4L)).contains(group));
+
+        // 3. changes to unrelated attributes leave dynamic membership untouched
+        user = userDAO.find(4L);
+        user.setUsername("bellini2");
+        userDAO.save(user);
+        userDAO.flush();
+
+        assertEquals(1, groupDAO.find(group.getKey()).getUDynMembership().getMembers().size());
+
+        // 4. add the attribute to another user: added to dynamic membership
+        user = userDAO.find(1L);
+
+        UPlainAttr attr = entityFactory.newEntity(UPlainAttr.class);
+        attr.setOwner(user);
+        attr.setSchema(plainSchemaDAO.find("cool"));
+        attr.add("true", anyUtilsFactory.getInstance(AnyTypeKind.USER));
+        user.add(attr);
+
+        userDAO.save(user);
+        userDAO.flush();
+
+        assertTrue(findDynGroupMemberships(userDAO.find(1L)).contains(group));
+        assertEquals(2, groupDAO.find(group.getKey()).getUDynMembership().getMembers().size());
+    }
+
+    @Test
+    public void udynMembershipConditionChange() {
+        // 0. create group with dynamic membership: user 4 matches
+        Group group = entityFactory.newEntity(Group.class);
+        group.setRealm(realmDAO.getRoot());
+        group.setName("new");
+
+        UDynGroupMembership dynMembership = entityFactory.newEntity(UDynGroupMembership.class);
+        dynMembership.setFIQLCond("cool==true");
+        dynMembership.setGroup(group);
+
+        group.setUDynMembership(dynMembership);
+
+        group = groupDAO.save(group);
+        groupDAO.flush();
+
+        assertEquals(1, group.getUDynMembership().getMembers().size());
+        assertEquals(4L, group.getUDynMembership().getMembers().get(0).getKey(), 0);
+        assertEquals(Collections.singletonList(group), userDAO.findDynGroupMemberships(userDAO.find(4L)));
+
+        // 1. change condition: user 4 removed, users 1 and 3 added
+        group.getUDynMembership().setFIQLCond("username==rossini,username==vivaldi");
+        group = groupDAO.save(group);
+        groupDAO.flush();
+
+        assertEquals(new HashSet<>(Arrays.asList(1L, 3L)),
+                CollectionUtils.collect(group.getUDynMembership().getMembers(), new Transformer<User, Long>() {
+
+                    @Override
+                    public Long transform(final User input) {
+                        return input.getKey();
+                    }
+                }, new HashSet<Long>()));
+        assertTrue(findDynGroupMemberships(userDAO.find(4L)).isEmpty());
+        assertTrue(userDAO.findDynGroupMemberships(userDAO.find(4L)).isEmpty());
+        assertEquals(Collections.singletonList(group), userDAO.findDynGroupMemberships(userDAO.find(1L)));
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void udynMembershipInBackground() throws InterruptedException {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        long chunkSize = dynMembershipEngine.getChunkSize();
+        // users 1, 3 and 4 match: more than chunk size, hence recomputed in background
+        dynMembershipEngine.setChunkSize(2);
+
+        // hold the executor until the progress of the pending recomputation is checked
+        final CountDownLatch latch = new CountDownLatch(1);
+        dynMembershipExecutor.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+
+        final Long groupKey;
+        try {
+            groupKey = transactionTemplate.execute(new TransactionCallback<Long>() {
+
+                @Override
+                public Long doInTransaction(final TransactionStatus status) {
+                    Group group = entityFactory.newEntity(Group.class);
+                    group.setRealm(realmDAO.getRoot());
+                    group.setName("background");
+
+                    UDynGroupMembership dynMembership = entityFactory.newEntity(UDynGroupMembership.class);
+                    dynMembership.setFIQLCond("cool==true,username==rossini,username==vivaldi");
+                    dynMembership.setGroup(group);
+
+                    group.setUDynMembership(dynMembership);
+
+                    group = groupDAO.save(group);
+                    assertTrue(group.getUDynMembership().getMembers().isEmpty());
+                    return group.getKey();
+                }
+            });
+            assertEquals(1, dynMembershipEngine.getProgress().size());
+            assertEquals(0, dynMembershipEngine.getProgress().values().iterator().next(), 0);
+        } finally {
+            latch.countDown();
+            dynMembershipEngine.setChunkSize(chunkSize);
+        }
+
+        // background chunks keep the chunk size set when they were scheduled
+        for (int i = 0; i < 100 && !dynMembershipEngine.getProgress().isEmpty(); i++) {
+            Thread.sleep(100);
+        }
+        assertTrue(dynMembershipEngine.getProgress().isEmpty());
+
+        transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+
+            @Override
+            protected void doInTransactionWithoutResult(final TransactionStatus status) {
+                Group group = groupDAO.find(groupKey);
+                assertEquals(new HashSet<>(Arrays.asList(1L, 3L, 4L)),
+                        CollectionUtils.collect(group.getUDynMembership().getMembers(),
+                                new Transformer<User, Long>() {
+
+                            @Override
+                            public Long transform(final User input) {
+                                return input.getKey();
+                            }
+                        }, new HashSet<Long>()));
+                assertEquals(Collections.singletonList(group), userDAO.findDynGroupMemberships(userDAO.find(3L)));
+
+                groupDAO.delete(group);
+            }
+        });
+    }
+
     /**
      * Static copy of {@link org.apache.syncope.core.persistence.jpa.dao.JPAAnyObjectDAO} method with same signature:
      * required for avoiding creating of a new transaction - good for general use case but bad for the way how
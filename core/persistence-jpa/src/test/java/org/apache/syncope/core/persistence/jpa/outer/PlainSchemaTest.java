@@ -24,21 +24,40 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import javax.annotation.Resource;
+import org.apache.syncope.common.lib.types.AnyTypeKind;
+import org.apache.syncope.common.lib.types.AttrSchemaType;
+import org.apache.syncope.core.persistence.api.dao.AnyTypeClassDAO;
 import org.apache.syncope.core.persistence.api.dao.AnyTypeDAO;
 import org.apache.syncope.core.persistence.api.dao.ExternalResourceDAO;
 import org.apache.syncope.core.persistence.api.dao.PlainAttrDAO;
 import org.apache.syncope.core.persistence.api.dao.PlainSchemaDAO;
 import org.apache.syncope.core.persistence.api.dao.UserDAO;
+import org.apache.syncope.core.persistence.api.entity.AnyTypeClass;
+import org.apache.syncope.core.persistence.api.entity.AnyUtilsFactory;
 import org.apache.syncope.core.persistence.api.entity.PlainSchema;
 import org.apache.syncope.core.persistence.api.entity.resource.ExternalResource;
 import org.apache.syncope.core.persistence.api.entity.resource.MappingItem;
 import org.apache.syncope.core.persistence.api.entity.user.UPlainAttr;
+import org.apache.syncope.core.persistence.api.entity.user.User;
 import org.apache.syncope.core.persistence.jpa.AbstractTest;
+import org.apache.syncope.core.persistence.jpa.dao.PlainSchemaCleanup;
+import org.apache.syncope.core.persistence.jpa.entity.JPAPlainSchema;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Transactional("Master")
 public class PlainSchemaTest extends AbstractTest {
@@ -46,6 +65,12 @@ public class PlainSchemaTest extends AbstractTest {
     @Autowired
     private AnyTypeDAO anyTypeDAO;
 
+    @Autowired
+    private AnyTypeClassDAO anyTypeClassDAO;
+
+    @Autowired
+    private AnyUtilsFactory anyUtilsFactory;
+
     @Autowired
     private UserDAO userDAO;
 
@@ -55,9 +80,18 @@ public class PlainSchemaTest extends AbstractTest {
     @Autowired
     private PlainAttrDAO plainAttrDAO;
 
+    @Autowired
+    private PlainSchemaCleanup cleanup;
+
+    @Resource(name = "plainSchemaCleanupExecutor")
+    private TaskExecutor cleanupExecutor;
+
     @Autowired
     private ExternalResourceDAO resourceDAO;
 
+    @Resource(name = "MasterTransactionManager")
+    private PlatformTransactionManager transactionManager;
+
     @Test
     public void deleteFullname() {
         // fullname is mapped as ConnObjectKey for ws-target-resource-2, need to swap it otherwise validation errors 
@@ -167,4 +201,169 @@ public class PlainSchemaTest extends AbstractTest {
         assertEquals(5, resourceDAO.find("resource-db-sync").
                 getProvision(anyTypeDAO.findUser()).getMapping().getItems().size());
     }
+
+    @Test
+    public void deleteInBatches() {
+        PlainSchema schema = plainSchemaDAO.find("userId");
+        assertNotNull(schema);
+
+        Map<Long, Long> attrs = new HashMap<>();
+        for (UPlainAttr attr : plainSchemaDAO.findAttrs(schema, UPlainAttr.class)) {
+            attrs.put(attr.getKey(), attr.getOwner().getKey());
+        }
+        assertEquals(5, attrs.size());
+
+        // attributes are removed by several set-based statements, all within the current transaction
+        int batchSize = cleanup.getBatchSize();
+        cleanup.setBatchSize(2);
+        cleanup.setExecutor(null);
+        try {
+            plainSchemaDAO.delete("userId");
+            plainSchemaDAO.flush();
+        } finally {
+            cleanup.setBatchSize(batchSize);
+            cleanup.setExecutor(cleanupExecutor);
+        }
+
+        assertNull(plainSchemaDAO.find("userId"));
+
+        plainSchemaDAO.clear();
+
+        for (Map.Entry<Long, Long> entry : attrs.entrySet()) {
+            assertNull(plainAttrDAO.find(entry.getKey(), UPlainAttr.class));
+            assertNull(userDAO.find(entry.getValue()).getPlainAttr("userId"));
+        }
+    }
+
+    private void createWithAttrs(final String key, final long... userKeys) {
+        AnyTypeClass other = anyTypeClassDAO.find("other");
+
+        PlainSchema schema = entityFactory.newEntity(PlainSchema.class);
+        schema.setKey(key);
+        schema.setType(AttrSchemaType.String);
+        schema = plainSchemaDAO.save(schema);
+
+        other.add(schema);
+        schema.setAnyTypeClass(other);
+
+        for (long userKey : userKeys) {
+            User user = userDAO.find(userKey);
+
+            UPlainAttr attr = entityFactory.newEntity(UPlainAttr.class);
+            attr.setOwner(user);
+            attr.setSchema(schema);
+            attr.add(key + userKey, anyUtilsFactory.getInstance(AnyTypeKind.USER));
+            user.add(attr);
+
+            userDAO.save(user);
+        }
+    }
+
+    private void awaitCleanup() throws InterruptedException {
+        for (int i = 0; i < 100 && !cleanup.getProgress().isEmpty(); i++) {
+            Thread.sleep(100);
+        }
+        assertTrue(cleanup.getProgress().isEmpty());
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void deleteInBackground() throws InterruptedException {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+
+            @Override
+            protected void doInTransactionWithoutResult(final TransactionStatus status) {
+                createWithAttrs("cleanupAsync", 1L, 2L, 3L);
+            }
+        });
+
+        // users 1, 2 and 3 own attributes: more than batch size, hence removed in background
+        int batchSize = cleanup.getBatchSize();
+        cleanup.setBatchSize(2);
+
+        // hold the executor until the pending deletion is checked
+        final CountDownLatch latch = new CountDownLatch(1);
+        cleanupExecutor.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+
+        try {
+            transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+
+                @Override
+                protected void doInTransactionWithoutResult(final TransactionStatus status) {
+                    plainSchemaDAO.delete("cleanupAsync");
+                }
+            });
+
+            transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+
+                @Override
+                protected void doInTransactionWithoutResult(final TransactionStatus status) {
+                    PlainSchema schema = plainSchemaDAO.find("cleanupAsync");
+                    assertNotNull(schema);
+                    assertTrue(((JPAPlainSchema) schema).isPendingDeletion());
+                    assertNull(schema.getAnyTypeClass());
+                    assertFalse(plainSchemaDAO.findAll().contains(schema));
+                    assertEquals("0%", plainSchemaDAO.findPendingDeletions().get("cleanupAsync"));
+                    assertEquals(3, plainSchemaDAO.findAttrs(schema, UPlainAttr.class).size());
+                }
+            });
+        } finally {
+            latch.countDown();
+        }
+
+        try {
+            awaitCleanup();
+
+            // removal of schemas left pending, e.g. by shutdown, is resumed at startup
+            transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+
+                @Override
+                protected void doInTransactionWithoutResult(final TransactionStatus status) {
+                    assertNull(plainSchemaDAO.find("cleanupAsync"));
+                    assertNull(userDAO.find(1L).getPlainAttr("cleanupAsync"));
+                    assertNull(userDAO.find(3L).getPlainAttr("cleanupAsync"));
+                    assertTrue(plainSchemaDAO.findPendingDeletions().isEmpty());
+
+                    createWithAttrs("cleanupResumed", 4L);
+                    plainSchemaDAO.flush();
+                    ((JPAPlainSchema) plainSchemaDAO.find("cleanupResumed")).setPendingDeletion(true);
+                }
+            });
+            transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+
+                @Override
+                protected void doInTransactionWithoutResult(final TransactionStatus status) {
+                    assertEquals("pending", plainSchemaDAO.findPendingDeletions().get("cleanupResumed"));
+                }
+            });
+
+            cleanup.load();
+            // loaders run at startup, with no authentication context to be restored
+            SecurityContextHolder.clearContext();
+            awaitCleanup();
+        } finally {
+            cleanup.setBatchSize(batchSize);
+        }
+
+        transactionTemplate.execute(new TransactionCallbackWithoutResult() {
+
+            @Override
+            protected void doInTransactionWithoutResult(final TransactionStatus status) {
+                assertNull(plainSchemaDAO.find("cleanupResumed"));
+                assertNull(userDAO.find(4L).getPlainAttr("cleanupResumed"));
+                assertTrue(plainSchemaDAO.findPendingDeletions().isEmpty());
+            }
+        });
+    }
 }
@@ -24,20 +24,32 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import org.apache.syncope.core.persistence.api.dao.AnyObjectDAO;
+import org.apache.syncope.core.persistence.api.dao.ExternalResourceDAO;
 import org.apache.syncope.core.persistence.api.dao.PlainAttrDAO;
 import org.apache.syncope.core.persistence.api.dao.PlainAttrValueDAO;
 import org.apache.syncope.core.persistence.api.dao.PlainSchemaDAO;
+import org.apache.syncope.core.persistence.api.dao.RealmDAO;
 import org.apache.syncope.core.persistence.api.dao.GroupDAO;
 import org.apache.syncope.core.persistence.api.dao.RelationshipTypeDAO;
 import org.apache.syncope.core.persistence.api.dao.UserDAO;
+import org.apache.syncope.core.persistence.api.entity.Role;
+import org.apache.syncope.core.persistence.api.entity.group.Group;
+import org.apache.syncope.core.persistence.api.entity.resource.ExternalResource;
+import org.apache.syncope.core.persistence.api.entity.user.UDynGroupMembership;
 import org.apache.syncope.core.persistence.api.entity.user.UMembership;
 import org.apache.syncope.core.persistence.api.entity.user.UPlainAttr;
 import org.apache.syncope.core.persistence.api.entity.user.UPlainAttrValue;
 import org.apache.syncope.core.persistence.api.entity.user.URelationship;
 import org.apache.syncope.core.persistence.api.entity.user.User;
 import org.apache.syncope.core.persistence.jpa.AbstractTest;
+import org.apache.syncope.core.persistence.jpa.dao.UserMembershipCache;
 import org.junit.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.transaction.annotation.Transactional;
@@ -66,6 +78,15 @@ public class UserTest extends AbstractTest {
     @Autowired
     private PlainAttrValueDAO plainAttrValueDAO;
 
+    @Autowired
+    private RealmDAO realmDAO;
+
+    @Autowired
+    private ExternalResourceDAO resourceDAO;
+
+    @Autowired
+    private UserMembershipCache membershipCache;
+
     @Test
     public void delete() {
         List<UMembership> memberships = groupDAO.findUMemberships(groupDAO.find(7L));
@@ -128,4 +149,103 @@ public class UserTest extends AbstractTest {
         assertEquals(1, user.getRelationships().size());
         assertEquals(2L, user.getRelationships().get(0).getRightEnd().getKey(), 0);
     }
+
+    private Set<Group> groups(final User user) {
+        Set<Group> groups = new HashSet<>();
+        for (UMembership membership : user.getMemberships()) {
+            groups.add(membership.getRightEnd());
+        }
+        groups.addAll(userDAO.findDynGroupMemberships(user));
+        return groups;
+    }
+
+    private Set<ExternalResource> resources(final User user) {
+        Set<ExternalResource> resources = new HashSet<>(user.getResources());
+        for (Group group : groups(user)) {
+            resources.addAll(group.getResources());
+        }
+        return resources;
+    }
+
+    private Set<String> resourceNames(final User user) {
+        return new HashSet<>(userDAO.findAllResourceNames(user));
+    }
+
+    @Test
+    public void effectiveMemberships() {
+        // 0. effective sets read by the joined queries match the ones computed from the entities, as read from the
+        // database rather than as possibly cached by other tests which flushed and then rolled back
+        entityManager().getEntityManagerFactory().getCache().evictAll();
+        for (long key = 1; key <= 5; key++) {
+            User user = userDAO.find(key);
+
+            Set<Role> roles = new HashSet<>(user.getRoles());
+            roles.addAll(userDAO.findDynRoleMemberships(user));
+            assertEquals(roles, new HashSet<>(userDAO.findAllRoles(user)));
+
+            assertEquals(groups(user), new HashSet<>(userDAO.findAllGroups(user)));
+            assertEquals(resources(user), new HashSet<>(userDAO.findAllResources(user)));
+        }
+
+        User user = userDAO.find(1L);
+        assertEquals(new HashSet<>(Arrays.asList(1L, 8L)), new HashSet<>(userDAO.findAllGroupKeys(user)));
+        assertEquals(new HashSet<>(Arrays.asList("resource-testdb2", "ws-target-resource-2")), resourceNames(user));
+
+        // 1. snapshot is read once within the transaction
+        long hits = membershipCache.getHits();
+        long misses = membershipCache.getMisses();
+        userDAO.findAllGroups(user);
+        userDAO.findAllRoles(user);
+        userDAO.findAllResources(user);
+        assertEquals(hits + 3, membershipCache.getHits());
+        assertEquals(misses, membershipCache.getMisses());
+
+        // 2. resources from dynamic group memberships
+        Group group = entityFactory.newEntity(Group.class);
+        group.setRealm(realmDAO.getRoot());
+        group.setName("dynWithResource");
+        group.add(resourceDAO.find("resource-csv"));
+
+        UDynGroupMembership dynMembership = entityFactory.newEntity(UDynGroupMembership.class);
+        dynMembership.setFIQLCond("username==rossini");
+        dynMembership.setGroup(group);
+        group.setUDynMembership(dynMembership);
+
+        group = groupDAO.save(group);
+        groupDAO.flush();
+
+        user = userDAO.find(1L);
+        assertTrue(userDAO.findAllGroups(user).contains(group));
+        assertTrue(resourceNames(user).contains("resource-csv"));
+        assertEquals(resources(user), new HashSet<>(userDAO.findAllResources(user)));
+
+        // 3. deleting a resource discards all snapshots
+        resourceDAO.delete("resource-csv");
+        entityManager().flush();
+
+        assertEquals(new HashSet<>(Arrays.asList("resource-testdb2", "ws-target-resource-2")), resourceNames(user));
+
+        // 4. in-memory changes, either not saved or flushed, are reflected
+        user.add(resourceDAO.find("ws-target-resource-1"));
+        user.remove(user.getMembership(8L));
+
+        Collection<Long> groupKeys = userDAO.findAllGroupKeys(user);
+        assertTrue(groupKeys.contains(1L));
+        assertFalse(groupKeys.contains(8L));
+        assertEquals(new HashSet<>(Arrays.asList("resource-testdb2", "ws-target-resource-1")), resourceNames(user));
+
+        entityManager().flush();
+
+        assertFalse(userDAO.findAllGroupKeys(user).contains(8L));
+        assertEquals(new HashSet<>(Arrays.asList("resource-testdb2", "ws-target-resource-1")), resourceNames(user));
+
+        // 5. new users
+        User newUser = entityFactory.newEntity(User.class);
+        newUser.setUsername("effective");
+        newUser.setRealm(realmDAO.getRoot());
+        newUser.add(resourceDAO.find("ws-target-resource-1"));
+
+        assertEquals(Collections.singleton("ws-target-resource-1"), resourceNames(newUser));
+        assertTrue(userDAO.findAllGroups(newUser).isEmpty());
+    }
 }
@@ -18,6 +18,7 @@
  */
 package org.apache.syncope.core.provisioning.api.sync;
 
+import java.util.List;
 import org.apache.syncope.core.persistence.api.entity.task.SyncTask;
 import org.identityconnectors.framework.common.objects.SyncDelta;
 import org.identityconnectors.framework.common.objects.SyncResultsHandler;
@@ -26,4 +27,12 @@ public interface SyncopeSyncResultHandler extends SyncopeResultHandler<SyncTask,
 
     @Override
     boolean handle(SyncDelta delta);
+
+    /**
+     * Looks up at once the any objects matching the given deltas, which are expected to be handled next and in the
+     * same order; matches not used by then are discarded by the next invocation.
+     *
+     * @param deltas deltas about to be handled
+     */
+    void prefetch(List<SyncDelta> deltas);
 }
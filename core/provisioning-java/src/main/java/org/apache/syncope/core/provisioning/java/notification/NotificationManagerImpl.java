@@ -40,6 +40,7 @@ import org.apache.syncope.core.persistence.api.dao.ConfDAO;
 import org.apache.syncope.core.persistence.api.dao.NotificationDAO;
 import org.apache.syncope.core.persistence.api.dao.GroupDAO;
 import org.apache.syncope.core.persistence.api.dao.TaskDAO;
+import org.apache.syncope.core.persistence.api.dao.TaskExecDAO;
 import org.apache.syncope.core.persistence.api.dao.UserDAO;
 import org.apache.syncope.core.persistence.api.dao.search.OrderByClause;
 import org.apache.syncope.core.persistence.api.entity.EntityFactory;
@@ -129,6 +130,9 @@ public class NotificationManagerImpl implements NotificationManager {
     @Autowired
     private TaskDAO taskDAO;
 
+    @Autowired
+    private TaskExecDAO taskExecDAO;
+
     /**
      * Velocity template engine.
      */
@@ -390,17 +394,7 @@ public class NotificationManagerImpl implements NotificationManager {
     @Override
     public long countExecutionsWithStatus(final Long taskKey, final String status) {
         NotificationTask task = taskDAO.find(taskKey);
-        long count = 0;
-        for (TaskExec taskExec : task.getExecs()) {
-            if (status == null) {
-                if (taskExec.getStatus() == null) {
-                    count++;
-                }
-            } else if (status.equals(taskExec.getStatus())) {
-                count++;
-            }
-        }
-        return count;
+        return taskExecDAO.count(task, status);
     }
 
     protected Map<String, String> findAllSyncopeConfs() {
@@ -20,7 +20,11 @@ package org.apache.syncope.core.provisioning.java.sync;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.apache.syncope.common.lib.patch.AnyPatch;
 import org.apache.syncope.common.lib.patch.StringPatchItem;
@@ -57,6 +61,14 @@ public abstract class AbstractSyncResultHandler extends AbstractSyncopeResultHan
     @Autowired
     protected SyncUtils syncUtilities;
 
+    /**
+     * Keys of the any objects matching the deltas about to be handled, by uid, as looked up by
+     * {@link #prefetch(java.util.List)}.
+     */
+    private final Map<String, List<Long>> prefetched = new HashMap<>();
+
+    private Provision prefetchedProvision;
+
     protected abstract String getName(AnyTO anyTO);
 
     protected abstract ProvisioningManager<?, ?> getProvisioningManager();
@@ -110,6 +122,40 @@ public abstract class AbstractSyncResultHandler extends AbstractSyncopeResultHan
         getProvisioningManager().delete(key);
     }
 
+    private String getUid(final SyncDelta delta) {
+        return delta.getPreviousUid() == null
+                ? delta.getUid().getUidValue()
+                : delta.getPreviousUid().getUidValue();
+    }
+
+    @Override
+    public void prefetch(final List<SyncDelta> deltas) {
+        prefetched.clear();
+        prefetchedProvision = null;
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        // deltas are delivered by object class, hence all for the same provision
+        Provision provision = profile.getTask().getResource().getProvision(deltas.get(0).getObject().getObjectClass());
+        if (provision == null) {
+            return;
+        }
+
+        Set<String> uids = new LinkedHashSet<>();
+        for (SyncDelta delta : deltas) {
+            if (provision.equals(profile.getTask().getResource().getProvision(delta.getObject().getObjectClass()))) {
+                uids.add(getUid(delta));
+            }
+        }
+
+        Map<String, List<Long>> found = syncUtilities.findExisting(uids, provision);
+        if (found != null) {
+            prefetched.putAll(found);
+            prefetchedProvision = provision;
+        }
+    }
+
     @Override
     public boolean handle(final SyncDelta delta) {
         Provision provision = null;
@@ -650,12 +696,17 @@ public abstract class AbstractSyncResultHandler extends AbstractSyncopeResultHan
         LOG.debug("Process {} for {} as {}",
                 delta.getDeltaType(), delta.getUid().getUidValue(), delta.getObject().getObjectClass());
 
-        String uid = delta.getPreviousUid() == null
-                ? delta.getUid().getUidValue()
-                : delta.getPreviousUid().getUidValue();
+        String uid = getUid(delta);
+
+        // prefetched matches are used once, and not at all for the new uid of this delta, as handling it may
+        // change the any objects matching such uids
+        List<Long> anyKeys = provision.equals(prefetchedProvision) ? prefetched.remove(uid) : null;
+        prefetched.remove(delta.getUid().getUidValue());
 
         try {
-            List<Long> anyKeys = syncUtilities.findExisting(uid, delta.getObject(), provision, anyUtils);
+            if (anyKeys == null) {
+                anyKeys = syncUtilities.findExisting(uid, delta.getObject(), provision, anyUtils);
+            }
 
             if (anyKeys.size() > 1) {
                 switch (profile.getResAct()) {
@@ -32,6 +32,8 @@ import org.apache.syncope.core.persistence.api.dao.AnySearchDAO;
 import org.apache.syncope.core.persistence.api.dao.GroupDAO;
 import org.apache.syncope.core.persistence.api.dao.UserDAO;
 import org.apache.syncope.core.persistence.api.dao.search.OrderByClause;
+import org.apache.syncope.core.persistence.api.dao.search.SearchCond;
+import org.apache.syncope.core.persistence.api.dao.search.SearchPage;
 import org.apache.syncope.core.persistence.api.entity.Any;
 import org.apache.syncope.core.persistence.api.entity.resource.Provision;
 import org.apache.syncope.core.persistence.api.entity.task.PushTask;
@@ -143,15 +145,21 @@ public class PushJobDelegate extends AbstractProvisioningJobDelegate<PushTask> {
                         ? null
                         : pushTask.getFilter(provision.getAnyType()).get();
 
-                int count = anyDAO.count(SyncopeConstants.FULL_ADMIN_REALMS);
-                for (int page = 1; page <= (count / PAGE_SIZE) + 1; page++) {
-                    List<? extends Any<?, ?, ?>> localAnys = StringUtils.isBlank(filter)
-                            ? anyDAO.findAll(SyncopeConstants.FULL_ADMIN_REALMS, page, PAGE_SIZE)
-                            : searchDAO.search(SyncopeConstants.FULL_ADMIN_REALMS,
-                                    SearchCondConverter.convert(filter),
-                                    Collections.<OrderByClause>emptyList(), provision.getAnyType().getKind());
+                String after = null;
+                do {
+                    SearchPage<? extends Any<?, ?, ?>> localAnys;
+                    if (StringUtils.isBlank(filter)) {
+                        localAnys = anyDAO.findAll(SyncopeConstants.FULL_ADMIN_REALMS, after, PAGE_SIZE);
+                    } else {
+                        // conditions are converted again for each page, as they are not meant to be re-used
+                        SearchCond cond = SearchCondConverter.convert(filter);
+                        localAnys = searchDAO.<Any<?, ?, ?>>search(SyncopeConstants.FULL_ADMIN_REALMS,
+                                cond, after, PAGE_SIZE, Collections.<OrderByClause>emptyList(),
+                                provision.getAnyType().getKind());
+                    }
+                    after = localAnys.getNext();
 
-                    for (Any<?, ?, ?> any : localAnys) {
+                    for (Any<?, ?, ?> any : localAnys.getItems()) {
                         SyncopePushResultHandler handler;
                         switch (provision.getAnyType().getKind()) {
                             case USER:
@@ -175,7 +183,7 @@ public class PushJobDelegate extends AbstractProvisioningJobDelegate<PushTask> {
                                     "While pushing " + any + " on " + pushTask.getResource(), e);
                         }
                     }
-                }
+                } while (after != null);
             }
         }
 
@@ -36,7 +36,9 @@ import org.apache.syncope.core.provisioning.api.sync.AnyObjectSyncResultHandler;
 import org.apache.syncope.core.provisioning.api.sync.GroupSyncResultHandler;
 import org.apache.syncope.core.provisioning.api.sync.ProvisioningProfile;
 import org.apache.syncope.core.provisioning.api.sync.SyncActions;
+import org.apache.syncope.core.provisioning.api.sync.SyncopeSyncResultHandler;
 import org.apache.syncope.core.provisioning.api.sync.UserSyncResultHandler;
+import org.identityconnectors.framework.common.objects.SyncDelta;
 import org.identityconnectors.framework.common.objects.SyncResultsHandler;
 import org.identityconnectors.framework.common.objects.SyncToken;
 import org.quartz.JobExecutionException;
@@ -45,6 +47,46 @@ import org.springframework.beans.factory.support.AbstractBeanDefinition;
 
 public class SyncJobDelegate extends AbstractProvisioningJobDelegate<SyncTask> {
 
+    /**
+     * Number of deltas whose matching any objects are looked up at once.
+     */
+    private static final int CORRELATION_PAGE_SIZE = 100;
+
+    /**
+     * Collects deltas as delivered by the connector, so that the matching any objects of each page are looked up at
+     * once, before each delta is handled on its own as usual.
+     */
+    private static class PagedSyncResultsHandler implements SyncResultsHandler {
+
+        private final SyncopeSyncResultHandler handler;
+
+        private final List<SyncDelta> page = new ArrayList<>(CORRELATION_PAGE_SIZE);
+
+        PagedSyncResultsHandler(final SyncopeSyncResultHandler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public boolean handle(final SyncDelta delta) {
+            page.add(delta);
+            return page.size() < CORRELATION_PAGE_SIZE || flush();
+        }
+
+        public boolean flush() {
+            try {
+                handler.prefetch(page);
+                for (SyncDelta delta : page) {
+                    if (!handler.handle(delta)) {
+                        return false;
+                    }
+                }
+                return true;
+            } finally {
+                page.clear();
+            }
+        }
+    }
+
     @Autowired
     private UserDAO userDAO;
 
@@ -142,7 +184,7 @@ public class SyncJobDelegate extends AbstractProvisioningJobDelegate<SyncTask> {
 
         for (Provision provision : syncTask.getResource().getProvisions()) {
             if (provision.getMapping() != null) {
-                SyncResultsHandler handler;
+                SyncopeSyncResultHandler handler;
                 switch (provision.getAnyType().getKind()) {
                     case USER:
                         handler = uhandler;
@@ -163,13 +205,15 @@ public class SyncJobDelegate extends AbstractProvisioningJobDelegate<SyncTask> {
                         latestSyncToken = connector.getLatestSyncToken(provision.getObjectClass());
                     }
 
+                    PagedSyncResultsHandler pagedHandler = new PagedSyncResultsHandler(handler);
                     if (syncTask.isFullReconciliation()) {
-                        connector.getAllObjects(provision.getObjectClass(), handler,
+                        connector.getAllObjects(provision.getObjectClass(), pagedHandler,
                                 connector.getOperationOptions(provision.getMapping().getItems()));
                     } else {
-                        connector.sync(provision.getObjectClass(), provision.getSyncToken(), handler,
+                        connector.sync(provision.getObjectClass(), provision.getSyncToken(), pagedHandler,
                                 connector.getOperationOptions(provision.getMapping().getItems()));
                     }
+                    pagedHandler.flush();
 
                     if (!dryRun && !syncTask.isFullReconciliation()) {
                         try {
@@ -19,19 +19,20 @@
 package org.apache.syncope.core.provisioning.java.sync;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.syncope.common.lib.SyncopeConstants;
 import org.apache.syncope.common.lib.types.AnyTypeKind;
 import org.apache.syncope.common.lib.policy.SyncPolicySpec;
 import org.apache.syncope.core.misc.MappingUtils;
 import org.apache.syncope.core.misc.serialization.POJOHelper;
-import org.apache.syncope.core.persistence.api.attrvalue.validation.ParsingValidationException;
 import org.apache.syncope.core.persistence.api.dao.AnyDAO;
 import org.apache.syncope.core.persistence.api.dao.AnyObjectDAO;
 import org.apache.syncope.core.persistence.api.dao.AnySearchDAO;
-import org.apache.syncope.core.persistence.api.dao.PlainSchemaDAO;
 import org.apache.syncope.core.persistence.api.dao.GroupDAO;
 import org.apache.syncope.core.persistence.api.dao.UserDAO;
 import org.apache.syncope.core.persistence.api.dao.search.OrderByClause;
@@ -39,8 +40,6 @@ import org.apache.syncope.core.persistence.api.entity.Any;
 import org.apache.syncope.core.persistence.api.entity.AnyType;
 import org.apache.syncope.core.persistence.api.entity.AnyUtils;
 import org.apache.syncope.core.persistence.api.entity.AnyUtilsFactory;
-import org.apache.syncope.core.persistence.api.entity.PlainAttrValue;
-import org.apache.syncope.core.persistence.api.entity.PlainSchema;
 import org.apache.syncope.core.persistence.api.entity.group.Group;
 import org.apache.syncope.core.persistence.api.entity.resource.ExternalResource;
 import org.apache.syncope.core.persistence.api.entity.resource.MappingItem;
@@ -69,12 +68,6 @@ public class SyncUtils {
 
     private static final Logger LOG = LoggerFactory.getLogger(SyncUtils.class);
 
-    /**
-     * Schema DAO.
-     */
-    @Autowired
-    private PlainSchemaDAO plainSchemaDAO;
-
     /**
      * Any Object DAO.
      */
@@ -166,75 +159,78 @@ public class SyncUtils {
                         : groupDAO;
     }
 
-    private List<Long> findByConnObjectKeyItem(
-            final String uid, final Provision provision, final AnyUtils anyUtils) {
+    private Map<String, List<Long>> findByConnObjectKeyItem(
+            final Collection<String> uids, final Provision provision) {
 
-        List<Long> result = new ArrayList<>();
+        Map<String, List<Long>> result = new LinkedHashMap<>();
 
         MappingItem connObjectKeyItem = MappingUtils.getConnObjectKeyItem(provision);
 
-        String transfUid = uid;
-        for (MappingItemTransformer transformer : MappingUtils.getMappingItemTransformers(connObjectKeyItem)) {
-            List<Object> output = transformer.beforeSync(Collections.<Object>singletonList(transfUid));
-            if (output != null && !output.isEmpty()) {
-                transfUid = output.get(0).toString();
+        Map<String, String> transfUids = new LinkedHashMap<>();
+        for (String uid : uids) {
+            String transfUid = uid;
+            for (MappingItemTransformer transformer : MappingUtils.getMappingItemTransformers(connObjectKeyItem)) {
+                List<Object> output = transformer.beforeSync(Collections.<Object>singletonList(transfUid));
+                if (output != null && !output.isEmpty()) {
+                    transfUid = output.get(0).toString();
+                }
             }
+            transfUids.put(uid, transfUid);
+            result.put(uid, new ArrayList<Long>());
         }
 
         switch (connObjectKeyItem.getIntMappingType()) {
             case UserPlainSchema:
             case GroupPlainSchema:
             case AnyObjectPlainSchema:
-                PlainAttrValue value = anyUtils.newPlainAttrValue();
-
-                PlainSchema schema = plainSchemaDAO.find(connObjectKeyItem.getIntAttrName());
-                if (schema == null) {
-                    value.setStringValue(transfUid);
-                } else {
-                    try {
-                        value.parseValue(schema, transfUid);
-                    } catch (ParsingValidationException e) {
-                        LOG.error("While parsing provided __UID__ {}", transfUid, e);
-                        value.setStringValue(transfUid);
+                // all values looked up at once
+                Map<String, List<Long>> keys = getAnyDAO(connObjectKeyItem).findByAttrValues(
+                        connObjectKeyItem.getIntAttrName(), transfUids.values());
+                for (Map.Entry<String, String> entry : transfUids.entrySet()) {
+                    if (keys.containsKey(entry.getValue())) {
+                        result.get(entry.getKey()).addAll(keys.get(entry.getValue()));
                     }
                 }
-
-                List<? extends Any<?, ?, ?>> anys =
-                        getAnyDAO(connObjectKeyItem).findByAttrValue(connObjectKeyItem.getIntAttrName(), value);
-                for (Any<?, ?, ?> any : anys) {
-                    result.add(any.getKey());
-                }
                 break;
 
             case UserDerivedSchema:
             case GroupDerivedSchema:
             case AnyObjectDerivedSchema:
-                anys = getAnyDAO(connObjectKeyItem).findByDerAttrValue(connObjectKeyItem.getIntAttrName(), transfUid);
-                for (Any<?, ?, ?> any : anys) {
-                    result.add(any.getKey());
+                for (Map.Entry<String, String> entry : transfUids.entrySet()) {
+                    for (Any<?, ?, ?> any : getAnyDAO(connObjectKeyItem).findByDerAttrValue(
+                            connObjectKeyItem.getIntAttrName(), entry.getValue())) {
+
+                        result.get(entry.getKey()).add(any.getKey());
+                    }
                 }
                 break;
 
             case UserKey:
             case GroupKey:
             case AnyObjectKey:
-                Any<?, ?, ?> any = getAnyDAO(connObjectKeyItem).find(Long.parseLong(transfUid));
-                if (any != null) {
-                    result.add(any.getKey());
+                for (Map.Entry<String, String> entry : transfUids.entrySet()) {
+                    Any<?, ?, ?> any = getAnyDAO(connObjectKeyItem).find(Long.parseLong(entry.getValue()));
+                    if (any != null) {
+                        result.get(entry.getKey()).add(any.getKey());
+                    }
                 }
                 break;
 
             case Username:
-                User user = userDAO.find(transfUid);
-                if (user != null) {
-                    result.add(user.getKey());
+                for (Map.Entry<String, String> entry : transfUids.entrySet()) {
+                    User user = userDAO.find(entry.getValue());
+                    if (user != null) {
+                        result.get(entry.getKey()).add(user.getKey());
+                    }
                 }
                 break;
 
             case GroupName:
-                Group group = groupDAO.find(transfUid);
-                if (group != null) {
-                    result.add(group.getKey());
+                for (Map.Entry<String, String> entry : transfUids.entrySet()) {
+                    Group group = groupDAO.find(entry.getValue());
+                    if (group != null) {
+                        result.get(entry.getKey()).add(group.getKey());
+                    }
                 }
                 break;
 
@@ -281,6 +277,20 @@ public class SyncUtils {
         return result;
     }
 
+    private SyncCorrelationRule getCorrelationRule(final Provision provision) {
+        SyncPolicySpec syncPolicySpec = null;
+        if (provision.getResource().getSyncPolicy() != null) {
+            syncPolicySpec = provision.getResource().getSyncPolicy().getSpecification();
+        }
+
+        SyncCorrelationRule syncRule = null;
+        if (syncPolicySpec != null) {
+            syncRule = getCorrelationRule(provision, syncPolicySpec);
+        }
+
+        return syncRule;
+    }
+
     /**
      * Find any objects based on mapped uid value (or previous uid value, if updated).
      *
@@ -296,21 +306,27 @@ public class SyncUtils {
             final Provision provision,
             final AnyUtils anyUtils) {
 
-        SyncPolicySpec syncPolicySpec = null;
-        if (provision.getResource().getSyncPolicy() != null) {
-            syncPolicySpec = provision.getResource().getSyncPolicy().getSpecification();
-        }
-
-        SyncCorrelationRule syncRule = null;
-        if (syncPolicySpec != null) {
-            syncRule = getCorrelationRule(provision, syncPolicySpec);
-        }
+        SyncCorrelationRule syncRule = getCorrelationRule(provision);
 
         return syncRule == null
-                ? findByConnObjectKeyItem(uid, provision, anyUtils)
+                ? findByConnObjectKeyItem(Collections.singletonList(uid), provision).get(uid)
                 : findByCorrelationRule(connObj, syncRule, anyUtils.getAnyTypeKind());
     }
 
+    /**
+     * Find any objects based on mapped uid values (or previous uid values, if updated), all at once; only available
+     * when no correlation rule is configured, as correlation rules are evaluated against each connector object.
+     *
+     * @param uids for finding by connObjectKey
+     * @param provision external resource
+     * @return list of matching users / groups by uid, or null when a correlation rule is configured
+     */
+    public Map<String, List<Long>> findExisting(final Collection<String> uids, final Provision provision) {
+        return getCorrelationRule(provision) == null
+                ? findByConnObjectKeyItem(uids, provision)
+                : null;
+    }
+
     public Boolean readEnabled(final ConnectorObject connectorObject, final ProvisioningTask task) {
         Boolean enabled = null;
         if (task.isSyncStatus()) {
@@ -48,6 +48,7 @@ import org.apache.syncope.core.logic.AbstractAnyLogic;
 import org.apache.syncope.core.logic.UserLogic;
 import org.apache.syncope.core.persistence.api.dao.NotFoundException;
 import org.apache.syncope.core.persistence.api.dao.search.SearchCond;
+import org.apache.syncope.core.persistence.api.dao.search.SearchPage;
 
 public abstract class AbstractAnyService<TO extends AnyTO, P extends AnyPatch>
         extends AbstractServiceImpl
@@ -124,10 +125,10 @@ public abstract class AbstractAnyService<TO extends AnyTO, P extends AnyPatch>
                         listQuery.getSize(),
                         getOrderByClauses(listQuery.getOrderBy()),
                         listQuery.getRealms(),
-                        listQuery.isDetails()),
+                        listQuery.isDetails(),
+                        listQuery.getCountLimit() == null ? -1 : listQuery.getCountLimit()),
                 listQuery.getPage(),
-                listQuery.getSize(),
-                getAnyLogic().count(listQuery.getRealms()));
+                listQuery.getSize());
     }
 
     @Override
@@ -141,6 +142,30 @@ public abstract class AbstractAnyService<TO extends AnyTO, P extends AnyPatch>
         });
 
         SearchCond cond = getSearchCond(searchQuery.getFiql());
+        if (!searchQuery.getAttributes().isEmpty()) {
+            return buildPagedResult(
+                    getAnyLogic().project(
+                            cond,
+                            searchQuery.getPage(),
+                            searchQuery.getSize(),
+                            getOrderByClauses(searchQuery.getOrderBy()),
+                            searchQuery.getRealms(),
+                            searchQuery.getCountLimit() == null ? -1 : searchQuery.getCountLimit(),
+                            searchQuery.getAttributes()),
+                    searchQuery.getPage(),
+                    searchQuery.getSize());
+        }
+        if (searchQuery.getAfter() != null) {
+            SearchPage<TO> page = getAnyLogic().search(
+                    cond,
+                    StringUtils.isBlank(searchQuery.getAfter()) ? null : searchQuery.getAfter(),
+                    searchQuery.getSize(),
+                    getOrderByClauses(searchQuery.getOrderBy()),
+                    searchQuery.getRealms(),
+                    searchQuery.isDetails());
+            return buildPagedResult(page.getItems(), searchQuery.getSize(), page.getNext());
+        }
+
         return buildPagedResult(
                 getAnyLogic().search(
                         cond,
@@ -148,10 +173,10 @@ public abstract class AbstractAnyService<TO extends AnyTO, P extends AnyPatch>
                         searchQuery.getSize(),
                         getOrderByClauses(searchQuery.getOrderBy()),
                         searchQuery.getRealms(),
-                        searchQuery.isDetails()),
+                        searchQuery.isDetails(),
+                        searchQuery.getCountLimit() == null ? -1 : searchQuery.getCountLimit()),
                 searchQuery.getPage(),
-                searchQuery.getSize(),
-                getAnyLogic().searchCount(cond, searchQuery.getRealms()));
+                searchQuery.getSize());
     }
 
     @Override
@@ -43,6 +43,7 @@ import org.apache.syncope.common.rest.api.RESTHeaders;
 import org.apache.syncope.core.misc.search.SearchCondVisitor;
 import org.apache.syncope.core.persistence.api.dao.search.OrderByClause;
 import org.apache.syncope.core.persistence.api.dao.search.SearchCond;
+import org.apache.syncope.core.persistence.api.dao.search.SearchPage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -218,4 +219,72 @@ abstract class AbstractServiceImpl implements JAXRSService {
         return result;
     }
 
+    /**
+     * Builds a paged result out of a page of items already carrying the total count; when such count is estimated,
+     * the link to next page is provided as long as the current page is full.
+     *
+     * @param <T> result type
+     * @param searchPage page of items, with total count
+     * @param page current page
+     * @param size requested size
+     * @return paged result
+     */
+    protected <T extends AbstractBaseBean> PagedResult<T> buildPagedResult(
+            final SearchPage<T> searchPage, final int page, final int size) {
+
+        PagedResult<T> result = buildPagedResult(searchPage.getItems(), page, size, searchPage.getTotalCount());
+        result.setTotalCountEstimated(searchPage.isTotalCountEstimated());
+
+        if (result.isTotalCountEstimated() && result.getNext() == null && result.getSize() >= size) {
+            UriBuilder builder = uriInfo.getAbsolutePathBuilder();
+            MultivaluedMap<String, String> queryParams = uriInfo.getQueryParameters();
+            for (Map.Entry<String, List<String>> queryParam : queryParams.entrySet()) {
+                builder = builder.queryParam(queryParam.getKey(), queryParam.getValue().toArray());
+            }
+
+            result.setNext(builder.
+                    replaceQueryParam(PARAM_PAGE, result.getPage() + 1).
+                    replaceQueryParam(PARAM_SIZE, size).
+                    build());
+        }
+
+        return result;
+    }
+
+    /**
+     * Builds a keyset paged result out of a list of items and the token for the next page; total count is not
+     * computed in this case, and reported as -1.
+     *
+     * @param <T> result type
+     * @param list bare list of items to be returned
+     * @param size requested size
+     * @param nextAfter token for the next page, null if there are no more results
+     * @return paged result
+     */
+    protected <T extends AbstractBaseBean> PagedResult<T> buildPagedResult(
+            final List<T> list, final int size, final String nextAfter) {
+
+        PagedResult<T> result = new PagedResult<>();
+        result.getResult().addAll(list);
+
+        result.setSize(result.getResult().size());
+        result.setTotalCount(-1);
+        result.setNextAfter(nextAfter);
+
+        if (nextAfter != null) {
+            UriBuilder builder = uriInfo.getAbsolutePathBuilder();
+            MultivaluedMap<String, String> queryParams = uriInfo.getQueryParameters();
+            for (Map.Entry<String, List<String>> queryParam : queryParams.entrySet()) {
+                builder = builder.queryParam(queryParam.getKey(), queryParam.getValue().toArray());
+            }
+
+            result.setNext(builder.
+                    replaceQueryParam(PARAM_AFTER, nextAfter).
+                    replaceQueryParam(PARAM_SIZE, size).
+                    build());
+        }
+
+        return result;
+    }
+
 }
@@ -20,10 +20,12 @@ package org.apache.syncope.core.rest.cxf.service;
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.StreamingOutput;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.syncope.common.lib.to.AttrTO;
 import org.apache.syncope.common.lib.to.ConfTO;
 import org.apache.syncope.common.rest.api.service.ConfigurationService;
@@ -36,22 +38,80 @@ public class ConfigurationServiceImpl extends AbstractServiceImpl implements Con
 
     private static final String CONTENT_XML = "content.xml";
 
+    private static final String GZIP = "gzip";
+
+    private static final String X_GZIP = "x-gzip";
+
+    private static final String ANY_ENCODING = "*";
+
+    /**
+     * Tells whether the given {@code Accept-Encoding} header value accepts gzip, honoring quality values: gzip is
+     * accepted when listed - alone or as {@code x-gzip} - with non-zero quality, or when not listed but matched by
+     * {@code *} with non-zero quality.
+     *
+     * @param acceptEncoding {@code Accept-Encoding} header value
+     * @return whether gzip is accepted
+     */
+    static boolean acceptsGzip(final String acceptEncoding) {
+        Float gzip = null;
+        Float any = null;
+        for (String coding : StringUtils.split(StringUtils.defaultString(acceptEncoding), ',')) {
+            String[] params = StringUtils.split(coding, ';');
+            if (params.length == 0) {
+                continue;
+            }
+
+            float quality = 1;
+            for (int i = 1; i < params.length; i++) {
+                String param = params[i].trim();
+                if (StringUtils.startsWithIgnoreCase(param, "q=")) {
+                    try {
+                        quality = Float.parseFloat(param.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        quality = 0;
+                    }
+                }
+            }
+
+            String name = params[0].trim();
+            if (GZIP.equalsIgnoreCase(name) || X_GZIP.equalsIgnoreCase(name)) {
+                gzip = gzip == null ? quality : Math.max(gzip, quality);
+            } else if (ANY_ENCODING.equals(name)) {
+                any = quality;
+            }
+        }
+
+        return gzip == null ? any != null && any > 0 : gzip > 0;
+    }
+
     @Autowired
     private ConfigurationLogic logic;
 
     @Override
     public Response export() {
+        final boolean gzip = acceptsGzip(
+                messageContext.getHttpHeaders().getHeaderString(HttpHeaders.ACCEPT_ENCODING));
+
         StreamingOutput sout = new StreamingOutput() {
 
             @Override
             public void write(final OutputStream os) throws IOException {
-                logic.export(os);
+                if (gzip) {
+                    GZIPOutputStream gzos = new GZIPOutputStream(os);
+                    logic.export(gzos);
+                    gzos.finish();
+                } else {
+                    logic.export(os);
+                }
             }
         };
-        return Response.ok(sout).
+        Response.ResponseBuilder builder = Response.ok(sout).
                 type(MediaType.TEXT_XML).
-                header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + CONTENT_XML).
-                build();
+                header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + CONTENT_XML);
+        if (gzip) {
+            builder.header(HttpHeaders.CONTENT_ENCODING, GZIP);
+        }
+        return builder.build();
     }
 
     @Override
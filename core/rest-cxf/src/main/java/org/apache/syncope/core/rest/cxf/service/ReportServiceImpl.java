@@ -25,14 +25,18 @@ import java.util.List;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.StreamingOutput;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.syncope.common.lib.to.PagedResult;
 import org.apache.syncope.common.lib.to.ReportExecTO;
 import org.apache.syncope.common.lib.to.ReportTO;
 import org.apache.syncope.common.lib.types.JobAction;
 import org.apache.syncope.common.lib.types.JobStatusType;
 import org.apache.syncope.common.lib.types.ReportExecExportFormat;
 import org.apache.syncope.common.rest.api.RESTHeaders;
+import org.apache.syncope.common.rest.api.beans.ExecQuery;
 import org.apache.syncope.common.rest.api.service.ReportService;
 import org.apache.syncope.core.logic.ReportLogic;
+import org.apache.syncope.core.persistence.api.dao.search.SearchPage;
 import org.apache.syncope.core.persistence.api.entity.ReportExec;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -72,6 +76,21 @@ public class ReportServiceImpl extends AbstractServiceImpl implements ReportServ
         return logic.readExecution(executionKey);
     }
 
+    @Override
+    public PagedResult<ReportExecTO> listExecutions(final Long key, final ExecQuery query) {
+        if (query.getAfter() != null) {
+            SearchPage<ReportExecTO> page = logic.listExecutions(
+                    key, StringUtils.isBlank(query.getAfter()) ? null : query.getAfter(), query.getSize());
+            return buildPagedResult(page.getItems(), query.getSize(), page.getNext());
+        }
+
+        return buildPagedResult(
+                logic.listExecutions(key, query.getPage(), query.getSize()),
+                query.getPage(),
+                query.getSize(),
+                logic.countExecutions(key));
+    }
+
     @Override
     public Response exportExecutionResult(final Long executionKey, final ReportExecExportFormat fmt) {
         final ReportExecExportFormat format = (fmt == null) ? ReportExecExportFormat.XML : fmt;
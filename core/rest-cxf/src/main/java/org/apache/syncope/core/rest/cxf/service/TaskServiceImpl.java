@@ -22,6 +22,7 @@ import java.net.URI;
 import java.util.List;
 import javax.ws.rs.BadRequestException;
 import javax.ws.rs.core.Response;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.syncope.common.lib.to.AbstractTaskTO;
 import org.apache.syncope.common.lib.to.BulkAction;
 import org.apache.syncope.common.lib.to.BulkActionResult;
@@ -34,9 +35,11 @@ import org.apache.syncope.common.lib.types.JobAction;
 import org.apache.syncope.common.lib.types.JobStatusType;
 import org.apache.syncope.common.lib.types.TaskType;
 import org.apache.syncope.common.rest.api.RESTHeaders;
+import org.apache.syncope.common.rest.api.beans.ExecQuery;
 import org.apache.syncope.common.rest.api.beans.TaskQuery;
 import org.apache.syncope.common.rest.api.service.TaskService;
 import org.apache.syncope.core.logic.TaskLogic;
+import org.apache.syncope.core.persistence.api.dao.search.SearchPage;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -107,6 +110,21 @@ public class TaskServiceImpl extends AbstractServiceImpl implements TaskService
         return logic.readExecution(executionKey);
     }
 
+    @Override
+    public PagedResult<TaskExecTO> listExecutions(final Long key, final ExecQuery query) {
+        if (query.getAfter() != null) {
+            SearchPage<TaskExecTO> page = logic.listExecutions(
+                    key, StringUtils.isBlank(query.getAfter()) ? null : query.getAfter(), query.getSize());
+            return buildPagedResult(page.getItems(), query.getSize(), page.getNext());
+        }
+
+        return buildPagedResult(
+                logic.listExecutions(key, query.getPage(), query.getSize()),
+                query.getPage(),
+                query.getSize(),
+                logic.countExecutions(key));
+    }
+
     @Override
     public void update(final AbstractTaskTO taskTO) {
         if (taskTO instanceof SyncTaskTO) {
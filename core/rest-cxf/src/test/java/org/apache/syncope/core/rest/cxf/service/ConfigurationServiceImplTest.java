@@ -0,0 +1,45 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.syncope.core.rest.cxf.service;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class ConfigurationServiceImplTest {
+
+    @Test
+    public void acceptsGzip() {
+        assertTrue(ConfigurationServiceImpl.acceptsGzip("gzip"));
+        assertTrue(ConfigurationServiceImpl.acceptsGzip("deflate, GZIP;q=0.5"));
+        assertTrue(ConfigurationServiceImpl.acceptsGzip("x-gzip"));
+        assertTrue(ConfigurationServiceImpl.acceptsGzip("identity;q=0.5, *"));
+
+        assertFalse(ConfigurationServiceImpl.acceptsGzip(null));
+        assertFalse(ConfigurationServiceImpl.acceptsGzip(""));
+        assertFalse(ConfigurationServiceImpl.acceptsGzip("identity"));
+        assertFalse(ConfigurationServiceImpl.acceptsGzip("gzip;q=0"));
+        assertFalse(ConfigurationServiceImpl.acceptsGzip("gzip; q=0.0, deflate"));
+        assertFalse(ConfigurationServiceImpl.acceptsGzip("gzip;q=0, *"));
+        assertFalse(ConfigurationServiceImpl.acceptsGzip("*;q=0"));
+        assertFalse(ConfigurationServiceImpl.acceptsGzip("gzipped"));
+        assertFalse(ConfigurationServiceImpl.acceptsGzip("gzip;q=invalid"));
+    }
+}
@@ -21,16 +21,19 @@ package org.apache.syncope.fit.core.reference;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
+import java.util.zip.GZIPInputStream;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import org.apache.commons.io.IOUtils;
+import org.apache.cxf.jaxrs.client.WebClient;
 import org.apache.syncope.common.lib.SyncopeClientException;
 import org.apache.syncope.common.lib.SyncopeConstants;
 import org.apache.syncope.common.lib.to.AttrTO;
@@ -131,6 +134,30 @@ public class ConfigurationITCase extends AbstractITCase {
         assertTrue(configExport.length() > 1000);
     }
 
+    @Test
+    public void dbExportGzip() throws IOException {
+        WebClient webClient = WebClient.fromClient(WebClient.client(configurationService)).
+                to(ADDRESS + "/configurations/stream", false);
+
+        Response response = webClient.header(HttpHeaders.ACCEPT_ENCODING, "deflate, gzip;q=0.5").get();
+        assertEquals(Response.Status.OK.getStatusCode(), response.getStatusInfo().getStatusCode());
+        assertEquals("gzip", response.getHeaderString(HttpHeaders.CONTENT_ENCODING));
+
+        String configExport = IOUtils.toString(
+                new GZIPInputStream((InputStream) response.getEntity()), SyncopeConstants.DEFAULT_ENCODING);
+        assertTrue(configExport.length() > 1000);
+
+        // quality 0 means not acceptable
+        webClient.reset();
+        response = webClient.to(ADDRESS + "/configurations/stream", false).
+                header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0, identity").get();
+        assertEquals(Response.Status.OK.getStatusCode(), response.getStatusInfo().getStatusCode());
+        assertNull(response.getHeaderString(HttpHeaders.CONTENT_ENCODING));
+
+        configExport = IOUtils.toString((InputStream) response.getEntity(), SyncopeConstants.DEFAULT_ENCODING);
+        assertTrue(configExport.length() > 1000);
+    }
+
     @Test
     public void issueSYNCOPE418() {
         PlainSchemaTO failing = new PlainSchemaTO();